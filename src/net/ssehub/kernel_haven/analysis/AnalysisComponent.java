@@ -16,13 +16,14 @@
 package net.ssehub.kernel_haven.analysis;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collection;
+import java.util.concurrent.Future;
 
 import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.util.BlockingQueue;
+import net.ssehub.kernel_haven.util.IBlockingQueue;
+import net.ssehub.kernel_haven.util.LockFreeBlockingQueue;
 import net.ssehub.kernel_haven.util.Logger;
 import net.ssehub.kernel_haven.util.Util;
 import net.ssehub.kernel_haven.util.io.ITableCollection;
@@ -45,135 +46,15 @@ public abstract class AnalysisComponent<O> {
     protected static final Logger LOGGER = Logger.get();
     
     /**
-     * Periodically logs the size of the result queues for all {@link AnalysisComponent}s.
-     * 
-     * TODO: This is a temporary debug measure.
+     * The component that is executed by the current thread; used to attribute input waits to the reading component.
      */
-    private static class ResultSizeLogger extends Thread {
-
-        private static final boolean ENABLED = false;
-        
-        private static final int LOG_THRESHHOLD = 10;
-        
-        private static final int PERIOD = 5000;
-        
-        private List<AnalysisComponent<?>> components;
-        
-        private List<AnalysisComponent<?>> doneComponents;
-        
-        /**
-         * Creates this logger. Private because there should be only one singleton instance.
-         */
-        private ResultSizeLogger() {
-            if (ENABLED) {
-                components = new LinkedList<>();
-                doneComponents = new LinkedList<>();
-            }
-        }
-        
-        /**
-         * Logs the size of all result queues. Periodically called by run().
-         */
-        private synchronized void logCurrentSizes() {
-            if (ENABLED) {
-                List<String> msg = new ArrayList<>(Math.max(components.size(), doneComponents.size()) + 1);
-                
-                msg.add("Currently running components:");
-                for (AnalysisComponent<?> component : components) {
-                    int size = component.results.getCurrentSize();
-                    if (size > LOG_THRESHHOLD) {
-                        String line = "\t- " + component.getResultName() + ": " + size;
-                        if (msg.get(msg.size() - 1).startsWith(line)) {
-                            msg.set(msg.size() - 1, line + " ++");
-                        } else {
-                            msg.add(line);
-                        }
-                    }
-                }
-                if (msg.size() > 1) {
-                    LOGGER.logInfo(msg.toArray(new String[0]));
-                } else {
-                    LOGGER.logInfo("No running components with >10 results");
-                }
-                msg.clear();
-                
-                msg.add("Finished components:");
-                for (AnalysisComponent<?> component : components) {
-                    int size = component.results.getCurrentSize();
-                    if (size > LOG_THRESHHOLD) {
-                        String line = "\t- " + component.getResultName() + ": " + size;
-                        if (msg.get(msg.size() - 1).startsWith(line)) {
-                            msg.set(msg.size() - 1, msg.get(msg.size() - 1) + " ++");
-                        } else {
-                            msg.add(line);
-                        }
-                    }
-                }
-                if (msg.size() > 1) {
-                    LOGGER.logInfo(msg.toArray(new String[0]));
-                } else {
-                    LOGGER.logInfo("No finished components with >10 results");
-                }
-            }
-        }
-        
-        /**
-         * Registers a newly create {@link AnalysisComponent}.
-         * 
-         * @param component The component that was newly created.
-         */
-        public synchronized void registerComponent(AnalysisComponent<?> component) {
-            if (ENABLED) {
-                components.add(component);
-            }
-        }
-        
-        /**
-         * Removes an {@link AnalysisComponent} that is done.
-         * 
-         * @param component The component that is done.
-         */
-        public synchronized void removeComponent(AnalysisComponent<?> component) {
-            if (ENABLED) {
-                components.remove(component);
-                doneComponents.add(component);
-            }
-        }
-        
-        @Override
-        public synchronized void start() {
-            if (ENABLED) {
-                this.setDaemon(true);
-                this.setName("ComponentResultSizeLogger");
-                super.start();
-            }
-        }
-        
-        @Override
-        public void run() {
-            if (ENABLED) {
-                while (true) {
-                    
-                    logCurrentSizes();
-                    
-                    try {
-                        Thread.sleep(PERIOD);
-                    } catch (InterruptedException e) {
-                    }
-                }
-            }
-        }
-        
-    }
+    private static final ThreadLocal<AnalysisComponent<?>> CURRENT_COMPONENT = new ThreadLocal<>();
     
-    private static final ResultSizeLogger RESULZ_SIZE_LOGGER;
+    private @NonNull IBlockingQueue<O> results;
     
-    static {
-        RESULZ_SIZE_LOGGER = new ResultSizeLogger();
-        RESULZ_SIZE_LOGGER.start();
-    }
+    private boolean lockFreeResults;
     
-    private @NonNull BlockingQueue<O> results;
+    private @NonNull PipelineExecutor executor;
     
     private boolean logResults;
     
@@ -183,14 +64,24 @@ public abstract class AnalysisComponent<O> {
     
     private long tStart;
     
+    private final @NonNull ComponentMetrics metrics;
+    
     /**
      * Creates a new analysis component.
      * 
      * @param config The pipeline configuration.
      */
     public AnalysisComponent(@NonNull Configuration config) {
-        results = new BlockingQueue<>();
-        RESULZ_SIZE_LOGGER.registerComponent(this);
+        lockFreeResults = config.getValue(DefaultSettings.ANALYSIS_PIPELINE_LOCK_FREE_QUEUES);
+        results = createResultQueue(config.getValue(DefaultSettings.ANALYSIS_PIPELINE_QUEUE_CAPACITY));
+        metrics = new ComponentMetrics(this);
+        PipelineAnalysis analysis = PipelineAnalysis.getInstance();
+        if (analysis != null) {
+            executor = analysis.getExecutor();
+            analysis.registerMetrics(metrics);
+        } else {
+            executor = PipelineExecutor.getDefault();
+        }
         
         setLogResults(config.getValue(DefaultSettings.ANALYSIS_COMPONENTS_LOG).contains(getClass().getSimpleName()));
     }
@@ -207,8 +98,45 @@ public abstract class AnalysisComponent<O> {
     }
     
     /**
-     * Starts a new thread that executes this analysis component. Only the first call to this method will start this
-     * component. Subsequent calls do nothing.
+     * Overrides the maximum number of results that this component buffers for the next component (see
+     * {@link DefaultSettings#ANALYSIS_PIPELINE_QUEUE_CAPACITY}). Sub-classes can use this in their constructor, e.g. if
+     * they produce very large results. This method must not be called once this component has started.
+     * 
+     * @param capacity The maximum number of buffered results. 0 means unbounded.
+     * 
+     * @throws IllegalArgumentException If capacity is negative.
+     * @throws IllegalStateException If this component has already been started.
+     */
+    protected final synchronized void setResultQueueCapacity(int capacity)
+            throws IllegalArgumentException, IllegalStateException {
+        
+        if (started) {
+            throw new IllegalStateException("Can't change result queue capacity of an already started component");
+        }
+        results = createResultQueue(capacity);
+    }
+    
+    /**
+     * Creates the queue that buffers the results of this component.
+     * 
+     * @param capacity The maximum number of buffered results. 0 means unbounded.
+     * 
+     * @return The result queue; either a {@link LockFreeBlockingQueue} or a {@link BlockingQueue}, depending on
+     *      {@link DefaultSettings#ANALYSIS_PIPELINE_LOCK_FREE_QUEUES}.
+     */
+    private @NonNull IBlockingQueue<O> createResultQueue(int capacity) {
+        IBlockingQueue<O> result;
+        if (lockFreeResults) {
+            result = new LockFreeBlockingQueue<>(capacity);
+        } else {
+            result = new BlockingQueue<>(capacity);
+        }
+        return result;
+    }
+    
+    /**
+     * Starts a new thread that executes this analysis component (see {@link PipelineExecutor}). Only the first call to
+     * this method will start this component. Subsequent calls do nothing.
      */
     protected final synchronized void start() {
         if (!started) {
@@ -220,21 +148,20 @@ public abstract class AnalysisComponent<O> {
                 }
             }
             
-            Thread th = new Thread(() -> {
+            executor.execute(() -> {
                 if (!isInternalHelperComponent()) {
                     LOGGER.logInfo("Analysis component " + getClass().getSimpleName() + " starting");
                 }
                 
+                CURRENT_COMPONENT.set(this);
+                metrics.started();
                 try {
                     execute();
                 } finally {
                     done();
+                    CURRENT_COMPONENT.remove();
                 }
             }, getClass().getSimpleName());
-            
-            //don't cause a deadlock with accidentally created AnalysisComponents that will never finish
-            th.setDaemon(true);
-            th.start();
             tStart = System.currentTimeMillis();
             
             started = true;
@@ -249,26 +176,89 @@ public abstract class AnalysisComponent<O> {
      */
     public final @Nullable O getNextResult() {
         start(); // make sure we are started
-        return results.get();
+        
+        AnalysisComponent<?> reader = CURRENT_COMPONENT.get();
+        long t0 = System.nanoTime();
+        O result = results.get();
+        if (reader != null) {
+            reader.metrics.inputReceived(result != null ? 1 : 0, System.nanoTime() - t0);
+        }
+        return result;
+    }
+    
+    /**
+     * Retrieves up to <code>max</code> results that this component creates and adds them to the given collection. If
+     * none is currently available, this method blocks until a result is ready. Afterwards, all results that are
+     * currently available (up to <code>max</code>) are retrieved at once. This is cheaper than calling
+     * {@link #getNextResult()} for each result, if this component produces many small results.
+     * 
+     * @param target The collection to add the results to.
+     * @param max The maximum number of results to retrieve. Must be positive.
+     * 
+     * @return The number of results added to target. 0 if this analysis is done and does not produce any results
+     *      anymore.
+     */
+    public final int getNextResults(@NonNull Collection<? super O> target, int max) {
+        start(); // make sure we are started
+        
+        AnalysisComponent<?> reader = CURRENT_COMPONENT.get();
+        long t0 = System.nanoTime();
+        int count = results.drainTo(target, max);
+        if (reader != null) {
+            reader.metrics.inputReceived(count, System.nanoTime() - t0);
+        }
+        return count;
     }
     
     /**
-     * Adds a result to be retrieved by the next component.
+     * Adds a result to be retrieved by the next component. If the result queue of this component has a maximum
+     * capacity and is full, then this blocks until the next component retrieved a result.
      * 
      * @param result The result to pass to the next component. Must not be <code>null</code>.
      */
     protected final void addResult(@NonNull O result) {
+        long t0 = System.nanoTime();
         results.add(result);
+        metrics.outputSent(1, System.nanoTime() - t0);
         
         if (logResults) {
-            LOGGER.logDebug("Analysis component " + getClass().getSimpleName() + " intermediate result: " + result);
-            
-            if (out != null) {
-                try {
-                    out.writeObject(result);
-                } catch (IOException | IllegalArgumentException e) {
-                    LOGGER.logException("Exception while writing to output file", e);
-                }
+            logResult(result);
+        }
+    }
+    
+    /**
+     * Logs the given intermediate result to the console and the output file.
+     * 
+     * @param result The result to log.
+     */
+    private void logResult(@NonNull O result) {
+        LOGGER.logDebug("Analysis component " + getClass().getSimpleName() + " intermediate result: " + result);
+        
+        if (out != null) {
+            try {
+                out.writeObject(result);
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.logException("Exception while writing to output file", e);
+            }
+        }
+    }
+    
+    /**
+     * Adds multiple results to be retrieved by the next component. This is cheaper than calling
+     * {@link #addResult(Object)} for each result, if this component produces many small results. If the result queue
+     * of this component has a maximum capacity, then this blocks until all results fit into the queue.
+     * 
+     * @param results The results to pass to the next component, in iteration order. Must not contain
+     *      <code>null</code>.
+     */
+    protected final void addResults(@NonNull Collection<? extends @NonNull O> results) {
+        long t0 = System.nanoTime();
+        this.results.addAll(results);
+        metrics.outputSent(results.size(), System.nanoTime() - t0);
+        
+        if (logResults) {
+            for (O result : results) {
+                logResult(result);
             }
         }
     }
@@ -284,6 +274,7 @@ public abstract class AnalysisComponent<O> {
         }
         
         results.end();
+        metrics.finished();
         if (out != null) {
             try {
                 out.close();
@@ -291,8 +282,56 @@ public abstract class AnalysisComponent<O> {
                 LOGGER.logException("Exception while closing output file", e);
             }
         }
-        
-        RESULZ_SIZE_LOGGER.removeComponent(this);
+    }
+    
+    /**
+     * Returns the live metrics of this component, e.g. how many results it has produced and how long it was blocked
+     * on its inputs.
+     * 
+     * @return The metrics of this component.
+     */
+    public final @NonNull ComponentMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Returns the {@link PipelineExecutor} that runs this component. Components in this package use this to run
+     * helper tasks, so that these respect the configured thread mode.
+     * 
+     * @return The executor of this component.
+     */
+    final @NonNull PipelineExecutor getExecutor() {
+        return executor;
+    }
+    
+    /**
+     * Runs a helper task of this component (e.g. a worker that processes inputs in parallel) with the
+     * {@link PipelineExecutor} of this component. Inputs that the task reads from other components are counted in the
+     * {@link ComponentMetrics} of this component.
+     * 
+     * @param task The task to run.
+     * @param name The name of the task.
+     * 
+     * @return A {@link Future} that can be used to wait for the task to finish.
+     */
+    final @NonNull Future<?> executeHelper(@NonNull Runnable task, @NonNull String name) {
+        return executor.execute(() -> {
+            CURRENT_COMPONENT.set(this);
+            try {
+                task.run();
+            } finally {
+                CURRENT_COMPONENT.remove();
+            }
+        }, name);
+    }
+    
+    /**
+     * Returns the number of results that are currently buffered for the next component.
+     * 
+     * @return The current size of the result queue.
+     */
+    final int getResultQueueSize() {
+        return results.getCurrentSize();
     }
     
     /**
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.ssehub.kernel_haven.util.io.TableElement;
+import net.ssehub.kernel_haven.util.io.TableRow;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * <p>
+ * Live counters of a single {@link AnalysisComponent}: how many items it received from its input components and
+ * passed to the next component, how long it was blocked waiting for inputs or for space in its result queue, and how
+ * many results are currently buffered. The counters can be read at any time while the pipeline runs; each row of the
+ * metrics table of a {@link PipelineAnalysis} is one instance of this class.
+ * </p>
+ * <p>
+ * Input waits are only counted for inputs that the component reads in the thread that executes it, or in one of its
+ * helper tasks. The busy time is the elapsed time minus the time spent waiting; for components that read inputs or
+ * produce results from multiple threads (e.g. {@link ParallelFlatMapComponent}), the waits are summed over all
+ * threads, so the busy time is a lower bound.
+ * </p>
+ *
+ * @author Adam
+ */
+@TableRow
+public final class ComponentMetrics {
+
+    private final @NonNull AnalysisComponent<?> component;
+
+    private final @NonNull LongAdder itemsIn;
+
+    private final @NonNull LongAdder itemsOut;
+
+    private final @NonNull LongAdder inputWaitNanos;
+
+    private final @NonNull LongAdder outputWaitNanos;
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
+    private volatile boolean started;
+
+    private volatile boolean done;
+
+    /**
+     * Creates the metrics for the given component.
+     *
+     * @param component The component that is measured.
+     */
+    ComponentMetrics(@NonNull AnalysisComponent<?> component) {
+        this.component = component;
+        this.itemsIn = new LongAdder();
+        this.itemsOut = new LongAdder();
+        this.inputWaitNanos = new LongAdder();
+        this.outputWaitNanos = new LongAdder();
+    }
+
+    /**
+     * Records that the component started executing.
+     */
+    void started() {
+        startNanos = System.nanoTime();
+        started = true;
+    }
+
+    /**
+     * Records that the component is done.
+     */
+    void finished() {
+        endNanos = System.nanoTime();
+        done = true;
+    }
+
+    /**
+     * Records that the component read inputs.
+     *
+     * @param count The number of inputs read; 0 if the input component was done.
+     * @param waitNanos How long the component was blocked, in nanoseconds.
+     */
+    void inputReceived(int count, long waitNanos) {
+        itemsIn.add(count);
+        inputWaitNanos.add(waitNanos);
+    }
+
+    /**
+     * Records that the component passed results to its result queue.
+     *
+     * @param count The number of results.
+     * @param waitNanos How long the component was blocked because the queue was full, in nanoseconds.
+     */
+    void outputSent(int count, long waitNanos) {
+        itemsOut.add(count);
+        outputWaitNanos.add(waitNanos);
+    }
+
+    /**
+     * Returns the class name of the measured component.
+     *
+     * @return The name of the component.
+     */
+    @TableElement(index = 0, name = "Component")
+    public @NonNull String getComponentName() {
+        String name = component.getClass().getSimpleName();
+        if (name.isEmpty()) {
+            name = component.getClass().getName();
+        }
+        return name;
+    }
+
+    /**
+     * Returns the result name of the measured component.
+     *
+     * @return The result name (see {@link AnalysisComponent#getResultName()}).
+     */
+    @TableElement(index = 1, name = "Result")
+    public @NonNull String getResultName() {
+        return component.getResultName();
+    }
+
+    /**
+     * Returns the number of inputs that the component read from its input components.
+     *
+     * @return The number of inputs.
+     */
+    @TableElement(index = 2, name = "Items In")
+    public long getItemsIn() {
+        return itemsIn.sum();
+    }
+
+    /**
+     * Returns the number of results that the component passed to the next component.
+     *
+     * @return The number of results.
+     */
+    @TableElement(index = 3, name = "Items Out")
+    public long getItemsOut() {
+        return itemsOut.sum();
+    }
+
+    /**
+     * Returns the number of results that are currently buffered for the next component.
+     *
+     * @return The current size of the result queue.
+     */
+    @TableElement(index = 4, name = "Queue Size")
+    public int getQueueSize() {
+        return component.getResultQueueSize();
+    }
+
+    /**
+     * Returns how long the component has been executing; until it was done, or until now if it is still running.
+     *
+     * @return The elapsed time, in milliseconds. 0 if the component has not started.
+     */
+    @TableElement(index = 5, name = "Elapsed (ms)")
+    public long getElapsedTime() {
+        long result = 0;
+        if (started) {
+            long end = done ? endNanos : System.nanoTime();
+            result = TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        }
+        return result;
+    }
+
+    /**
+     * Returns how long the component was working, i.e. not blocked on its inputs or its result queue.
+     *
+     * @return The busy time, in milliseconds.
+     */
+    @TableElement(index = 6, name = "Busy (ms)")
+    public long getBusyTime() {
+        return Math.max(0, getElapsedTime() - getInputWaitTime() - getOutputWaitTime());
+    }
+
+    /**
+     * Returns how long the component was blocked waiting for inputs.
+     *
+     * @return The input wait time, in milliseconds.
+     */
+    @TableElement(index = 7, name = "Input Wait (ms)")
+    public long getInputWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(inputWaitNanos.sum());
+    }
+
+    /**
+     * Returns how long the component was blocked because its result queue was full.
+     *
+     * @return The output wait time, in milliseconds.
+     */
+    @TableElement(index = 8, name = "Output Wait (ms)")
+    public long getOutputWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(outputWaitNanos.sum());
+    }
+
+    /**
+     * Returns whether the component is done.
+     *
+     * @return Whether the component is done.
+     */
+    @TableElement(index = 9, name = "Done")
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return getComponentName() + " (" + getResultName() + "): in=" + getItemsIn() + ", out=" + getItemsOut()
+                + ", queue=" + getQueueSize() + ", busy=" + getBusyTime() + " ms, input wait=" + getInputWaitTime()
+                + " ms, output wait=" + getOutputWaitTime() + " ms";
+    }
+
+}
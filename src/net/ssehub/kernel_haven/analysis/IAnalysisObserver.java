@@ -20,7 +20,8 @@ import java.util.List;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
- * Observer for the {@link ObservableAnalysis}, will be notified after all analysis results are available.
+ * Observer for the {@link ObservableAnalysis}, will be notified after all analysis results are available. See
+ * {@link IStreamingAnalysisObserver} for an observer that is notified about each result as soon as it is available.
  * 
  * @author El-Sharkawy
  *
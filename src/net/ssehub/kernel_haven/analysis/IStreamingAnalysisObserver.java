@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Observer for the {@link ObservableAnalysis}, which is notified about each result as soon as it is available,
+ * instead of receiving a list of all results at the end. The {@link ObservableAnalysis} does not retain the results
+ * for these observers.
+ * <p>
+ * The notifications are delivered asynchronously in a separate thread, in the order of the results. The results are
+ * buffered in a bounded queue, so a slow observer eventually slows down the analysis instead of accumulating
+ * results in memory. After the last result, {@link #notifyFinished()} is called (also if there were no results).
+ *
+ * @author Adam
+ */
+public interface IStreamingAnalysisObserver extends IAnalysisObserver {
+
+    /**
+     * Will be called for each result of the observed analysis, in the order in which they are produced.
+     *
+     * @param result The result; of the output type of the observed analysis.
+     */
+    public void notifyResult(@NonNull Object result);
+
+    /**
+     * Not called for streaming observers; {@link #notifyFinished()} is called instead.
+     *
+     * @param analysisResults Ignored.
+     */
+    @Override
+    public default void notifyFinished(@NonNull List<@NonNull ?> analysisResults) {
+        notifyFinished();
+    }
+
+    /**
+     * Will be called after the last result was passed to {@link #notifyResult(Object)}, or if the analysis has not
+     * produced any results.
+     */
+    @Override
+    public void notifyFinished();
+
+}
@@ -15,14 +15,25 @@
  */
 package net.ssehub.kernel_haven.analysis;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.util.IElementSerializer;
+import net.ssehub.kernel_haven.util.JavaElementSerializer;
+import net.ssehub.kernel_haven.util.SpillableList;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
- * A component that collects all results from the previous component into one list.
+ * A component that collects all results from the previous component into one list. The list is a normal
+ * {@link ArrayList}, unless more than {@link DefaultSettings#ANALYSIS_LIST_COLLECTOR_MAX_IN_MEMORY} elements are
+ * collected. In that case, the list is a {@link SpillableList}, which writes elements to disk. Either way, the
+ * consumer only gets a read-only view of the list. A {@link SpillableList} is closed (and its temporary file deleted)
+ * when the {@link PipelineAnalysis} ends, so the list must not be used after that; outside of a pipeline, the file is
+ * deleted once the list is garbage collected, or on JVM exit.
  * 
  * @param <T> The type of result to collect into one list.
  * 
@@ -32,27 +43,61 @@ public class ListCollectorComponent<T> extends AnalysisComponent<List<T>> {
 
     private @NonNull AnalysisComponent<T> previousComponent;
     
+    private int maxInMemory;
+    
+    private @NonNull IElementSerializer<T> serializer;
+    
+    private @Nullable PipelineAnalysis pipeline;
+    
     /**
-     * Creates anew {@link ListCollectorComponent} for the given previous component.
+     * Creates anew {@link ListCollectorComponent} for the given previous component. Spilled elements are written with
+     * the Java serialization.
      * 
      * @param config The global configuration.
      * @param previousComponent The previous component
      */
     public ListCollectorComponent(@NonNull Configuration config, @NonNull AnalysisComponent<T> previousComponent) {
+        this(config, previousComponent, new JavaElementSerializer<>());
+    }
+    
+    /**
+     * Creates anew {@link ListCollectorComponent} for the given previous component.
+     * 
+     * @param config The global configuration.
+     * @param previousComponent The previous component
+     * @param serializer The serializer for elements that are spilled to disk.
+     */
+    public ListCollectorComponent(@NonNull Configuration config, @NonNull AnalysisComponent<T> previousComponent,
+            @NonNull IElementSerializer<T> serializer) {
         super(config);
         this.previousComponent = previousComponent;
+        this.maxInMemory = config.getValue(DefaultSettings.ANALYSIS_LIST_COLLECTOR_MAX_IN_MEMORY);
+        this.serializer = serializer;
+        this.pipeline = PipelineAnalysis.getInstance();
     }
 
     @Override
     protected void execute() {
-        List<T> collected = new LinkedList<>();
+        List<T> collected = new ArrayList<>();
+        boolean spilling = false;
         
         T result;
         while ((result = previousComponent.getNextResult()) != null) {
+            if (!spilling && maxInMemory > 0 && collected.size() >= maxInMemory) {
+                // threshold reached; switch to a list that writes elements to disk
+                SpillableList<T> spillable = new SpillableList<>(maxInMemory, serializer);
+                PipelineAnalysis pipeline = this.pipeline;
+                if (pipeline != null) {
+                    pipeline.registerCloseable(spillable);
+                }
+                spillable.addAll(collected);
+                collected = spillable;
+                spilling = true;
+            }
             collected.add(result);
         }
         
-        addResult(collected);
+        addResult(Collections.unmodifiableList(collected));
     }
     
     @Override
@@ -17,8 +17,11 @@ package net.ssehub.kernel_haven.analysis;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.util.BlockingQueue;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -26,6 +29,10 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
  * An {@link AnalysisComponent} which does not produce any results, instead it will pass the received results to
  * observers. This component is intended to serve as an interface between KernelHaven and other tools, which want to
  * use KernelHaven as some kind of input source.
+ * <p>
+ * {@link IStreamingAnalysisObserver}s are notified about each result as soon as it arrives. Plain
+ * {@link IAnalysisObserver}s receive a list of all results at the end; this list is only created if at least one such
+ * observer is registered.
  * 
  * @param <I> The result type of the analysis.
  * 
@@ -33,6 +40,11 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
  */
 public class ObservableAnalysis<I> extends AnalysisComponent<I> {
 
+    /**
+     * The maximum number of results that are buffered for the {@link IStreamingAnalysisObserver}s.
+     */
+    private static final int STREAMING_BUFFER_SIZE = 1024;
+    
     private static List<IAnalysisObserver> observers = new ArrayList<>();
 
     private @NonNull AnalysisComponent<I> previousComponent;
@@ -50,22 +62,108 @@ public class ObservableAnalysis<I> extends AnalysisComponent<I> {
 
     @Override
     protected void execute() {
-        List<@NonNull I> previousResults = new ArrayList<>();
+        List<@NonNull IStreamingAnalysisObserver> streamingObservers = new ArrayList<>();
+        List<@NonNull IAnalysisObserver> listObservers = new ArrayList<>();
+        synchronized (ObservableAnalysis.class) {
+            for (IAnalysisObserver observer : observers) {
+                if (observer instanceof IStreamingAnalysisObserver) {
+                    streamingObservers.add((IStreamingAnalysisObserver) observer);
+                } else {
+                    listObservers.add(observer);
+                }
+            }
+        }
         
-        @Nullable I input;
-        while ((input = previousComponent.getNextResult()) != null) {
-            addResult(input);
-            previousResults.add(input);
+        BlockingQueue<@NonNull I> streamingBuffer = null;
+        Future<?> notifier = null;
+        if (!streamingObservers.isEmpty()) {
+            BlockingQueue<@NonNull I> buffer = new BlockingQueue<>(STREAMING_BUFFER_SIZE);
+            notifier = getExecutor().execute(() -> notifyStreamingObservers(streamingObservers, buffer),
+                    "ObservableAnalysis-Notifier");
+            streamingBuffer = buffer;
         }
+        List<@NonNull I> previousResults = listObservers.isEmpty() ? null : new ArrayList<>();
         
-        for (IAnalysisObserver observer : observers) {
-            if (!previousResults.isEmpty()) {
+        try {
+            @Nullable I input;
+            while ((input = previousComponent.getNextResult()) != null) {
+                addResult(input);
+                if (streamingBuffer != null) {
+                    streamingBuffer.add(input);
+                }
+                if (previousResults != null) {
+                    previousResults.add(input);
+                }
+            }
+            
+        } finally {
+            // also if the previous component fails, so that the streaming observers are notified about the end
+            if (streamingBuffer != null && notifier != null) {
+                streamingBuffer.end();
+                try {
+                    notifier.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    LOGGER.logException("Cannot wait for thread", e);
+                }
+            }
+        }
+        
+        for (IAnalysisObserver observer : listObservers) {
+            if (previousResults != null && !previousResults.isEmpty()) {
                 observer.notifyFinished(previousResults);
             } else {
                 observer.notifyFinished();
             }
         }
     }
+    
+    /**
+     * Passes the results from the buffer to the given observers, until the buffer is ended. Exceptions thrown by the
+     * observers are logged, so that a faulty observer doesn't block the analysis. If an {@link Error} is thrown, the
+     * remaining results are discarded, so that the analysis doesn't block on the full buffer.
+     * 
+     * @param streamingObservers The observers to notify.
+     * @param buffer The buffer that contains the results.
+     */
+    private static <I> void notifyStreamingObservers(
+            @NonNull List<@NonNull IStreamingAnalysisObserver> streamingObservers,
+            @NonNull BlockingQueue<@NonNull I> buffer) {
+        
+        boolean completed = false;
+        try {
+            I result;
+            while ((result = buffer.get()) != null) {
+                for (IStreamingAnalysisObserver observer : streamingObservers) {
+                    try {
+                        observer.notifyResult(result);
+                        // CHECKSTYLE:OFF
+                    } catch (Exception e) {
+                        // CHECKSTYLE:ON
+                        LOGGER.logException("Exception in analysis observer", e);
+                    }
+                }
+            }
+            completed = true;
+            
+        } finally {
+            if (!completed) {
+                // an Error was thrown; if this thread stopped reading, the analysis would block on the full buffer
+                while (buffer.get() != null) {
+                    // discard
+                }
+            }
+        }
+        
+        for (IStreamingAnalysisObserver observer : streamingObservers) {
+            try {
+                observer.notifyFinished();
+                // CHECKSTYLE:OFF
+            } catch (Exception e) {
+                // CHECKSTYLE:ON
+                LOGGER.logException("Exception in analysis observer", e);
+            }
+        }
+    }
 
     @Override
     public @NonNull String getResultName() {
@@ -73,10 +171,11 @@ public class ObservableAnalysis<I> extends AnalysisComponent<I> {
     }
 
     /**
-     * Sets observers for all instances of this class, will also removed all previously set observers.
+     * Sets observers for all instances of this class, will also removed all previously set observers. This may
+     * contain {@link IStreamingAnalysisObserver}s.
      * @param observers All observers to set, must not be <tt>null</tt>.
      */
-    public static void setObservers(@NonNull IAnalysisObserver... observers) {
+    public static synchronized void setObservers(@NonNull IAnalysisObserver... observers) {
         ObservableAnalysis.observers.clear();
         for (int i = 0; i < observers.length; i++) {
             ObservableAnalysis.observers.add(observers[i]);
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.util.BlockingQueue;
+import net.ssehub.kernel_haven.util.OrderPreservingParallelizer;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * <p>
+ * An analysis component that turns each result of its input component into any number of results. Multiple inputs
+ * are processed in parallel, so sub-classes must implement {@link #flatMap(Object)} in a thread-safe way. See
+ * {@link ParallelMapComponent} for components that create at most one result per input.
+ * </p>
+ * <p>
+ * The number of worker threads, whether the results keep the order of the inputs, and how many inputs may be in
+ * flight at the same time are configured via {@link DefaultSettings#ANALYSIS_PIPELINE_PARALLEL_THREADS},
+ * {@link DefaultSettings#ANALYSIS_PIPELINE_PARALLEL_PRESERVE_ORDER} and
+ * {@link DefaultSettings#ANALYSIS_PIPELINE_PARALLEL_MAX_IN_FLIGHT}. Sub-classes with a public constructor that takes
+ * the {@link Configuration} and the input component can be used in the pipeline string of a
+ * {@link ConfiguredPipelineAnalysis}.
+ * </p>
+ * <p>
+ * If {@link #flatMap(Object)} throws an exception for an input, then the exception is logged and this input produces
+ * no results.
+ * </p>
+ *
+ * @param <I> The type of the results of the input component.
+ * @param <O> The type of the results of this component.
+ *
+ * @author Adam
+ */
+public abstract class ParallelFlatMapComponent<I, O> extends AnalysisComponent<O> {
+
+    private static final int DEFAULT_IN_FLIGHT_PER_THREAD = 16;
+
+    private @NonNull AnalysisComponent<I> inputComponent;
+
+    private int numThreads;
+
+    private boolean preserveOrder;
+
+    private int maxInFlight;
+
+    /**
+     * Creates this component.
+     *
+     * @param config The pipeline configuration.
+     * @param inputComponent The component to get the inputs from.
+     */
+    public ParallelFlatMapComponent(@NonNull Configuration config, @NonNull AnalysisComponent<I> inputComponent) {
+        super(config);
+        this.inputComponent = inputComponent;
+
+        int numThreads = config.getValue(DefaultSettings.ANALYSIS_PIPELINE_PARALLEL_THREADS);
+        this.numThreads = numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+        this.preserveOrder = config.getValue(DefaultSettings.ANALYSIS_PIPELINE_PARALLEL_PRESERVE_ORDER);
+        int maxInFlight = config.getValue(DefaultSettings.ANALYSIS_PIPELINE_PARALLEL_MAX_IN_FLIGHT);
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : this.numThreads * DEFAULT_IN_FLIGHT_PER_THREAD;
+    }
+
+    /**
+     * Turns a single input into results. Called in parallel from multiple worker threads.
+     *
+     * @param input The input to process.
+     *
+     * @return The results for this input, in the order in which they should be passed to the next component. May be
+     *      empty. Must not contain <code>null</code>.
+     */
+    protected abstract @NonNull Collection<? extends @NonNull O> flatMap(@NonNull I input);
+
+    @Override
+    protected final void execute() {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        if (preserveOrder) {
+            OrderPreservingParallelizer<@NonNull I, @NonNull Collection<? extends @NonNull O>> parallelizer
+                    = new OrderPreservingParallelizer<>(this::process, (results) -> {
+                        try {
+                            addResults(results);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }, numThreads, maxInFlight, (task, name) -> executeHelper(task,
+                            getClass().getSimpleName() + "-" + name));
+
+            I input;
+            while ((input = inputComponent.getNextResult()) != null) {
+                inFlight.acquireUninterruptibly();
+                parallelizer.add(input);
+            }
+            parallelizer.end();
+            parallelizer.join();
+
+        } else {
+            BlockingQueue<@NonNull I> todo = new BlockingQueue<>();
+            // the workers only pass their results to the component thread, so that addResults() is never called
+            // concurrently
+            BlockingQueue<@NonNull Collection<? extends @NonNull O>> done = new BlockingQueue<>();
+            AtomicInteger runningWorkers = new AtomicInteger(numThreads);
+
+            for (int i = 0; i < numThreads; i++) {
+                executeHelper(() -> {
+                    try {
+                        I input;
+                        while ((input = todo.get()) != null) {
+                            done.add(process(input));
+                        }
+                    } finally {
+                        if (runningWorkers.decrementAndGet() == 0) {
+                            done.end();
+                        }
+                    }
+                }, getClass().getSimpleName() + "-Worker-" + (i + 1));
+            }
+
+            executeHelper(() -> {
+                try {
+                    I input;
+                    while ((input = inputComponent.getNextResult()) != null) {
+                        inFlight.acquireUninterruptibly();
+                        todo.add(input);
+                    }
+                } finally {
+                    todo.end();
+                }
+            }, getClass().getSimpleName() + "-Feeder");
+
+            Collection<? extends @NonNull O> results;
+            while ((results = done.get()) != null) {
+                try {
+                    addResults(results);
+                } finally {
+                    inFlight.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls {@link #flatMap(Object)} and catches all exceptions.
+     *
+     * @param input The input to process.
+     *
+     * @return The results for the input; empty if {@link #flatMap(Object)} threw an exception.
+     */
+    private @NonNull Collection<? extends @NonNull O> process(@NonNull I input) {
+        Collection<? extends @NonNull O> result;
+        try {
+            result = flatMap(input);
+
+            // CHECKSTYLE:OFF
+        } catch (Exception e) {
+            // CHECKSTYLE:ON
+            LOGGER.logException("Exception in " + getClass().getSimpleName() + " while processing an input", e);
+            result = Collections.emptyList();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A {@link ParallelFlatMapComponent} that turns each input into at most one result. Returning <code>null</code> from
+ * {@link #map(Object)} filters the input out. For example, a component that computes a metric for each
+ * {@link net.ssehub.kernel_haven.code_model.SourceFile} can extend this class to process multiple files in parallel.
+ *
+ * @param <I> The type of the results of the input component.
+ * @param <O> The type of the results of this component.
+ *
+ * @author Adam
+ */
+public abstract class ParallelMapComponent<I, O> extends ParallelFlatMapComponent<I, O> {
+
+    /**
+     * Creates this component.
+     *
+     * @param config The pipeline configuration.
+     * @param inputComponent The component to get the inputs from.
+     */
+    public ParallelMapComponent(@NonNull Configuration config, @NonNull AnalysisComponent<I> inputComponent) {
+        super(config, inputComponent);
+    }
+
+    /**
+     * Turns a single input into a result. Called in parallel from multiple worker threads.
+     *
+     * @param input The input to process.
+     *
+     * @return The result for this input, or <code>null</code> if this input should not produce a result.
+     */
+    protected abstract @Nullable O map(@NonNull I input);
+
+    @Override
+    protected final @NonNull Collection<? extends @NonNull O> flatMap(@NonNull I input) {
+        O result = map(input);
+        return result != null ? Collections.singletonList(result) : Collections.emptyList();
+    }
+
+}
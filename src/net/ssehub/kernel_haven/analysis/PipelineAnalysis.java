@@ -15,11 +15,15 @@
  */
 package net.ssehub.kernel_haven.analysis;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.build_model.BuildModel;
@@ -43,16 +47,27 @@ import net.ssehub.kernel_haven.variability_model.VariabilityModel;
  */
 public abstract class PipelineAnalysis extends AbstractAnalysis {
 
+    /**
+     * The maximum number of results that are polled from the main component at once.
+     */
+    private static final int OUTPUT_BATCH_SIZE = 256;
+    
     private static PipelineAnalysis instance;
     
     private ITableCollection resultCollection;
     
+    private PipelineExecutor executor;
+    
     private ExtractorDataDuplicator<VariabilityModel> vmStarter;
     
     private ExtractorDataDuplicator<BuildModel> bmStarter;
     
     private ExtractorDataDuplicator<SourceFile<?>> cmStarter;
     
+    private PipelineMetrics metrics;
+    
+    private List<@NonNull Closeable> closeables;
+    
     /**
      * Creates a new {@link PipelineAnalysis}.
      * 
@@ -72,6 +87,16 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
         return instance;
     }
     
+    /**
+     * Returns the {@link PipelineExecutor} that runs the components of this pipeline.
+     * 
+     * @return The executor of this pipeline; the default executor if this analysis is not running.
+     */
+    @NonNull PipelineExecutor getExecutor() {
+        PipelineExecutor executor = this.executor;
+        return executor != null ? executor : PipelineExecutor.getDefault();
+    }
+    
     /**
      * Returns the {@link AnalysisComponent} that provides the variability model from the extractors.
      * 
@@ -108,6 +133,57 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
         return resultCollection;
     }
     
+    /**
+     * Registers the metrics of a newly created {@link AnalysisComponent} of this pipeline.
+     * 
+     * @param componentMetrics The metrics of the component.
+     */
+    void registerMetrics(@NonNull ComponentMetrics componentMetrics) {
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.register(componentMetrics);
+        }
+    }
+    
+    /**
+     * Registers a resource that a component of this pipeline handed out with its results, and that should be closed
+     * once this pipeline is done (e.g. the temporary file of a {@link net.ssehub.kernel_haven.util.SpillableList}).
+     * 
+     * @param closeable The resource to close at the end of this pipeline.
+     */
+    void registerCloseable(@NonNull Closeable closeable) {
+        List<@NonNull Closeable> closeables = this.closeables;
+        if (closeables != null) {
+            closeables.add(closeable);
+        }
+    }
+    
+    /**
+     * Closes all resources registered via {@link #registerCloseable(Closeable)}.
+     */
+    private void closeRegistered() {
+        synchronized (closeables) {
+            for (Closeable closeable : closeables) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    LOGGER.logException("Exception while closing resource of pipeline", e);
+                }
+            }
+            closeables.clear();
+        }
+    }
+    
+    /**
+     * Returns the metrics of all {@link AnalysisComponent}s created for this pipeline.
+     * 
+     * @return The metrics of all components, in order of their creation. Empty if this analysis has not run yet.
+     */
+    public @NonNull List<@NonNull ComponentMetrics> getComponentMetrics() {
+        PipelineMetrics metrics = this.metrics;
+        return metrics != null ? metrics.getComponents() : new ArrayList<>();
+    }
+    
     /**
      * Creates the result collection from the user settings.
      * 
@@ -140,9 +216,13 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
     public void run() {
         Thread.currentThread().setName("AnalysisPipelineController");
         try {
-            vmStarter = new ExtractorDataDuplicator<>(vmProvider, false, "VM");
-            bmStarter = new ExtractorDataDuplicator<>(bmProvider, false, "BM");
-            cmStarter = new ExtractorDataDuplicator<>(cmProvider, true, "CM");
+            executor = new PipelineExecutor(config);
+            metrics = new PipelineMetrics(config);
+            closeables = Collections.synchronizedList(new ArrayList<>());
+            
+            vmStarter = new ExtractorDataDuplicator<>(vmProvider, false, "VM", executor);
+            bmStarter = new ExtractorDataDuplicator<>(bmProvider, false, "BM", executor);
+            cmStarter = new ExtractorDataDuplicator<>(cmProvider, true, "CM", executor);
             
             try {
                 resultCollection = createResultCollection();
@@ -156,34 +236,47 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
             
             instance = this;
         
-            AnalysisComponent<?> mainComponent = createPipeline();
-            
-            if (config.getValue(DefaultSettings.ANALYSIS_PIPELINE_START_EXTRACTORS)) {
-                // start all extractors; this is needed here because the analysis components will most likely poll them
-                // in order, which means that the extractors would not run in parallel
-                vmStarter.start();
-                bmStarter.start();
-                cmStarter.start();
-            }
-            
-            if (mainComponent instanceof JoinComponent) {
-                joinSplitComponentFull((JoinComponent) mainComponent);
-                
-            } else {
-                pollAndWriteOutput(mainComponent);
-            }
-            
-            LOGGER.logDebug("Analysis components done");
-            
             try {
-                LOGGER.logDebug("Closing result collection");
-                resultCollection.close();
+                AnalysisComponent<?> mainComponent = createPipeline();
+                metrics.startSampling();
+                
+                if (config.getValue(DefaultSettings.ANALYSIS_PIPELINE_START_EXTRACTORS)) {
+                    // start all extractors; this is needed here because the analysis components will most likely poll
+                    // them in order, which means that the extractors would not run in parallel
+                    vmStarter.start();
+                    bmStarter.start();
+                    cmStarter.start();
+                }
+                
+                if (mainComponent instanceof JoinComponent) {
+                    joinSplitComponentFull((JoinComponent) mainComponent);
+                    
+                } else {
+                    pollAndWriteOutput(mainComponent);
+                }
+                
+                LOGGER.logDebug("Analysis components done");
                 
-                for (File file : resultCollection.getFiles()) {
-                    addOutputFile(file);
+            } finally {
+                // also stop the metrics sampler and write the report if the pipeline fails
+                metrics.finish(resultCollection);
+                
+                try {
+                    LOGGER.logDebug("Closing result collection");
+                    resultCollection.close();
+                    
+                    for (File file : resultCollection.getFiles()) {
+                        addOutputFile(file);
+                    }
+                } catch (IOException e) {
+                    LOGGER.logException("Exception while closing output file", e);
+                }
+                
+                closeRegistered();
+                executor.shutdown();
+                if (instance == this) {
+                    instance = null;
                 }
-            } catch (IOException e) {
-                LOGGER.logException("Exception while closing output file", e);
             }
             
         } catch (SetUpException e) {
@@ -197,21 +290,18 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
      * @param mainComponent The analysis, which is joining results of multiple other components.
      */
     private void joinSplitComponentFull(@NonNull JoinComponent mainComponent) {
-        List<Thread> threads = new ArrayList<>(mainComponent.getInputs().length);
+        List<Future<?>> futures = new ArrayList<>(mainComponent.getInputs().length);
         
         for (AnalysisComponent<?> component : mainComponent.getInputs()) {
-            Thread th = new Thread(() -> {
+            futures.add(executor.execute(() -> {
                 pollAndWriteOutput(component);
-            }, "AnalysisPipelineControllerOutputThread");
-            threads.add(th);
-            th.setDaemon(true);
-            th.start();
+            }, "AnalysisPipelineControllerOutputThread"));
         }
         
-        for (Thread th : threads) {
+        for (Future<?> future : futures) {
             try {
-                th.join();
-            } catch (InterruptedException e) {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
             }
         }
     }
@@ -226,11 +316,14 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
             ")...");
         
         try (ITableWriter writer = resultCollection.getWriter(component.getResultName())) {
-            Object result;
-            while ((result = component.getNextResult()) != null) {
-                LOGGER.logDebug2("Got analysis result: ", result.toString());
-                
-                writer.writeObject(result);
+            List<Object> batch = new ArrayList<>(OUTPUT_BATCH_SIZE);
+            while (component.getNextResults(batch, OUTPUT_BATCH_SIZE) > 0) {
+                for (Object result : batch) {
+                    LOGGER.logDebug2("Got analysis result: ", result.toString());
+                    
+                    writer.writeObject(result);
+                }
+                batch.clear();
             }
         } catch (IOException e) {
             LOGGER.logException("Exception while writing output file", e);
@@ -255,17 +348,34 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
         
         private @NonNull String type;
         
+        private @NonNull PipelineExecutor executor;
+        
+        /**
+         * Creates a new ExtractorDataDuplicator that runs with the default {@link PipelineExecutor}.
+         * 
+         * @param provider The provider to get the data from.
+         * @param multiple Whether the provider should be polled multiple times or just once.
+         * @param type The type of duplicator component ("CM", "BM" or "VM").
+         */
+        public ExtractorDataDuplicator(@NonNull AbstractProvider<T> provider, boolean multiple,
+                @NonNull String type) {
+            this(provider, multiple, type, PipelineExecutor.getDefault());
+        }
+        
         /**
          * Creates a new ExtractorDataDuplicator.
          * 
          * @param provider The provider to get the data from.
          * @param multiple Whether the provider should be polled multiple times or just once.
          * @param type The type of duplicator component ("CM", "BM" or "VM").
+         * @param executor The executor to run the duplicator with.
          */
-        public ExtractorDataDuplicator(@NonNull AbstractProvider<T> provider, boolean multiple, @NonNull String type) {
+        public ExtractorDataDuplicator(@NonNull AbstractProvider<T> provider, boolean multiple, @NonNull String type,
+                @NonNull PipelineExecutor executor) {
             this.provider = provider;
             this.multiple = multiple;
             this.type = type;
+            this.executor = executor;
             startingComponents = new LinkedList<>();
         }
         
@@ -301,7 +411,7 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
         public void start() {
             synchronized (this) {
                 if (!started) {
-                    new Thread(this, "ExtractorDataDuplicator").start();
+                    executor.execute(this, "ExtractorDataDuplicator");
                     started = true;
                 }
             }
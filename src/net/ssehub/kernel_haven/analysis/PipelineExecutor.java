@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Runs the tasks of an analysis pipeline, i.e. the {@link AnalysisComponent}s and the helper tasks of the
+ * {@link PipelineAnalysis}. Depending on {@link DefaultSettings#ANALYSIS_PIPELINE_THREAD_MODE}, each task runs in a
+ * dedicated thread, in a virtual thread, or in a shared thread pool. Each {@link PipelineAnalysis} creates its own
+ * executor, which the components that it creates use, and shuts it down when the pipeline is done.
+ *
+ * @author Adam
+ */
+public final class PipelineExecutor {
+
+    /**
+     * The different ways of running the tasks of an analysis pipeline.
+     */
+    public static enum Mode {
+        
+        /**
+         * Each task runs in its own dedicated (daemon) thread.
+         */
+        DEDICATED_THREADS,
+        
+        /**
+         * Each task runs in its own virtual thread. This requires Java 21 or newer; on older versions, this falls
+         * back to {@link #DEDICATED_THREADS}.
+         */
+        VIRTUAL_THREADS,
+        
+        /**
+         * The tasks run in a shared pool of (daemon) threads. The size of the pool is defined by
+         * {@link DefaultSettings#ANALYSIS_PIPELINE_THREAD_POOL_SIZE}. If all threads of a bounded pool are busy,
+         * further tasks run in additional dedicated threads, i.e. the pool size does not limit the total number of
+         * threads.
+         */
+        THREAD_POOL,
+    
+    }
+    
+    private static final Logger LOGGER = Logger.get();
+    
+    /**
+     * The executor for components that are created outside of a running {@link PipelineAnalysis}.
+     */
+    private static final @NonNull PipelineExecutor DEFAULT = new PipelineExecutor(Mode.DEDICATED_THREADS, 0);
+    
+    /**
+     * The executor to submit the tasks to. <code>null</code> if each task runs in a dedicated thread.
+     */
+    private @Nullable ExecutorService executor;
+    
+    /**
+     * Creates a new {@link PipelineExecutor}.
+     *
+     * @param mode The way of running the tasks.
+     * @param poolSize The size of the thread pool, if mode is {@link Mode#THREAD_POOL}. 0 means unbounded.
+     */
+    private PipelineExecutor(@NonNull Mode mode, int poolSize) {
+        switch (mode) {
+        case VIRTUAL_THREADS:
+            executor = createVirtualThreadExecutor();
+            break;
+        
+        case THREAD_POOL:
+            executor = createThreadPool(poolSize);
+            break;
+        
+        case DEDICATED_THREADS:
+        default:
+            executor = null;
+            break;
+        }
+    }
+    
+    /**
+     * Creates a new {@link PipelineExecutor} for the given configuration. It should be shut down (see
+     * {@link #shutdown()}) once the pipeline is done.
+     *
+     * @param config The pipeline configuration.
+     */
+    PipelineExecutor(@NonNull Configuration config) {
+        this(config.getValue(DefaultSettings.ANALYSIS_PIPELINE_THREAD_MODE),
+                config.getValue(DefaultSettings.ANALYSIS_PIPELINE_THREAD_POOL_SIZE));
+    }
+    
+    /**
+     * Returns the executor for components that are created outside of a running {@link PipelineAnalysis}. It runs
+     * each task in a dedicated thread, and is never shut down.
+     *
+     * @return The default {@link PipelineExecutor}.
+     */
+    static @NonNull PipelineExecutor getDefault() {
+        return DEFAULT;
+    }
+    
+    /**
+     * Creates an executor that starts a new virtual thread for each task. Virtual threads are only available since
+     * Java 21, thus this uses reflection to stay compatible to older Java versions.
+     *
+     * @return The executor that uses virtual threads; <code>null</code> if virtual threads are not supported by the
+     *      current Java version.
+     */
+    private static @Nullable ExecutorService createVirtualThreadExecutor() {
+        ExecutorService result = null;
+        try {
+            result = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | ClassCastException e) {
+            LOGGER.logWarning("Virtual threads are not supported by this Java version; falling back to dedicated "
+                    + "threads for the analysis pipeline");
+        }
+        return result;
+    }
+    
+    /**
+     * Creates a pool of daemon threads. If the pool is bounded and all of its threads are busy, then further tasks run
+     * in dedicated threads instead of waiting for a free pool thread. Analysis components block while waiting for
+     * their input components, so queuing tasks would deadlock the pipeline if the pool is smaller than the number of
+     * components: the waiting components would hold all pool threads, while the components that they wait for never
+     * start.
+     *
+     * @param size The maximum number of threads in the pool. 0 means unbounded.
+     *
+     * @return The thread pool.
+     */
+    private static @NonNull ExecutorService createThreadPool(int size) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = (runnable) -> {
+            Thread th = new Thread(runnable, "AnalysisPipelineWorker-" + threadNumber.incrementAndGet());
+            //don't cause a deadlock with accidentally created AnalysisComponents that will never finish
+            th.setDaemon(true);
+            return th;
+        };
+        
+        ExecutorService result;
+        if (size > 0) {
+            AtomicInteger overflowNumber = new AtomicInteger();
+            result = new ThreadPoolExecutor(0, size, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), factory,
+                (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Analysis pipeline executor is shut down");
+                    }
+                    LOGGER.logDebug("All " + size + " analysis pipeline pool threads are busy; "
+                            + "running task in a dedicated thread");
+                    startDedicatedThread(runnable, "AnalysisPipelineOverflow-" + overflowNumber.incrementAndGet());
+                });
+        } else {
+            result = Executors.newCachedThreadPool(factory);
+        }
+        return result;
+    }
+    
+    /**
+     * Runs the given task in a new dedicated daemon thread.
+     *
+     * @param task The task to run.
+     * @param name The name of the thread.
+     */
+    private static void startDedicatedThread(@NonNull Runnable task, @NonNull String name) {
+        Thread th = new Thread(task, name);
+        //don't cause a deadlock with accidentally created AnalysisComponents that will never finish
+        th.setDaemon(true);
+        th.start();
+    }
+    
+    /**
+     * Runs the given task asynchronously. While the task runs, the executing thread has the given name. Exceptions
+     * thrown by the task are passed to the uncaught exception handler of the executing thread.
+     *
+     * @param task The task to run.
+     * @param name The name of the task.
+     *
+     * @return A {@link Future} that can be used to wait for the task to finish.
+     *
+     * @throws RejectedExecutionException If this executor is already shut down.
+     */
+    @NonNull Future<?> execute(@NonNull Runnable task, @NonNull String name) throws RejectedExecutionException {
+        Runnable wrapper = () -> {
+            Thread th = Thread.currentThread();
+            String previousName = th.getName();
+            th.setName(name);
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                th.getUncaughtExceptionHandler().uncaughtException(th, e);
+            } finally {
+                th.setName(previousName);
+            }
+        };
+        
+        FutureTask<?> future = new FutureTask<>(wrapper, null);
+        
+        ExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.execute(future);
+        } else {
+            startDedicatedThread(future, name);
+        }
+        
+        return future;
+    }
+    
+    /**
+     * Shuts this executor down. Tasks that are already running are not interrupted, but no new tasks are accepted,
+     * and the idle threads of the pool terminate. Does nothing if each task runs in a dedicated thread.
+     */
+    void shutdown() {
+        ExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.io.ITableCollection;
+import net.ssehub.kernel_haven.util.io.ITableWriter;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Collects the {@link ComponentMetrics} of all {@link AnalysisComponent}s of one {@link PipelineAnalysis} run.
+ * Depending on the configuration, the metrics of the running components are logged periodically (see
+ * {@link DefaultSettings#ANALYSIS_PIPELINE_METRICS_LOG_INTERVAL}), and the metrics of all components are written as
+ * a table at the end of the run (see {@link DefaultSettings#ANALYSIS_PIPELINE_METRICS_OUTPUT}).
+ *
+ * @author Adam
+ */
+class PipelineMetrics {
+
+    /**
+     * The name of the table that the metrics are written to.
+     */
+    static final @NonNull String TABLE_NAME = "Pipeline Metrics";
+
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    private final @NonNull List<@NonNull ComponentMetrics> components;
+
+    private final boolean writeTable;
+
+    private final int logInterval;
+
+    private @Nullable Thread sampler;
+
+    private boolean finished;
+
+    /**
+     * Creates the metrics for a pipeline run.
+     *
+     * @param config The pipeline configuration.
+     */
+    PipelineMetrics(@NonNull Configuration config) {
+        this.components = new ArrayList<>();
+        this.writeTable = config.getValue(DefaultSettings.ANALYSIS_PIPELINE_METRICS_OUTPUT);
+        this.logInterval = config.getValue(DefaultSettings.ANALYSIS_PIPELINE_METRICS_LOG_INTERVAL);
+    }
+
+    /**
+     * Registers the metrics of a newly created component. Ignored if the run is already finished.
+     *
+     * @param metrics The metrics of the component.
+     */
+    synchronized void register(@NonNull ComponentMetrics metrics) {
+        if (!finished) {
+            components.add(metrics);
+        }
+    }
+
+    /**
+     * Returns the metrics of all registered components.
+     *
+     * @return A copy of the list of the registered metrics, in order of the creation of the components.
+     */
+    synchronized @NonNull List<@NonNull ComponentMetrics> getComponents() {
+        return new ArrayList<>(components);
+    }
+
+    /**
+     * Starts the thread that periodically logs the metrics, if a log interval is configured.
+     */
+    synchronized void startSampling() {
+        if (logInterval > 0 && sampler == null && !finished) {
+            Thread sampler = new Thread(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        Thread.sleep(logInterval);
+                        logMetrics(false);
+                    }
+                } catch (InterruptedException e) {
+                    // finished
+                }
+            }, "PipelineMetricsLogger");
+            sampler.setDaemon(true);
+            sampler.start();
+            this.sampler = sampler;
+        }
+    }
+
+    /**
+     * Logs the metrics of the running components (or of all components).
+     *
+     * @param all Whether to include the components that are done.
+     */
+    private void logMetrics(boolean all) {
+        List<@NonNull ComponentMetrics> components = getComponents();
+        List<@NonNull String> lines = new ArrayList<>(components.size() + 1);
+        lines.add("");
+        int numDone = 0;
+        for (ComponentMetrics metrics : components) {
+            if (metrics.isDone()) {
+                numDone++;
+            }
+            if (all || !metrics.isDone()) {
+                lines.add("\t- " + metrics);
+            }
+        }
+        lines.set(0, "Analysis pipeline metrics (" + numDone + " of " + components.size() + " components done):");
+        LOGGER.logInfo(lines.toArray(new String[0]));
+    }
+
+    /**
+     * Stops the periodic logging and writes the metrics table to the given collection, if configured. Components
+     * created afterwards are no longer registered.
+     *
+     * @param resultCollection The collection to write the metrics table to.
+     */
+    void finish(@NonNull ITableCollection resultCollection) {
+        Thread sampler;
+        synchronized (this) {
+            finished = true;
+            sampler = this.sampler;
+            this.sampler = null;
+        }
+
+        if (sampler != null) {
+            sampler.interrupt();
+            logMetrics(true);
+        }
+
+        if (writeTable) {
+            try (ITableWriter writer = resultCollection.getWriter(TABLE_NAME)) {
+                for (ComponentMetrics metrics : getComponents()) {
+                    writer.writeObject(metrics);
+                }
+            } catch (IOException e) {
+                LOGGER.logException("Exception while writing pipeline metrics", e);
+            }
+        }
+    }
+
+}
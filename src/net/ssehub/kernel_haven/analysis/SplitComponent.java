@@ -15,6 +15,7 @@
  */
 package net.ssehub.kernel_haven.analysis;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -34,6 +35,11 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  */
 public final class SplitComponent<T> extends AnalysisComponent<Void> {
 
+    /**
+     * The maximum number of results that are passed to the output components at once.
+     */
+    private static final int BATCH_SIZE = 256;
+    
     private @NonNull Configuration config;
     
     private @NonNull AnalysisComponent<T> inputComponent;
@@ -67,11 +73,12 @@ public final class SplitComponent<T> extends AnalysisComponent<Void> {
 
     @Override
     protected void execute() {
-        T data;
-        while ((data = inputComponent.getNextResult()) != null) {
+        List<@NonNull T> batch = new ArrayList<>(BATCH_SIZE);
+        while (inputComponent.getNextResults(batch, BATCH_SIZE) > 0) {
             for (OutputComponent out : outputComponents) {
-                out.addResult(data);
+                out.addResults(batch);
             }
+            batch.clear();
         }
         
         for (OutputComponent out : outputComponents) {
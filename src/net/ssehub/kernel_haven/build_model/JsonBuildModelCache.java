@@ -24,18 +24,16 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import net.ssehub.kernel_haven.build_model.BuildModelDescriptor.KeyType;
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.io.json.JsonBoolean;
-import net.ssehub.kernel_haven.util.io.json.JsonElement;
 import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
-import net.ssehub.kernel_haven.util.io.json.JsonParser;
-import net.ssehub.kernel_haven.util.io.json.JsonPrettyPrinter;
+import net.ssehub.kernel_haven.util.io.json.JsonReader;
 import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.io.json.JsonWriter;
 import net.ssehub.kernel_haven.util.logic.Formula;
 import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
 import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
@@ -67,33 +65,52 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
     
     @Override
     public @Nullable BuildModel read(@NonNull File target) throws FormatException, IOException {
-        JsonObject data = null;
         BuildModel result = null;
         
-        try (JsonParser parser = new JsonParser(cacheFile)) {
+        // the presence conditions can be a large object; read them directly without creating a JSON tree
+        try (JsonReader in = new JsonReader(cacheFile)) {
             
-            JsonElement parsed = parser.parse();
-            if (!(parsed instanceof JsonObject)) {
-                throw new FormatException("Expected JSON object, got " + parsed.getClass().getSimpleName());
-            }
-            
-            data = (JsonObject) parsed;
+            Integer version = null;
+            BuildModelDescriptor descriptor = null;
+            BuildModel pcs = null;
             
-        } catch (FileNotFoundException e) {
-            // ignore and return null
-        }
-        
-        if (data != null) {
-            if (data.getInt("version") != VERSION) {
-                throw new FormatException("Got invalid version " + data.getInt("version") + ", we only support "
-                        + VERSION);
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.readName()) {
+                case "version":
+                    version = in.readInt();
+                    if (version != VERSION) {
+                        throw new FormatException("Got invalid version " + version + ", we only support "
+                                + VERSION);
+                    }
+                    break;
+                    
+                case "descriptor":
+                    descriptor = readDescriptor(in);
+                    break;
+                    
+                case "presenceConditions":
+                    pcs = new BuildModel();
+                    readPcs(in, pcs);
+                    break;
+                    
+                default:
+                    in.skipValue();
+                    break;
+                }
             }
+            in.endObject();
+            in.peek(); // check that the document ends here
             
-            result = new BuildModel();
+            if (version == null || descriptor == null || pcs == null) {
+                throw new FormatException("Cache file is missing version, descriptor or presenceConditions");
+            }
             
-            result.setDescriptor(jsonToDescriptor(data.getObject("descriptor")));
+            pcs.setDescriptor(descriptor);
+            result = pcs;
             
-            jsonToPcs(data.getObject("presenceConditions"), result);
+        } catch (FileNotFoundException e) {
+            // ignore and return null
         }
         
         return result;
@@ -102,35 +119,51 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
     /**
      * Reads the {@link BuildModelDescriptor} from the given JSON.
      * 
-     * @param json The JSON object that stores the {@link BuildModelDescriptor}.
+     * @param in The JSON reader, positioned at the object that stores the {@link BuildModelDescriptor}.
      * 
      * @return The converted {@link BuildModelDescriptor}.
      * 
      * @throws FormatException If the JSON is malformed.
+     * @throws IOException If reading the cache file fails.
      */
-    private @NonNull BuildModelDescriptor jsonToDescriptor(@NonNull JsonObject json) throws FormatException {
+    private @NonNull BuildModelDescriptor readDescriptor(@NonNull JsonReader in) throws FormatException, IOException {
         BuildModelDescriptor result = new BuildModelDescriptor();
         
-        try {
-            result.setKeyType(KeyType.valueOf(json.getString("keyType")));
-        } catch (IllegalArgumentException e) {
-            throw new FormatException(e);
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.readName()) {
+            case "keyType":
+                try {
+                    result.setKeyType(KeyType.valueOf(in.readString()));
+                } catch (IllegalArgumentException e) {
+                    throw new FormatException(e);
+                }
+                break;
+                
+            case "caseSensitive":
+                result.setCaseSensitive(in.readBoolean());
+                break;
+                
+            default:
+                in.skipValue();
+                break;
+            }
         }
-        
-        result.setCaseSensitive(json.getBoolean("caseSensitive"));
+        in.endObject();
         
         return result;
     }
     
     /**
-     * Converts the given JSON object back into presence conditions.
+     * Reads the presence conditions from the given JSON.
      * 
-     * @param json The JSON to convert.
+     * @param in The JSON reader, positioned at the object that maps file paths to presence conditions.
      * @param result The {@link BuildModel} to add the result to.
      * 
      * @throws FormatException If JSON is malformed.
+     * @throws IOException If reading the cache file fails.
      */
-    private void jsonToPcs(@NonNull JsonObject json, @NonNull BuildModel result) throws FormatException {
+    private void readPcs(@NonNull JsonReader in, @NonNull BuildModel result) throws FormatException, IOException {
         VariableCache cache = new VariableCache();
         Parser</*@NonNull*/ Formula> parser = new Parser<>(new CStyleBooleanGrammar(cache));
         /*
@@ -142,13 +175,10 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
          * https://github.com/jacoco/jacoco/issues/585
          */
         
-        for (Map.Entry<String, JsonElement> entry : json) {
-            if (!(entry.getValue() instanceof JsonString)) {
-                throw new FormatException("Expected JsonString, but got "
-                        + entry.getValue().getClass().getSimpleName());
-            }
-            
-            String pcStr = ((JsonString) entry.getValue()).getValue();
+        in.beginObject();
+        while (in.hasNext()) {
+            String file = in.readName();
+            String pcStr = in.readString();
             
             Formula pc;
             try {
@@ -157,8 +187,9 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
                 throw new FormatException(e);
             }
             
-            result.add(new File(entry.getKey()), pc);
+            result.add(new File(file), pc);
         }
+        in.endObject();
     }
 
     @Override
@@ -170,8 +201,8 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
         mainJson.putElement("descriptor", descriptorToJson(bm.getDescriptor()));
         mainJson.putElement("presenceConditions", pcsToJson(bm));
         
-        try (BufferedWriter out = new BufferedWriter(new FileWriter(cacheFile))) {
-            out.write(mainJson.accept(new JsonPrettyPrinter()));
+        try (JsonWriter out = new JsonWriter(new BufferedWriter(new FileWriter(cacheFile)), true)) {
+            out.write(mainJson);
         }
     }
     
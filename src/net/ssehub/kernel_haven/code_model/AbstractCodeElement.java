@@ -33,10 +33,6 @@ import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
 import net.ssehub.kernel_haven.util.io.json.JsonString;
 import net.ssehub.kernel_haven.util.logic.Formula;
-import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
-import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
-import net.ssehub.kernel_haven.util.logic.parser.Parser;
-import net.ssehub.kernel_haven.util.logic.parser.VariableCache;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -51,9 +47,6 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
 public abstract class AbstractCodeElement<NestedType extends CodeElement<NestedType>>
         implements CodeElement<NestedType> {
 
-    private static final @NonNull Parser<@NonNull Formula> PARSER
-            = new Parser<>(new CStyleBooleanGrammar(new VariableCache()));
-    
     private static final @NonNull File UNKNOWN = new File("<unknown>");
     
     private @NonNull File sourceFile;
@@ -100,14 +93,15 @@ public abstract class AbstractCodeElement<NestedType extends CodeElement<NestedT
         this.lineEnd = json.getInt("lineEnd");
 
         if (json.getElement("condition") != null) {
-            this.condition = parseJsonFormula(json.getString("condition"));
+            this.condition = deserializeFormula(notNull(json.getElement("condition")));
         }
         
-        this.presenceCondition = parseJsonFormula(json.getString("presenceCondition"));
+        this.presenceCondition = deserializeFormula(notNull(json.getElement("presenceCondition")));
     }
     
     /**
-     * Utility method for de-serialization. Parses the given formula string to a formula.
+     * Utility method for de-serialization. Parses the given formula string to a formula. While a cache file is read,
+     * each distinct formula string is parsed only once.
      * 
      * @param formula The formula string to parse.
      * 
@@ -116,11 +110,56 @@ public abstract class AbstractCodeElement<NestedType extends CodeElement<NestedT
      * @throws FormatException If the formula can't be parsed.
      */
     protected @NonNull Formula parseJsonFormula(@NonNull String formula) throws FormatException {
-        try {
-            return PARSER.parse(formula);
-        } catch (ExpressionFormatException e) {
-            throw new FormatException("Can't parse formula", e);
+        FormulaTable table = FormulaTable.getCurrent();
+        return table != null ? table.getFormula(formula) : FormulaTable.parse(formula);
+    }
+    
+    /**
+     * Utility method for serialization. Serializes the given formula. While a cache file is written, this is a
+     * reference to the table of distinct formulas of the cache file; otherwise, this is the formula string. This is
+     * the inverse operation to {@link #deserializeFormula(JsonElement)}.
+     * 
+     * @param formula The formula to serialize.
+     * 
+     * @return The serialized formula.
+     */
+    protected @NonNull JsonElement serializeFormula(@NonNull Formula formula) {
+        FormulaTable table = FormulaTable.getCurrent();
+        JsonElement result;
+        if (table != null) {
+            result = new JsonNumber(table.getIndex(formula));
+        } else {
+            result = new JsonString(notNull(formula.toString()));
+        }
+        return result;
+    }
+    
+    /**
+     * Utility method for de-serialization. De-serializes a formula created by {@link #serializeFormula(Formula)}.
+     * Formulas that reference the same entry of the formula table share the same {@link Formula} instance.
+     * 
+     * @param json The serialized formula.
+     * 
+     * @return The de-serialized formula.
+     * 
+     * @throws FormatException If the JSON does not have the expected format or the formula can't be parsed.
+     */
+    protected @NonNull Formula deserializeFormula(@NonNull JsonElement json) throws FormatException {
+        Formula result;
+        if (json instanceof JsonNumber) {
+            FormulaTable table = FormulaTable.getCurrent();
+            if (table == null) {
+                throw new FormatException("Formula reference without a formula table");
+            }
+            result = table.getFormula(((JsonNumber) json).getValue().intValue());
+            
+        } else if (json instanceof JsonString) {
+            result = parseJsonFormula(((JsonString) json).getValue());
+            
+        } else {
+            throw new FormatException("Expected JsonNumber or JsonString, but got " + json.getClass().getSimpleName());
         }
+        return result;
     }
 
     @Override
@@ -465,10 +504,10 @@ public abstract class AbstractCodeElement<NestedType extends CodeElement<NestedT
         result.putElement("lineEnd", new JsonNumber(lineEnd));
         
         if (condition != null) {
-            result.putElement("condition", new JsonString(condition.toString()));
+            result.putElement("condition", serializeFormula(condition));
         }
         
-        result.putElement("presenceCondition", new JsonString(presenceCondition.toString()));
+        result.putElement("presenceCondition", serializeFormula(presenceCondition));
     }
     
     @Override
@@ -0,0 +1,589 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.ssehub.kernel_haven.provider.AbstractCache;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonBoolean;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonList;
+import net.ssehub.kernel_haven.util.io.json.JsonNull;
+import net.ssehub.kernel_haven.util.io.json.JsonNumber;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.io.json.JsonVisitor;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A cache for saving (and reading) a code model to files, using a compact binary format. This uses the same structure
+ * as the {@link JsonCodeModelCache} (i.e. {@link CodeElement#serializeToJson(JsonObject, java.util.function.Function,
+ * java.util.function.Function)}), so all {@link CodeElement}s that can be cached as JSON are supported. However, the
+ * structure is not written as (pretty-printed) text, but as tagged binary values:
+ * <ul>
+ *      <li>Each file starts with a magic number and the version of the binary format.</li>
+ *      <li>Strings (keys and values) are interned: each distinct string is written only once; all further occurrences
+ *          are written as an index into the table of already read strings.</li>
+ * </ul>
+ *
+ * @author Adam
+ */
+public class BinaryCodeModelCache extends AbstractCache<SourceFile<?>> {
+
+    /**
+     * The magic number at the start of each cache file ("KHCM").
+     */
+    private static final int MAGIC = 0x4B48434D;
+
+    private static final int VERSION = 2;
+
+    private static final byte TAG_OBJECT = 1;
+
+    private static final byte TAG_LIST = 2;
+
+    private static final byte TAG_STRING = 3;
+
+    private static final byte TAG_INT = 4;
+
+    private static final byte TAG_LONG = 5;
+
+    private static final byte TAG_DOUBLE = 6;
+
+    private static final byte TAG_TRUE = 7;
+
+    private static final byte TAG_FALSE = 8;
+
+    private static final byte TAG_NULL = 9;
+
+    private @NonNull File cacheDir;
+
+    private boolean compress;
+
+    /**
+     * Creates a new cache in the given cache directory.
+     *
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     */
+    public BinaryCodeModelCache(@NonNull File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Creates a new cache in the given cache directory.
+     *
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param compress
+     *            Whether the cache files should be written compressed (GZIP). Already
+     *            existing compressed cache files are always read, even if
+     *            compression is turned off.
+     */
+    public BinaryCodeModelCache(@NonNull File cacheDir, boolean compress) {
+        this.cacheDir = cacheDir;
+        this.compress = compress;
+    }
+
+    /**
+     * Returns the path where the given source file should be cached.
+     *
+     * @param path
+     *            The path of the source file, relative to the source code tree.
+     * @return The file where to cache.
+     */
+    private @NonNull File getCacheFile(@NonNull File path) {
+        String name = path.getPath().replace(File.separatorChar, '.') + ".bin";
+        return new File(cacheDir, name);
+    }
+
+    /**
+     * Returns the path where the given source file should be cached, if
+     * compression is turned on.
+     *
+     * @param path
+     *            The path of the source file, relative to the source code tree.
+     * @return The file where to cache.
+     */
+    private @NonNull File getCompressedCacheFile(@NonNull File path) {
+        String name = path.getPath().replace(File.separatorChar, '.') + ".bin.gz";
+        return new File(cacheDir, name);
+    }
+
+    /**
+     * Writes the given {@link SourceFile} to the cache.
+     *
+     * @param file
+     *            The file to write to the cache. Must not be <code>null</code>.
+     * @throws IOException
+     *             If writing the cache file fails.
+     */
+    @Override
+    public void write(@NonNull SourceFile<?> file) throws IOException {
+        File cacheFile;
+        if (compress) {
+            // delete the uncompressed version, since this method is supposed to
+            // overwrite any previous cache
+            getCacheFile(file.getPath()).delete();
+            cacheFile = getCompressedCacheFile(file.getPath());
+        } else {
+            cacheFile = getCacheFile(file.getPath());
+        }
+
+        OutputStream fileOut = new FileOutputStream(cacheFile);
+        if (compress) {
+            fileOut = new GZIPOutputStream(fileOut);
+        }
+
+        try (OutputStream out = new BufferedOutputStream(fileOut)) {
+            writeSourceFile(file, out);
+        }
+    }
+
+    /**
+     * Writes the given {@link SourceFile} in the binary format to the given stream. Package visibility, because the
+     * {@link PackedCodeModelCache} uses the same format.
+     *
+     * @param file The source file to write.
+     * @param out The stream to write to. Is flushed, but not closed.
+     *
+     * @throws IOException If writing to the stream fails.
+     */
+    static void writeSourceFile(@NonNull SourceFile<?> file, @NonNull OutputStream out) throws IOException {
+        JsonElement json = JsonCodeModelCache.serialize(file);
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(VERSION);
+
+        new BinaryWriter(dataOut).write(json);
+        dataOut.flush();
+    }
+
+    /**
+     * Reads the {@link SourceFile} for the given path from the cache.
+     *
+     * @param path
+     *            The path in the source code tree that should be read from the
+     *            cache. Must not be <code>null</code>.
+     * @return The {@link SourceFile} read from cache, or <code>null</code> if
+     *         it was not in the cache.
+     *
+     * @throws IOException
+     *             If reading the cache fails.
+     * @throws FormatException
+     *             If the cache content is invalid.
+     */
+    @Override
+    public @Nullable SourceFile<?> read(@NonNull File path) throws IOException, FormatException {
+        // always try uncompressed first, since its faster
+        boolean compressed = false;
+        File cacheFile = getCacheFile(path);
+        File compressedCacheFile = getCompressedCacheFile(path);
+        if (!cacheFile.exists() && compressedCacheFile.isFile()) {
+            cacheFile = compressedCacheFile;
+            compressed = true;
+        }
+
+        SourceFile<CodeElement<?>> result = null;
+        try {
+            InputStream fileIn = new FileInputStream(cacheFile);
+            if (compressed) {
+                fileIn = new GZIPInputStream(fileIn);
+            }
+
+            try (InputStream in = new BufferedInputStream(fileIn)) {
+                result = readSourceFile(in, notNull(cacheFile.getPath()));
+            }
+
+        } catch (FileNotFoundException e) {
+            // ignore, so that null is returned if cache is not present
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads a {@link SourceFile} in the binary format from the given stream. Package visibility, because the
+     * {@link PackedCodeModelCache} uses the same format.
+     *
+     * @param in The stream to read from. Is not closed.
+     * @param name The name of the source of the stream, for error messages.
+     *
+     * @return The read source file.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the data is not in the expected format.
+     */
+    static @NonNull SourceFile<CodeElement<?>> readSourceFile(@NonNull InputStream in, @NonNull String name)
+            throws IOException, FormatException {
+
+        JsonElement json;
+        try {
+            DataInputStream dataIn = new DataInputStream(in);
+            int magic = dataIn.readInt();
+            if (magic != MAGIC) {
+                throw new FormatException("Not a binary code model cache file: " + name);
+            }
+            int version = dataIn.readInt();
+            if (version != VERSION) {
+                throw new FormatException("Unsupported version: got " + version + ", but expected " + VERSION);
+            }
+
+            json = new BinaryReader(dataIn).read();
+
+        } catch (EOFException e) {
+            throw new FormatException("Unexpected end of cache file " + name, e);
+        }
+
+        return JsonCodeModelCache.deserialize(json);
+    }
+
+    /**
+     * Writes an unsigned variable-length integer: 7 bits per byte, the highest bit marks that more bytes follow.
+     *
+     * @param out The stream to write to.
+     * @param value The value to write. Interpreted as unsigned, i.e. negative values take 5 bytes.
+     *
+     * @throws IOException If writing fails.
+     */
+    private static void writeVarInt(@NonNull DataOutputStream out, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    /**
+     * Reads an unsigned variable-length integer written by {@link #writeVarInt(DataOutputStream, int)}.
+     *
+     * @param in The stream to read from.
+     *
+     * @return The read value.
+     *
+     * @throws IOException If reading fails.
+     * @throws FormatException If the value is too large.
+     */
+    private static int readVarInt(@NonNull DataInputStream in) throws IOException, FormatException {
+        int result = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new FormatException("Variable-length integer is too large");
+            }
+            b = in.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    /**
+     * Writes {@link JsonElement}s in the binary format. A visitor can't throw {@link IOException}s, thus the first
+     * exception is stored in {@link #exception} and all further writes are skipped. Package visibility, because the
+     * {@link MappedCodeModelCache} uses the same encoding.
+     */
+    static final class BinaryWriter implements JsonVisitor<Void> {
+
+        private @NonNull DataOutputStream out;
+
+        /**
+         * The indices of the strings that have already been written.
+         */
+        private @NonNull Map<@NonNull String, @NonNull Integer> strings;
+
+        private @Nullable IOException exception;
+
+        /**
+         * Creates a new writer.
+         *
+         * @param out The stream to write to.
+         */
+        public BinaryWriter(@NonNull DataOutputStream out) {
+            this.out = out;
+            this.strings = new HashMap<>();
+        }
+
+        /**
+         * Writes the given element.
+         *
+         * @param element The element to write.
+         *
+         * @throws IOException If writing to the stream fails.
+         */
+        public void write(@NonNull JsonElement element) throws IOException {
+            element.accept(this);
+            IOException exception = this.exception;
+            if (exception != null) {
+                throw exception;
+            }
+        }
+
+        /**
+         * Writes the given tag and (optionally) a variable-length integer.
+         *
+         * @param tag The tag to write.
+         * @param value The variable-length integer to write after the tag. Ignored if negative.
+         */
+        private void writeTag(byte tag, int value) {
+            if (exception == null) {
+                try {
+                    out.writeByte(tag);
+                    if (value >= 0) {
+                        writeVarInt(out, value);
+                    }
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+        }
+
+        /**
+         * Writes the given string. If the string has been written before, only its index is written. Otherwise,
+         * the string is written and added to the table of known strings.
+         *
+         * @param str The string to write.
+         */
+        private void writeString(@NonNull String str) {
+            if (exception == null) {
+                try {
+                    Integer index = strings.get(str);
+                    if (index != null) {
+                        writeVarInt(out, index + 1);
+                    } else {
+                        strings.put(str, strings.size());
+                        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                        writeVarInt(out, 0);
+                        writeVarInt(out, bytes.length);
+                        out.write(bytes);
+                    }
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+        }
+
+        @Override
+        public Void visitObject(@NonNull JsonObject object) {
+            writeTag(TAG_OBJECT, object.getSize());
+            for (Map.Entry<String, JsonElement> entry : object) {
+                writeString(notNull(entry.getKey()));
+                notNull(entry.getValue()).accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitList(@NonNull JsonList list) {
+            writeTag(TAG_LIST, list.getSize());
+            for (JsonElement element : list) {
+                element.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitBoolean(@NonNull JsonBoolean bool) {
+            writeTag(bool.getValue() ? TAG_TRUE : TAG_FALSE, -1);
+            return null;
+        }
+
+        @Override
+        public Void visitNumber(@NonNull JsonNumber number) {
+            Number value = number.getValue();
+            try {
+                if (value instanceof Integer) {
+                    // zig-zag encoding, so that small negative numbers (e.g. unknown line numbers) are short, too
+                    int intValue = value.intValue();
+                    writeTag(TAG_INT, -1);
+                    if (exception == null) {
+                        writeVarInt(out, (intValue << 1) ^ (intValue >> 31));
+                    }
+                } else if (value instanceof Long) {
+                    writeTag(TAG_LONG, -1);
+                    if (exception == null) {
+                        out.writeLong(value.longValue());
+                    }
+                } else {
+                    writeTag(TAG_DOUBLE, -1);
+                    if (exception == null) {
+                        out.writeDouble(value.doubleValue());
+                    }
+                }
+            } catch (IOException e) {
+                exception = e;
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitString(@NonNull JsonString string) {
+            writeTag(TAG_STRING, -1);
+            writeString(string.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visitNull(@NonNull JsonNull nullValue) {
+            writeTag(TAG_NULL, -1);
+            return null;
+        }
+
+    }
+
+    /**
+     * Reads {@link JsonElement}s from the binary format. Package visibility, because the {@link MappedCodeModelCache}
+     * uses the same encoding.
+     */
+    static final class BinaryReader {
+
+        private @NonNull DataInputStream in;
+
+        /**
+         * The strings that have already been read, in the order of their first occurrence.
+         */
+        private @NonNull List<@NonNull String> strings;
+
+        /**
+         * Creates a new reader.
+         *
+         * @param in The stream to read from.
+         */
+        public BinaryReader(@NonNull DataInputStream in) {
+            this.in = in;
+            this.strings = new ArrayList<>();
+        }
+
+        /**
+         * Reads a string written by {@link BinaryWriter#writeString(String)}.
+         *
+         * @return The read string.
+         *
+         * @throws IOException If reading fails.
+         * @throws FormatException If the string index is invalid.
+         */
+        private @NonNull String readString() throws IOException, FormatException {
+            int index = readVarInt(in);
+            String result;
+            if (index == 0) {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                result = new String(bytes, StandardCharsets.UTF_8);
+                strings.add(result);
+            } else {
+                if (index > strings.size()) {
+                    throw new FormatException("Invalid string index: " + index);
+                }
+                result = notNull(strings.get(index - 1));
+            }
+            return result;
+        }
+
+        /**
+         * Reads the next {@link JsonElement}.
+         *
+         * @return The read element.
+         *
+         * @throws IOException If reading fails.
+         * @throws FormatException If the data is not in the expected format.
+         */
+        public @NonNull JsonElement read() throws IOException, FormatException {
+            JsonElement result;
+            byte tag = in.readByte();
+            switch (tag) {
+            case TAG_OBJECT:
+                int numEntries = readVarInt(in);
+                JsonObject object = new JsonObject();
+                for (int i = 0; i < numEntries; i++) {
+                    String key = readString();
+                    object.putElement(key, read());
+                }
+                result = object;
+                break;
+
+            case TAG_LIST:
+                int numElements = readVarInt(in);
+                JsonList list = new JsonList();
+                for (int i = 0; i < numElements; i++) {
+                    list.addElement(read());
+                }
+                result = list;
+                break;
+
+            case TAG_STRING:
+                result = new JsonString(readString());
+                break;
+
+            case TAG_INT:
+                int zigZag = readVarInt(in);
+                result = new JsonNumber((zigZag >>> 1) ^ -(zigZag & 1));
+                break;
+
+            case TAG_LONG:
+                result = new JsonNumber(in.readLong());
+                break;
+
+            case TAG_DOUBLE:
+                result = new JsonNumber(in.readDouble());
+                break;
+
+            case TAG_TRUE:
+                result = JsonBoolean.TRUE;
+                break;
+
+            case TAG_FALSE:
+                result = JsonBoolean.FALSE;
+                break;
+
+            case TAG_NULL:
+                result = JsonNull.INSTANCE;
+                break;
+
+            default:
+                throw new FormatException("Invalid tag: " + tag);
+            }
+            return result;
+        }
+
+    }
+
+}
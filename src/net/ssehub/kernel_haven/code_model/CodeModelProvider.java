@@ -16,6 +16,8 @@
 package net.ssehub.kernel_haven.code_model;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -25,7 +27,9 @@ import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.provider.AbstractProvider;
+import net.ssehub.kernel_haven.provider.CacheFingerprintDatabase;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * The provider for the code model. This class serves as an intermediate between the analysis and the code model
@@ -35,6 +39,81 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  */
 public class CodeModelProvider extends AbstractProvider<SourceFile<?>> {
 
+    /**
+     * The different file formats of the code model cache.
+     */
+    public static enum CacheFormat {
+        
+        /**
+         * Human-readable JSON files (see {@link JsonCodeModelCache}).
+         */
+        JSON,
+        
+        /**
+         * Compact binary files, which are faster to read and write (see {@link BinaryCodeModelCache}).
+         */
+        BINARY,
+        
+        /**
+         * Binary files that are memory-mapped and de-serialized lazily per top-level element (see
+         * {@link MappedCodeModelCache}). Never compressed.
+         */
+        MAPPED,
+        
+        /**
+         * A single packed file for all source files, in the format of {@link #BINARY} (see
+         * {@link PackedCodeModelCache}).
+         */
+        PACKED,
+        
+    }
+    
+    /**
+     * The different ways to detect outdated results in the code model cache.
+     */
+    public static enum CacheValidation {
+        
+        /**
+         * Cached results are always used, even if the source file changed.
+         */
+        NONE,
+        
+        /**
+         * Cached results are only used if the size and last modification time of the source file (and the additional
+         * inputs) did not change.
+         */
+        METADATA,
+        
+        /**
+         * Cached results are only used if the content of the source file (and the additional inputs) did not change.
+         * Slower than {@link #METADATA}, since all inputs are read, but robust against changed modification times.
+         */
+        CONTENT,
+        
+    }
+    
+    /**
+     * The fingerprint of the additional inputs configured in
+     * {@link DefaultSettings#CODE_PROVIDER_CACHE_VALIDATION_INPUTS}. These are the same for all targets, so they are
+     * only fingerprinted once per extraction run (see {@link #getSharedInputsFingerprint(CacheValidation)}).
+     * <code>null</code> if not yet computed in the current run.
+     */
+    private @Nullable String sharedInputsFingerprint;
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This also discards the fingerprint of the additional validation inputs of the previous run.
+     * </p>
+     */
+    @Override
+    public void start() throws SetUpException {
+        synchronized (this) {
+            sharedInputsFingerprint = null;
+        }
+        super.start();
+    }
+    
     @Override
     protected long getTimeout() {
         return config.getValue(DefaultSettings.CODE_PROVIDER_TIMEOUT);
@@ -93,8 +172,29 @@ public class CodeModelProvider extends AbstractProvider<SourceFile<?>> {
 
     @Override
     protected @NonNull AbstractCache<SourceFile<?>> createCache() {
-        return new JsonCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR),
-                config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_COMPRESS));
+        AbstractCache<SourceFile<?>> result;
+        switch (config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_FORMAT)) {
+        case BINARY:
+            result = new BinaryCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR),
+                    config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_COMPRESS));
+            break;
+        
+        case MAPPED:
+            result = new MappedCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR));
+            break;
+        
+        case PACKED:
+            result = new PackedCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR),
+                    config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_COMPRESS));
+            break;
+        
+        case JSON:
+        default:
+            result = new JsonCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR),
+                    config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_COMPRESS));
+            break;
+        }
+        return result;
     }
 
     @Override
@@ -111,5 +211,107 @@ public class CodeModelProvider extends AbstractProvider<SourceFile<?>> {
     public int getNumberOfThreads() {
         return config.getValue(DefaultSettings.CODE_EXTRACTOR_THREADS);
     }
+    
+    /**
+     * Estimates the cost of parsing the given source file by its size.
+     * 
+     * @param target The source file, relative to the source tree.
+     * 
+     * @return The size of the source file in bytes; 0 if it does not exist.
+     */
+    @Override
+    public long estimateCost(@NonNull File target) {
+        return new File(config.getValue(DefaultSettings.SOURCE_TREE), target.getPath()).length();
+    }
+    
+    /**
+     * Computes the fingerprint of the given source file and the additional inputs configured in
+     * {@link DefaultSettings#CODE_PROVIDER_CACHE_VALIDATION_INPUTS}, as configured in
+     * {@link DefaultSettings#CODE_PROVIDER_CACHE_VALIDATION}.
+     * 
+     * @param target The source file, relative to the source tree.
+     * 
+     * @return The fingerprint; <code>null</code> if validation of the cache is disabled.
+     * 
+     * @throws IOException If reading the inputs fails.
+     */
+    @Override
+    public @Nullable String computeFingerprint(@NonNull File target) throws IOException {
+        CacheValidation validation = config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_VALIDATION);
+        
+        String result = null;
+        if (validation != CacheValidation.NONE) {
+            List<@NonNull File> inputs = new ArrayList<>(1);
+            inputs.add(new File(config.getValue(DefaultSettings.SOURCE_TREE), target.getPath()));
+            result = fingerprint(inputs, validation);
+            
+            String shared = getSharedInputsFingerprint(validation);
+            if (!shared.isEmpty()) {
+                result += "|" + shared;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the fingerprint of the additional inputs configured in
+     * {@link DefaultSettings#CODE_PROVIDER_CACHE_VALIDATION_INPUTS}. Computed on the first call in each extraction run.
+     * 
+     * @param validation The kind of fingerprint to compute.
+     * 
+     * @return The fingerprint of the additional inputs; an empty string if no additional inputs are configured.
+     * 
+     * @throws IOException If reading the inputs fails.
+     */
+    private synchronized @NonNull String getSharedInputsFingerprint(@NonNull CacheValidation validation)
+            throws IOException {
+        
+        String result = this.sharedInputsFingerprint;
+        if (result == null) {
+            File sourceTree = config.getValue(DefaultSettings.SOURCE_TREE);
+            List<@NonNull File> inputs = new ArrayList<>();
+            for (String input : config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_VALIDATION_INPUTS)) {
+                inputs.add(new File(sourceTree, input));
+            }
+            
+            result = inputs.isEmpty() ? "" : fingerprint(inputs, validation);
+            this.sharedInputsFingerprint = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the fingerprint of the given files.
+     * 
+     * @param inputs The files to fingerprint.
+     * @param validation Whether to fingerprint the content or the metadata of the files.
+     * 
+     * @return The fingerprint of the files.
+     * 
+     * @throws IOException If reading the files fails.
+     */
+    private static @NonNull String fingerprint(@NonNull List<@NonNull File> inputs,
+            @NonNull CacheValidation validation) throws IOException {
+        
+        String result;
+        if (validation == CacheValidation.CONTENT) {
+            result = CacheFingerprintDatabase.fingerprintContent(inputs);
+        } else {
+            result = CacheFingerprintDatabase.fingerprintMetadata(inputs);
+        }
+        return result;
+    }
+    
+    /**
+     * Determines the size of the given source file by its number of top-level elements.
+     * 
+     * @param result The source file that the extractor produced.
+     * 
+     * @return The number of top-level elements in the source file.
+     */
+    @Override
+    public int getResultSize(@NonNull SourceFile<?> result) {
+        return result.getTopElementCount();
+    }
 
 }
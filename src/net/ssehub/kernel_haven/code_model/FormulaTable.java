@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonList;
+import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
+import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
+import net.ssehub.kernel_haven.util.logic.parser.Parser;
+import net.ssehub.kernel_haven.util.logic.parser.VariableCache;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A table of the distinct {@link Formula}s of a cached {@link SourceFile}. Each distinct formula is stored only once
+ * per cache file; {@link CodeElement}s reference formulas by their index in this table (see
+ * {@link AbstractCodeElement#serializeFormula(Formula)} and
+ * {@link AbstractCodeElement#deserializeFormula(JsonElement)}). When reading, each distinct formula is parsed only
+ * once and all elements share the same {@link Formula} instance.
+ * <p>
+ * The table for the current (de-)serialization run is stored per thread, so that the {@link CodeElement}s can access
+ * it without changing their serialization interface.
+ *
+ * @author Adam
+ */
+final class FormulaTable {
+
+    private static final @NonNull Parser<@NonNull Formula> PARSER
+            = new Parser<>(new CStyleBooleanGrammar(new VariableCache()));
+
+    private static final @NonNull ThreadLocal<@Nullable FormulaTable> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The formula strings, in the order of their indices.
+     */
+    private @NonNull List<@NonNull String> strings;
+
+    /**
+     * Serialization: the indices of formula instances that have already been added. Avoids calling
+     * {@link Formula#toString()} for the same instance again.
+     */
+    private @NonNull Map<@NonNull Formula, @NonNull Integer> instanceIndices;
+
+    /**
+     * Serialization: the indices of the formula strings.
+     */
+    private @NonNull Map<@NonNull String, @NonNull Integer> stringIndices;
+
+    /**
+     * De-serialization: the already parsed formulas, in the order of their indices. Entries are <code>null</code>
+     * until the formula is first used.
+     */
+    private @Nullable Formula @NonNull [] parsed;
+
+    /**
+     * De-serialization: formulas that were not stored in the table, but directly as strings (e.g. by
+     * {@link CodeElement}s that don't use {@link AbstractCodeElement#serializeFormula(Formula)}).
+     */
+    private @NonNull Map<@NonNull String, @NonNull Formula> parsedStrings;
+
+    /**
+     * Creates an empty table, for serialization.
+     */
+    FormulaTable() {
+        this.strings = new ArrayList<>();
+        this.instanceIndices = new IdentityHashMap<>();
+        this.stringIndices = new HashMap<>();
+        this.parsed = new Formula[0];
+        this.parsedStrings = new HashMap<>();
+    }
+
+    /**
+     * Creates a table from the given serialized table, for de-serialization.
+     *
+     * @param json The table as created by {@link #toJson()}.
+     *
+     * @throws FormatException If the JSON does not have the expected format.
+     */
+    FormulaTable(@NonNull JsonList json) throws FormatException {
+        this();
+        for (JsonElement element : json) {
+            if (!(element instanceof JsonString)) {
+                throw new FormatException("Expected JsonString in formula table, but got "
+                        + element.getClass().getSimpleName());
+            }
+            strings.add(((JsonString) element).getValue());
+        }
+        this.parsed = new Formula[strings.size()];
+    }
+
+    /**
+     * Returns the table of the (de-)serialization run in the current thread.
+     *
+     * @return The current table; <code>null</code> if no (de-)serialization run with a table is active.
+     */
+    static @Nullable FormulaTable getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Sets the table for the (de-)serialization run in the current thread. Must be reset to <code>null</code> after
+     * the run is finished.
+     *
+     * @param table The table to use; <code>null</code> to remove the current table.
+     */
+    static void setCurrent(@Nullable FormulaTable table) {
+        if (table != null) {
+            CURRENT.set(table);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Returns the index of the given formula. Adds the formula to the table if it is not yet contained.
+     *
+     * @param formula The formula to get the index for.
+     *
+     * @return The index of the formula in this table.
+     */
+    int getIndex(@NonNull Formula formula) {
+        Integer result = instanceIndices.get(formula);
+        if (result == null) {
+            String str = notNull(formula.toString());
+            result = stringIndices.get(str);
+            if (result == null) {
+                result = strings.size();
+                strings.add(str);
+                stringIndices.put(str, result);
+            }
+            instanceIndices.put(formula, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the formula with the given index.
+     *
+     * @param index The index of the formula.
+     *
+     * @return The formula; the same instance for each call with the same index.
+     *
+     * @throws FormatException If the index is invalid or the formula can't be parsed.
+     */
+    @NonNull Formula getFormula(int index) throws FormatException {
+        if (index < 0 || index >= parsed.length) {
+            throw new FormatException("Invalid formula index: " + index);
+        }
+
+        Formula result = parsed[index];
+        if (result == null) {
+            result = getFormula(notNull(strings.get(index)));
+            parsed[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the formula for the given string. Each distinct string is only parsed once.
+     *
+     * @param formula The formula string.
+     *
+     * @return The parsed formula; the same instance for each call with an equal string.
+     *
+     * @throws FormatException If the formula can't be parsed.
+     */
+    @NonNull Formula getFormula(@NonNull String formula) throws FormatException {
+        Formula result = parsedStrings.get(formula);
+        if (result == null) {
+            result = parse(formula);
+            parsedStrings.put(formula, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the serialized form of this table.
+     *
+     * @return The formula strings, in the order of their indices.
+     */
+    @NonNull JsonList toJson() {
+        JsonList result = new JsonList();
+        for (String str : strings) {
+            result.addElement(new JsonString(str));
+        }
+        return result;
+    }
+
+    /**
+     * Parses the given formula string.
+     *
+     * @param formula The formula string to parse.
+     *
+     * @return The parsed formula.
+     *
+     * @throws FormatException If the formula can't be parsed.
+     */
+    static @NonNull Formula parse(@NonNull String formula) throws FormatException {
+        try {
+            return PARSER.parse(formula);
+        } catch (ExpressionFormatException e) {
+            throw new FormatException("Can't parse formula", e);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A list of top-level elements of a {@link SourceFile} that knows the types of its elements without accessing them.
+ * {@link SourceFile#castTo(Class)} uses this to check the types without loading lazily read elements (see
+ * {@link MappedCodeModelCache}).
+ *
+ * @author Adam
+ */
+interface ITypedElementList {
+
+    /**
+     * Checks that all elements can be cast to the given type, without loading them.
+     *
+     * @param type The type to check.
+     *
+     * @throws ClassCastException If any of the elements is not of the given type.
+     */
+    public void checkCastTo(@NonNull Class<?> type) throws ClassCastException;
+
+}
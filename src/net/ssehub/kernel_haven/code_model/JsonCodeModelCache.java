@@ -22,13 +22,16 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.util.FormatException;
@@ -38,8 +41,8 @@ import net.ssehub.kernel_haven.util.io.json.JsonList;
 import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
 import net.ssehub.kernel_haven.util.io.json.JsonParser;
-import net.ssehub.kernel_haven.util.io.json.JsonPrettyPrinter;
 import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.io.json.JsonWriter;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -51,7 +54,13 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
  */
 public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
 
-    private static final int VERSION = 2;
+    private static final int VERSION = 3;
+    
+    /**
+     * The oldest version that can still be read. Version 2 stores all formulas as strings directly in the elements,
+     * instead of in a formula table.
+     */
+    private static final int MIN_VERSION = 2;
     
     private @NonNull File cacheDir;
 
@@ -133,13 +142,13 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
         
         if (compress) {
             try (ZipArchive archive = new ZipArchive(cacheFile);
-                    OutputStream out = archive.getOutputStream(new File("cache.json"))) {
+                    JsonWriter out = new JsonWriter(archive.getOutputStream(new File("cache.json")), true)) {
                 
-                out.write(json.accept(new JsonPrettyPrinter()).getBytes(StandardCharsets.UTF_8));
+                out.write(json);
             }
         } else {
-            try (OutputStream out = new FileOutputStream(cacheFile)) {
-                out.write(json.accept(new JsonPrettyPrinter()).getBytes(StandardCharsets.UTF_8));
+            try (JsonWriter out = new JsonWriter(new FileOutputStream(cacheFile), true)) {
+                out.write(json);
             }
         }
     }
@@ -148,18 +157,50 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
      * Holds the data necessary for a serialization run. This is encapsulated in a nested object, so that the
      * {@link JsonCodeModelCache} itself is stateless.
      */
-    private final class SerializeData {
+    private static final class SerializeData {
         
         private @NonNull Map<IdentityWrapper<CodeElement<?>>, Integer> idMapping;
         
         private int nextId;
         
+        /**
+         * The IDs of the elements serialized since the last {@link #startUnit()}. <code>null</code> if units are not
+         * tracked.
+         */
+        private @Nullable Set<Integer> unitElementIds;
+        
+        /**
+         * The IDs of the elements referenced by elements serialized since the last {@link #startUnit()}.
+         */
+        private @NonNull Set<Integer> unitReferencedIds;
+        
         /**
          * Creates a new {@link SerializeData} instance. This instance should be used for once round of serialization
          */
         public SerializeData() {
             this.idMapping = new HashMap<>();
             this.nextId = 1;
+            this.unitReferencedIds = new HashSet<>();
+        }
+        
+        /**
+         * Starts a new unit of top-level elements. Afterwards, {@link #isUnitSelfContained()} tells whether the
+         * elements serialized in this unit only reference each other.
+         */
+        public void startUnit() {
+            this.unitElementIds = new HashSet<>();
+            this.unitReferencedIds = new HashSet<>();
+        }
+        
+        /**
+         * Returns whether the elements serialized since the last {@link #startUnit()} only reference elements that
+         * were serialized in the same unit.
+         * 
+         * @return Whether the current unit can be de-serialized on its own.
+         */
+        public boolean isUnitSelfContained() {
+            Set<Integer> unitElementIds = this.unitElementIds;
+            return unitElementIds != null && unitElementIds.containsAll(unitReferencedIds);
         }
         
         /**
@@ -179,6 +220,23 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
             return result;
         }
         
+        /**
+         * Returns the ID for the given {@link CodeElement} instance, when it is referenced by another element (i.e.
+         * this is the ID function passed to {@link CodeElement#serializeToJson(JsonObject, java.util.function.Function,
+         * java.util.function.Function)}).
+         *
+         * @param element The instance to get the ID for.
+         *
+         * @return The ID for the given instance.
+         */
+        private int getReferenceId(@NonNull CodeElement<?> element) {
+            int id = getId(element);
+            if (unitElementIds != null) {
+                unitReferencedIds.add(id);
+            }
+            return id;
+        }
+        
         /**
          * Serializes the given {@link CodeElement} to JSON.
          * 
@@ -189,10 +247,16 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
         public @NonNull JsonElement serialize(@NonNull CodeElement<?> element) {
             JsonObject result = new JsonObject();
             
+            int id = getId(element);
+            Set<Integer> unitElementIds = this.unitElementIds;
+            if (unitElementIds != null) {
+                unitElementIds.add(id);
+            }
+            
             result.putElement("class", new JsonString(notNull(element.getClass().getName())));
-            result.putElement("id", new JsonNumber(getId(element)));
+            result.putElement("id", new JsonNumber(id));
             
-            element.serializeToJson(result, this::serialize, this::getId);
+            element.serializeToJson(result, this::serialize, this::getReferenceId);
             
             if (element.getNestedElementCount() > 0) {
                 JsonList nestedJson = new JsonList();
@@ -209,13 +273,14 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
     }
     
     /**
-     * Serializes the given {@link SourceFile} to JSON.
+     * Serializes the given {@link SourceFile} to JSON. Package visibility, because the {@link BinaryCodeModelCache}
+     * uses the same structure.
      * 
      * @param sourceFile The source file to serialize.
      * 
      * @return The source file serialized as JSON.
      */
-    private @NonNull JsonElement serialize(@NonNull SourceFile<?> sourceFile) {
+    static @NonNull JsonElement serialize(@NonNull SourceFile<?> sourceFile) {
         JsonObject result = new JsonObject();
         
         result.putElement("version", new JsonNumber(VERSION));
@@ -224,11 +289,18 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
         
         JsonList elements = new JsonList();
         
-        SerializeData data = new SerializeData();
-        for (CodeElement<?> element : sourceFile) {
-            elements.addElement(data.serialize(element));
+        FormulaTable formulas = new FormulaTable();
+        FormulaTable.setCurrent(formulas);
+        try {
+            SerializeData data = new SerializeData();
+            for (CodeElement<?> element : sourceFile) {
+                elements.addElement(data.serialize(element));
+            }
+        } finally {
+            FormulaTable.setCurrent(null);
         }
         
+        result.putElement("formulas", formulas.toJson());
         result.putElement("elements", elements);
         
         return result;
@@ -307,19 +379,144 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
         
     }
     
+    /**
+     * Creates a {@link CodeElement} from its JSON representation. See
+     * {@link JsonCodeModelCache#registerFactory(Class, CodeElementFactory)}.
+     */
+    @FunctionalInterface
+    public interface CodeElementFactory {
+        
+        /**
+         * Creates a {@link CodeElement} from the given JSON. This has the same contract as the
+         * (JsonObject, CheckedFunction) constructor of the {@link CodeElement}s.
+         * 
+         * @param json The JSON to de-serialize.
+         * @param deserializeFunction The function to use for de-serializing secondary nested elements.
+         * 
+         * @return The de-serialized {@link CodeElement}.
+         * 
+         * @throws FormatException If the JSON does not have the expected format.
+         */
+        public @NonNull CodeElement<?> create(@NonNull JsonObject json,
+            @NonNull CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException>
+                deserializeFunction) throws FormatException;
+        
+    }
+    
+    /**
+     * The factories for the {@link CodeElement} classes, by fully qualified class name. Populated once per class,
+     * either explicitly via {@link #registerFactory(Class, CodeElementFactory)} or on first use via reflection.
+     */
+    private static final @NonNull Map<@NonNull String, @NonNull CodeElementFactory> FACTORIES
+            = new ConcurrentHashMap<>();
+    
+    /**
+     * Registers the factory to de-serialize the given {@link CodeElement} class. This is optional: for classes
+     * without a registered factory, the (JsonObject, CheckedFunction) constructor is looked up once via reflection.
+     * Classes may register themselves in their static initializer, since classes are initialized before their
+     * first de-serialization.
+     * 
+     * @param type The {@link CodeElement} class.
+     * @param factory The factory that creates instances of the given class.
+     */
+    public static void registerFactory(@NonNull Class<? extends CodeElement<?>> type,
+            @NonNull CodeElementFactory factory) {
+        
+        FACTORIES.put(notNull(type.getName()), factory);
+    }
+    
+    /**
+     * Returns the factory for the given {@link CodeElement} class. If no factory is registered yet, the class is
+     * loaded and a factory that calls its (JsonObject, CheckedFunction) constructor is created and registered.
+     * 
+     * @param className The fully qualified name of the {@link CodeElement} class.
+     * 
+     * @return The factory for the given class.
+     * 
+     * @throws FormatException If the class can't be loaded or has no suitable constructor.
+     */
+    private static @NonNull CodeElementFactory getFactory(@NonNull String className) throws FormatException {
+        CodeElementFactory result = FACTORIES.get(className);
+        if (result == null) {
+            Class<?> clazz;
+            try {
+                // initialize the class, so that it can register its own factory
+                clazz = Class.forName(className, true, ClassLoader.getSystemClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new FormatException("Can't instantiate " + className, e);
+            }
+            
+            result = FACTORIES.get(className);
+            if (result == null) {
+                result = createReflectiveFactory(clazz);
+                FACTORIES.putIfAbsent(className, result);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Creates a factory that calls the (JsonObject, CheckedFunction) constructor of the given class. The constructor
+     * is looked up only once, when the factory is created.
+     * 
+     * @param clazz The {@link CodeElement} class.
+     * 
+     * @return The factory for the given class.
+     * 
+     * @throws FormatException If the class has no suitable constructor.
+     */
+    private static @NonNull CodeElementFactory createReflectiveFactory(@NonNull Class<?> clazz)
+            throws FormatException {
+        
+        String className = clazz.getName();
+        if (!CodeElement.class.isAssignableFrom(clazz)) {
+            throw new FormatException(className + " is not a CodeElement");
+        }
+        
+        Constructor<?> ctor;
+        try {
+            ctor = clazz.getDeclaredConstructor(JsonObject.class, CheckedFunction.class);
+            ctor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new FormatException(className + " does not implement a constructor with (JsonObject, Function) "
+                    + "parameters for de-serialization", e);
+        } catch (SecurityException e) {
+            throw new FormatException("Can't instantiate " + className, e);
+        }
+        
+        return (json, deserializeFunction) -> {
+            try {
+                return notNull((CodeElement<?>) ctor.newInstance(json, deserializeFunction));
+                
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof FormatException) {
+                    throw (FormatException) e.getCause();
+                }
+                throw new FormatException("Can't instantiate " + className, e);
+                
+            } catch (ReflectiveOperationException e) {
+                throw new FormatException("Can't instantiate " + className, e);
+            }
+        };
+    }
+    
     /**
      * Holds the data necessary for a de-serialization run. This is encapsulated in a nested object, so that the
      * {@link JsonCodeModelCache} itself is stateless.
      */
-    private final class DeserializeData {
+    private static final class DeserializeData {
         
         private @NonNull Map<Integer, IdentityWrapper<CodeElement<?>>> idMapping;
         
+        private @NonNull CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException>
+            deserializeFunction;
+        
         /**
          * Creates a new object for de-serialization.
          */
         public DeserializeData() {
             idMapping = new HashMap<>();
+            deserializeFunction = this::deserialize;
         }
         
         /**
@@ -341,27 +538,7 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
             CodeElement result;
             
             String className = json.getString("class");
-            try {
-                Class<?> clazz = ClassLoader.getSystemClassLoader().loadClass(className);
-                
-                Constructor<?> ctor = clazz.getDeclaredConstructor(JsonObject.class, CheckedFunction.class);
-                ctor.setAccessible(true);
-                CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException> deserializeFunction
-                    = this::deserialize;
-                result = notNull((CodeElement) ctor.newInstance(json, deserializeFunction));
-                
-            } catch (NoSuchMethodException e) {
-                throw new FormatException(className + " does not implement a constructor with (JsonObject, Function) "
-                        + "parameters for de-serialization", e);
-            } catch (InvocationTargetException e) {
-                if (e.getCause() instanceof FormatException) {
-                    throw (FormatException) e.getCause();
-                }
-                throw new FormatException("Can't instantiate " + className, e);
-                
-            } catch (ReflectiveOperationException e) {
-                throw new FormatException("Can't instantiate " + className, e);
-            }
+            result = getFactory(className).create(json, deserializeFunction);
             
             int id = json.getInt("id");
             idMapping.put(id, new IdentityWrapper<>(result));
@@ -396,7 +573,8 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
     }
     
     /**
-     * Deserializes the given JSON back to a {@link SourceFile}.
+     * Deserializes the given JSON back to a {@link SourceFile}. Package visibility, because the
+     * {@link BinaryCodeModelCache} uses the same structure.
      * 
      * @param json The JSON data to deserialize.
      * 
@@ -404,27 +582,102 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
      * 
      * @throws FormatException If the JSON does not contain the expected data.
      */
-    private @NonNull SourceFile<CodeElement<?>> deserialize(@NonNull JsonElement json) throws FormatException {
+    static @NonNull SourceFile<CodeElement<?>> deserialize(@NonNull JsonElement json) throws FormatException {
         if (!(json instanceof JsonObject)) {
             throw new FormatException("Expected JsonObject, but got " + json.getClass().getSimpleName());
         }
         
         JsonObject jsonObj = (JsonObject) json;
         
-        if (jsonObj.getInt("version") != VERSION) {
-            throw new FormatException("Unsupported version: got " + jsonObj.getInt("version")
-                    + ", but expected " + VERSION);
+        int version = jsonObj.getInt("version");
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new FormatException("Unsupported version: got " + version + ", but expected " + VERSION);
         }
         
         File path = new File(jsonObj.getString("path"));
         
         SourceFile<CodeElement<?>> result = new SourceFile<>(path);
         
-        DeserializeData data = new DeserializeData();
-        for (JsonElement nested : jsonObj.getList("elements")) {
-            result.addElement(data.deserialize(nested));
+        FormulaTable formulas;
+        if (jsonObj.getElement("formulas") != null) {
+            formulas = new FormulaTable(jsonObj.getList("formulas"));
+        } else {
+            formulas = new FormulaTable();
         }
         
+        FormulaTable.setCurrent(formulas);
+        try {
+            DeserializeData data = new DeserializeData();
+            for (JsonElement nested : jsonObj.getList("elements")) {
+                result.addElement(data.deserialize(nested));
+            }
+            
+            data.resolveIds();
+        } finally {
+            FormulaTable.setCurrent(null);
+        }
+        
+        return result;
+    }
+
+    
+    /**
+     * Serializes the top-level elements of the given {@link SourceFile} in units that can be de-serialized
+     * independently of each other (see {@link #deserializeUnit(JsonList)}). Usually, each top-level element is its own
+     * unit. If elements reference elements in other top-level elements, all top-level elements are put into a single
+     * unit instead. Package visibility, because the {@link MappedCodeModelCache} uses this to load top-level elements
+     * lazily.
+     * <p>
+     * The caller has to set the {@link FormulaTable} for this serialization run.
+     * 
+     * @param sourceFile The source file to serialize.
+     * 
+     * @return The units; each is a list of serialized top-level elements.
+     */
+    static @NonNull List<@NonNull JsonList> serializeUnits(@NonNull SourceFile<?> sourceFile) {
+        List<@NonNull JsonList> result = new ArrayList<>(sourceFile.getTopElementCount());
+        JsonList all = new JsonList();
+        boolean selfContained = true;
+        
+        SerializeData data = new SerializeData();
+        for (CodeElement<?> element : sourceFile) {
+            data.startUnit();
+            JsonElement json = data.serialize(element);
+            selfContained &= data.isUnitSelfContained();
+            
+            JsonList unit = new JsonList();
+            unit.addElement(json);
+            result.add(unit);
+            all.addElement(json);
+        }
+        
+        if (!selfContained) {
+            result.clear();
+            result.add(all);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * De-serializes a unit of top-level elements written by {@link #serializeUnits(SourceFile)}. Package visibility,
+     * because the {@link MappedCodeModelCache} uses this to load top-level elements lazily.
+     * <p>
+     * The caller has to set the {@link FormulaTable} for this de-serialization run.
+     * 
+     * @param unit The list of serialized top-level elements.
+     * 
+     * @return The de-serialized top-level elements.
+     * 
+     * @throws FormatException If the JSON does not contain the expected data.
+     */
+    static @NonNull List<@NonNull CodeElement<?>> deserializeUnit(@NonNull JsonList unit) throws FormatException {
+        List<@NonNull CodeElement<?>> result = new ArrayList<>(unit.getSize());
+        
+        DeserializeData data = new DeserializeData();
+        for (JsonElement element : unit) {
+            result.add(data.deserialize(element));
+        }
         data.resolveIds();
         
         return result;
@@ -0,0 +1,518 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.ssehub.kernel_haven.code_model.BinaryCodeModelCache.BinaryReader;
+import net.ssehub.kernel_haven.code_model.BinaryCodeModelCache.BinaryWriter;
+import net.ssehub.kernel_haven.provider.AbstractCache;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonList;
+import net.ssehub.kernel_haven.util.io.json.JsonNumber;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A cache for saving (and reading) a code model to files, which are memory-mapped and de-serialized lazily when
+ * reading. Each top-level element of a {@link SourceFile} is stored separately (in the encoding of the
+ * {@link BinaryCodeModelCache}), and the file header stores the offset of each top-level element. Reading a cache
+ * file only reads this header; each top-level element (including all of its nested elements) is de-serialized on its
+ * first access. Analyses that only look at a few top-level elements thus only touch a fraction of the file.
+ * <p>
+ * If elements reference elements in other top-level elements (see {@link CodeElement#resolveIds(java.util.Map)}),
+ * then all top-level elements are de-serialized together on the first access.
+ * <p>
+ * Only the top-level elements are loaded lazily; the nested elements of a top-level element are de-serialized
+ * together with it. Thus, this cache brings no benefit for extractors that produce a single top-level element per
+ * file (e.g. the root of an AST): the whole tree is read on the first access.
+ * <p>
+ * Since the top-level elements are read lazily, a corrupt cache file may only be detected when an element is
+ * accessed. In this case, an {@link IllegalStateException} is thrown by the methods of the {@link SourceFile}.
+ * Cache files are never compressed, since compressed files can't be memory-mapped.
+ *
+ * @author Adam
+ */
+public class MappedCodeModelCache extends AbstractCache<SourceFile<?>> {
+
+    /**
+     * The magic number at the start of each cache file ("KHCL").
+     */
+    private static final int MAGIC = 0x4B48434C;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The offset of the header in the cache file. Before the header, the magic number, the version and the length of
+     * the header are stored.
+     */
+    private static final int HEADER_OFFSET = 12;
+
+    private @NonNull File cacheDir;
+
+    /**
+     * Creates a new cache in the given cache directory.
+     *
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     */
+    public MappedCodeModelCache(@NonNull File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Returns the path where the given source file should be cached.
+     *
+     * @param path
+     *            The path of the source file, relative to the source code tree.
+     * @return The file where to cache.
+     */
+    private @NonNull File getCacheFile(@NonNull File path) {
+        String name = path.getPath().replace(File.separatorChar, '.') + ".mbin";
+        return new File(cacheDir, name);
+    }
+
+    /**
+     * Writes the given {@link SourceFile} to the cache.
+     *
+     * @param file
+     *            The file to write to the cache. Must not be <code>null</code>.
+     * @throws IOException
+     *             If writing the cache file fails.
+     */
+    @Override
+    public void write(@NonNull SourceFile<?> file) throws IOException {
+        FormulaTable formulas = new FormulaTable();
+        List<@NonNull JsonList> units;
+        FormulaTable.setCurrent(formulas);
+        try {
+            units = JsonCodeModelCache.serializeUnits(file);
+        } finally {
+            FormulaTable.setCurrent(null);
+        }
+
+        // write the units first, to know their offsets for the header
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        JsonList unitsJson = new JsonList();
+        Iterator<? extends CodeElement<?>> elements = file.iterator();
+
+        try (DataOutputStream dataOut = new DataOutputStream(data)) {
+            for (JsonList unit : units) {
+                int offset = dataOut.size();
+                // each unit has its own string table, so that it can be read on its own
+                new BinaryWriter(dataOut).write(unit);
+
+                JsonList classes = new JsonList();
+                for (int i = 0; i < unit.getSize(); i++) {
+                    classes.addElement(new JsonString(notNull(elements.next().getClass().getName())));
+                }
+
+                JsonObject unitJson = new JsonObject();
+                unitJson.putElement("offset", new JsonNumber(offset));
+                unitJson.putElement("length", new JsonNumber(dataOut.size() - offset));
+                unitJson.putElement("classes", classes);
+                unitsJson.addElement(unitJson);
+            }
+        }
+
+        JsonObject header = new JsonObject();
+        header.putElement("path", new JsonString(notNull(
+                file.getPath().getPath().replace(File.separatorChar, '/'))));
+        header.putElement("formulas", formulas.toJson());
+        header.putElement("units", unitsJson);
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try (DataOutputStream headerOut = new DataOutputStream(headerBytes)) {
+            new BinaryWriter(headerOut).write(header);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(getCacheFile(file.getPath()))))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            data.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads the {@link SourceFile} for the given path from the cache. This only reads the header of the cache file;
+     * the top-level elements are de-serialized on their first access.
+     *
+     * @param path
+     *            The path in the source code tree that should be read from the
+     *            cache. Must not be <code>null</code>.
+     * @return The {@link SourceFile} read from cache, or <code>null</code> if
+     *         it was not in the cache.
+     *
+     * @throws IOException
+     *             If reading the cache fails.
+     * @throws FormatException
+     *             If the cache header is invalid.
+     */
+    @Override
+    public @Nullable SourceFile<?> read(@NonNull File path) throws IOException, FormatException {
+        File cacheFile = getCacheFile(path);
+
+        SourceFile<?> result = null;
+        if (cacheFile.isFile()) {
+            result = readMapped(cacheFile);
+        }
+        return result;
+    }
+
+    /**
+     * Maps the given cache file and reads its header.
+     *
+     * @param cacheFile The existing cache file to read.
+     *
+     * @return The {@link SourceFile} with lazily de-serialized elements.
+     *
+     * @throws IOException If reading the cache file fails.
+     * @throws FormatException If the cache header is invalid.
+     */
+    private @NonNull SourceFile<?> readMapped(@NonNull File cacheFile) throws IOException, FormatException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < HEADER_OFFSET || buffer.getInt(0) != MAGIC) {
+            throw new FormatException("Not a mapped code model cache file: " + cacheFile.getPath());
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new FormatException("Unsupported version: got " + version + ", but expected " + VERSION);
+        }
+        int headerLength = buffer.getInt(8);
+        if (headerLength < 0 || headerLength > buffer.limit() - HEADER_OFFSET) {
+            throw new FormatException("Invalid header length: " + headerLength);
+        }
+
+        JsonElement headerJson = readElement(cacheFile, buffer, HEADER_OFFSET, headerLength);
+        if (!(headerJson instanceof JsonObject)) {
+            throw new FormatException("Expected JsonObject, but got " + headerJson.getClass().getSimpleName());
+        }
+        JsonObject header = (JsonObject) headerJson;
+
+        int dataOffset = HEADER_OFFSET + headerLength;
+        LazyElementList elements = new LazyElementList(cacheFile, buffer, dataOffset,
+                new FormulaTable(header.getList("formulas")));
+
+        for (JsonElement unitJson : header.getList("units")) {
+            if (!(unitJson instanceof JsonObject)) {
+                throw new FormatException("Expected JsonObject, but got " + unitJson.getClass().getSimpleName());
+            }
+            JsonObject unit = (JsonObject) unitJson;
+
+            int offset = unit.getInt("offset");
+            int length = unit.getInt("length");
+            if (offset < 0 || length < 0 || length > buffer.limit() - dataOffset - offset) {
+                throw new FormatException("Invalid unit at offset " + offset + " with length " + length);
+            }
+
+            List<@NonNull String> classes = new ArrayList<>();
+            for (JsonElement className : unit.getList("classes")) {
+                if (!(className instanceof JsonString)) {
+                    throw new FormatException("Expected JsonString, but got "
+                            + className.getClass().getSimpleName());
+                }
+                classes.add(((JsonString) className).getValue());
+            }
+
+            elements.addUnit(offset, length, classes);
+        }
+
+        return new SourceFile<>(new File(header.getString("path")), elements);
+    }
+
+    /**
+     * Reads a single {@link JsonElement} in the encoding of the {@link BinaryCodeModelCache} from the mapped file.
+     *
+     * @param cacheFile The cache file, for error messages.
+     * @param buffer The mapped cache file.
+     * @param offset The offset of the element in the buffer.
+     * @param length The number of bytes of the element.
+     *
+     * @return The read element.
+     *
+     * @throws FormatException If the data is not in the expected format.
+     */
+    private static @NonNull JsonElement readElement(@NonNull File cacheFile, @NonNull ByteBuffer buffer, int offset,
+            int length) throws FormatException {
+
+        try (DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer, offset, length))) {
+            return new BinaryReader(in).read();
+
+        } catch (EOFException e) {
+            throw new FormatException("Unexpected end of data in cache file " + cacheFile.getPath(), e);
+        } catch (IOException e) {
+            // can't happen, since we read from memory
+            throw new FormatException(e);
+        }
+    }
+
+    /**
+     * An {@link InputStream} that reads a range of a {@link ByteBuffer}. Only uses absolute reads, so that the
+     * buffer can be shared.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private @NonNull ByteBuffer buffer;
+
+        private int position;
+
+        private int end;
+
+        /**
+         * Creates a stream for the given range of the buffer.
+         *
+         * @param buffer The buffer to read from.
+         * @param offset The index of the first byte to read.
+         * @param length The number of bytes to read.
+         */
+        public ByteBufferInputStream(@NonNull ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() {
+            return position < end ? buffer.get(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            int result;
+            if (length == 0) {
+                result = 0;
+            } else if (position >= end) {
+                result = -1;
+            } else {
+                result = Math.min(length, end - position);
+                for (int i = 0; i < result; i++) {
+                    bytes[offset + i] = buffer.get(position++);
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * The list of top-level elements of a {@link SourceFile} read by the {@link MappedCodeModelCache}. Elements are
+     * de-serialized on their first access, together with all other elements of their unit (see
+     * {@link JsonCodeModelCache#serializeUnits(SourceFile)}). Access is synchronized, since the {@link SourceFile}
+     * may be passed to other threads.
+     */
+    static final class LazyElementList extends AbstractList<@NonNull CodeElement<?>> implements ITypedElementList {
+
+        /**
+         * A unit of top-level elements that is de-serialized together.
+         */
+        private static final class Unit {
+
+            private int offset;
+
+            private int length;
+
+            private int firstIndex;
+
+            private int size;
+
+        }
+
+        private @NonNull File cacheFile;
+
+        /**
+         * The mapped cache file. Set to <code>null</code> once all units are loaded, so that the mapping can be
+         * released.
+         */
+        private @Nullable ByteBuffer buffer;
+
+        private int dataOffset;
+
+        private @NonNull FormulaTable formulas;
+
+        /**
+         * The top-level elements; <code>null</code> for elements that are not yet loaded.
+         */
+        private @NonNull List<@Nullable CodeElement<?>> elements;
+
+        /**
+         * The class names of the top-level elements.
+         */
+        private @NonNull List<@NonNull String> classNames;
+
+        /**
+         * The unit of each top-level element; <code>null</code> for elements that were added after reading.
+         */
+        private @NonNull List<@Nullable Unit> elementUnits;
+
+        private int numUnloadedUnits;
+
+        /**
+         * Creates an empty list.
+         *
+         * @param cacheFile The cache file, for error messages.
+         * @param buffer The mapped cache file.
+         * @param dataOffset The offset where the units start in the buffer.
+         * @param formulas The formula table of the cache file.
+         */
+        private LazyElementList(@NonNull File cacheFile, @NonNull ByteBuffer buffer, int dataOffset,
+                @NonNull FormulaTable formulas) {
+
+            this.cacheFile = cacheFile;
+            this.buffer = buffer;
+            this.dataOffset = dataOffset;
+            this.formulas = formulas;
+            this.elements = new ArrayList<>();
+            this.classNames = new ArrayList<>();
+            this.elementUnits = new ArrayList<>();
+        }
+
+        /**
+         * Adds a not yet loaded unit of top-level elements.
+         *
+         * @param offset The offset of the unit, relative to the start of the units.
+         * @param length The number of bytes of the unit.
+         * @param unitClassNames The class names of the top-level elements in this unit.
+         */
+        private synchronized void addUnit(int offset, int length, @NonNull List<@NonNull String> unitClassNames) {
+            Unit unit = new Unit();
+            unit.offset = offset;
+            unit.length = length;
+            unit.firstIndex = elements.size();
+            unit.size = unitClassNames.size();
+
+            for (String className : unitClassNames) {
+                elements.add(null);
+                classNames.add(className);
+                elementUnits.add(unit);
+            }
+            numUnloadedUnits++;
+        }
+
+        /**
+         * De-serializes the given unit.
+         *
+         * @param unit The unit to load.
+         *
+         * @throws IllegalStateException If the unit can't be de-serialized.
+         */
+        private void load(@NonNull Unit unit) throws IllegalStateException {
+            ByteBuffer buffer = notNull(this.buffer); // not null, since there is at least one unloaded unit
+            FormulaTable previous = FormulaTable.getCurrent();
+            FormulaTable.setCurrent(formulas);
+            try {
+                JsonElement json = readElement(cacheFile, buffer, dataOffset + unit.offset, unit.length);
+                if (!(json instanceof JsonList)) {
+                    throw new FormatException("Expected JsonList, but got " + json.getClass().getSimpleName());
+                }
+
+                List<@NonNull CodeElement<?>> loaded = JsonCodeModelCache.deserializeUnit((JsonList) json);
+                if (loaded.size() != unit.size) {
+                    throw new FormatException("Expected " + unit.size + " elements, but got " + loaded.size());
+                }
+
+                for (int i = 0; i < unit.size; i++) {
+                    elements.set(unit.firstIndex + i, loaded.get(i));
+                    elementUnits.set(unit.firstIndex + i, null);
+                }
+
+            } catch (FormatException e) {
+                throw new IllegalStateException("Can't read elements from cache file " + cacheFile.getPath(), e);
+
+            } finally {
+                FormulaTable.setCurrent(previous);
+            }
+
+            numUnloadedUnits--;
+            if (numUnloadedUnits == 0) {
+                this.buffer = null;
+            }
+        }
+
+        @Override
+        public synchronized @NonNull CodeElement<?> get(int index) throws IllegalStateException {
+            CodeElement<?> result = elements.get(index);
+            if (result == null) {
+                load(notNull(elementUnits.get(index)));
+                result = notNull(elements.get(index));
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized int size() {
+            return elements.size();
+        }
+
+        @Override
+        public synchronized boolean add(@NonNull CodeElement<?> element) {
+            elements.add(element);
+            classNames.add(notNull(element.getClass().getName()));
+            elementUnits.add(null);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public synchronized void checkCastTo(@NonNull Class<?> type) throws ClassCastException {
+            for (String className : classNames) {
+                Class<?> elementType;
+                try {
+                    elementType = Class.forName(className, false, ClassLoader.getSystemClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new ClassCastException("Can't load type of nested element " + className);
+                }
+
+                if (!type.isAssignableFrom(elementType)) {
+                    throw new ClassCastException("Nested element with type " + className
+                            + " can't be cast to " + type.getName());
+                }
+            }
+        }
+
+    }
+
+}
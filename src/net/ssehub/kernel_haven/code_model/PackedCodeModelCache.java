@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.ssehub.kernel_haven.provider.AbstractCache;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.PackedFileStore;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A cache for saving (and reading) a code model to a single packed file (see {@link PackedFileStore}), instead of one
+ * file per source file. Each {@link SourceFile} is stored as a record in the format of the
+ * {@link BinaryCodeModelCache}, optionally compressed with GZIP. This avoids opening (and for compressed caches,
+ * mounting a zip archive for) a separate file for each source file.
+ * <p>
+ * All caches for the same directory share the same {@link PackedFileStore}. The packed file stays open until
+ * {@link #close()} is called; the next access afterwards opens it again.
+ *
+ * @author Adam
+ */
+public class PackedCodeModelCache extends AbstractCache<SourceFile<?>> implements Closeable {
+
+    private @NonNull File packFile;
+
+    private boolean compress;
+
+    /**
+     * Creates a new cache in the given cache directory.
+     *
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     */
+    public PackedCodeModelCache(@NonNull File cacheDir) {
+        this(cacheDir, false);
+    }
+
+    /**
+     * Creates a new cache in the given cache directory.
+     *
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param compress
+     *            Whether the records should be written compressed (GZIP). Already
+     *            existing compressed records are always read, even if
+     *            compression is turned off.
+     */
+    public PackedCodeModelCache(@NonNull File cacheDir, boolean compress) {
+        this.packFile = new File(cacheDir, "cmCache.pack");
+        this.compress = compress;
+    }
+
+    /**
+     * Returns the key of the record for the given source file.
+     *
+     * @param path
+     *            The path of the source file, relative to the source code tree.
+     * @return The key in the {@link PackedFileStore}.
+     */
+    private static @NonNull String getKey(@NonNull File path) {
+        return notNull(path.getPath().replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * Writes the given {@link SourceFile} to the cache. May be called by multiple threads in parallel; only appending
+     * the already serialized record to the packed file is synchronized.
+     *
+     * @param file
+     *            The file to write to the cache. Must not be <code>null</code>.
+     * @throws IOException
+     *             If writing the cache file fails.
+     */
+    @Override
+    public void write(@NonNull SourceFile<?> file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (compress) {
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                BinaryCodeModelCache.writeSourceFile(file, out);
+            }
+        } else {
+            BinaryCodeModelCache.writeSourceFile(file, bytes);
+        }
+
+        PackedFileStore.get(packFile).write(getKey(file.getPath()), notNull(bytes.toByteArray()));
+    }
+
+    /**
+     * Reads the {@link SourceFile} for the given path from the cache.
+     *
+     * @param path
+     *            The path in the source code tree that should be read from the
+     *            cache. Must not be <code>null</code>.
+     * @return The {@link SourceFile} read from cache, or <code>null</code> if
+     *         it was not in the cache.
+     *
+     * @throws IOException
+     *             If reading the cache fails.
+     * @throws FormatException
+     *             If the cache content is invalid.
+     */
+    @Override
+    public @Nullable SourceFile<?> read(@NonNull File path) throws IOException, FormatException {
+        String key = getKey(path);
+        byte[] record = PackedFileStore.get(packFile).read(key);
+        SourceFile<?> result = null;
+
+        if (record != null) {
+            InputStream in = new ByteArrayInputStream(record);
+            // GZIP magic number
+            if (record.length >= 2 && record[0] == (byte) 0x1F && record[1] == (byte) 0x8B) {
+                in = new GZIPInputStream(in);
+            }
+
+            try {
+                result = BinaryCodeModelCache.readSourceFile(in, "cmCache.pack: " + key);
+            } finally {
+                in.close();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Closes the packed file. It is opened again on the next access.
+     */
+    @Override
+    public void close() throws IOException {
+        PackedFileStore.get(packFile).close();
+    }
+
+}
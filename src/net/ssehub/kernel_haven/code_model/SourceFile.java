@@ -55,6 +55,21 @@ public class SourceFile<ElementType extends CodeElement<?>> implements Iterable<
         this.path = path;
         elements = new LinkedList<>();
     }
+    
+    /**
+     * Constructs a Sourcefile with the given list of top-level elements. Package visibility, because this is used by
+     * the {@link MappedCodeModelCache} to load the top-level elements lazily.
+     * 
+     * @param path
+     *            The relative path to the source file in the source tree. Must
+     *            not be <code>null</code>.
+     * @param elements
+     *            The list that holds the top-level elements.
+     */
+    SourceFile(@NonNull File path, @NonNull List<@NonNull ElementType> elements) {
+        this.path = path;
+        this.elements = elements;
+    }
 
     /**
      * Retrieves the path of this file which is relative to the source tree.
@@ -117,10 +132,16 @@ public class SourceFile<ElementType extends CodeElement<?>> implements Iterable<
      */
     @SuppressWarnings("unchecked")
     public <T extends CodeElement<?>> @NonNull SourceFile<T> castTo(Class<T> type) throws ClassCastException {
-        for (ElementType element : this) {
-            if (!type.isAssignableFrom(element.getClass())) {
-                throw new ClassCastException("Nested element with type " + element.getClass().getName()
-                        + " can't be cast to " + type.getName());
+        if (elements instanceof ITypedElementList) {
+            // check the types without loading the elements
+            ((ITypedElementList) elements).checkCastTo(type);
+            
+        } else {
+            for (ElementType element : this) {
+                if (!type.isAssignableFrom(element.getClass())) {
+                    throw new ClassCastException("Nested element with type " + element.getClass().getName()
+                            + " can't be cast to " + type.getName());
+                }
             }
         }
         
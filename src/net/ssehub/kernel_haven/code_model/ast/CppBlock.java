@@ -106,11 +106,11 @@ public class CppBlock extends AbstractSyntaxElementWithNesting implements ICode
         this.type = Type.valueOf(json.getString("cppType"));
         
         if (json.getElement("cppCondition") != null) {
-            this.condition = parseJsonFormula(json.getString("cppCondition"));
+            this.condition = deserializeFormula(notNull(json.getElement("cppCondition")));
         }
         
         if (json.getElement("cppOwnCondition") != null) {
-            this.ownCondition = parseJsonFormula(json.getString("cppOwnCondition"));
+            this.ownCondition = deserializeFormula(notNull(json.getElement("cppOwnCondition")));
         }
         
         JsonList siblingIds = json.getList("cppSiblings");
@@ -281,10 +281,10 @@ public class CppBlock extends AbstractSyntaxElementWithNesting implements ICode
         
         result.putElement("cppType", new JsonString(notNull(type.name())));
         if (condition != null) {
-            result.putElement("cppCondition", new JsonString(condition.toString()));
+            result.putElement("cppCondition", serializeFormula(condition));
         }
         if (ownCondition != null) {
-            result.putElement("cppOwnCondition", new JsonString(ownCondition.toString()));
+            result.putElement("cppOwnCondition", serializeFormula(ownCondition));
         }
         
         JsonList siblingIds = new JsonList();
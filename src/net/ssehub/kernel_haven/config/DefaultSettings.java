@@ -33,7 +33,9 @@ import java.util.regex.Pattern;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.analysis.ConfiguredPipelineAnalysis;
+import net.ssehub.kernel_haven.analysis.PipelineExecutor;
 import net.ssehub.kernel_haven.build_model.EmptyBuildModelExtractor;
+import net.ssehub.kernel_haven.code_model.CodeModelProvider;
 import net.ssehub.kernel_haven.code_model.EmptyCodeModelExtractor;
 import net.ssehub.kernel_haven.util.Logger;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
@@ -101,6 +103,16 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull String> ANALYSIS_RESULT_NAME = new Setting<>("analysis.output.name", STRING, true, "Analysis", "A name for the analysis result that is used as a prefix for the output file(s).");
     public static final @NonNull Setting<@NonNull Boolean> ANALYSIS_USE_VARMODEL_VARIABLES_ONLY = new Setting<>("analysis.consider_vm_vars_only", BOOLEAN, true, "false", "Defines whether the analysis should only consider variables that are present in the variability model.");
     public static final @NonNull Setting<@NonNull Boolean> ANALYSIS_PIPELINE_START_EXTRACTORS = new Setting<>("analysis.pipeline.preemptively_start_extractors", BOOLEAN, true, "true", "Whether the analysis pipeline should preemptively start all three extractors. This has the advantage that the extractors will always run in parallel, even if the analysis compoenents only poll them in order. If this is set to false, then the extractors only start on demand when the analysis components poll them.");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_PIPELINE_QUEUE_CAPACITY = new Setting<>("analysis.pipeline.queue_capacity", INTEGER, true, "0", "The maximum number of results that each analysis component of a PipelineAnalysis buffers for the next component. If this many results are buffered, then the producing component waits until the next component consumed a result. This bounds the memory used by the pipeline, if a fast component (e.g. the code model extractor) feeds a slow one. 0 means that the buffers are unbounded. Note that pipelines where a component reads its inputs one after another (instead of interleaved) may deadlock if the capacity is too small, since the producer of the input that is read later cannot make progress.");
+    public static final @NonNull Setting<@NonNull Boolean> ANALYSIS_PIPELINE_LOCK_FREE_QUEUES = new Setting<>("analysis.pipeline.lock_free_queues", BOOLEAN, true, "false", "Whether the analysis components of a PipelineAnalysis should use a lock-free implementation for the buffers that pass results to the next component. This reduces contention if many threads pass results through the same buffer, at the cost of briefly spinning while waiting for results.");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_PIPELINE_THREAD_POOL_SIZE = new Setting<>("analysis.pipeline.thread_pool_size", INTEGER, true, "0", "The number of threads in the pool that runs the analysis components of a PipelineAnalysis, if analysis.pipeline.thread_mode is set to THREAD_POOL. Each PipelineAnalysis creates its own pool and shuts it down when it is done. 0 means that the pool grows as needed and reuses idle threads. This does not limit the total number of threads: if all threads of the pool are busy, then further components run in additional dedicated threads, since analysis components block while waiting for the results of their input components, so making them wait for a pool thread could deadlock the pipeline.");
+    public static final @NonNull Setting<PipelineExecutor.@NonNull Mode> ANALYSIS_PIPELINE_THREAD_MODE = new EnumSetting<PipelineExecutor.@NonNull Mode>("analysis.pipeline.thread_mode", PipelineExecutor.Mode.class, true, PipelineExecutor.Mode.DEDICATED_THREADS, "How the analysis components of a PipelineAnalysis are executed. DEDICATED_THREADS runs each component in its own operating system thread. VIRTUAL_THREADS runs each component in a virtual thread, which avoids the memory and scheduling overhead of one operating system thread per component; this requires Java 21 or newer and falls back to DEDICATED_THREADS on older versions. THREAD_POOL runs the components in a shared pool of threads (see " + ANALYSIS_PIPELINE_THREAD_POOL_SIZE.getKey() + ").");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_PIPELINE_PARALLEL_THREADS = new Setting<>("analysis.pipeline.parallel.threads", INTEGER, true, "0", "The number of worker threads that each ParallelMapComponent or ParallelFlatMapComponent of a PipelineAnalysis uses to process its inputs. 0 means that the number of available processors is used.");
+    public static final @NonNull Setting<@NonNull Boolean> ANALYSIS_PIPELINE_PARALLEL_PRESERVE_ORDER = new Setting<>("analysis.pipeline.parallel.preserve_order", BOOLEAN, true, "true", "Whether each ParallelMapComponent or ParallelFlatMapComponent of a PipelineAnalysis passes its results to the next component in the order of its inputs. If this is false, then results are passed on as soon as they are ready, so that a slow input doesn't hold back the results of the following inputs.");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_PIPELINE_PARALLEL_MAX_IN_FLIGHT = new Setting<>("analysis.pipeline.parallel.max_in_flight", INTEGER, true, "0", "The maximum number of inputs that each ParallelMapComponent or ParallelFlatMapComponent of a PipelineAnalysis has read from its input component but not yet passed on as results. This bounds the memory used for waiting and reordered items. 0 means 16 times the number of worker threads.");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_LIST_COLLECTOR_MAX_IN_MEMORY = new Setting<>("analysis.list_collector.max_in_memory", INTEGER, true, "0", "The maximum number of elements that each ListCollectorComponent of a PipelineAnalysis keeps in memory. If more elements are collected, then they are written to a temporary file in chunks and read back when the list is accessed. This bounds the memory used for very large collected results. 0 means that all elements are kept in memory. The elements are written with the Java serialization, unless the component is created with a dedicated serializer.");
+    public static final @NonNull Setting<@NonNull Boolean> ANALYSIS_PIPELINE_METRICS_OUTPUT = new Setting<>("analysis.pipeline.metrics.output", BOOLEAN, true, "false", "Whether a PipelineAnalysis should write a table with the metrics of each of its analysis components at the end of the run. For each component, this contains the number of items read and produced, the current size of its result queue, and how long it was busy, blocked waiting for inputs, or blocked because its result queue was full. This helps to find the bottleneck of a pipeline.");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_PIPELINE_METRICS_LOG_INTERVAL = new Setting<>("analysis.pipeline.metrics.log_interval", INTEGER, true, "0", "The interval in which a PipelineAnalysis logs the metrics of its running analysis components, in milliseconds. The metrics of all components are logged once more at the end of the run. 0 means that the metrics are not logged.");
     
     /*
      * Common extractor parameters
@@ -108,6 +120,7 @@ public class DefaultSettings {
     
     public static final @NonNull Setting<@NonNull File> SOURCE_TREE = new Setting<>("source_tree", DIRECTORY, true, null, "The path to the source tree of the product line that should be analyzed.");
     public static final @NonNull Setting<@Nullable String> ARCH = new Setting<>("arch", STRING, false, null, "The architecture of the Linux Kernel that should be analyzed. Most Linux extractors require this.");
+    public static final @NonNull Setting<@NonNull Boolean> PROVIDER_COST_DATABASE = new Setting<>("provider.cost_database", BOOLEAN, true, "false", "Whether the providers should store how long the extractors took for each target (and how large the result was) in the cache directory. These records are used in later executions to start with the most expensive targets, and to estimate the remaining time in the progress log.");
     
     /*
      * Code model parameters
@@ -118,6 +131,9 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_WRITE = new Setting<>("code.provider.cache.write", BOOLEAN, true, "false", "Defines whether the code model provider will write its results to the cache directory.");
     public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_READ = new Setting<>("code.provider.cache.read", BOOLEAN, true, "false", "Defines whether the code model provider is allowed to read the cache instead of starting the extractor.");
     public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_COMPRESS = new Setting<>("code.provider.cache.compress", BOOLEAN, true, "true", "Whether the individual cache files for the code model should written as compressed Zip archives. Reading of compressed cache files is always supported.");
+    public static final @NonNull Setting<CodeModelProvider.@NonNull CacheFormat> CODE_PROVIDER_CACHE_FORMAT = new EnumSetting<CodeModelProvider.@NonNull CacheFormat>("code.provider.cache.format", CodeModelProvider.CacheFormat.class, true, CodeModelProvider.CacheFormat.JSON, "The file format of the code model cache. JSON writes human-readable JSON files. BINARY writes a compact binary format with interned strings, which is considerably faster to write and read for large code models. MAPPED writes a similar binary format that is memory-mapped when reading; top-level elements are only de-serialized on their first access (code.provider.cache.compress is ignored for this format). PACKED stores the BINARY format of all source files in a single data file with an index, instead of one file per source file. Only cache files in the configured format are read.");
+    public static final @NonNull Setting<CodeModelProvider.@NonNull CacheValidation> CODE_PROVIDER_CACHE_VALIDATION = new EnumSetting<CodeModelProvider.@NonNull CacheValidation>("code.provider.cache.validation", CodeModelProvider.CacheValidation.class, true, CodeModelProvider.CacheValidation.NONE, "How the code model provider detects outdated results in the cache. NONE always uses cached results, even if the source file changed. METADATA re-runs the extractor on source files whose size or last modification time changed since their result was cached. CONTENT re-runs the extractor on source files whose content changed (this reads every source file, but is not affected by changed modification times, e.g. after a fresh checkout). The fingerprints of the cached results are stored in the cache directory.");
+    public static final @NonNull ListSetting<@NonNull String> CODE_PROVIDER_CACHE_VALIDATION_INPUTS = new ListSetting<>("code.provider.cache.validation.inputs", STRING, false, "Additional files that every source file depends on, relative to the source tree (e.g. global headers or configuration files). If " + CODE_PROVIDER_CACHE_VALIDATION.getKey() + " is enabled, a change in any of these files invalidates all cached results.");
     public static final @NonNull ListSetting<@NonNull String> CODE_EXTRACTOR_FILES = new ListSetting<>("code.extractor.files", STRING, notNull(Arrays.asList("")), "Defines which files the code extractor should run on. Comma separated list of paths relative to the source tree. If directories are listed, then they are searched recursively for files that match the regular expression specified in code.extractor.file_regex. Set to an empty string to specify the complete source tree.");
     public static final @NonNull Setting<@NonNull Pattern> CODE_EXTRACTOR_FILE_REGEX = new Setting<>("code.extractor.file_regex", REGEX, true, ".*\\.c", "A Java regular expression defining which files are considered to be source files for parsing. See code.extractor.files for a description on which files this expression is tested on."); 
     public static final @NonNull Setting<@NonNull Integer> CODE_EXTRACTOR_THREADS = new Setting<>("code.extractor.threads", INTEGER, true, "1", "The number of threads the code extractor should use. This many files are parsed in parallel.");
@@ -143,6 +159,8 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull Boolean> VARIABILITY_PROVIDER_CACHE_WRITE = new Setting<>("variability.provider.cache.write", BOOLEAN, true, "false", "Defines whether the variability model provider will write its results to the cache directory.");
     public static final @NonNull Setting<@NonNull Boolean> VARIABILITY_PROVIDER_CACHE_READ = new Setting<>("variability.provider.cache.read", BOOLEAN, true, "false", "Defines whether the variability model provider is allowed to read the cache instead of starting the extractor.");
     public static final @NonNull Setting<@Nullable File> VARIABILITY_INPUT_FILE = new Setting<>("variability.input.file", FILE, false, null, "Path of a single file to be parsed by a variability model extractor.");
+    public static final @NonNull Setting<@NonNull Boolean> VARIABILITY_DIMACS_LOAD_CLAUSES = new Setting<>("variability.extractor.dimacs.load_clauses", BOOLEAN, true, "false", "Whether the DIMACS variability model extractor should load the clauses of the DIMACS file into memory. The clauses are then available via VariabilityModel.getClauses(), so that analyses can reason on the constraints without reading the file again.");
+    public static final @NonNull Setting<@NonNull Integer> VARIABILITY_DIMACS_THREADS = new Setting<>("variability.extractor.dimacs.threads", INTEGER, true, "1", "The maximum number of threads that the DIMACS variability model extractor uses to parse large DIMACS files. The file is split into chunks of at least 4 MiB, which are parsed in parallel.");
     public static final @NonNull Setting<@NonNull Pattern> VARIABILITY_EXTRACTOR_FILE_REGEX = new Setting<>("variability.extractor.file_regex", REGEX, true, "..*(?i)(^|\\/|\\\\)(Kconfig)", "A Java regular expression defining which files are considered to be source files relevant for parsing the variability model.");
     
     /*
@@ -15,10 +15,14 @@
  */
 package net.ssehub.kernel_haven.provider;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
@@ -27,6 +31,7 @@ import net.ssehub.kernel_haven.util.ExtractorException;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.Logger;
 import net.ssehub.kernel_haven.util.ProgressLogger;
+import net.ssehub.kernel_haven.util.Util;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -42,6 +47,11 @@ public abstract class AbstractExtractor<ResultType> {
 
     protected static final Logger LOGGER = Logger.get();
     
+    /**
+     * The number of targets that are listed in the report of the slowest targets after each run.
+     */
+    private static final int NUM_SLOWEST_REPORTED = 10;
+    
     private boolean isRunning;
     
     private @NonNull Object isRunningMutex;
@@ -104,6 +114,8 @@ public abstract class AbstractExtractor<ResultType> {
         
         private @NonNull ProgressLogger progress;
         
+        private @NonNull Map<@NonNull File, @NonNull Long> expectedDurations;
+        
         /**
          * Creates a new worker thread.
          * 
@@ -111,12 +123,14 @@ public abstract class AbstractExtractor<ResultType> {
          * @param number The number of this thread.
          * @param targets The queue to get targets from.
          * @param progress A {@link ProgressLogger} to notfiy about finished items.
+         * @param expectedDurations The expected duration of each target, in milliseconds, for the progress.
          */
         public WorkerThread(@NonNull String name, int number, @NonNull BlockingQueue<File> targets,
-                @NonNull ProgressLogger progress) {
+                @NonNull ProgressLogger progress, @NonNull Map<@NonNull File, @NonNull Long> expectedDurations) {
             super(name + "-" + number);
             this.targets = targets;
             this.progress = progress;
+            this.expectedDurations = expectedDurations;
         }
         
         @Override
@@ -124,16 +138,32 @@ public abstract class AbstractExtractor<ResultType> {
             File target;
             
             while ((target = targets.get()) != null) {
+                long tStart = System.currentTimeMillis();
+                ResultType result = null;
+                boolean readFromCache = false;
+                
                 try {
-                    ResultType result = null;
-                    boolean readFromCache = false;
-                    
+                    String fingerprint = null;
+                    boolean cacheUpToDate = true;
+                    if (provider.readCache() || provider.writeCache()) {
+                        try {
+                            fingerprint = provider.computeFingerprint(target);
+                            cacheUpToDate = provider.getFingerprintDatabase().isUpToDate(target, fingerprint);
+                        } catch (IOException e) {
+                            LOGGER.logException("Can't compute cache fingerprint for file " + target.getPath(), e);
+                            cacheUpToDate = false;
+                        }
+                    }
                     
                     if (provider.readCache()) {
-                        try {
-                            result = provider.getCache().read(target);
-                        } catch (FormatException | IOException e) {
-                            LOGGER.logException("Invalid cache for file " + target.getPath(), e);
+                        if (cacheUpToDate) {
+                            try {
+                                result = provider.getCache().read(target);
+                            } catch (FormatException | IOException e) {
+                                LOGGER.logException("Invalid cache for file " + target.getPath(), e);
+                            }
+                        } else {
+                            LOGGER.logDebug("Cache for " + target.getPath() + " is outdated");
                         }
                     }
                     
@@ -155,6 +185,7 @@ public abstract class AbstractExtractor<ResultType> {
                     if (provider.writeCache() && !readFromCache) {
                         try {
                             provider.getCache().write(result);
+                            provider.getFingerprintDatabase().record(target, fingerprint);
                             LOGGER.logDebug("Cache successfully written");
                             
                         } catch (IOException e) {
@@ -166,16 +197,95 @@ public abstract class AbstractExtractor<ResultType> {
                     provider.addException(e);
                 }
                 
-                progress.processedOne();
+                provider.getCostDatabase().record(target, System.currentTimeMillis() - tStart,
+                        result != null ? provider.getResultSize(result) : 0, readFromCache);
+                
+                progress.processedOne(expectedDurations.getOrDefault(target, 0L));
+            }
+        }
+        
+    }
+    
+    /**
+     * Orders the given targets so that the most expensive ones come first. Since the worker threads take the targets
+     * from a shared queue, this ensures that no single expensive target is started last, while all other threads are
+     * already idle. Targets with a recorded duration from a previous run (see {@link ExtractionCostDatabase}) use this
+     * duration as their cost. For the other targets, the estimation of the provider (see
+     * {@link AbstractProvider#estimateCost(File)}) is converted into a duration, based on the ratio of recorded
+     * durations to estimations of the recorded targets; if the provider does not estimate the recorded targets, the
+     * average recorded duration is used instead. If no target has a record, the estimations are used directly. Targets
+     * with equal cost keep their original order.
+     * 
+     * @param targets The targets to order.
+     * 
+     * @return A new list with the ordered targets.
+     */
+    private @NonNull List<@NonNull File> orderByCost(@NonNull List<@NonNull File> targets) {
+        ExtractionCostDatabase database = provider.getCostDatabase();
+        
+        Map<@NonNull File, @NonNull Long> estimates = new HashMap<>();
+        long recordedDuration = 0;
+        long recordedEstimate = 0;
+        int numRecorded = 0;
+        for (File target : targets) {
+            long estimate = provider.estimateCost(target);
+            estimates.put(target, estimate);
+            
+            ExtractionCostDatabase.Entry entry = database.get(target);
+            if (entry != null) {
+                recordedDuration += entry.getDuration();
+                recordedEstimate += estimate;
+                numRecorded++;
             }
         }
         
+        Map<@NonNull File, @NonNull Double> costs = new HashMap<>();
+        for (File target : targets) {
+            ExtractionCostDatabase.Entry entry = database.get(target);
+            double cost;
+            if (entry != null) {
+                cost = entry.getDuration();
+            } else if (numRecorded == 0) {
+                cost = estimates.get(target);
+            } else if (recordedEstimate > 0) {
+                cost = (double) estimates.get(target) * recordedDuration / recordedEstimate;
+            } else {
+                cost = (double) recordedDuration / numRecorded;
+            }
+            costs.put(target, cost);
+        }
+        
+        List<@NonNull File> result = new ArrayList<>(targets);
+        result.sort(Comparator.comparing((File target) -> costs.getOrDefault(target, 0.0)).reversed());
+        return result;
+    }
+    
+    /**
+     * Logs the slowest of the given targets (see {@link #NUM_SLOWEST_REPORTED}). Does nothing if there is only a
+     * single target.
+     * 
+     * @param targets The targets that the extractor ran on.
+     */
+    private void reportSlowest(@NonNull List<@NonNull File> targets) {
+        if (targets.size() > 1) {
+            List<ExtractionCostDatabase.@NonNull Entry> slowest
+                    = provider.getCostDatabase().getSlowest(targets, NUM_SLOWEST_REPORTED);
+            
+            List<String> lines = new ArrayList<>(slowest.size() + 1);
+            lines.add("Slowest targets:");
+            for (ExtractionCostDatabase.Entry entry : slowest) {
+                lines.add("\t" + entry.getTarget().getPath() + ": " + Util.formatDurationMs(entry.getDuration())
+                        + (entry.isCacheHit() ? " (read from cache)" : ""));
+            }
+            LOGGER.logInfo(lines.toArray(new String[0]));
+        }
     }
     
     /**
      * Runs the extractor asynchronously on the given list of targets. This potentially (depending on configuration)
-     * spawns multiple threads that chew through the list of targets. For each result, setResult() or setException()
-     * of the provider is called.
+     * spawns multiple threads that chew through the list of targets. If multiple threads are used, then the targets
+     * are processed in order of their estimated cost (most expensive first, see {@link #orderByCost(List)}). For each
+     * result, setResult() or setException() of the provider is called.
      * 
      * @param targets The targets to run on.
      */
@@ -188,9 +298,23 @@ public abstract class AbstractExtractor<ResultType> {
             
             LOGGER.logStatus("Starting on ", targets.size(), " targets in ", provider.getNumberOfThreads(), " threads");
             ProgressLogger progress = new ProgressLogger(getName(), targets.size());
-           
+            
+            Map<@NonNull File, @NonNull Long> expectedDurations = provider.getCostDatabase().estimateDurations(targets);
+            long expectedWork = 0;
+            for (Long duration : expectedDurations.values()) {
+                expectedWork += duration;
+            }
+            if (expectedWork > 0) {
+                progress.setExpectedWork(expectedWork);
+            }
+            
+            List<@NonNull File> orderedTargets = targets;
+            if (provider.getNumberOfThreads() > 1) {
+                orderedTargets = orderByCost(targets);
+            }
+            
             BlockingQueue<File> targetQueue = new BlockingQueue<>();
-            for (File target : targets) {
+            for (File target : orderedTargets) {
                 targetQueue.add(target);
             }
             targetQueue.end();
@@ -198,7 +322,7 @@ public abstract class AbstractExtractor<ResultType> {
             List<WorkerThread> threads = new ArrayList<>(provider.getNumberOfThreads());
             
             for (int i = 1; i <= provider.getNumberOfThreads(); i++) {
-                WorkerThread th = new WorkerThread(getName(), i, targetQueue, progress);
+                WorkerThread th = new WorkerThread(getName(), i, targetQueue, progress, expectedDurations);
                 th.start();
                 threads.add(th);
             }
@@ -212,6 +336,27 @@ public abstract class AbstractExtractor<ResultType> {
             
             progress.close();
             
+            reportSlowest(targets);
+            try {
+                provider.getCostDatabase().save();
+            } catch (IOException e) {
+                LOGGER.logExceptionWarning("Can't write extraction cost database", e);
+            }
+            try {
+                provider.getFingerprintDatabase().save();
+            } catch (IOException e) {
+                LOGGER.logExceptionWarning("Can't write cache fingerprint database", e);
+            }
+            AbstractCache<ResultType> cache = provider.getCache();
+            if (cache instanceof Closeable) {
+                // e.g. the packed cache keeps its file open while the extractor runs
+                try {
+                    ((Closeable) cache).close();
+                } catch (IOException e) {
+                    LOGGER.logExceptionWarning("Can't close cache", e);
+                }
+            }
+            
             synchronized (isRunningMutex) {
                 isRunning = false;
                 provider.addResult(null);
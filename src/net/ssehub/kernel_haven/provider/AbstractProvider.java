@@ -16,11 +16,13 @@
 package net.ssehub.kernel_haven.provider;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.util.BlockingQueue;
 import net.ssehub.kernel_haven.util.ExtractorException;
 import net.ssehub.kernel_haven.util.Logger;
@@ -49,6 +51,10 @@ public abstract class AbstractProvider<ResultType> {
     private @NonNull BlockingQueue<ExtractorException> exceptionQueue;
     
     private AbstractCache<ResultType> cache;
+    
+    private ExtractionCostDatabase costDatabase;
+    
+    private CacheFingerprintDatabase fingerprintDatabase;
 
     /**
      * Creates a new provider.
@@ -105,6 +111,50 @@ public abstract class AbstractProvider<ResultType> {
      */
     public abstract int getNumberOfThreads();
     
+    /**
+     * Estimates how expensive running the extractor on the given target is. If multiple threads are used, then the
+     * extractor starts with the most expensive targets, so that no thread is left with an expensive target while all
+     * others are already done. The value has no unit; it is only compared to the estimations for other targets. The
+     * default implementation returns 0 for all targets, i.e. the targets are processed in the order of
+     * {@link #getTargets()}. Sub-classes may override this.
+     * 
+     * @param target The target to estimate the cost for.
+     * 
+     * @return The estimated cost of the target. Higher values mean more expensive targets.
+     */
+    public long estimateCost(@NonNull File target) {
+        return 0;
+    }
+    
+    /**
+     * Determines the size of a result of the extractor. This is stored in the {@link ExtractionCostDatabase}. The
+     * default implementation returns 1 for all results. Sub-classes may override this.
+     * 
+     * @param result The result of the extractor.
+     * 
+     * @return The size of the result.
+     */
+    public int getResultSize(@NonNull ResultType result) {
+        return 1;
+    }
+    
+    /**
+     * Computes a fingerprint of all inputs that the result for the given target depends on. A result in the cache is
+     * only used if the fingerprint is still the same as when the result was written to the cache; otherwise, the
+     * extractor is run again on the target (see {@link CacheFingerprintDatabase}). The default implementation returns
+     * <code>null</code> for all targets, i.e. cached results are always used. Sub-classes may override this.
+     * 
+     * @param target The target to compute the fingerprint for.
+     * 
+     * @return The fingerprint of the inputs of the target; <code>null</code> if cached results for the target should
+     *      always be used.
+     * 
+     * @throws IOException If reading the inputs fails.
+     */
+    public @Nullable String computeFingerprint(@NonNull File target) throws IOException {
+        return null;
+    }
+    
     /**
      * Tells this provider which extractor to use.
      * 
@@ -133,6 +183,64 @@ public abstract class AbstractProvider<ResultType> {
         extractor.init(config);
         
         this.cache = createCache();
+        this.costDatabase = createCostDatabase();
+        this.fingerprintDatabase = createFingerprintDatabase();
+    }
+    
+    /**
+     * Creates the database that remembers the cost of running the extractor on each target. The records are persisted
+     * in the cache directory, if {@link DefaultSettings#PROVIDER_COST_DATABASE} is enabled.
+     * 
+     * @return The cost database to use.
+     */
+    private @NonNull ExtractionCostDatabase createCostDatabase() {
+        File file = null;
+        File cacheDir = config.getValue(DefaultSettings.CACHE_DIR);
+        if (config.getValue(DefaultSettings.PROVIDER_COST_DATABASE) && cacheDir != null) {
+            file = new File(cacheDir, extractor.getName() + "_costs.csv");
+        }
+        return new ExtractionCostDatabase(file);
+    }
+    
+    /**
+     * Creates the database that remembers the fingerprints of the cached results (see
+     * {@link #computeFingerprint(File)}). The records are persisted in the cache directory.
+     * 
+     * @return The fingerprint database to use.
+     */
+    private @NonNull CacheFingerprintDatabase createFingerprintDatabase() {
+        File file = null;
+        File cacheDir = config.getValue(DefaultSettings.CACHE_DIR);
+        if (cacheDir != null) {
+            file = new File(cacheDir, extractor.getName() + "_fingerprints.csv");
+        }
+        return new CacheFingerprintDatabase(file);
+    }
+    
+    /**
+     * Retrieves the database that remembers the cost of running the extractor on each target.
+     * 
+     * @return The cost database to use.
+     */
+    public @NonNull ExtractionCostDatabase getCostDatabase() {
+        ExtractionCostDatabase costDatabase = this.costDatabase;
+        if (costDatabase == null) {
+            throw new RuntimeException("setConfig() not called before getCostDatabase()");
+        }
+        return costDatabase;
+    }
+    
+    /**
+     * Retrieves the database that remembers the fingerprints of the cached results.
+     * 
+     * @return The fingerprint database to use.
+     */
+    public @NonNull CacheFingerprintDatabase getFingerprintDatabase() {
+        CacheFingerprintDatabase fingerprintDatabase = this.fingerprintDatabase;
+        if (fingerprintDatabase == null) {
+            throw new RuntimeException("setConfig() not called before getFingerprintDatabase()");
+        }
+        return fingerprintDatabase;
     }
     
     /**
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.provider;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.io.TableElement;
+import net.ssehub.kernel_haven.util.io.TableRow;
+import net.ssehub.kernel_haven.util.io.csv.CsvReader;
+import net.ssehub.kernel_haven.util.io.csv.CsvWriter;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Remembers a fingerprint of the inputs of each target at the time its result was written to the cache (see
+ * {@link AbstractProvider#computeFingerprint(File)}). The {@link AbstractExtractor} uses this to detect cached results
+ * that are outdated because their inputs changed since; these targets are extracted again instead of being read from
+ * the cache. If a file is specified, then the fingerprints are read from and stored to this file (as CSV), next to
+ * the cache. This class is thread-safe.
+ *
+ * @author Adam
+ */
+public class CacheFingerprintDatabase {
+
+    private static final Logger LOGGER = Logger.get();
+    
+    private static final char @NonNull [] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    /**
+     * A single record of the database.
+     */
+    @TableRow
+    public static final class Entry {
+        
+        private @NonNull File target;
+        
+        private @NonNull String fingerprint;
+        
+        /**
+         * Creates a new record.
+         *
+         * @param target The target that the cached result belongs to.
+         * @param fingerprint The fingerprint of the inputs of the target when the result was cached.
+         */
+        public Entry(@NonNull File target, @NonNull String fingerprint) {
+            this.target = target;
+            this.fingerprint = fingerprint;
+        }
+        
+        /**
+         * Returns the target that the cached result belongs to.
+         *
+         * @return The target.
+         */
+        @TableElement(index = 0, name = "Target")
+        public @NonNull File getTarget() {
+            return target;
+        }
+        
+        /**
+         * Returns the fingerprint of the inputs of the target when the result was cached.
+         *
+         * @return The fingerprint.
+         */
+        @TableElement(index = 1, name = "Fingerprint")
+        public @NonNull String getFingerprint() {
+            return fingerprint;
+        }
+        
+    }
+    
+    private @Nullable File file;
+    
+    private @NonNull Map<@NonNull File, @NonNull Entry> entries;
+    
+    private volatile boolean modified;
+    
+    /**
+     * Creates a new database. If the given file exists, then the records are read from it.
+     *
+     * @param file The file to persist the records in. <code>null</code> if the records should only be kept in memory.
+     */
+    public CacheFingerprintDatabase(@Nullable File file) {
+        this.file = file;
+        this.entries = new ConcurrentHashMap<>();
+        
+        if (file != null && file.isFile()) {
+            try {
+                read(file);
+            } catch (IOException | FormatException e) {
+                LOGGER.logExceptionWarning("Can't read cache fingerprint database " + file.getPath(), e);
+                // without the records, all cached results with fingerprints are considered outdated
+                entries.clear();
+            }
+        }
+    }
+    
+    /**
+     * Reads the records from the given file.
+     *
+     * @param file The CSV file to read.
+     *
+     * @throws IOException If reading the file fails.
+     * @throws FormatException If the file has an invalid format.
+     */
+    private void read(@NonNull File file) throws IOException, FormatException {
+        try (CsvReader in = new CsvReader(new FileInputStream(file))) {
+            in.readNextRow(); // skip header
+            
+            @NonNull String[] row;
+            while ((row = in.readNextRow()) != null) {
+                if (row.length != 2) {
+                    throw new FormatException("Invalid number of columns in line " + in.getLineNumber());
+                }
+                
+                File target = new File(row[0]);
+                entries.put(target, new Entry(target, row[1]));
+            }
+        }
+    }
+    
+    /**
+     * Stores all records in the file that was specified in the constructor. Does nothing if no file was specified, or
+     * if no record was changed since the database was created.
+     *
+     * @throws IOException If writing the file fails.
+     */
+    public void save() throws IOException {
+        File file = this.file;
+        if (file != null && modified) {
+            try (CsvWriter out = new CsvWriter(new FileOutputStream(file))) {
+                // sort by target, so that the file is stable between executions
+                for (Entry entry : new TreeMap<>(entries).values()) {
+                    out.writeObject(entry);
+                }
+            }
+            modified = false;
+        }
+    }
+    
+    /**
+     * Checks whether the cached result for the given target is up-to-date.
+     *
+     * @param target The target to check.
+     * @param fingerprint The current fingerprint of the inputs of the target. <code>null</code> if the provider does
+     *      not validate its cache; in this case, the cached result is always considered up-to-date.
+     *
+     * @return Whether the cached result can be used.
+     */
+    public boolean isUpToDate(@NonNull File target, @Nullable String fingerprint) {
+        boolean result = true;
+        if (fingerprint != null) {
+            Entry entry = entries.get(target);
+            result = entry != null && entry.getFingerprint().equals(fingerprint);
+        }
+        return result;
+    }
+    
+    /**
+     * Adds or replaces the fingerprint for the given target. This should be called after the result for the target
+     * was written to the cache.
+     *
+     * @param target The target whose result was written to the cache.
+     * @param fingerprint The fingerprint of the inputs of the target. <code>null</code> if the provider does not
+     *      validate its cache; in this case, an existing record is removed.
+     */
+    public void record(@NonNull File target, @Nullable String fingerprint) {
+        if (fingerprint != null) {
+            Entry previous = entries.put(target, new Entry(target, fingerprint));
+            if (previous == null || !previous.getFingerprint().equals(fingerprint)) {
+                modified = true;
+            }
+        } else if (entries.remove(target) != null) {
+            modified = true;
+        }
+    }
+    
+    /**
+     * Creates a fingerprint of the given files, based on their size and last modification time. This is cheap to
+     * compute, but also considers files as changed if only their modification time changed (e.g. after a fresh
+     * checkout).
+     *
+     * @param files The files to create the fingerprint for. Files that don't exist are allowed.
+     *
+     * @return The fingerprint of the files.
+     */
+    public static @NonNull String fingerprintMetadata(@NonNull List<@NonNull File> files) {
+        StringBuilder result = new StringBuilder();
+        for (File file : files) {
+            if (result.length() > 0) {
+                result.append(';');
+            }
+            if (file.isFile()) {
+                result.append(file.length()).append('@').append(file.lastModified());
+            } else {
+                result.append('-');
+            }
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Creates a fingerprint of the given files, based on a hash (SHA-256) of their contents.
+     *
+     * @param files The files to create the fingerprint for. Files that don't exist are allowed.
+     *
+     * @return The fingerprint of the files.
+     *
+     * @throws IOException If reading the files fails.
+     */
+    public static @NonNull String fingerprintContent(@NonNull List<@NonNull File> files) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IOException(e);
+        }
+        
+        byte[] buffer = new byte[8192];
+        for (File file : files) {
+            if (file.isFile()) {
+                // the length separates the contents of the files in the hash
+                digest.update((file.length() + ":").getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = new FileInputStream(file)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            } else {
+                digest.update((byte) '-');
+            }
+            digest.update((byte) ';');
+        }
+        
+        byte[] hash = digest.digest();
+        char[] result = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            result[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            result[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(result);
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.provider;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.io.TableElement;
+import net.ssehub.kernel_haven.util.io.TableRow;
+import net.ssehub.kernel_haven.util.io.csv.CsvReader;
+import net.ssehub.kernel_haven.util.io.csv.CsvWriter;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Remembers how expensive running an extractor on each target was. This is used by the {@link AbstractExtractor} to
+ * schedule expensive targets first, to estimate the remaining time, and to report the slowest targets. If a file is
+ * specified, then the records are read from and stored to this file (as CSV), so that they are available in later
+ * executions, too. This class is thread-safe.
+ *
+ * @author Adam
+ */
+public class ExtractionCostDatabase {
+
+    private static final Logger LOGGER = Logger.get();
+    
+    /**
+     * A single record of the database.
+     */
+    @TableRow
+    public static final class Entry {
+        
+        private @NonNull File target;
+        
+        private long duration;
+        
+        private int resultSize;
+        
+        private boolean cacheHit;
+        
+        /**
+         * Creates a new record.
+         *
+         * @param target The target that the extractor ran on.
+         * @param duration How long processing the target took, in milliseconds.
+         * @param resultSize The size of the result (see {@link AbstractProvider#getResultSize(Object)}). 0 if the
+         *      extractor failed.
+         * @param cacheHit Whether the result was read from the cache.
+         */
+        public Entry(@NonNull File target, long duration, int resultSize, boolean cacheHit) {
+            this.target = target;
+            this.duration = duration;
+            this.resultSize = resultSize;
+            this.cacheHit = cacheHit;
+        }
+        
+        /**
+         * Returns the target that the extractor ran on.
+         *
+         * @return The target.
+         */
+        @TableElement(index = 0, name = "Target")
+        public @NonNull File getTarget() {
+            return target;
+        }
+        
+        /**
+         * Returns how long processing the target took.
+         *
+         * @return The duration, in milliseconds.
+         */
+        @TableElement(index = 1, name = "Duration (ms)")
+        public long getDuration() {
+            return duration;
+        }
+        
+        /**
+         * Returns the size of the result.
+         *
+         * @return The size of the result; 0 if the extractor failed.
+         */
+        @TableElement(index = 2, name = "Result Size")
+        public int getResultSize() {
+            return resultSize;
+        }
+        
+        /**
+         * Returns whether the result was read from the cache.
+         *
+         * @return Whether the result was read from the cache.
+         */
+        @TableElement(index = 3, name = "Cache Hit")
+        public boolean isCacheHit() {
+            return cacheHit;
+        }
+        
+        @Override
+        public @NonNull String toString() {
+            return target.getPath() + " (" + duration + " ms)";
+        }
+    
+    }
+    
+    private @Nullable File file;
+    
+    private @NonNull Map<@NonNull File, @NonNull Entry> entries;
+    
+    /**
+     * Creates a new database. If the given file exists, then the records are read from it.
+     *
+     * @param file The file to persist the records in. <code>null</code> if the records should only be kept in memory.
+     */
+    public ExtractionCostDatabase(@Nullable File file) {
+        this.file = file;
+        this.entries = new ConcurrentHashMap<>();
+        
+        if (file != null && file.isFile()) {
+            try {
+                read(file);
+            } catch (IOException | FormatException e) {
+                LOGGER.logExceptionWarning("Can't read extraction cost database " + file.getPath(), e);
+                entries.clear();
+            }
+        }
+    }
+    
+    /**
+     * Reads the records from the given file.
+     *
+     * @param file The CSV file to read.
+     *
+     * @throws IOException If reading the file fails.
+     * @throws FormatException If the file has an invalid format.
+     */
+    private void read(@NonNull File file) throws IOException, FormatException {
+        try (CsvReader in = new CsvReader(new FileInputStream(file))) {
+            in.readNextRow(); // skip header
+            
+            @NonNull String[] row;
+            while ((row = in.readNextRow()) != null) {
+                if (row.length != 4) {
+                    throw new FormatException("Invalid number of columns in line " + in.getLineNumber());
+                }
+                
+                try {
+                    File target = new File(row[0]);
+                    entries.put(target, new Entry(target, Long.parseLong(row[1]), Integer.parseInt(row[2]),
+                            Boolean.parseBoolean(row[3])));
+                } catch (NumberFormatException e) {
+                    throw new FormatException(e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stores all records in the file that was specified in the constructor. Does nothing if no file was specified.
+     *
+     * @throws IOException If writing the file fails.
+     */
+    public void save() throws IOException {
+        File file = this.file;
+        if (file != null) {
+            try (CsvWriter out = new CsvWriter(new FileOutputStream(file))) {
+                // sort by target, so that the file is stable between executions
+                for (Entry entry : new TreeMap<>(entries).values()) {
+                    out.writeObject(entry);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Adds or replaces the record for the given target. If the result was read from the cache and the target already
+     * has a record, then the previous duration is kept: the time for reading the cache says nothing about how
+     * expensive running the extractor on the target is.
+     *
+     * @param target The target that the extractor ran on.
+     * @param duration How long processing the target took, in milliseconds.
+     * @param resultSize The size of the result. 0 if the extractor failed.
+     * @param cacheHit Whether the result was read from the cache.
+     */
+    public void record(@NonNull File target, long duration, int resultSize, boolean cacheHit) {
+        entries.compute(target, (key, previous) -> {
+            long newDuration = duration;
+            if (cacheHit && previous != null) {
+                newDuration = previous.getDuration();
+            }
+            return new Entry(target, newDuration, resultSize, cacheHit);
+        });
+    }
+    
+    /**
+     * Returns the record for the given target.
+     *
+     * @param target The target to get the record for.
+     *
+     * @return The record; <code>null</code> if no record for this target exists.
+     */
+    public @Nullable Entry get(@NonNull File target) {
+        return entries.get(target);
+    }
+    
+    /**
+     * Estimates how long running the extractor on each of the given targets takes. Targets without a record are
+     * estimated with the average duration of the targets that have a record.
+     *
+     * @param targets The targets to estimate the duration for.
+     *
+     * @return The estimated duration for each target, in milliseconds. Empty if none of the targets has a record.
+     */
+    public @NonNull Map<@NonNull File, @NonNull Long> estimateDurations(@NonNull Collection<@NonNull File> targets) {
+        Map<@NonNull File, @NonNull Long> result = new HashMap<>();
+        
+        long sum = 0;
+        List<@NonNull File> unknown = new ArrayList<>();
+        for (File target : targets) {
+            Entry entry = entries.get(target);
+            if (entry != null) {
+                result.put(target, entry.getDuration());
+                sum += entry.getDuration();
+            } else {
+                unknown.add(target);
+            }
+        }
+        
+        if (!result.isEmpty()) {
+            long average = sum / result.size();
+            for (File target : unknown) {
+                result.put(target, average);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the records of the slowest of the given targets.
+     *
+     * @param targets The targets to consider. Targets without a record are ignored.
+     * @param num The maximum number of records to return.
+     *
+     * @return The records of the slowest targets, slowest first.
+     */
+    public @NonNull List<@NonNull Entry> getSlowest(@NonNull Collection<@NonNull File> targets, int num) {
+        List<@NonNull Entry> result = new ArrayList<>(targets.size());
+        for (File target : targets) {
+            Entry entry = entries.get(target);
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        
+        result.sort(Comparator.comparingLong(Entry::getDuration).reversed());
+        if (result.size() > num) {
+            result = new ArrayList<>(result.subList(0, num));
+        }
+        return result;
+    }
+
+}
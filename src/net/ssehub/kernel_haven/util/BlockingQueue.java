@@ -18,6 +18,8 @@ package net.ssehub.kernel_haven.util;
 import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.maybeNull;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -63,6 +65,15 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
  * newQueue.add(new_element);
  * ...
  * newQueue.end();</pre>
+ * <b>Batches:</b>
+ * If many small elements are passed between the threads, {@link #addAll(Collection)} and
+ * {@link #drainTo(Collection, int)} can be used to transfer multiple elements at once. This requires only one lock
+ * acquisition per batch, instead of one per element.
+ * <br>
+ * <b>Bounded queues:</b>
+ * A queue can optionally be created with a maximum capacity (see {@link #BlockingQueue(int)}). If the queue is full,
+ * then {@link #add(Object)} blocks until the reading thread removed an element. This limits the memory used by the
+ * queue, if the writing thread is faster than the reading thread.
  * 
  * @param <T> The type of data that is send between the threads.
  * 
@@ -70,20 +81,44 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
  * @author Alice
  *
  */
-public class BlockingQueue<T> {
+public class BlockingQueue<T> implements IBlockingQueue<T> {
 
     private @NonNull Queue<@NonNull T> internalQueue;
     
     private @NonNull Semaphore semaphore;
     
+    private @Nullable Semaphore freeSlots;
+    
+    private int capacity;
+    
     private boolean end;
 
     /**
-     * Creates an empty queue.
+     * Creates an empty queue with no maximum capacity.
      */
     public BlockingQueue() {
+        this(0);
+    }
+    
+    /**
+     * Creates an empty queue with the given maximum capacity. If the queue contains this many elements,
+     * {@link #add(Object)} blocks until an element is removed.
+     * 
+     * @param capacity The maximum number of elements in this queue. 0 means that the queue is unbounded.
+     * 
+     * @throws IllegalArgumentException If capacity is negative.
+     */
+    public BlockingQueue(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        
         internalQueue = new ArrayDeque<>();
         semaphore = new Semaphore(0, true);
+        this.capacity = capacity;
+        if (capacity > 0) {
+            freeSlots = new Semaphore(capacity, true);
+        }
     }
     
     /**
@@ -93,6 +128,7 @@ public class BlockingQueue<T> {
      * @return The next element in the queue, or <code>null</code> if the other thread
      *      signaled that it does not want to insert any more data.
      */
+    @Override
     public @Nullable T get() {
         T result = null;
         
@@ -116,6 +152,7 @@ public class BlockingQueue<T> {
      *      
      * @throws TimeoutException If the timeout exceeded.
      */
+    @Override
     public @Nullable T get(long timeout) throws TimeoutException {
         T result = null;
         
@@ -142,9 +179,59 @@ public class BlockingQueue<T> {
             result = maybeNull(internalQueue.poll());
         }
         
+        Semaphore freeSlots = this.freeSlots;
+        if (result != null && freeSlots != null) {
+            freeSlots.release();
+        }
+        
         return result;
     }
     
+    /**
+     * Removes up to <code>max</code> elements from this queue and adds them to the given collection. If the queue is
+     * empty, then this waits until the other thread inserts data. Afterwards, all elements that are currently available
+     * (up to <code>max</code>) are transferred at once.
+     * 
+     * @param target The collection to add the removed elements to.
+     * @param max The maximum number of elements to remove. Must be positive.
+     * 
+     * @return The number of elements added to target. 0 if the other thread signaled that it does not want to insert
+     *      any more data (and no data is left).
+     * 
+     * @throws IllegalArgumentException If max is not positive.
+     */
+    @Override
+    public int drainTo(@NonNull Collection<? super T> target, int max) throws IllegalArgumentException {
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive: " + max);
+        }
+        
+        semaphore.acquireUninterruptibly();
+        
+        int num = 0;
+        synchronized (internalQueue) {
+            // we hold one permit; only take elements that we can get further permits for, since other threads may
+            // already hold permits for the remaining elements
+            int extra = Math.min(max, internalQueue.size()) - 1;
+            while (extra > 0 && !semaphore.tryAcquire(extra)) {
+                extra--;
+            }
+            
+            T element;
+            while (num <= extra && (element = internalQueue.poll()) != null) {
+                target.add(element);
+                num++;
+            }
+        }
+        
+        Semaphore freeSlots = this.freeSlots;
+        if (num > 0 && freeSlots != null) {
+            freeSlots.release(num);
+        }
+        
+        return num;
+    }
+    
     /**
      * Returns, but does not remove, the next element in this queue. If the queue is empty, then this waits until
      * the other thread inserts data.
@@ -152,6 +239,7 @@ public class BlockingQueue<T> {
      * @return The next element in the queue, or <code>null</code> if the other thread
      *      signaled that it does not want to insert any more data.
      */
+    @Override
     public @Nullable T peek() {
         T result = null;
         
@@ -175,6 +263,7 @@ public class BlockingQueue<T> {
      *      
      * @throws TimeoutException If the timeout exceeded.
      */
+    @Override
     public @Nullable T peek(long timeout) throws TimeoutException {
         T result = null;
         
@@ -207,13 +296,20 @@ public class BlockingQueue<T> {
     }
     
     /**
-     * Adds the specified element to the end of the queue.
+     * Adds the specified element to the end of the queue. If this queue has a maximum capacity and is currently full,
+     * then this waits until the other thread removed an element.
      * 
      * @param element The element to add to the queue.
      * 
      * @throws IllegalStateException If {@link #end()} has already been called.
      */
+    @Override
     public void add(@NonNull T element) {
+        Semaphore freeSlots = this.freeSlots;
+        if (freeSlots != null) {
+            freeSlots.acquireUninterruptibly();
+        }
+        
         synchronized (internalQueue) {
             
             if (end) {
@@ -225,14 +321,59 @@ public class BlockingQueue<T> {
         }
     }
     
+    /**
+     * Adds all elements of the given collection to the end of the queue, in iteration order. Compared to calling
+     * {@link #add(Object)} for each element, this acquires the lock only once per batch. If this queue has a maximum
+     * capacity, then the elements are added in chunks that fit into the queue, waiting for free space in between.
+     * 
+     * @param elements The elements to add to the queue. Must not contain <code>null</code>.
+     * 
+     * @throws IllegalStateException If {@link #end()} has already been called.
+     */
+    @Override
+    public void addAll(@NonNull Collection<? extends @NonNull T> elements) {
+        Iterator<? extends @NonNull T> it = elements.iterator();
+        int remaining = elements.size();
+        
+        while (remaining > 0) {
+            int chunk = remaining;
+            
+            Semaphore freeSlots = this.freeSlots;
+            if (freeSlots != null) {
+                chunk = Math.min(chunk, capacity);
+                freeSlots.acquireUninterruptibly(chunk);
+            }
+            
+            synchronized (internalQueue) {
+                if (end) {
+                    throw new IllegalStateException("Trying to add new elements while end() has already been called");
+                }
+                
+                for (int i = 0; i < chunk; i++) {
+                    internalQueue.add(it.next());
+                }
+                semaphore.release(chunk);
+            }
+            
+            remaining -= chunk;
+        }
+    }
+    
     /**
      * Signals that no more data is added after this call. This allows get() to return <code>null</code>
      * once all existing data has been read out.
      */
+    @Override
     public void end() {
         synchronized (internalQueue) {
             end = true;
             semaphore.release(Integer.MAX_VALUE / 2);
+            
+            Semaphore freeSlots = this.freeSlots;
+            if (freeSlots != null) {
+                // wake up writers blocked on a full queue; they will get the IllegalStateException in add()
+                freeSlots.release(Integer.MAX_VALUE / 2);
+            }
         }
     }
     
@@ -242,17 +383,29 @@ public class BlockingQueue<T> {
      * 
      * @return Whether the other thread signaled the end of this queue.
      */
+    @Override
     public boolean isEnd() {
         synchronized (internalQueue) {
             return end;
         }
     }
     
+    /**
+     * Returns the maximum number of elements that this queue holds before {@link #add(Object)} blocks.
+     * 
+     * @return The capacity of this queue; 0 if this queue is unbounded.
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+    
     /**
      * Returns how many elements are currently in this buffer.
      * 
      * @return The current size of this queue.
      */
+    @Override
     public int getCurrentSize() {
         synchronized (internalQueue) {
             return internalQueue.size();
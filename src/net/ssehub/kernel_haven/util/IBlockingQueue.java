@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.util.Collection;
+import java.util.concurrent.TimeoutException;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A queue that sends data from writing threads to reading threads, with an explicit end. See {@link BlockingQueue}
+ * for the semantics and usage; {@link LockFreeBlockingQueue} is an alternative implementation for many concurrent
+ * threads.
+ * 
+ * @param <T> The type of data that is send between the threads.
+ * 
+ * @author Adam
+ */
+public interface IBlockingQueue<T> {
+
+    /**
+     * Returns the next element in this queue. If the queue is empty, then this waits until
+     * the other thread inserts data.
+     * 
+     * @return The next element in the queue, or <code>null</code> if the other thread
+     *      signaled that it does not want to insert any more data.
+     */
+    public default @Nullable T get() {
+        T result = null;
+        
+        try {
+            result = get(0);
+        } catch (TimeoutException e) {
+            // can't happen
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Returns the next element in this queue. If the queue is empty, then this waits until
+     * the other thread inserts data.
+     * 
+     * @param timeout The maximum amount of milliseconds to wait until a {@link TimeoutException} is thrown.
+     *      0 here means no timeout.
+     * @return The next element in the queue, or <code>null</code> if the other thread
+     *      signaled that it does not want to insert any more data.
+     *      
+     * @throws TimeoutException If the timeout exceeded.
+     */
+    public @Nullable T get(long timeout) throws TimeoutException;
+    
+    /**
+     * Removes up to <code>max</code> elements from this queue and adds them to the given collection. If the queue is
+     * empty, then this waits until the other thread inserts data. Afterwards, all elements that are currently available
+     * (up to <code>max</code>) are transferred at once.
+     * 
+     * @param target The collection to add the removed elements to.
+     * @param max The maximum number of elements to remove. Must be positive.
+     * 
+     * @return The number of elements added to target. 0 if the other thread signaled that it does not want to insert
+     *      any more data (and no data is left).
+     * 
+     * @throws IllegalArgumentException If max is not positive.
+     */
+    public int drainTo(@NonNull Collection<? super T> target, int max) throws IllegalArgumentException;
+    
+    /**
+     * Returns, but does not remove, the next element in this queue. If the queue is empty, then this waits until
+     * the other thread inserts data.
+     * 
+     * @return The next element in the queue, or <code>null</code> if the other thread
+     *      signaled that it does not want to insert any more data.
+     */
+    public default @Nullable T peek() {
+        T result = null;
+        
+        try {
+            result = peek(0);
+        } catch (TimeoutException e) {
+            // can't happen
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Returns, but does not remove, the next element in this queue. If the queue is empty, then this waits until
+     * the other thread inserts data.
+     * 
+     * @param timeout The maximum amount of milliseconds to wait until a {@link TimeoutException} is thrown.
+     *      0 here means no timeout.
+     * @return The next element in the queue, or <code>null</code> if the other thread
+     *      signaled that it does not want to insert any more data.
+     *      
+     * @throws TimeoutException If the timeout exceeded.
+     */
+    public @Nullable T peek(long timeout) throws TimeoutException;
+    
+    /**
+     * Adds the specified element to the end of the queue. If this queue has a maximum capacity and is currently full,
+     * then this waits until the other thread removed an element.
+     * 
+     * @param element The element to add to the queue.
+     * 
+     * @throws IllegalStateException If {@link #end()} has already been called.
+     */
+    public void add(@NonNull T element);
+    
+    /**
+     * Adds all elements of the given collection to the end of the queue, in iteration order. If this queue has a
+     * maximum capacity, then this waits for free space as necessary.
+     * 
+     * @param elements The elements to add to the queue. Must not contain <code>null</code>.
+     * 
+     * @throws IllegalStateException If {@link #end()} has already been called.
+     */
+    public void addAll(@NonNull Collection<? extends @NonNull T> elements);
+    
+    /**
+     * Signals that no more data is added after this call. This allows get() to return <code>null</code>
+     * once all existing data has been read out.
+     */
+    public void end();
+    
+    /**
+     * Returns whether the other thread has signaled that it does not want to send anymore data or not. This does not
+     * mean that there are no items left in the queue, but rather that no new items will be added.
+     * 
+     * @return Whether the other thread signaled the end of this queue.
+     */
+    public boolean isEnd();
+    
+    /**
+     * Returns the maximum number of elements that this queue holds before {@link #add(Object)} blocks.
+     * 
+     * @return The capacity of this queue; 0 if this queue is unbounded.
+     */
+    public int getCapacity();
+    
+    /**
+     * Returns how many elements are currently in this buffer.
+     * 
+     * @return The current size of this queue.
+     */
+    public int getCurrentSize();
+    
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Writes segments of elements to a binary stream and reads them back. Used by {@link SpillableList} to move chunks of
+ * elements to disk. Since a whole segment is written at once, implementations can write shared information (e.g. a
+ * stream header or type descriptors) only once per segment. Implementations must read exactly the bytes that they
+ * have written for a segment.
+ *
+ * @param <T> The type of elements to serialize.
+ *
+ * @author Adam
+ */
+public interface IElementSerializer<T> {
+
+    /**
+     * Writes the given segment of elements.
+     *
+     * @param elements The elements to write.
+     * @param out The stream to write to. Must not be closed by this method.
+     *
+     * @throws IOException If writing fails, or if an element cannot be serialized.
+     */
+    public void write(@NonNull List<@NonNull T> elements, @NonNull OutputStream out) throws IOException;
+
+    /**
+     * Reads a segment that was written by {@link #write(List, OutputStream)}.
+     *
+     * @param count The number of elements in the segment.
+     * @param in The stream to read from. Must not be closed by this method.
+     *
+     * @return The read elements, in the order in which they were written.
+     *
+     * @throws IOException If reading fails.
+     */
+    public @NonNull List<@NonNull T> read(int count, @NonNull InputStream in) throws IOException;
+
+}
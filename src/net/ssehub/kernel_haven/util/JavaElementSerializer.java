@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * An {@link IElementSerializer} that uses the Java serialization. This works for all elements that implement
+ * {@link java.io.Serializable}, but is slower and produces larger output than a dedicated serializer. One object
+ * stream is used per segment, so that the stream header and the class descriptors are written only once per segment,
+ * and objects that are referenced by multiple elements of a segment are stored only once.
+ *
+ * @param <T> The type of elements to serialize.
+ *
+ * @author Adam
+ */
+public class JavaElementSerializer<T> implements IElementSerializer<T> {
+
+    @Override
+    public void write(@NonNull List<@NonNull T> elements, @NonNull OutputStream out) throws IOException {
+        // not closed, since that would close the given stream
+        ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        for (T element : elements) {
+            objectOut.writeObject(element);
+        }
+        objectOut.flush();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @NonNull List<@NonNull T> read(int count, @NonNull InputStream in) throws IOException {
+        // not closed, since that would close the given stream
+        ObjectInputStream objectIn = new ObjectInputStream(in);
+        List<@NonNull T> result = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                result.add((@NonNull T) objectIn.readObject());
+            }
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(e);
+        }
+        return result;
+    }
+
+}
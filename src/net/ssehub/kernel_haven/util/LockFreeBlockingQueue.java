@@ -0,0 +1,321 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * An {@link IBlockingQueue} that does not acquire a lock when adding or retrieving elements. The elements are stored
+ * in a {@link ConcurrentLinkedQueue} (linked nodes updated via compare-and-swap). Only if a thread actually has to wait
+ * (i.e. the queue is empty, or full for bounded queues), it briefly spins and then parks via {@link LockSupport}.
+ * Thus, this is better suited than {@link BlockingQueue} if many threads on multiple processors write into (or read
+ * from) the same queue. For few threads, or on a single processor, the plain {@link BlockingQueue} is faster. The
+ * semantics (especially regarding {@link #end()}) are the same as described in {@link BlockingQueue}.
+ * 
+ * @param <T> The type of data that is send between the threads.
+ * 
+ * @author Adam
+ */
+public class LockFreeBlockingQueue<T> implements IBlockingQueue<T> {
+
+    /**
+     * How often a waiting thread re-checks the queue before it parks. Spinning is useless on a single processor, since
+     * the thread that we wait for can't run while we spin.
+     */
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+    
+    private @NonNull ConcurrentLinkedQueue<@NonNull T> elements;
+    
+    /**
+     * The number of elements in the queue, including elements that are currently being added. For bounded queues,
+     * a slot is reserved here before the element is added.
+     */
+    private @NonNull AtomicInteger size;
+    
+    /**
+     * The number of threads that are currently inside {@link #add(Object)}. Used to make sure that readers don't
+     * miss elements that are added concurrently to {@link #end()}.
+     */
+    private @NonNull AtomicInteger pendingAdds;
+    
+    /**
+     * The number of threads that are currently in {@link #waiters}. Allows cheap checks whether anyone needs to be
+     * woken up.
+     */
+    private @NonNull AtomicInteger waiting;
+    
+    /**
+     * The threads that are currently parked.
+     */
+    private @NonNull ConcurrentLinkedQueue<@NonNull Thread> waiters;
+    
+    private int capacity;
+    
+    private volatile boolean end;
+    
+    /**
+     * Creates an empty queue with no maximum capacity.
+     */
+    public LockFreeBlockingQueue() {
+        this(0);
+    }
+    
+    /**
+     * Creates an empty queue with the given maximum capacity. If the queue contains this many elements,
+     * {@link #add(Object)} waits until an element is removed.
+     * 
+     * @param capacity The maximum number of elements in this queue. 0 means that the queue is unbounded.
+     * 
+     * @throws IllegalArgumentException If capacity is negative.
+     */
+    public LockFreeBlockingQueue(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        
+        this.capacity = capacity;
+        this.elements = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+        this.pendingAdds = new AtomicInteger();
+        this.waiting = new AtomicInteger();
+        this.waiters = new ConcurrentLinkedQueue<>();
+    }
+    
+    @Override
+    public @Nullable T get(long timeout) throws TimeoutException {
+        return retrieve(timeout, true);
+    }
+    
+    @Override
+    public @Nullable T peek(long timeout) throws TimeoutException {
+        return retrieve(timeout, false);
+    }
+    
+    @Override
+    public int drainTo(@NonNull Collection<? super T> target, int max) throws IllegalArgumentException {
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive: " + max);
+        }
+        
+        int num = 0;
+        T element = null;
+        try {
+            element = retrieve(0, true);
+        } catch (TimeoutException e) {
+            // can't happen
+        }
+        
+        while (element != null) {
+            target.add(element);
+            num++;
+            
+            element = null;
+            if (num < max) {
+                element = elements.poll();
+                if (element != null) {
+                    size.decrementAndGet();
+                }
+            }
+        }
+        
+        if (num > 1 && capacity > 0) {
+            wakeUpWaiting();
+        }
+        
+        return num;
+    }
+    
+    /**
+     * Retrieves the next element, waiting if necessary.
+     * 
+     * @param timeout The maximum amount of milliseconds to wait. 0 means no timeout.
+     * @param remove Whether to remove the element from the queue ({@link #get(long)}) or not ({@link #peek(long)}).
+     * 
+     * @return The next element, or <code>null</code> if the end of the queue has been reached.
+     * 
+     * @throws TimeoutException If the timeout exceeded.
+     */
+    private @Nullable T retrieve(long timeout, boolean remove) throws TimeoutException {
+        long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        int spins = 0;
+        
+        T result = null;
+        boolean done = false;
+        while (!done) {
+            result = remove ? elements.poll() : elements.peek();
+            if (result != null) {
+                if (remove) {
+                    size.decrementAndGet();
+                    if (capacity > 0) {
+                        wakeUpWaiting();
+                    }
+                }
+                done = true;
+                
+            } else if (end && pendingAdds.get() == 0) {
+                // all adds that started before end() are finished; check one last time
+                result = remove ? elements.poll() : elements.peek();
+                if (result != null && remove) {
+                    size.decrementAndGet();
+                }
+                done = true;
+                
+            } else {
+                if (spins < SPINS) {
+                    spins++;
+                    Thread.onSpinWait();
+                } else {
+                    park(deadline, false);
+                }
+                
+                if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+                    throw new TimeoutException();
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    @Override
+    public void add(@NonNull T element) {
+        pendingAdds.incrementAndGet();
+        try {
+            if (end) {
+                throw new IllegalStateException("Trying to add new elements while end() has already been called");
+            }
+            
+            if (capacity > 0) {
+                reserveSlot();
+            } else {
+                size.incrementAndGet();
+            }
+            
+            elements.offer(element);
+            
+        } finally {
+            pendingAdds.decrementAndGet();
+        }
+        
+        wakeUpWaiting();
+    }
+    
+    @Override
+    public void addAll(@NonNull Collection<? extends @NonNull T> elements) {
+        for (T element : elements) {
+            add(element);
+        }
+    }
+    
+    /**
+     * Increments {@link #size}, if this does not exceed the capacity. Otherwise, waits until a slot is free.
+     * 
+     * @throws IllegalStateException If {@link #end()} is called while waiting.
+     */
+    private void reserveSlot() throws IllegalStateException {
+        int spins = 0;
+        while (true) {
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    break;
+                }
+                
+            } else if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+                
+            } else {
+                park(0, true);
+            }
+            
+            if (end) {
+                throw new IllegalStateException("Trying to add new elements while end() has already been called");
+            }
+        }
+    }
+    
+    /**
+     * Parks the current thread until another thread calls {@link #wakeUpWaiting()}, or the deadline is reached. The
+     * caller has to re-check its condition after this method returns.
+     * 
+     * @param deadline The {@link System#nanoTime()} at which to stop waiting. 0 means no deadline.
+     * @param forFreeSlot Whether the caller waits for a free slot (writer) or for an element (reader).
+     */
+    private void park(long deadline, boolean forFreeSlot) {
+        Thread current = Thread.currentThread();
+        waiters.add(current);
+        waiting.incrementAndGet();
+        
+        // re-check after we registered as waiting; otherwise we could miss a wake up
+        if (!end && (forFreeSlot ? size.get() >= capacity : elements.isEmpty())) {
+            if (deadline != 0) {
+                LockSupport.parkNanos(this, deadline - System.nanoTime());
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        
+        // if we were not woken up by wakeUpWaiting() (e.g. timeout), we have to de-register ourselves
+        if (waiters.remove(current)) {
+            waiting.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Wakes up all threads that are parked in {@link #park(long, boolean)}. Cheap if no thread is parked. The woken
+     * threads are removed from {@link #waiters}, so that subsequent calls don't wake them again before they ran.
+     */
+    private void wakeUpWaiting() {
+        if (waiting.get() > 0) {
+            Thread waiter;
+            while ((waiter = waiters.poll()) != null) {
+                waiting.decrementAndGet();
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+    
+    @Override
+    public void end() {
+        end = true;
+        wakeUpWaiting();
+    }
+    
+    @Override
+    public boolean isEnd() {
+        return end;
+    }
+    
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    @Override
+    public int getCurrentSize() {
+        return size.get();
+    }
+    
+}
@@ -15,12 +15,12 @@
  */
 package net.ssehub.kernel_haven.util;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * A utility class that executes a given function in multiple parallel threads. It also preserves the order of the
@@ -35,6 +35,14 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  * If the function throws an exception while handling an element, that element it dropped and will not appear for
  * the consumer.
  * <p>
+ * Finished outputs wait in a reorder window (a ring buffer indexed by the input position) until all previous outputs
+ * have been passed to the consumer. The size of this window is the maximum lookahead: a worker that finishes an input
+ * that is this far ahead of the next output blocks until the consumer catches up. This bounds the memory used for
+ * outputs that can't be passed to the consumer yet.
+ * <p>
+ * By default, the worker and collector threads are new threads. Callers that manage their threads themselves (e.g. in
+ * a thread pool) can pass an {@link IThreadStarter} instead.
+ * <p>
  * Usage could look like this:
  * <pre>
  * OrderPreservingParallelizer parallelizer = new OrderPreservingParallelizer(someFunction, someConsumer, 4);
@@ -58,6 +66,25 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  */
 public class OrderPreservingParallelizer<Input, Output> {
 
+    private static final int DEFAULT_LOOKAHEAD_PER_THREAD = 16;
+
+    /**
+     * Runs the internal tasks (workers and collector) of an {@link OrderPreservingParallelizer}.
+     */
+    @FunctionalInterface
+    public static interface IThreadStarter {
+        
+        /**
+         * Runs the given task asynchronously. Each task must run in its own thread; the tasks block each other, so
+         * they must not wait for a free thread.
+         * 
+         * @param task The task to run.
+         * @param name The name for the thread that runs the task.
+         */
+        public void start(@NonNull Runnable task, @NonNull String name);
+        
+    }
+
     /**
      * A single work package, with the index where it should be added in the result list. 
      */
@@ -140,16 +167,23 @@ public class OrderPreservingParallelizer<Input, Output> {
     
     private @NonNull BlockingQueue<WorkPackage> todo;
     
-    private @NonNull BlockingQueue<WorkPackage> done;
+    /**
+     * The reorder window. The finished package with index i is stored at i % window.length until it is passed to the
+     * consumer. Also used as the lock for {@link #nextWantedIndex} and {@link #numWorkersDone}.
+     */
+    private @Nullable WorkPackage @NonNull [] window;
+    
+    private int nextWantedIndex;
     
     private int numWorkersDone;
     
     private int wpIndex;
     
-    private Thread collector;
+    private @NonNull CountDownLatch collectorDone;
     
     /**
-     * Creates an {@link OrderPreservingParallelizer}. This already starts the internal worker threads.
+     * Creates an {@link OrderPreservingParallelizer}. This already starts the internal worker threads. The maximum
+     * lookahead is {@value #DEFAULT_LOOKAHEAD_PER_THREAD} times the number of threads.
      * 
      * @param function The function that turns inputs into outputs.
      * @param conusmer The consumer that will receive the outputs.
@@ -161,92 +195,197 @@ public class OrderPreservingParallelizer<Input, Output> {
     public OrderPreservingParallelizer(@NonNull Function<Input, Output> function, @NonNull Consumer<Output> conusmer,
             int numThreads) throws IllegalArgumentException {
         
+        this(function, conusmer, numThreads, Math.max(numThreads, 1) * DEFAULT_LOOKAHEAD_PER_THREAD);
+    }
+    
+    /**
+     * Creates an {@link OrderPreservingParallelizer}. This already starts the internal worker threads.
+     * 
+     * @param function The function that turns inputs into outputs.
+     * @param conusmer The consumer that will receive the outputs.
+     * @param numThreads The number of worker threads to spawn. Must be greater than 0. This class only makes sense if
+     *      this is greater than 1.
+     * @param maxLookahead The maximum number of outputs that may be finished ahead of the next output for the
+     *      consumer. Must be greater than 0. Values smaller than numThreads limit the parallelism.
+     *      
+     * @throws IllegalArgumentException If {@code numThreads <= 0} or {@code maxLookahead <= 0}.
+     */
+    public OrderPreservingParallelizer(@NonNull Function<Input, Output> function, @NonNull Consumer<Output> conusmer,
+            int numThreads, int maxLookahead) throws IllegalArgumentException {
+        
+        this(function, conusmer, numThreads, maxLookahead, (task, name) -> new Thread(task, name).start());
+    }
+    
+    /**
+     * Creates an {@link OrderPreservingParallelizer}. This already starts the internal worker tasks with the given
+     * {@link IThreadStarter}.
+     * 
+     * @param function The function that turns inputs into outputs.
+     * @param conusmer The consumer that will receive the outputs.
+     * @param numThreads The number of worker tasks to start. Must be greater than 0. This class only makes sense if
+     *      this is greater than 1.
+     * @param maxLookahead The maximum number of outputs that may be finished ahead of the next output for the
+     *      consumer. Must be greater than 0. Values smaller than numThreads limit the parallelism.
+     * @param threadStarter Runs the worker tasks and the collector task.
+     *      
+     * @throws IllegalArgumentException If {@code numThreads <= 0} or {@code maxLookahead <= 0}.
+     */
+    public OrderPreservingParallelizer(@NonNull Function<Input, Output> function, @NonNull Consumer<Output> conusmer,
+            int numThreads, int maxLookahead, @NonNull IThreadStarter threadStarter) throws IllegalArgumentException {
+        
         if (numThreads <= 0) {
             throw new IllegalArgumentException("Can't spawn " + numThreads + " threads");
         }
+        if (maxLookahead <= 0) {
+            throw new IllegalArgumentException("Invalid maximum lookahead: " + maxLookahead);
+        }
         
         this.function = function;
         this.conusmer = conusmer;
         
         todo = new BlockingQueue<>();
-        done = new BlockingQueue<>();
+        window = createWindow(maxLookahead);
         
+        nextWantedIndex = 0;
         numWorkersDone = 0;
+        collectorDone = new CountDownLatch(1);
         
-        start(numThreads);
+        start(numThreads, threadStarter);
+    }
+    
+    /**
+     * Creates the ring buffer for the finished {@link WorkPackage}s. Java does not allow to create generic arrays
+     * directly.
+     * 
+     * @param size The size of the buffer.
+     * 
+     * @return An array with the given size, filled with <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    private @Nullable WorkPackage @NonNull [] createWindow(int size) {
+        return (WorkPackage[]) new OrderPreservingParallelizer<?, ?>.WorkPackage[size];
     }
     
     /**
      * Starts the worker threads and the collector thread.
      * 
      * @param numThreads The number of worker threads to start.
+     * @param threadStarter Starts the threads.
      */
-    private void start(int numThreads) {
+    private void start(int numThreads, @NonNull IThreadStarter threadStarter) {
         // spawn worker threads
         for (int i = 0; i < numThreads; i++) {
-            new Thread(() -> {
+            threadStarter.start(() -> {
                 
                 WorkPackage wp;
                 while ((wp = todo.get()) != null) {
                     wp.execute();
-                    done.add(wp);
+                    putFinished(wp);
                 }
                 
-                synchronized (OrderPreservingParallelizer.this) {
+                synchronized (window) {
                     numWorkersDone++;
                     if (numWorkersDone == numThreads) {
-                        done.end();
+                        window.notifyAll();
                     }
                 }
                 
-            }, "OrderPreservingParallelizer-Worker-" + (i + 1)).start();
+            }, "OrderPreservingParallelizer-Worker-" + (i + 1));
         }
         
         // spawn collector thread
-        collector = new Thread(() -> {
-            
-            List<@NonNull WorkPackage> received = new LinkedList<>();
-            int nextWantedIndex = 0;
+        threadStarter.start(() -> {
+            try {
+                collect(numThreads);
+            } finally {
+                collectorDone.countDown();
+            }
+        }, "OrderPreservingParallelizer-Collector");
+    }
+    
+    /**
+     * Passes the finished packages to the consumer, in order. Executed by the collector thread.
+     * 
+     * @param numThreads The number of worker threads.
+     */
+    private void collect(int numThreads) {
+        WorkPackage wp;
+        while ((wp = takeNext(numThreads)) != null) {
             
-            WorkPackage wp;
-            while ((wp = done.get()) != null) {
-                received.add(wp);
+            // only pass to consumer if this isn't a "crashed" package
+            if (!wp.isCrashed()) {
                 
-                boolean found;
-                do {
-                    found = false;
-                    for (WorkPackage possibleNext : received) {
-                        if (possibleNext.getIndex() == nextWantedIndex) {
-                            // we have found the next result that we can send 
-                            found = true;
-                            nextWantedIndex++;
-                            
-                            // only pass to consumer if this isn't a "crashed" package
-                            if (!possibleNext.isCrashed()) {
-                                
-                                try {
-                                    conusmer.accept(possibleNext.getOutput());
-                                    // CHECKSTYLE:OFF
-                                } catch (Exception e) {
-                                    // CHECKSTYLE:ON
-                                    
-                                    // ignore all exceptions, so that the collector may continue
-                                    // note: this only catches Exceptions, not Errors
-                                    
-                                    // call uncaught exception handler so that the exception at least appears in logs
-                                    Thread current = Thread.currentThread();
-                                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
-                                }
-                            }
-                        }
-                    }
+                try {
+                    conusmer.accept(wp.getOutput());
+                    // CHECKSTYLE:OFF
+                } catch (Exception e) {
+                    // CHECKSTYLE:ON
                     
-                } while (found);
-                
+                    // ignore all exceptions, so that the collector may continue
+                    // note: this only catches Exceptions, not Errors
+                    
+                    // call uncaught exception handler so that the exception at least appears in logs
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Puts a finished package into the reorder window. Blocks while the package is too far ahead of the next package
+     * wanted by the collector.
+     * 
+     * @param wp The finished package.
+     */
+    private void putFinished(@NonNull WorkPackage wp) {
+        synchronized (window) {
+            // the worker that has the package at nextWantedIndex never blocks, so this can't deadlock
+            while (wp.getIndex() - nextWantedIndex >= window.length) {
+                waitForWindow();
+            }
+            window[wp.getIndex() % window.length] = wp;
+            if (wp.getIndex() == nextWantedIndex) {
+                window.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Takes the next package in order out of the reorder window. Blocks until it is finished.
+     * 
+     * @param numThreads The number of worker threads.
+     * 
+     * @return The next package, or <code>null</code> if all workers are done and all packages were taken.
+     */
+    private @Nullable WorkPackage takeNext(int numThreads) {
+        WorkPackage result;
+        synchronized (window) {
+            int slot = nextWantedIndex % window.length;
+            while (window[slot] == null && numWorkersDone < numThreads) {
+                waitForWindow();
             }
             
-        }, "OrderPreservingParallelizer-Collector");
-        collector.start();
+            result = window[slot];
+            if (result != null) {
+                window[slot] = null;
+                nextWantedIndex++;
+                // wake up workers that wait for a free slot
+                window.notifyAll();
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Waits until the reorder window changes. The caller must hold the lock on {@link #window}.
+     */
+    private void waitForWindow() {
+        try {
+            window.wait();
+        } catch (InterruptedException e) {
+            // ignore, the caller checks its condition again
+        }
     }
     
     /**
@@ -279,7 +418,7 @@ public class OrderPreservingParallelizer<Input, Output> {
      */
     public void join() {
         try {
-            collector.join();
+            collectorDone.await();
         } catch (InterruptedException e) {
             Logger.get().logException("Cannot wait for thread", e);
         }
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Stores many small binary records in a single data file, instead of one file per record. Records are identified by a
+ * string key. The store consists of two files:
+ * <ul>
+ *      <li>The data file, to which the records are appended.</li>
+ *      <li>The index file (the data file name with <code>.idx</code> appended), to which an entry with the key, offset
+ *          and length of each record is appended.</li>
+ * </ul>
+ * Both files are append-only: writing a record for an already existing key appends a new record, and the index entry
+ * that was written last wins. The space of overwritten records is not reclaimed.
+ * <p>
+ * There is only one store per data file in this JVM (see {@link #get(File)}). The files are opened on first use and
+ * stay open until {@link #close()} is called; afterwards, the store can no longer be used, and {@link #get(File)}
+ * returns a new store. This class is thread-safe: appending records is synchronized, while reads are done with
+ * positional reads that don't block each other. Each record is appended at the current end of the data file while
+ * holding a {@link FileLock} on it, so that other processes that use the same files don't overwrite it. Index entries
+ * are flushed after each record, so that records are found by stores that are opened later even if this store is
+ * never closed. Incomplete index entries or records at the end of the files (e.g. after a crash) are ignored.
+ *
+ * @author Adam
+ */
+public class PackedFileStore implements Closeable {
+
+    /**
+     * The open stores, by the normalized absolute path of their data file.
+     */
+    private static final @NonNull Map<@NonNull File, @NonNull PackedFileStore> STORES = new ConcurrentHashMap<>();
+
+    private @NonNull File dataFile;
+
+    private @NonNull File indexFile;
+
+    /**
+     * The offset and length of each record, by key. <code>null</code> until the store is opened.
+     */
+    private volatile @Nullable Map<@NonNull String, long @NonNull []> index;
+
+    private volatile @Nullable FileChannel data;
+
+    private @Nullable DataOutputStream indexOut;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a store for the given data file. The files are only opened (or created) on first use.
+     *
+     * @param dataFile The data file. The index file is placed next to it.
+     */
+    private PackedFileStore(@NonNull File dataFile) {
+        this.dataFile = dataFile;
+        this.indexFile = new File(dataFile.getPath() + ".idx");
+    }
+
+    /**
+     * Returns the store for the given data file. If there is no open store for this file, a new one is created. The
+     * files are only opened (or created) on first use.
+     *
+     * @param dataFile The data file. The index file is placed next to it.
+     *
+     * @return The store for the given data file.
+     */
+    public static @NonNull PackedFileStore get(@NonNull File dataFile) {
+        return notNull(STORES.computeIfAbsent(getRegistryKey(dataFile), PackedFileStore::new));
+    }
+
+    /**
+     * Returns the key of the given data file in {@link #STORES}.
+     *
+     * @param dataFile The data file.
+     *
+     * @return The normalized absolute path of the data file.
+     */
+    private static @NonNull File getRegistryKey(@NonNull File dataFile) {
+        return notNull(dataFile.toPath().toAbsolutePath().normalize().toFile());
+    }
+
+    /**
+     * Opens the files and reads the index, if this has not been done yet.
+     *
+     * @return The index.
+     *
+     * @throws IOException If opening the files or reading the index fails, or if this store is already closed.
+     */
+    private @NonNull Map<@NonNull String, long @NonNull []> open() throws IOException {
+        Map<@NonNull String, long @NonNull []> index = this.index;
+        if (index == null || closed) {
+            index = openSynchronized();
+        }
+        return index;
+    }
+
+    /**
+     * Opens the files and reads the index, if no other thread has done this yet.
+     *
+     * @return The index.
+     *
+     * @throws IOException If opening the files or reading the index fails, or if this store is already closed.
+     */
+    private synchronized @NonNull Map<@NonNull String, long @NonNull []> openSynchronized() throws IOException {
+        if (closed) {
+            throw new IOException("Store is closed");
+        }
+
+        Map<@NonNull String, long @NonNull []> index = this.index;
+        if (index == null) {
+            FileChannel data = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.data = data;
+
+            index = new ConcurrentHashMap<>();
+            try (FileLock lock = data.lock()) {
+                long indexLength = readIndex(index, data.size());
+
+                // cut off incomplete entries, so that new entries are appended right after the last complete one
+                try (FileChannel indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE)) {
+                    indexChannel.truncate(indexLength);
+                }
+            }
+            this.indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+
+            this.index = index;
+        }
+        return index;
+    }
+
+    /**
+     * Reads the index file into the given map.
+     *
+     * @param index The map to fill.
+     * @param dataLength The current length of the data file.
+     *
+     * @return The number of bytes of the complete index entries that were read.
+     *
+     * @throws IOException If reading the index file fails.
+     */
+    private long readIndex(@NonNull Map<@NonNull String, long @NonNull []> index, long dataLength)
+            throws IOException {
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+
+            while (true) {
+                String key = in.readUTF();
+                long offset = in.readLong();
+                int length = in.readInt();
+
+                if (offset < 0 || length < 0 || offset + length > dataLength) {
+                    // the record was not completely written
+                    break;
+                }
+                index.put(key, new long[] {offset, length});
+                validLength += 2 + getUtfLength(key) + 8 + 4;
+            }
+
+        } catch (FileNotFoundException | EOFException | UTFDataFormatException e) {
+            // no index yet, or end of index reached
+        }
+        return validLength;
+    }
+
+    /**
+     * Returns the number of bytes that {@link DataOutputStream#writeUTF(String)} writes for the given string, without
+     * the two length bytes.
+     *
+     * @param str The string.
+     *
+     * @return The number of bytes of the modified UTF-8 encoding of the string.
+     */
+    private static int getUtfLength(@NonNull String str) {
+        int result = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                result += 1;
+            } else if (c > 0x07FF) {
+                result += 3;
+            } else {
+                result += 2;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a record for the given key exists.
+     *
+     * @param key The key of the record.
+     *
+     * @return Whether this store contains a record for the given key.
+     *
+     * @throws IOException If opening the store fails, or if it is already closed.
+     */
+    public boolean contains(@NonNull String key) throws IOException {
+        return open().containsKey(key);
+    }
+
+    /**
+     * Reads the record for the given key.
+     *
+     * @param key The key of the record.
+     *
+     * @return The content of the record; <code>null</code> if this store contains no record for the given key.
+     *
+     * @throws IOException If reading the data file fails, or if this store is already closed.
+     */
+    public byte @Nullable [] read(@NonNull String key) throws IOException {
+        long[] entry = open().get(key);
+        byte[] result = null;
+
+        if (entry != null) {
+            FileChannel data = this.data;
+            if (data == null) {
+                throw new IOException("Store is closed");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) entry[1]);
+            long position = entry[0];
+            while (buffer.hasRemaining()) {
+                int read = data.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of data file " + dataFile.getPath());
+                }
+                position += read;
+            }
+            result = buffer.array();
+        }
+
+        return result;
+    }
+
+    /**
+     * Appends a record for the given key. If a record for this key already exists, it is replaced.
+     *
+     * @param key The key of the record.
+     * @param content The content of the record.
+     *
+     * @throws IOException If writing the files fails, or if this store is already closed.
+     */
+    public synchronized void write(@NonNull String key, byte @NonNull [] content) throws IOException {
+        Map<@NonNull String, long @NonNull []> index = open();
+        FileChannel data = this.data;
+        DataOutputStream indexOut = this.indexOut;
+        if (data == null || indexOut == null) {
+            throw new IOException("Store is closed");
+        }
+
+        long offset;
+        // other processes may have appended to the files since the last write
+        try (FileLock lock = data.lock()) {
+            offset = data.size();
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += data.write(buffer, position);
+            }
+
+            // write the index entry after the data, so that the entry never points to incomplete data
+            indexOut.writeUTF(key);
+            indexOut.writeLong(offset);
+            indexOut.writeInt(content.length);
+            indexOut.flush();
+        }
+
+        index.put(key, new long[] {offset, content.length});
+    }
+
+    /**
+     * Closes the files of this store. Further reads or writes on this store fail; {@link #get(File)} returns a new
+     * store for the same files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        STORES.remove(getRegistryKey(dataFile), this);
+
+        FileChannel data = this.data;
+        DataOutputStream indexOut = this.indexOut;
+        this.data = null;
+        this.indexOut = null;
+        this.index = null;
+
+        try {
+            if (data != null) {
+                data.close();
+            }
+        } finally {
+            if (indexOut != null) {
+                indexOut.close();
+            }
+        }
+    }
+
+}
@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
@@ -47,6 +48,13 @@ public class ProgressLogger implements Closeable {
     
     private @NonNull AtomicInteger processedItems;
     
+    /**
+     * The expected total work of all items (see {@link #setExpectedWork(long)}). -1 if not known.
+     */
+    private volatile long expectedWork;
+    
+    private @NonNull AtomicLong processedWork;
+    
     private @NonNull AtomicBoolean finished;
     
     private long tStart;
@@ -73,6 +81,8 @@ public class ProgressLogger implements Closeable {
         this.task = task;
         this.numItems = numItems;
         this.processedItems = new AtomicInteger(0);
+        this.expectedWork = -1;
+        this.processedWork = new AtomicLong(0);
         this.finished = new AtomicBoolean(false);
         
         LOG_THREAD.add(this);
@@ -87,6 +97,56 @@ public class ProgressLogger implements Closeable {
         processedItems.incrementAndGet();
     }
     
+    /**
+     * Signals that another item is processed, which had the given expected work (see
+     * {@link #setExpectedWork(long)}).
+     * 
+     * @param work The expected work of the processed item.
+     */
+    public void processedOne(long work) {
+        processedItems.incrementAndGet();
+        processedWork.addAndGet(work);
+    }
+    
+    /**
+     * Sets the expected total work of all items. This is used to estimate the remaining time more accurately, if the
+     * items are not equally expensive. The unit of the work does not matter, as long as the same unit is used in
+     * {@link #processedOne(long)}. If this is not set, then the remaining time is estimated only from the number of
+     * items.
+     * 
+     * @param expectedWork The expected total work of all items.
+     */
+    public void setExpectedWork(long expectedWork) {
+        this.expectedWork = expectedWork;
+    }
+    
+    /**
+     * Estimates the remaining time until all items are processed. This assumes that the remaining items (or work) are
+     * processed at the same speed as the ones processed so far.
+     * 
+     * @return The estimated remaining time in milliseconds; -1 if no estimation can be made.
+     */
+    private long estimateRemainingTime() {
+        double progress = -1;
+        
+        long expectedWork = this.expectedWork;
+        long work = processedWork.get();
+        int current = processedItems.get();
+        
+        if (expectedWork > 0 && work > 0) {
+            progress = Math.min(1.0, (double) work / expectedWork);
+        } else if (numItems > 0 && current > 0) {
+            progress = Math.min(1.0, (double) current / numItems);
+        }
+        
+        long result = -1;
+        if (progress > 0) {
+            long elapsed = System.currentTimeMillis() - tStart;
+            result = (long) (elapsed * (1.0 - progress) / progress);
+        }
+        return result;
+    }
+    
     /**
      * Signals that a number of items are processed.
      * 
@@ -174,6 +234,11 @@ public class ProgressLogger implements Closeable {
                         String finishedStr = "";
                         if (done) {
                             finishedStr = " and finished in " + Util.formatDurationMs(logger.tEnd - logger.tStart);
+                        } else {
+                            long remaining = logger.estimateRemainingTime();
+                            if (remaining >= 0) {
+                                finishedStr = ", approximately " + Util.formatDurationMs(remaining) + " remaining";
+                            }
                         }
                         
                         if (max >= 0) {
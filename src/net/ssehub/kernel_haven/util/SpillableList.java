@@ -0,0 +1,456 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * <p>
+ * An append-only {@link java.util.List} that stores its elements in fixed-size chunks of arrays, instead of one node
+ * per element. If a maximum number of elements in memory is set, then full chunks are written to a temporary file
+ * (via an {@link IElementSerializer}) once this number is exceeded. Spilled chunks are read back on access; the last
+ * read chunk is kept in memory, so that iterating over the list reads each chunk only once.
+ * </p>
+ * <p>
+ * Only {@link #add(Object)} is supported as a modification. Elements must not be <code>null</code>. If writing a chunk
+ * fails (e.g. because an element is not serializable), then a warning is logged and all further elements are kept in
+ * memory. Reading from multiple threads is safe once all elements are added; adding is not thread-safe.
+ * </p>
+ * <p>
+ * {@link #close()} deletes the temporary file; afterwards, spilled elements can no longer be accessed. If
+ * {@link #close()} is never called, then the file is closed and deleted after the list has been garbage collected
+ * (the next time that any {@link SpillableList} creates a temporary file), or by a shutdown hook on JVM exit at the
+ * latest.
+ * </p>
+ *
+ * @param <T> The type of elements in this list.
+ *
+ * @author Adam
+ */
+public class SpillableList<T> extends AbstractList<T> implements RandomAccess, Closeable {
+
+    /**
+     * The default number of elements per chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    /**
+     * The queue that the {@link SpillFileReference}s are enqueued in, once their {@link SpillableList} has been
+     * garbage collected.
+     */
+    private static final @NonNull ReferenceQueue<SpillableList<?>> UNREACHABLE = new ReferenceQueue<>();
+
+    /**
+     * Keeps the {@link SpillFileReference}s of all lists with an open file reachable, so that they are enqueued.
+     */
+    private static final @NonNull Set<SpillFileReference> OPEN_FILES = ConcurrentHashMap.newKeySet();
+
+    static {
+        // File.deleteOnExit() can't delete files that are still open on all platforms, so close them first
+        Runtime.getRuntime().addShutdownHook(new Thread(SpillableList::releaseAll, "SpillableList-Cleanup"));
+    }
+
+    /**
+     * A temporary file that holds spilled chunks.
+     */
+    private static final class SpillFile implements Closeable {
+
+        private final @NonNull File file;
+
+        private final @NonNull RandomAccessFile access;
+
+        /**
+         * Creates and opens a new temporary file.
+         *
+         * @throws IOException If creating the file fails.
+         */
+        public SpillFile() throws IOException {
+            this.file = File.createTempFile("spilled_list", ".bin");
+            file.deleteOnExit();
+            this.access = new RandomAccessFile(file, "rw");
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                access.close();
+            } finally {
+                file.delete();
+            }
+        }
+
+    }
+
+    /**
+     * A reference that closes the {@link SpillFile} of a {@link SpillableList} that has not been closed explicitly.
+     * Must not reference the list itself, since that would keep it reachable.
+     */
+    private static final class SpillFileReference extends PhantomReference<SpillableList<?>> {
+
+        private final @NonNull SpillFile spillFile;
+
+        /**
+         * Creates and registers a reference for the given list.
+         *
+         * @param list The list that owns the file.
+         * @param spillFile The file to close once the list is unreachable.
+         */
+        public SpillFileReference(@NonNull SpillableList<?> list, @NonNull SpillFile spillFile) {
+            super(list, UNREACHABLE);
+            this.spillFile = spillFile;
+            OPEN_FILES.add(this);
+        }
+
+        /**
+         * Returns the opened file.
+         *
+         * @return The file to read and write chunks.
+         */
+        public @NonNull RandomAccessFile getAccess() {
+            return spillFile.access;
+        }
+
+        /**
+         * Unregisters this reference and closes the file.
+         *
+         * @throws IOException If closing the file fails.
+         */
+        public void release() throws IOException {
+            OPEN_FILES.remove(this);
+            spillFile.close();
+        }
+
+    }
+
+    private final int chunkSize;
+
+    private final int maxInMemory;
+
+    private final @Nullable IElementSerializer<T> serializer;
+
+    /**
+     * The chunks of elements. <code>null</code> for chunks that are spilled to the file.
+     */
+    private @Nullable Object @Nullable [] @NonNull [] chunks;
+
+    /**
+     * The offset of each spilled chunk in the file.
+     */
+    private long @NonNull [] spillOffsets;
+
+    /**
+     * The number of bytes of each spilled chunk in the file.
+     */
+    private int @NonNull [] spillLengths;
+
+    private int size;
+
+    private int numInMemory;
+
+    private int numSpilledChunks;
+
+    private boolean spillingFailed;
+
+    private @Nullable SpillFileReference spillReference;
+
+    private int cachedChunkIndex = -1;
+
+    private @Nullable Object @Nullable [] cachedChunk;
+
+    /**
+     * Creates a list that keeps all elements in memory.
+     */
+    public SpillableList() {
+        this(0, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a list that spills elements to disk if more than the given number of elements are in memory.
+     *
+     * @param maxInMemory The maximum number of elements to keep in memory. 0 means that all elements are kept in
+     *      memory. Note that the last (not yet full) chunk is always kept in memory.
+     * @param serializer The serializer to write and read spilled elements. May only be <code>null</code> if
+     *      maxInMemory is 0.
+     *
+     * @throws IllegalArgumentException If maxInMemory is negative, or if no serializer is given but spilling is
+     *      enabled.
+     */
+    public SpillableList(int maxInMemory, @Nullable IElementSerializer<T> serializer)
+            throws IllegalArgumentException {
+        this(maxInMemory, serializer, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a list that spills elements to disk if more than the given number of elements are in memory.
+     *
+     * @param maxInMemory The maximum number of elements to keep in memory. 0 means that all elements are kept in
+     *      memory. Note that the last (not yet full) chunk is always kept in memory.
+     * @param serializer The serializer to write and read spilled elements. May only be <code>null</code> if
+     *      maxInMemory is 0.
+     * @param chunkSize The number of elements per chunk. A chunk is the unit that is written to and read from disk.
+     *
+     * @throws IllegalArgumentException If maxInMemory is negative, chunkSize is not positive, or if no serializer is
+     *      given but spilling is enabled.
+     */
+    public SpillableList(int maxInMemory, @Nullable IElementSerializer<T> serializer, int chunkSize)
+            throws IllegalArgumentException {
+
+        if (maxInMemory < 0) {
+            throw new IllegalArgumentException("maxInMemory must not be negative: " + maxInMemory);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (maxInMemory > 0 && serializer == null) {
+            throw new IllegalArgumentException("A serializer is required if spilling is enabled");
+        }
+
+        this.maxInMemory = maxInMemory;
+        this.serializer = serializer;
+        this.chunkSize = chunkSize;
+        this.chunks = new Object[16][];
+        this.spillOffsets = new long[16];
+        this.spillLengths = new int[16];
+    }
+
+    @Override
+    public boolean add(@NonNull T element) {
+        int chunkIndex = size / chunkSize;
+        int offset = size % chunkSize;
+
+        if (offset == 0) {
+            if (chunkIndex == chunks.length) {
+                int newLength = chunks.length * 2;
+                chunks = Arrays.copyOf(chunks, newLength);
+                spillOffsets = Arrays.copyOf(spillOffsets, newLength);
+                spillLengths = Arrays.copyOf(spillLengths, newLength);
+            }
+            chunks[chunkIndex] = new Object[chunkSize];
+        }
+
+        @Nullable Object[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            // can't happen, the last chunk is never spilled
+            throw new IllegalStateException();
+        }
+        chunk[offset] = element;
+        size++;
+        numInMemory++;
+        modCount++;
+
+        if (maxInMemory > 0 && !spillingFailed) {
+            // only full chunks are spilled, i.e. all but the last one
+            while (numInMemory > maxInMemory && numSpilledChunks < size / chunkSize && !spillingFailed) {
+                spillChunk(numSpilledChunks);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void add(int index, @NonNull T element) throws UnsupportedOperationException {
+        if (index != size) {
+            throw new UnsupportedOperationException("Can only append to a SpillableList");
+        }
+        add(element);
+    }
+
+    /**
+     * Writes the given chunk to the spill file, and releases its array.
+     *
+     * @param chunkIndex The index of the chunk to spill. Must be full and not spilled yet.
+     */
+    @SuppressWarnings("unchecked")
+    private void spillChunk(int chunkIndex) {
+        @Nullable Object[] chunk = chunks[chunkIndex];
+        IElementSerializer<T> serializer = this.serializer;
+        if (chunk == null || serializer == null) {
+            // can't happen
+            throw new IllegalStateException();
+        }
+
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            serializer.write((@NonNull List<@NonNull T>) (List<?>) Arrays.asList(chunk), buffer);
+
+            synchronized (this) {
+                SpillFileReference spillReference = this.spillReference;
+                if (spillReference == null) {
+                    releaseUnreachable();
+                    spillReference = new SpillFileReference(this, new SpillFile());
+                    this.spillReference = spillReference;
+                }
+                RandomAccessFile spillAccess = spillReference.getAccess();
+
+                long position = spillAccess.length();
+                spillAccess.seek(position);
+                spillAccess.write(buffer.toByteArray());
+
+                spillOffsets[chunkIndex] = position;
+                spillLengths[chunkIndex] = buffer.size();
+                chunks[chunkIndex] = null;
+            }
+
+            numSpilledChunks++;
+            numInMemory -= chunk.length;
+
+        } catch (IOException e) {
+            LOGGER.logExceptionWarning("Can't spill list elements to disk; keeping all further elements in memory", e);
+            spillingFailed = true;
+        }
+    }
+
+    /**
+     * Reads the given spilled chunk from the spill file, or returns it from the cache.
+     *
+     * @param chunkIndex The index of the spilled chunk.
+     *
+     * @return The elements of the chunk.
+     *
+     * @throws UncheckedIOException If reading the chunk fails.
+     */
+    private synchronized @Nullable Object @NonNull [] loadChunk(int chunkIndex) throws UncheckedIOException {
+        @Nullable Object[] result = cachedChunk;
+        if (cachedChunkIndex != chunkIndex || result == null) {
+            SpillFileReference spillReference = this.spillReference;
+            IElementSerializer<T> serializer = this.serializer;
+            if (spillReference == null || serializer == null) {
+                throw new UncheckedIOException(new IOException("SpillableList is already closed"));
+            }
+
+            try {
+                RandomAccessFile spillAccess = spillReference.getAccess();
+                byte[] bytes = new byte[spillLengths[chunkIndex]];
+                spillAccess.seek(spillOffsets[chunkIndex]);
+                spillAccess.readFully(bytes);
+
+                List<@NonNull T> elements = serializer.read(chunkSize, new ByteArrayInputStream(bytes));
+                if (elements.size() != chunkSize) {
+                    throw new IOException("Expected " + chunkSize + " elements in spilled chunk, but got "
+                            + elements.size());
+                }
+                result = elements.toArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            cachedChunk = result;
+            cachedChunkIndex = chunkIndex;
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @NonNull T get(int index) throws IndexOutOfBoundsException, UncheckedIOException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int chunkIndex = index / chunkSize;
+        @Nullable Object[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = loadChunk(chunkIndex);
+        }
+        return (@NonNull T) chunk[index % chunkSize];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of elements that are currently held in memory; this excludes the elements of the cached
+     * spilled chunk.
+     *
+     * @return The number of elements in memory.
+     */
+    public int getNumInMemory() {
+        return numInMemory;
+    }
+
+    /**
+     * Returns the number of elements that have been written to disk.
+     *
+     * @return The number of spilled elements.
+     */
+    public int getNumSpilled() {
+        return numSpilledChunks * chunkSize;
+    }
+
+    /**
+     * Closes and deletes the files of all lists that have been garbage collected without being closed.
+     */
+    private static void releaseUnreachable() {
+        Reference<? extends SpillableList<?>> reference;
+        while ((reference = UNREACHABLE.poll()) != null) {
+            try {
+                ((SpillFileReference) reference).release();
+            } catch (IOException e) {
+                LOGGER.logExceptionWarning("Can't delete spill file of unreachable list", e);
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the files of all lists that have not been closed yet. Called by a shutdown hook on JVM exit.
+     */
+    private static void releaseAll() {
+        for (SpillFileReference reference : OPEN_FILES) {
+            try {
+                reference.release();
+            } catch (IOException e) {
+                // ignore; nothing more we can do while the JVM exits
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        SpillFileReference spillReference = this.spillReference;
+        this.spillReference = null;
+        cachedChunk = null;
+        cachedChunkIndex = -1;
+
+        if (spillReference != null) {
+            spillReference.clear();
+            spillReference.release();
+        }
+    }
+
+}
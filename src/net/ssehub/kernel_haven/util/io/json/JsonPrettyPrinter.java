@@ -17,80 +17,45 @@ package net.ssehub.kernel_haven.util.io.json;
 
 import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.StringWriter;
 
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
- * A visitor for printing out JSON with proper line breaks and indentation.
+ * A visitor for printing out JSON with proper line breaks and indentation. This creates the complete string in
+ * memory; use {@link JsonWriter} to write large elements directly to a file.
  * 
  * @author Adam
  */
 public class JsonPrettyPrinter implements JsonVisitor<@NonNull String> {
 
-    @Override
-    public @NonNull String visitObject(@NonNull JsonObject object) {
-        StringBuilder result = new StringBuilder();
-        
-        if (object.getSize() == 0) {
-            result.append("{}");
-            
-        } else {
-            result.append("{\n");
-            for (Map.Entry<String, JsonElement> element : object) {
-                
-                result.append("\t").append(new JsonString(notNull(element.getKey())).accept(this)).append(": ");
-                String[] lines = notNull(element.getValue()).accept(this).split("\n");
-                
-                boolean first = true;
-                for (String line : lines) {
-                    if (first) {
-                        first = false;
-                    } else {
-                        result.append("\t");
-                    }
-                    result.append(line).append("\n");
-                }
-                result.delete(result.length() - 1, result.length()); // remove trailing "\n"
-                
-                result.append(",\n");
-                
-            }
-            result.delete(result.length() - 2, result.length()); // remove trailing ",\n"
-            result.append("\n}");
+    /**
+     * Prints the given element with a {@link JsonWriter}.
+     * 
+     * @param element The element to print.
+     * 
+     * @return The printed element.
+     */
+    private static @NonNull String print(@NonNull JsonElement element) {
+        StringWriter result = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(result, true)) {
+            writer.write(element);
+        } catch (IOException e) {
+            // can't happen, StringWriter doesn't throw
+            throw new AssertionError(e);
         }
-        
-        
         return notNull(result.toString());
     }
+    
+    @Override
+    public @NonNull String visitObject(@NonNull JsonObject object) {
+        return print(object);
+    }
 
     @Override
     public @NonNull String visitList(@NonNull JsonList list) {
-        StringBuilder result = new StringBuilder();
-        
-        if (list.getSize() == 0) {
-            result.append("[]");
-            
-        } else {
-            result.append("[\n");
-            for (JsonElement element : list) {
-                
-                String[] lines = element.accept(this).split("\n");
-                
-                for (String line : lines) {
-                    result.append("\t").append(line).append("\n");
-                }
-                result.delete(result.length() - 1, result.length()); // remove trailing "\n"
-                
-                result.append(",\n");
-                
-            }
-            result.delete(result.length() - 2, result.length()); // remove trailing ",\n"
-            result.append("\n]");
-        }
-        
-        
-        return notNull(result.toString());
+        return print(list);
     }
 
     @Override
@@ -0,0 +1,1112 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A pull-based reader for a stream of JSON. In contrast to the {@link JsonParser}, this does not create a complete
+ * {@link JsonElement} tree; instead, the caller reads the JSON token by token. This allows to de-serialize large JSON
+ * documents directly into the target data structure, or to skip parts that are not needed (see
+ * {@link #skipValue()}).
+ * <p>
+ * Example usage, reading <code>{"name": "a", "values": [1, 2]}</code>:
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     switch (reader.readName()) {
+ *     case "name":
+ *         String name = reader.readString();
+ *         break;
+ *     case "values":
+ *         reader.beginList();
+ *         while (reader.hasNext()) {
+ *             int value = reader.readInt();
+ *         }
+ *         reader.endList();
+ *         break;
+ *     default:
+ *         reader.skipValue();
+ *         break;
+ *     }
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * @see <a href="https://www.json.org/">https://www.json.org/</a>
+ *
+ * @author Adam
+ */
+public class JsonReader implements Closeable {
+
+    /**
+     * The different tokens of a JSON stream.
+     */
+    public static enum Token {
+
+        /**
+         * The start of a JSON object ('{').
+         */
+        BEGIN_OBJECT,
+
+        /**
+         * The end of a JSON object ('}').
+         */
+        END_OBJECT,
+
+        /**
+         * The start of a JSON list ('[').
+         */
+        BEGIN_LIST,
+
+        /**
+         * The end of a JSON list (']').
+         */
+        END_LIST,
+
+        /**
+         * The key of an entry in a JSON object. This is always followed by the value of the entry.
+         */
+        NAME,
+
+        /**
+         * A string value.
+         */
+        STRING,
+
+        /**
+         * A number value.
+         */
+        NUMBER,
+
+        /**
+         * A boolean value.
+         */
+        BOOLEAN,
+
+        /**
+         * A null value.
+         */
+        NULL,
+
+        /**
+         * The end of the JSON stream. Only whitespace follows after the top-level value.
+         */
+        END_DOCUMENT,
+
+    }
+
+    private static final int MAX_NESTING_DEPTH = 1200;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /*
+     * The scopes that determine which tokens are allowed next.
+     */
+
+    private static final byte DOCUMENT_EMPTY = 0;
+
+    private static final byte DOCUMENT_DONE = 1;
+
+    private static final byte LIST_EMPTY = 2;
+
+    private static final byte LIST_NONEMPTY = 3;
+
+    private static final byte OBJECT_EMPTY = 4;
+
+    private static final byte OBJECT_NONEMPTY = 5;
+
+    /**
+     * Inside an object, after a name has been read (i.e. a ':' and a value follow).
+     */
+    private static final byte OBJECT_NAME = 6;
+
+    private @NonNull Reader in;
+
+    private char @NonNull [] buffer;
+
+    private int pos;
+
+    private int limit;
+
+    private int lineNumber;
+
+    private byte @NonNull [] scopes;
+
+    /**
+     * The number of scopes on the {@link #scopes} stack. The bottom-most scope is always the document scope, thus
+     * the nesting depth of lists and objects is <code>numScopes - 1</code>.
+     */
+    private int numScopes;
+
+    /**
+     * The token that {@link #peek()} has found, but which has not been consumed yet.
+     */
+    private @Nullable Token peeked;
+
+    private @Nullable String currentString;
+
+    private @Nullable Number currentNumber;
+
+    private boolean currentBoolean;
+
+    /**
+     * A re-used buffer for strings with escape sequences and numbers.
+     */
+    private @NonNull StringBuilder builder;
+
+    /**
+     * Creates a reader for the given character stream. The stream is read in chunks, thus it does not need to be
+     * buffered.
+     *
+     * @param in The character stream.
+     */
+    public JsonReader(@NonNull Reader in) {
+        this.in = in;
+        this.buffer = new char[BUFFER_SIZE];
+        this.scopes = new byte[32];
+        this.scopes[0] = DOCUMENT_EMPTY;
+        this.numScopes = 1;
+        this.builder = new StringBuilder();
+    }
+
+    /**
+     * Creates a reader for the given file. The file is read as UTF-8.
+     *
+     * @param file The file to read from.
+     *
+     * @throws IOException If opening the file fails.
+     */
+    public JsonReader(@NonNull File file) throws IOException {
+        this(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Closes the underlying character stream.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Returns the current line number (starting at 1). Useful for error messages.
+     *
+     * @return The line number of the current position in the stream.
+     */
+    public int getLineNumber() {
+        return lineNumber + 1;
+    }
+
+    /*
+     * Character level
+     */
+
+    /**
+     * Makes sure that at least one unread character is in the buffer, if the stream is not at its end.
+     *
+     * @return Whether a character is available.
+     *
+     * @throws IOException If reading the stream fails.
+     */
+    private boolean fill() throws IOException {
+        boolean result = pos < limit;
+        if (!result) {
+            int read;
+            do {
+                read = in.read(buffer, 0, buffer.length);
+            } while (read == 0);
+
+            pos = 0;
+            limit = Math.max(read, 0);
+            result = read > 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the next character without consuming it.
+     *
+     * @return The next character, or -1 at the end of the stream.
+     *
+     * @throws IOException If reading the stream fails.
+     */
+    private int peekChar() throws IOException {
+        return fill() ? buffer[pos] : -1;
+    }
+
+    /**
+     * Consumes the next character.
+     *
+     * @return The consumed character, or -1 at the end of the stream.
+     *
+     * @throws IOException If reading the stream fails.
+     */
+    private int readChar() throws IOException {
+        int result = -1;
+        if (fill()) {
+            result = buffer[pos++];
+            if (result == '\n') {
+                lineNumber++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Consumes all JSON whitespace characters.
+     *
+     * @return The next (not consumed) character after the whitespace, or -1 at the end of the stream.
+     *
+     * @throws IOException If reading the stream fails.
+     */
+    private int skipWhitespace() throws IOException {
+        int result = -1;
+        while (result == -1 && fill()) {
+            char c = buffer[pos];
+            if (c == '\n') {
+                lineNumber++;
+                pos++;
+            } else if (c == ' ' || c == '\t' || c == '\r') {
+                pos++;
+            } else {
+                result = c;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a {@link FormatException} with the given message. Adds information about the current line number.
+     *
+     * @param message The exception message.
+     *
+     * @return The created exception.
+     */
+    private @NonNull FormatException makeException(@NonNull String message) {
+        return new FormatException("Line " + getLineNumber() + ": " + message);
+    }
+
+    /**
+     * Turns the given character into a readable string for error messages.
+     *
+     * @param character The character, or -1 for the end of the stream.
+     *
+     * @return A description of the character.
+     */
+    private static @NonNull String describe(int character) {
+        return character == -1 ? "end of input" : "'" + (char) character + "'";
+    }
+
+    /*
+     * Token level
+     */
+
+    /**
+     * Returns the type of the next token, without consuming it.
+     *
+     * @return The type of the next token.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the stream is not valid JSON at this position.
+     */
+    public @NonNull Token peek() throws IOException, FormatException {
+        Token result = peeked;
+        if (result == null) {
+            result = doPeek();
+            peeked = result;
+        }
+        return result;
+    }
+
+    /**
+     * Determines the next token. Consumes whitespace and separators (',' and ':'), but not the token itself.
+     *
+     * @return The type of the next token.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the stream is not valid JSON at this position.
+     */
+    private @NonNull Token doPeek() throws IOException, FormatException {
+        Token result;
+        int c = skipWhitespace();
+
+        switch (scopes[numScopes - 1]) {
+        case DOCUMENT_EMPTY:
+            scopes[numScopes - 1] = DOCUMENT_DONE;
+            result = peekValue(c);
+            break;
+
+        case DOCUMENT_DONE:
+            if (c != -1) {
+                throw makeException("JSON element is over, but didn't reach EOF");
+            }
+            result = Token.END_DOCUMENT;
+            break;
+
+        case LIST_EMPTY:
+            if (c == ']') {
+                result = Token.END_LIST;
+            } else {
+                scopes[numScopes - 1] = LIST_NONEMPTY;
+                result = peekValue(c);
+            }
+            break;
+
+        case LIST_NONEMPTY:
+            if (c == ']') {
+                result = Token.END_LIST;
+            } else if (c == ',') {
+                readChar();
+                result = peekValue(skipWhitespace());
+            } else {
+                throw makeException("Expecting ',' or ']' in list, got " + describe(c));
+            }
+            break;
+
+        case OBJECT_EMPTY:
+            if (c == '}') {
+                result = Token.END_OBJECT;
+            } else {
+                result = peekName(c);
+            }
+            break;
+
+        case OBJECT_NONEMPTY:
+            if (c == '}') {
+                result = Token.END_OBJECT;
+            } else if (c == ',') {
+                readChar();
+                result = peekName(skipWhitespace());
+            } else {
+                throw makeException("Expecting ',' or '}' in object, got " + describe(c));
+            }
+            break;
+
+        case OBJECT_NAME:
+            if (c != ':') {
+                throw makeException("Expecting ':' after key, got " + describe(c));
+            }
+            readChar();
+            scopes[numScopes - 1] = OBJECT_NONEMPTY;
+            result = peekValue(skipWhitespace());
+            break;
+
+        default:
+            throw new IllegalStateException("Invalid scope " + scopes[numScopes - 1]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Determines the type of the value starting with the given character.
+     *
+     * @param c The first character of the value.
+     *
+     * @return The type of the value.
+     *
+     * @throws FormatException If the character does not start a value.
+     */
+    private @NonNull Token peekValue(int c) throws FormatException {
+        Token result;
+        switch (c) {
+        case '{':
+            result = Token.BEGIN_OBJECT;
+            break;
+        case '[':
+            result = Token.BEGIN_LIST;
+            break;
+        case '"':
+            result = Token.STRING;
+            break;
+        case 't':
+        case 'f':
+            result = Token.BOOLEAN;
+            break;
+        case 'n':
+            result = Token.NULL;
+            break;
+        case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9': case '-':
+            result = Token.NUMBER;
+            break;
+        default:
+            throw makeException("Couldn't determine type: " + describe(c));
+        }
+        return result;
+    }
+
+    /**
+     * Checks that the given character starts a name (i.e. a key in an object).
+     *
+     * @param c The first character of the name.
+     *
+     * @return {@link Token#NAME}.
+     *
+     * @throws FormatException If the character does not start a name.
+     */
+    private @NonNull Token peekName(int c) throws FormatException {
+        if (c != '"') {
+            throw makeException("Expecting key string, got " + describe(c));
+        }
+        return Token.NAME;
+    }
+
+    /**
+     * Consumes the next token. For {@link Token#NAME}, {@link Token#STRING}, {@link Token#NUMBER} and
+     * {@link Token#BOOLEAN}, the value of the token is available via {@link #getString()}, {@link #getNumber()} or
+     * {@link #getBoolean()} afterwards.
+     *
+     * @return The type of the consumed token.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the stream is not valid JSON at this position.
+     */
+    public @NonNull Token nextToken() throws IOException, FormatException {
+        return advance(true);
+    }
+
+    /**
+     * Consumes the next token.
+     *
+     * @param materialize Whether the values of string and name tokens should be stored. If <code>false</code>, they
+     *      are only validated.
+     *
+     * @return The type of the consumed token.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the stream is not valid JSON at this position.
+     */
+    private @NonNull Token advance(boolean materialize) throws IOException, FormatException {
+        Token result = peek();
+        peeked = null;
+
+        switch (result) {
+        case BEGIN_OBJECT:
+            readChar();
+            push(OBJECT_EMPTY);
+            break;
+
+        case BEGIN_LIST:
+            readChar();
+            push(LIST_EMPTY);
+            break;
+
+        case END_OBJECT:
+        case END_LIST:
+            readChar();
+            numScopes--;
+            break;
+
+        case NAME:
+            currentString = readStringLiteral(materialize);
+            scopes[numScopes - 1] = OBJECT_NAME;
+            break;
+
+        case STRING:
+            currentString = readStringLiteral(materialize);
+            break;
+
+        case NUMBER:
+            currentNumber = readNumberLiteral();
+            break;
+
+        case BOOLEAN:
+            if (peekChar() == 't') {
+                readAndAssert("true");
+                currentBoolean = true;
+            } else {
+                readAndAssert("false");
+                currentBoolean = false;
+            }
+            break;
+
+        case NULL:
+            readAndAssert("null");
+            break;
+
+        case END_DOCUMENT:
+        default:
+            // nothing to consume
+            break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Pushes a new scope for a list or object.
+     *
+     * @param scope The new scope.
+     *
+     * @throws FormatException If the new nesting depth exceeds {@link #MAX_NESTING_DEPTH}.
+     */
+    private void push(byte scope) throws FormatException {
+        if (numScopes >= MAX_NESTING_DEPTH) {
+            throw makeException("Exceeded maximum nesting depth of " + MAX_NESTING_DEPTH);
+        }
+        if (numScopes == scopes.length) {
+            scopes = notNull(Arrays.copyOf(scopes, scopes.length * 2));
+        }
+        scopes[numScopes++] = scope;
+    }
+
+    /**
+     * Returns the value of the last consumed {@link Token#NAME} or {@link Token#STRING} token.
+     *
+     * @return The string value.
+     *
+     * @throws IllegalStateException If the last consumed token was not a name or string.
+     */
+    public @NonNull String getString() throws IllegalStateException {
+        String result = currentString;
+        if (result == null) {
+            throw new IllegalStateException("No string value available");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the last consumed {@link Token#NUMBER} token. This is an {@link Integer}, if the number
+     * fits into an int, a {@link Long} if it fits into a long, or a {@link Double} if it has a fraction or exponent.
+     *
+     * @return The number value.
+     *
+     * @throws IllegalStateException If no number token was consumed yet.
+     */
+    public @NonNull Number getNumber() throws IllegalStateException {
+        Number result = currentNumber;
+        if (result == null) {
+            throw new IllegalStateException("No number value available");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the last consumed {@link Token#BOOLEAN} token.
+     *
+     * @return The boolean value.
+     */
+    public boolean getBoolean() {
+        return currentBoolean;
+    }
+
+    /*
+     * Typed convenience methods
+     */
+
+    /**
+     * Consumes the next token and checks that it has the expected type.
+     *
+     * @param expected The expected type.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token has another type, or the stream is not valid JSON.
+     */
+    private void expect(@NonNull Token expected) throws IOException, FormatException {
+        Token actual = peek();
+        if (actual != expected) {
+            throw makeException("Expected " + expected + ", but got " + actual);
+        }
+        nextToken();
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#BEGIN_OBJECT}.
+     */
+    public void beginObject() throws IOException, FormatException {
+        expect(Token.BEGIN_OBJECT);
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#END_OBJECT}.
+     */
+    public void endObject() throws IOException, FormatException {
+        expect(Token.END_OBJECT);
+    }
+
+    /**
+     * Consumes the start of a list.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#BEGIN_LIST}.
+     */
+    public void beginList() throws IOException, FormatException {
+        expect(Token.BEGIN_LIST);
+    }
+
+    /**
+     * Consumes the end of a list.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#END_LIST}.
+     */
+    public void endList() throws IOException, FormatException {
+        expect(Token.END_LIST);
+    }
+
+    /**
+     * Checks whether the current list or object has more elements.
+     *
+     * @return Whether there is another element (or name) before the end of the current list or object.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the stream is not valid JSON at this position.
+     */
+    public boolean hasNext() throws IOException, FormatException {
+        Token next = peek();
+        return next != Token.END_OBJECT && next != Token.END_LIST && next != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the name of the next entry in an object.
+     *
+     * @return The name.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#NAME}.
+     */
+    public @NonNull String readName() throws IOException, FormatException {
+        expect(Token.NAME);
+        return getString();
+    }
+
+    /**
+     * Consumes a string value.
+     *
+     * @return The string.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#STRING}.
+     */
+    public @NonNull String readString() throws IOException, FormatException {
+        expect(Token.STRING);
+        return getString();
+    }
+
+    /**
+     * Consumes an integer value.
+     *
+     * @return The integer.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#NUMBER} or the number is not an int.
+     */
+    public int readInt() throws IOException, FormatException {
+        expect(Token.NUMBER);
+        Number number = getNumber();
+        if (!(number instanceof Integer)) {
+            throw makeException("Expected an integer, but got " + number);
+        }
+        return number.intValue();
+    }
+
+    /**
+     * Consumes a long value.
+     *
+     * @return The long.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#NUMBER} or the number is not a long.
+     */
+    public long readLong() throws IOException, FormatException {
+        expect(Token.NUMBER);
+        Number number = getNumber();
+        if (!(number instanceof Integer) && !(number instanceof Long)) {
+            throw makeException("Expected a long, but got " + number);
+        }
+        return number.longValue();
+    }
+
+    /**
+     * Consumes a number value as a double.
+     *
+     * @return The double.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#NUMBER}.
+     */
+    public double readDouble() throws IOException, FormatException {
+        expect(Token.NUMBER);
+        return getNumber().doubleValue();
+    }
+
+    /**
+     * Consumes a boolean value.
+     *
+     * @return The boolean.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#BOOLEAN}.
+     */
+    public boolean readBoolean() throws IOException, FormatException {
+        expect(Token.BOOLEAN);
+        return currentBoolean;
+    }
+
+    /**
+     * Consumes a null value.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the next token is not {@link Token#NULL}.
+     */
+    public void readNull() throws IOException, FormatException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Skips the next value, including all nested values if it is a list or object. If the next token is a
+     * {@link Token#NAME}, then the name and its value are skipped. Skipped strings are validated, but not stored.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If there is no value to skip, or the stream is not valid JSON.
+     */
+    public void skipValue() throws IOException, FormatException {
+        Token next = peek();
+        if (next == Token.END_OBJECT || next == Token.END_LIST || next == Token.END_DOCUMENT) {
+            throw makeException("Expected a value, but got " + next);
+        }
+
+        int depth = 0;
+        Token token;
+        do {
+            token = advance(false);
+            switch (token) {
+            case BEGIN_OBJECT:
+            case BEGIN_LIST:
+                depth++;
+                break;
+            case END_OBJECT:
+            case END_LIST:
+                depth--;
+                break;
+            default:
+                break;
+            }
+        } while (depth > 0 || token == Token.NAME);
+
+        currentString = null;
+    }
+
+    /**
+     * Reads the next value as a {@link JsonElement} tree. This allows to use the tree representation for parts of
+     * a large document.
+     *
+     * @return The next value.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If there is no value, or the stream is not valid JSON.
+     */
+    public @NonNull JsonElement readElement() throws IOException, FormatException {
+        JsonElement result;
+        Token token = nextToken();
+
+        switch (token) {
+        case BEGIN_OBJECT:
+            JsonObject object = new JsonObject();
+            while (hasNext()) {
+                String key = readName();
+                object.putElement(key, readElement());
+            }
+            endObject();
+            result = object;
+            break;
+
+        case BEGIN_LIST:
+            JsonList list = new JsonList();
+            while (hasNext()) {
+                list.addElement(readElement());
+            }
+            endList();
+            result = list;
+            break;
+
+        case STRING:
+            result = new JsonString(getString());
+            break;
+
+        case NUMBER:
+            result = new JsonNumber(getNumber());
+            break;
+
+        case BOOLEAN:
+            result = currentBoolean ? JsonBoolean.TRUE : JsonBoolean.FALSE;
+            break;
+
+        case NULL:
+            result = JsonNull.INSTANCE;
+            break;
+
+        default:
+            throw makeException("Expected a value, but got " + token);
+        }
+
+        return result;
+    }
+
+    /*
+     * Literals
+     */
+
+    /**
+     * Reads a string literal. The next character must be the opening '"'.
+     *
+     * @param materialize Whether to create the string. If <code>false</code>, the literal is only validated.
+     *
+     * @return The string, or <code>null</code> if materialize is <code>false</code>.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the string is malformed.
+     */
+    private @Nullable String readStringLiteral(boolean materialize) throws IOException, FormatException {
+        readChar(); // read the '"'
+
+        builder.setLength(0);
+        while (true) {
+            if (!fill()) {
+                throw makeException("Expecting '\"' at end of string, got end of input");
+            }
+
+            // fast path: copy all characters up to the next quote, backslash or control character at once
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\' || c < 0x20) {
+                    break;
+                }
+                pos++;
+            }
+            if (materialize) {
+                builder.append(buffer, start, pos - start);
+            }
+
+            if (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    break;
+
+                } else if (c == '\\') {
+                    char unescaped = readEscaped();
+                    if (materialize) {
+                        builder.append(unescaped);
+                    }
+
+                } else { // control characters (< 0x20 (space)) are not allowed
+                    throw makeException("Unescaped control character " + Integer.toHexString(c));
+                }
+            }
+        }
+
+        return materialize ? builder.toString() : null;
+    }
+
+    /**
+     * Reads the escaped character after a '\'.
+     *
+     * @return The unescaped character.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the escape sequence is malformed.
+     */
+    private char readEscaped() throws IOException, FormatException {
+        int read = readChar();
+        char result;
+
+        switch (read) {
+        case '"':
+        case '\\':
+        case '/':
+            result = (char) read;
+            break;
+        case 'b':
+            result = '\b';
+            break;
+        case 'n':
+            result = '\n';
+            break;
+        case 'r':
+            result = '\r';
+            break;
+        case 't':
+            result = '\t';
+            break;
+        case 'f':
+            result = '\f';
+            break;
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int hexChar = readChar();
+                int digit = Character.digit(hexChar, 16);
+                if (hexChar > 0x7F || digit < 0) {
+                    throw makeException("Expected four hex digits after \\u, got " + describe(hexChar));
+                }
+                value = (value << 4) | digit;
+            }
+            result = (char) value;
+            break;
+
+        default:
+            throw makeException("Invalid escaped character " + describe(read));
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks if the given character is a digit.
+     *
+     * @param character The character to check.
+     *
+     * @return Whether the character is a digit.
+     */
+    private static boolean isDigit(int character) {
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * Reads a number literal. The next character must be a digit or '-'.
+     *
+     * @return The number; see {@link #getNumber()} for the possible types.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the number is malformed.
+     */
+    private @NonNull Number readNumberLiteral() throws IOException, FormatException {
+        builder.setLength(0);
+
+        // integer digits
+        boolean negative = false;
+        if (peekChar() == '-') {
+            builder.append((char) readChar());
+            negative = true;
+        }
+
+        int numIntDigits = 0;
+        long intValue = 0;
+        while (isDigit(peekChar())) {
+            char digit = (char) readChar();
+            builder.append(digit);
+            intValue = intValue * 10 + (digit - '0');
+            numIntDigits++;
+        }
+        if (numIntDigits == 0) {
+            throw makeException("Got no integer digits");
+        }
+        if (numIntDigits > 1 && builder.charAt(negative ? 1 : 0) == '0') {
+            throw makeException("Number may not start with leading 0");
+        }
+
+        boolean isInteger = true;
+
+        // fraction digits
+        if (peekChar() == '.') {
+            builder.append((char) readChar());
+            isInteger = false;
+
+            boolean foundOne = false;
+            while (isDigit(peekChar())) {
+                foundOne = true;
+                builder.append((char) readChar());
+            }
+            if (!foundOne) {
+                throw makeException("Expected at least one digit after '.', got " + describe(peekChar()));
+            }
+        }
+
+        // exponent digits
+        if (peekChar() == 'e' || peekChar() == 'E') {
+            builder.append((char) readChar());
+            isInteger = false;
+
+            if (peekChar() == '-' || peekChar() == '+') {
+                builder.append((char) readChar());
+            }
+
+            boolean foundOne = false;
+            while (isDigit(peekChar())) {
+                foundOne = true;
+                builder.append((char) readChar());
+            }
+            if (!foundOne) {
+                throw makeException("Expected at least one digit after 'E', got " + describe(peekChar()));
+            }
+        }
+
+        Number result;
+        try {
+            if (isInteger) {
+                long l;
+                if (numIntDigits <= 18) {
+                    // can't overflow
+                    l = negative ? -intValue : intValue;
+                } else {
+                    l = Long.parseLong(builder.toString());
+                }
+
+                if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                    result = (int) l;
+                } else {
+                    result = l;
+                }
+
+            } else {
+                result = Double.parseDouble(builder.toString());
+            }
+        } catch (NumberFormatException e) {
+            throw makeException("Can't parse number " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the next characters and checks that they exactly match the given expected string.
+     *
+     * @param expected The expected sequence of characters.
+     *
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the read characters do not match the expected characters.
+     */
+    private void readAndAssert(@NonNull String expected) throws IOException, FormatException {
+        for (int i = 0; i < expected.length(); i++) {
+            int read = readChar();
+            if (read != expected.charAt(i)) {
+                throw makeException("Expected " + expected.charAt(i) + ", but got " + describe(read));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Writes {@link JsonElement}s directly to a {@link Writer}, without creating the complete string representation in
+ * memory first. If indentation is turned on, the output is the same as the one of the {@link JsonPrettyPrinter}.
+ *
+ * @author Adam
+ */
+public class JsonWriter implements Closeable {
+
+    private @NonNull Writer out;
+
+    private boolean indent;
+
+    private int depth;
+
+    /**
+     * Creates a writer that writes to the given {@link Writer}.
+     *
+     * @param out The writer to write to.
+     * @param indent Whether the output should have line breaks and indentation (see {@link JsonPrettyPrinter}).
+     *      If <code>false</code>, the output contains no whitespace at all.
+     */
+    public JsonWriter(@NonNull Writer out, boolean indent) {
+        this.out = out;
+        this.indent = indent;
+    }
+
+    /**
+     * Creates a writer that writes to the given {@link OutputStream}, using UTF-8.
+     *
+     * @param out The stream to write to.
+     * @param indent Whether the output should have line breaks and indentation (see {@link JsonPrettyPrinter}).
+     *      If <code>false</code>, the output contains no whitespace at all.
+     */
+    public JsonWriter(@NonNull OutputStream out, boolean indent) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), indent);
+    }
+
+    /**
+     * Writes the given element.
+     *
+     * @param element The element to write.
+     *
+     * @throws IOException If writing to the underlying writer fails.
+     */
+    public void write(@NonNull JsonElement element) throws IOException {
+        try {
+            element.accept(new Visitor());
+        } catch (UncheckedIOException e) {
+            throw notNull(e.getCause());
+        }
+    }
+
+    /**
+     * Flushes the underlying writer.
+     *
+     * @throws IOException If flushing the underlying writer fails.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Writes a line break followed by the indentation for the current depth. Does nothing if indentation is turned
+     * off.
+     *
+     * @throws IOException If writing fails.
+     */
+    private void newLine() throws IOException {
+        if (indent) {
+            out.write('\n');
+            for (int i = 0; i < depth; i++) {
+                out.write('\t');
+            }
+        }
+    }
+
+    /**
+     * Writes the given string as a JSON string literal.
+     *
+     * @param str The string to write.
+     *
+     * @throws IOException If writing fails.
+     */
+    private void writeString(@NonNull String str) throws IOException {
+        out.write('"');
+        out.write(JsonString.jsonEscape(str));
+        out.write('"');
+    }
+
+    /**
+     * The visitor that does the actual writing. A {@link JsonVisitor} can't throw checked exceptions, thus
+     * {@link IOException}s are wrapped in {@link UncheckedIOException}s and unwrapped in
+     * {@link JsonWriter#write(JsonElement)}.
+     */
+    private final class Visitor implements JsonVisitor<Void> {
+
+        @Override
+        public Void visitObject(@NonNull JsonObject object) {
+            try {
+                if (object.getSize() == 0) {
+                    out.write("{}");
+
+                } else {
+                    out.write('{');
+                    depth++;
+
+                    boolean first = true;
+                    for (Map.Entry<String, JsonElement> element : object) {
+                        if (!first) {
+                            out.write(',');
+                        }
+                        first = false;
+
+                        newLine();
+                        writeString(notNull(element.getKey()));
+                        out.write(indent ? ": " : ":");
+                        notNull(element.getValue()).accept(this);
+                    }
+
+                    depth--;
+                    newLine();
+                    out.write('}');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitList(@NonNull JsonList list) {
+            try {
+                if (list.getSize() == 0) {
+                    out.write("[]");
+
+                } else {
+                    out.write('[');
+                    depth++;
+
+                    boolean first = true;
+                    for (JsonElement element : list) {
+                        if (!first) {
+                            out.write(',');
+                        }
+                        first = false;
+
+                        newLine();
+                        element.accept(this);
+                    }
+
+                    depth--;
+                    newLine();
+                    out.write(']');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitBoolean(@NonNull JsonBoolean bool) {
+            try {
+                out.write(String.valueOf(bool.getValue()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitNumber(@NonNull JsonNumber number) {
+            try {
+                out.write(String.valueOf(number.getValue()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitString(@NonNull JsonString string) {
+            try {
+                writeString(string.getValue());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitNull(@NonNull JsonNull nall) {
+            try {
+                out.write("null");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+    }
+
+}
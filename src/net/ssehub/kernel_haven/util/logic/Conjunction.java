@@ -32,6 +32,12 @@ public final class Conjunction extends Formula {
     
     private @NonNull Formula right;
     
+    /**
+     * The hash code, computed at construction. Transient, so that it is re-computed after de-serialization; 0 until
+     * then.
+     */
+    private transient int hashCode;
+    
     /**
      * Creates a boolean conjunction (AND).
      * 
@@ -41,6 +47,7 @@ public final class Conjunction extends Formula {
     public Conjunction(@NonNull Formula left, @NonNull Formula right) {
         this.left = left;
         this.right = right;
+        this.hashCode = computeHashCode();
     }
     
     /**
@@ -99,15 +106,34 @@ public final class Conjunction extends Formula {
     
     @Override
     public boolean equals(@Nullable Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Conjunction) {
             Conjunction other = (Conjunction) obj;
-            return left.equals(other.getLeft()) && right.equals(other.getRight());
+            // canonical instances are only equal to themselves
+            return hashCode() == other.hashCode() && !(isCanonical() && other.isCanonical())
+                    && left.equals(other.getLeft()) && right.equals(other.getRight());
         }
         return false;
     }
     
     @Override
     public int hashCode() {
+        int result = hashCode;
+        if (result == 0) {
+            result = computeHashCode();
+            hashCode = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the hash code from the operands.
+     * 
+     * @return The hash code of this formula.
+     */
+    private int computeHashCode() {
         return (left.hashCode() + right.hashCode()) * 4564;
     }
 
@@ -37,7 +37,9 @@ public final class False extends Formula {
     /**
      * Don't allow any instances except the singleton.
      */
-    private False() {}
+    private False() {
+        setCanonical();
+    }
     
     @Override
     public @NonNull String toString() {
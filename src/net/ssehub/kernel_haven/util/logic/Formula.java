@@ -29,6 +29,11 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
 public abstract class Formula implements Serializable {
     
     private static final long serialVersionUID = -2811872324947850301L;
+    
+    /**
+     * Whether this is the canonical instance created by the {@link FormulaFactory}.
+     */
+    private transient boolean canonical;
 
     /**
      * Returns the precedence of this boolean operation. Higher means that this operation is evaluated
@@ -67,6 +72,23 @@ public abstract class Formula implements Serializable {
     @Override
     public abstract int hashCode();
     
+    /**
+     * Returns whether this is the canonical instance for its structure, as created by the {@link FormulaFactory}.
+     * Two canonical formulas are equal if and only if they are the same instance.
+     * 
+     * @return Whether this formula is canonical.
+     */
+    public boolean isCanonical() {
+        return canonical;
+    }
+    
+    /**
+     * Marks this formula as the canonical instance for its structure. Only called by the {@link FormulaFactory}.
+     */
+    void setCanonical() {
+        this.canonical = true;
+    }
+    
     /**
      * Visiting method for visitors.
      * 
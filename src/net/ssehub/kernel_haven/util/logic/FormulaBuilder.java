@@ -19,7 +19,8 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
  * Static utility methods for creating {@link Conjunction}s, {@link Disjunction}s and {@link Negation}s with less code
- * to type. These are only shorthands. It is recommended to statically import these methods for extra brevity.
+ * to type. These are shorthands for the {@link FormulaFactory}, i.e. all created formulas are canonical. It is
+ * recommended to statically import these methods for extra brevity.
  * <p>
  * Usage example:
  * <pre>
@@ -31,6 +32,7 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  * 
  * Formula formula = or("A", and(not("B"), "C"));
  * // equal to: new Disjunction(new Variable("A"),new Conjunction(new Negation(new Variable("B")), new Variable("C"))
+ * // (but canonical)
  * </pre>
  *
  * @author Adam
@@ -44,7 +46,7 @@ public class FormulaBuilder {
     }
     
     /**
-     * Shorthand for <code>new Conjunction(left, right)</code>.
+     * Shorthand for <code>FormulaFactory.and(left, right)</code>.
      * 
      * @param left The left side of the conjunction.
      * @param right The right side of the conjunction.
@@ -52,11 +54,11 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull Formula left, @NonNull Formula right) {
-        return new Conjunction(left, right);
+        return FormulaFactory.and(left, right);
     }
     
     /**
-     * Shorthand for <code>new Conjunction(new Variable(left), right)</code>.
+     * Shorthand for <code>FormulaFactory.and(FormulaFactory.variable(left), right)</code>.
      * 
      * @param left The left side of the conjunction.
      * @param right The right side of the conjunction.
@@ -64,11 +66,11 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull String left, @NonNull Formula right) {
-        return new Conjunction(new Variable(left), right);
+        return FormulaFactory.and(FormulaFactory.variable(left), right);
     }
     
     /**
-     * Shorthand for <code>new Conjunction(left, new Variable(right))</code>.
+     * Shorthand for <code>FormulaFactory.and(left, FormulaFactory.variable(right))</code>.
      * 
      * @param left The left side of the conjunction.
      * @param right The right side of the conjunction.
@@ -76,11 +78,11 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull Formula left, @NonNull String right) {
-        return new Conjunction(left, new Variable(right));
+        return FormulaFactory.and(left, FormulaFactory.variable(right));
     }
     
     /**
-     * Shorthand for <code>new Conjunction(new Variable(left), new Variable(right))</code>.
+     * Shorthand for <code>FormulaFactory.and(FormulaFactory.variable(left), FormulaFactory.variable(right))</code>.
      * 
      * @param left The left side of the conjunction.
      * @param right The right side of the conjunction.
@@ -88,11 +90,11 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull String left, @NonNull String right) {
-        return new Conjunction(new Variable(left), new Variable(right));
+        return FormulaFactory.and(FormulaFactory.variable(left), FormulaFactory.variable(right));
     }
     
     /**
-     * Shorthand for <code>new Disjunction(left, right)</code>.
+     * Shorthand for <code>FormulaFactory.or(left, right)</code>.
      * 
      * @param left The left side of the disjunction.
      * @param right The right side of the disjunction.
@@ -100,11 +102,11 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull Formula left, @NonNull Formula right) {
-        return new Disjunction(left, right);
+        return FormulaFactory.or(left, right);
     }
     
     /**
-     * Shorthand for <code>new Disjunction(new Variable(left), right)</code>.
+     * Shorthand for <code>FormulaFactory.or(FormulaFactory.variable(left), right)</code>.
      * 
      * @param left The left side of the disjunction.
      * @param right The right side of the disjunction.
@@ -112,11 +114,11 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull String left, @NonNull Formula right) {
-        return new Disjunction(new Variable(left), right);
+        return FormulaFactory.or(FormulaFactory.variable(left), right);
     }
     
     /**
-     * Shorthand for <code>new Disjunction(left, new Variable(right))</code>.
+     * Shorthand for <code>FormulaFactory.or(left, FormulaFactory.variable(right))</code>.
      * 
      * @param left The left side of the disjunction.
      * @param right The right side of the disjunction.
@@ -124,11 +126,11 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull Formula left, @NonNull String right) {
-        return new Disjunction(left, new Variable(right));
+        return FormulaFactory.or(left, FormulaFactory.variable(right));
     }
     
     /**
-     * Shorthand for <code>new Disjunction(new Variable(left), new Variable(right))</code>.
+     * Shorthand for <code>FormulaFactory.or(FormulaFactory.variable(left), FormulaFactory.variable(right))</code>.
      * 
      * @param left The left side of the disjunction.
      * @param right The right side of the disjunction.
@@ -136,29 +138,29 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull String left, @NonNull String right) {
-        return new Disjunction(new Variable(left), new Variable(right));
+        return FormulaFactory.or(FormulaFactory.variable(left), FormulaFactory.variable(right));
     }
     
     /**
-     * Shorthand for <code>new Negation(formula)</code>.
+     * Shorthand for <code>FormulaFactory.not(formula)</code>.
      * 
      * @param formula The formula to be negated.
      * 
      * @return A negation of the formula.
      */
     public static @NonNull Negation not(@NonNull Formula formula) {
-        return new Negation(formula);
+        return FormulaFactory.not(formula);
     }
     
     /**
-     * Shorthand for <code>new Negation(new Variable(formula))</code>.
+     * Shorthand for <code>FormulaFactory.not(FormulaFactory.variable(formula))</code>.
      * 
      * @param formula The formula to be negated.
      * 
      * @return A negation of the formula.
      */
     public static @NonNull Negation not(@NonNull String formula) {
-        return new Negation(new Variable(formula));
+        return FormulaFactory.not(FormulaFactory.variable(formula));
     }
     
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * <p>
+ * Creates canonical (hash-consed) {@link Formula}s: for each structure, there is only one canonical instance at a
+ * time. Two canonical formulas are equal if and only if they are the same instance, so {@link Formula#equals(Object)}
+ * is O(1) for them (see {@link Formula#isCanonical()}). The operands of canonical formulas are canonical, too.
+ * </p>
+ * <p>
+ * The canonical instances are only weakly referenced by this factory, so formulas that are no longer used are still
+ * garbage collected. This class is thread-safe.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class FormulaFactory {
+
+    private static final int NUM_STRIPES = 64;
+
+    /**
+     * The canonical instances, striped by hash code to reduce lock contention. Each table maps a formula to a weak
+     * reference to itself.
+     */
+    private static final @NonNull Map<@NonNull Formula, @NonNull WeakReference<@NonNull Formula>> @NonNull [] TABLES;
+
+    static {
+        Map<@NonNull Formula, @NonNull WeakReference<@NonNull Formula>>[] tables = newTableArray(NUM_STRIPES);
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = new WeakHashMap<>();
+        }
+        TABLES = tables;
+    }
+
+    /**
+     * Don't allow any instance.
+     */
+    private FormulaFactory() {
+    }
+
+    /**
+     * Creates an array of tables. Java does not allow to create generic arrays directly.
+     *
+     * @param size The size of the array.
+     *
+     * @return An array with the given size, filled with <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    private static @NonNull Map<@NonNull Formula, @NonNull WeakReference<@NonNull Formula>> @NonNull [] newTableArray(
+            int size) {
+        return (Map<@NonNull Formula, @NonNull WeakReference<@NonNull Formula>>[]) new Map<?, ?>[size];
+    }
+
+    /**
+     * Returns the canonical variable with the given name.
+     *
+     * @param name The name of the variable.
+     *
+     * @return The canonical variable.
+     */
+    public static @NonNull Variable variable(@NonNull String name) {
+        return intern(new Variable(name));
+    }
+
+    /**
+     * Returns the canonical negation of the given formula.
+     *
+     * @param formula The operand of the negation. Does not have to be canonical.
+     *
+     * @return The canonical negation.
+     */
+    public static @NonNull Negation not(@NonNull Formula formula) {
+        return intern(new Negation(canonical(formula)));
+    }
+
+    /**
+     * Returns the canonical conjunction of the given formulas.
+     *
+     * @param left The left operand. Does not have to be canonical.
+     * @param right The right operand. Does not have to be canonical.
+     *
+     * @return The canonical conjunction.
+     */
+    public static @NonNull Conjunction and(@NonNull Formula left, @NonNull Formula right) {
+        return intern(new Conjunction(canonical(left), canonical(right)));
+    }
+
+    /**
+     * Returns the canonical disjunction of the given formulas.
+     *
+     * @param left The left operand. Does not have to be canonical.
+     * @param right The right operand. Does not have to be canonical.
+     *
+     * @return The canonical disjunction.
+     */
+    public static @NonNull Disjunction or(@NonNull Formula left, @NonNull Formula right) {
+        return intern(new Disjunction(canonical(left), canonical(right)));
+    }
+
+    /**
+     * Returns the canonical instance of the given formula. If the formula is already canonical, it is returned
+     * directly. Otherwise, the canonical instance of an equal formula is returned; if there is none yet, then
+     * the given formula becomes the canonical instance (if all of its operands are canonical) or a copy of it.
+     *
+     * @param formula The formula to get the canonical instance for.
+     *
+     * @return The canonical instance, which is equal to the given formula.
+     */
+    @SuppressWarnings("unchecked")
+    public static <F extends Formula> @NonNull F canonical(@NonNull F formula) {
+        F result;
+
+        if (formula.isCanonical()) {
+            result = formula;
+
+        } else if (formula instanceof True) {
+            result = (F) True.INSTANCE;
+
+        } else if (formula instanceof False) {
+            result = (F) False.INSTANCE;
+
+        } else if (formula instanceof Negation) {
+            Formula nested = ((Negation) formula).getFormula();
+            Formula canonicalNested = canonical(nested);
+            result = intern(canonicalNested == nested ? formula : (F) new Negation(canonicalNested));
+
+        } else if (formula instanceof Conjunction) {
+            Conjunction conjunction = (Conjunction) formula;
+            Formula left = canonical(conjunction.getLeft());
+            Formula right = canonical(conjunction.getRight());
+            result = intern(left == conjunction.getLeft() && right == conjunction.getRight()
+                    ? formula : (F) new Conjunction(left, right));
+
+        } else if (formula instanceof Disjunction) {
+            Disjunction disjunction = (Disjunction) formula;
+            Formula left = canonical(disjunction.getLeft());
+            Formula right = canonical(disjunction.getRight());
+            result = intern(left == disjunction.getLeft() && right == disjunction.getRight()
+                    ? formula : (F) new Disjunction(left, right));
+
+        } else {
+            result = intern(formula);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of canonical instances that are currently stored (including instances that are no longer
+     * used, but not yet garbage collected). Only intended for test cases.
+     *
+     * @return The number of canonical instances.
+     */
+    static int getNumCanonicalInstances() {
+        int result = 0;
+        for (Map<@NonNull Formula, @NonNull WeakReference<@NonNull Formula>> table : TABLES) {
+            synchronized (table) {
+                result += table.size();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the canonical instance of the given formula. The operands of the given formula must already be
+     * canonical.
+     *
+     * @param candidate The formula to intern. Becomes the canonical instance if there is no equal one yet.
+     *
+     * @return The canonical instance.
+     */
+    @SuppressWarnings("unchecked")
+    private static <F extends Formula> @NonNull F intern(@NonNull F candidate) {
+        int hash = candidate.hashCode();
+        Map<@NonNull Formula, @NonNull WeakReference<@NonNull Formula>> table
+                = TABLES[(hash ^ (hash >>> 16)) & (NUM_STRIPES - 1)];
+
+        F result;
+        synchronized (table) {
+            WeakReference<@NonNull Formula> reference = table.get(candidate);
+            @Nullable Formula existing = reference != null ? reference.get() : null;
+            if (existing != null) {
+                // equal formulas always have the same class
+                result = (F) existing;
+            } else {
+                // only mark as canonical after the lookup, since equals() relies on this flag
+                candidate.setCanonical();
+                table.put(candidate, new WeakReference<>(candidate));
+                result = candidate;
+            }
+        }
+        return result;
+    }
+
+}
@@ -30,6 +30,12 @@ public final class Negation extends Formula {
     
     private @NonNull Formula formula;
     
+    /**
+     * The hash code, computed at construction. Transient, so that it is re-computed after de-serialization; 0 until
+     * then.
+     */
+    private transient int hashCode;
+    
     /**
      * Creates a boolean negation (NOT).
      * 
@@ -37,6 +43,7 @@ public final class Negation extends Formula {
      */
     public Negation(@NonNull Formula formula) {
         this.formula = formula;
+        this.hashCode = computeHashCode();
     }
     
     /**
@@ -72,15 +79,34 @@ public final class Negation extends Formula {
     
     @Override
     public boolean equals(@Nullable Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Negation) {
             Negation other = (Negation) obj;
-            return formula.equals(other.formula);
+            // canonical instances are only equal to themselves
+            return hashCode() == other.hashCode() && !(isCanonical() && other.isCanonical())
+                    && formula.equals(other.formula);
         }
         return false;
     }
     
     @Override
     public int hashCode() {
+        int result = hashCode;
+        if (result == 0) {
+            result = computeHashCode();
+            hashCode = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the hash code from the operand.
+     * 
+     * @return The hash code of this formula.
+     */
+    private int computeHashCode() {
         return formula.hashCode() * 123;
     }
 
@@ -37,7 +37,9 @@ public final class True extends Formula {
     /**
      * Don't allow any instances except the singleton.
      */
-    private True() {}
+    private True() {
+        setCanonical();
+    }
 
     @Override
     public @NonNull String toString() {
@@ -55,9 +55,13 @@ public final class Variable extends Formula {
     
     @Override
     public boolean equals(@Nullable Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Variable) {
             Variable other = (Variable) obj;
-            return name.equals(other.name);
+            // canonical instances are only equal to themselves
+            return !(isCanonical() && other.isCanonical()) && name.equals(other.name);
         }
         return false;
     }
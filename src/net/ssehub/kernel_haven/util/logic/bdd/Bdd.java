@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * An immutable reduced ordered binary decision diagram, created by a {@link BddManager}. {@link Bdd}s of the same
+ * manager are equal exactly if they are logically equivalent. Operands of the operations must have been created by
+ * the same manager.
+ *
+ * @author Adam
+ */
+public final class Bdd {
+
+    private final @NonNull BddManager manager;
+
+    private final int node;
+
+    /**
+     * Creates a new {@link Bdd}. Only {@link BddManager} should call this.
+     *
+     * @param manager The manager that created this {@link Bdd}.
+     * @param node The root node of this {@link Bdd}.
+     */
+    Bdd(@NonNull BddManager manager, int node) {
+        this.manager = manager;
+        this.node = node;
+    }
+
+    /**
+     * Returns the manager that created this {@link Bdd}.
+     *
+     * @return The manager.
+     */
+    public @NonNull BddManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Returns the root node of this {@link Bdd}.
+     *
+     * @return The root node.
+     */
+    int getNode() {
+        return node;
+    }
+
+    /**
+     * Creates the conjunction of this and the given {@link Bdd}.
+     *
+     * @param other The other operand.
+     *
+     * @return The conjunction.
+     */
+    public @NonNull Bdd and(@NonNull Bdd other) {
+        return manager.and(this, other);
+    }
+
+    /**
+     * Creates the disjunction of this and the given {@link Bdd}.
+     *
+     * @param other The other operand.
+     *
+     * @return The disjunction.
+     */
+    public @NonNull Bdd or(@NonNull Bdd other) {
+        return manager.or(this, other);
+    }
+
+    /**
+     * Creates the exclusive disjunction of this and the given {@link Bdd}.
+     *
+     * @param other The other operand.
+     *
+     * @return The exclusive disjunction.
+     */
+    public @NonNull Bdd xor(@NonNull Bdd other) {
+        return manager.xor(this, other);
+    }
+
+    /**
+     * Creates the negation of this {@link Bdd}.
+     *
+     * @return The negation.
+     */
+    public @NonNull Bdd not() {
+        return manager.not(this);
+    }
+
+    /**
+     * Checks whether this {@link Bdd} implies the given one. This does not create any new nodes.
+     *
+     * @param other The conclusion.
+     *
+     * @return Whether every assignment that satisfies this {@link Bdd} also satisfies the other one.
+     */
+    public boolean implies(@NonNull Bdd other) {
+        return manager.implies(this, other);
+    }
+
+    /**
+     * Checks whether this {@link Bdd} is equivalent to the given one. Same as {@link #equals(Object)}.
+     *
+     * @param other The other {@link Bdd}.
+     *
+     * @return Whether both {@link Bdd}s are satisfied by the same assignments.
+     */
+    public boolean isEquivalent(@NonNull Bdd other) {
+        return equals(other);
+    }
+
+    /**
+     * Checks whether this {@link Bdd} is a tautology.
+     *
+     * @return Whether this {@link Bdd} is satisfied by every assignment.
+     */
+    public boolean isTrue() {
+        return node == BddManager.TRUE;
+    }
+
+    /**
+     * Checks whether this {@link Bdd} is a contradiction.
+     *
+     * @return Whether this {@link Bdd} is not satisfied by any assignment.
+     */
+    public boolean isFalse() {
+        return node == BddManager.FALSE;
+    }
+
+    /**
+     * Returns the number of inner (non-terminal) nodes of this {@link Bdd}.
+     *
+     * @return The size of this {@link Bdd}.
+     */
+    public int getNodeCount() {
+        return manager.countNodes(node);
+    }
+
+    /**
+     * Converts this {@link Bdd} into an equivalent {@link Formula}.
+     *
+     * @return A canonical formula equivalent to this {@link Bdd}.
+     */
+    public @NonNull Formula toFormula() {
+        return manager.toFormula(node);
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return "Bdd[" + toFormula() + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        return node;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        boolean result = false;
+        if (obj instanceof Bdd) {
+            Bdd other = (Bdd) obj;
+            result = other.manager == manager && other.node == node;
+        }
+        return result;
+    }
+
+}
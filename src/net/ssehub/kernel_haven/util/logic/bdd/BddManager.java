@@ -0,0 +1,918 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
+import net.ssehub.kernel_haven.util.logic.IFormulaVisitor;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+
+/**
+ * <p>
+ * Creates and stores reduced ordered binary decision diagrams ({@link Bdd}s). Since BDDs are canonical for a fixed
+ * variable order, two {@link Bdd}s of the same manager are equivalent if and only if they are equal; checking this is
+ * O(1). Implication checks don't create any new nodes.
+ * </p>
+ * <p>
+ * The nodes are stored in primitive arrays. A unique table ensures that each node exists only once, and an operation
+ * cache stores the results of previous operations. Nodes that are no longer reachable from any {@link Bdd} are
+ * garbage collected when the node table is nearly full; the table grows if the garbage collection doesn't free enough
+ * nodes.
+ * </p>
+ * <p>
+ * The variable order is fixed at the first use of each variable: variables passed to the constructor come first,
+ * other variables are appended in the order in which they are used. A good order is crucial for the size of the
+ * BDDs; see {@link BddVariableOrdering} for an order derived from a {@link VariabilityModel}.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class BddManager {
+
+    static final int FALSE = 0;
+
+    static final int TRUE = 1;
+
+    private static final int TERMINAL_LEVEL = Integer.MAX_VALUE;
+
+    private static final int FREE_LEVEL = -1;
+
+    private static final int NONE = -1;
+
+    private static final int OP_AND = 1;
+
+    private static final int OP_OR = 2;
+
+    private static final int OP_XOR = 3;
+
+    private static final int OP_NOT = 4;
+
+    private static final int OP_IMPLIES = 5;
+
+    private static final int DEFAULT_CAPACITY = 1 << 12;
+
+    /**
+     * A weak reference to a {@link Bdd} created by this manager. The node of a {@link Bdd} stays alive as long as the
+     * {@link Bdd} is not garbage collected by the JVM.
+     */
+    private static final class BddReference extends WeakReference<@NonNull Bdd> {
+
+        private final int node;
+
+        /**
+         * Creates a reference for the given {@link Bdd}.
+         *
+         * @param bdd The {@link Bdd} to reference.
+         * @param queue The queue to register this reference at.
+         */
+        BddReference(@NonNull Bdd bdd, @NonNull ReferenceQueue<@NonNull Bdd> queue) {
+            super(bdd, queue);
+            this.node = bdd.getNode();
+        }
+
+    }
+
+    /*
+     * Node 0 is the false terminal, node 1 is the true terminal. Free nodes have the level FREE_LEVEL and are linked
+     * via next; nodes in the unique table are linked via next to the other nodes in the same bucket.
+     */
+
+    private int @NonNull [] levels;
+
+    private int @NonNull [] lows;
+
+    private int @NonNull [] highs;
+
+    private int @NonNull [] nexts;
+
+    private int @NonNull [] buckets;
+
+    private int capacity;
+
+    private int numNodes;
+
+    private int freeHead;
+
+    private int @NonNull [] cacheOps;
+
+    private int @NonNull [] cacheLefts;
+
+    private int @NonNull [] cacheRights;
+
+    private int @NonNull [] cacheResults;
+
+    private final @NonNull List<@NonNull String> variableNames;
+
+    private final @NonNull Map<@NonNull String, @NonNull Integer> variableLevels;
+
+    private final @NonNull Set<@NonNull BddReference> references;
+
+    private final @NonNull ReferenceQueue<@NonNull Bdd> referenceQueue;
+
+    private final @NonNull Bdd falseBdd;
+
+    private final @NonNull Bdd trueBdd;
+
+    private int numGarbageCollections;
+
+    /**
+     * Creates a manager without a predefined variable order.
+     */
+    public BddManager() {
+        this(Collections.emptyList(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a manager with the variable order derived from the given variability model (see
+     * {@link BddVariableOrdering#fromVariabilityModel(VariabilityModel)}).
+     *
+     * @param varModel The variability model to derive the variable order from.
+     */
+    public BddManager(@NonNull VariabilityModel varModel) {
+        this(BddVariableOrdering.fromVariabilityModel(varModel), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a manager with the given variable order.
+     *
+     * @param variableOrder The names of the variables, starting with the top-most variable. Variables not in this list
+     *      are appended in the order of their first usage.
+     */
+    public BddManager(@NonNull List<@NonNull String> variableOrder) {
+        this(variableOrder, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a manager with the given variable order.
+     *
+     * @param variableOrder The names of the variables, starting with the top-most variable. Variables not in this list
+     *      are appended in the order of their first usage.
+     * @param initialCapacity The initial number of nodes that can be stored without growing the node table.
+     */
+    public BddManager(@NonNull List<@NonNull String> variableOrder, int initialCapacity) {
+        this.variableNames = new ArrayList<>();
+        this.variableLevels = new HashMap<>();
+        for (String name : variableOrder) {
+            getLevel(name);
+        }
+
+        this.capacity = Math.max(16, Integer.highestOneBit(Math.max(initialCapacity, 1) - 1) << 1);
+        this.levels = new int[capacity];
+        this.lows = new int[capacity];
+        this.highs = new int[capacity];
+        this.nexts = new int[capacity];
+        this.buckets = new int[0];
+        this.cacheOps = new int[0];
+        this.cacheLefts = new int[0];
+        this.cacheRights = new int[0];
+        this.cacheResults = new int[0];
+
+        for (int terminal = FALSE; terminal <= TRUE; terminal++) {
+            levels[terminal] = TERMINAL_LEVEL;
+            lows[terminal] = terminal;
+            highs[terminal] = terminal;
+            nexts[terminal] = NONE;
+        }
+        numNodes = 2;
+        freeHead = NONE;
+        addFreeNodes(2, capacity);
+        rebuildBuckets();
+        resetCache();
+
+        this.references = new HashSet<>();
+        this.referenceQueue = new ReferenceQueue<>();
+        this.falseBdd = new Bdd(this, FALSE);
+        this.trueBdd = new Bdd(this, TRUE);
+    }
+
+    /**
+     * Returns the constant false.
+     *
+     * @return The {@link Bdd} that is never satisfied.
+     */
+    public @NonNull Bdd getFalse() {
+        return falseBdd;
+    }
+
+    /**
+     * Returns the constant true.
+     *
+     * @return The {@link Bdd} that is always satisfied.
+     */
+    public @NonNull Bdd getTrue() {
+        return trueBdd;
+    }
+
+    /**
+     * Returns the {@link Bdd} for a single variable.
+     *
+     * @param name The name of the variable.
+     *
+     * @return The {@link Bdd} that is satisfied exactly if the variable is true.
+     */
+    public @NonNull Bdd variable(@NonNull String name) {
+        beginOperation();
+        return wrap(makeNode(getLevel(name), FALSE, TRUE));
+    }
+
+    /**
+     * Converts the given {@link Formula} into a {@link Bdd}.
+     *
+     * @param formula The formula to convert.
+     *
+     * @return The {@link Bdd} that is equivalent to the formula.
+     */
+    public @NonNull Bdd fromFormula(@NonNull Formula formula) {
+        beginOperation();
+        return wrap(new FormulaConverter().convert(formula));
+    }
+
+    /**
+     * Returns the current variable order.
+     *
+     * @return The names of all variables known to this manager, starting with the top-most variable.
+     */
+    public @NonNull List<@NonNull String> getVariableOrder() {
+        return Collections.unmodifiableList(new ArrayList<>(variableNames));
+    }
+
+    /**
+     * Returns the number of nodes that are currently allocated. This includes the two terminal nodes, and nodes that
+     * are no longer used but not yet garbage collected.
+     *
+     * @return The number of allocated nodes.
+     */
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Returns the number of nodes that can be stored without growing the node table.
+     *
+     * @return The capacity of the node table.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns how often the garbage collection ran.
+     *
+     * @return The number of garbage collections.
+     */
+    public int getNumGarbageCollections() {
+        return numGarbageCollections;
+    }
+
+    /**
+     * Frees all nodes that are no longer reachable from any {@link Bdd}. This is done automatically when the node
+     * table is nearly full, so calling this is usually not required.
+     */
+    public void collectGarbage() {
+        drainReferenceQueue();
+
+        boolean[] marked = new boolean[capacity];
+        marked[FALSE] = true;
+        marked[TRUE] = true;
+        int[] stack = new int[64];
+        for (BddReference reference : references) {
+            int size = 0;
+            stack[size++] = reference.node;
+            while (size > 0) {
+                int node = stack[--size];
+                if (!marked[node]) {
+                    marked[node] = true;
+                    if (size + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[size++] = lows[node];
+                    stack[size++] = highs[node];
+                }
+            }
+        }
+
+        numNodes = 2;
+        freeHead = NONE;
+        for (int node = capacity - 1; node > TRUE; node--) {
+            if (marked[node]) {
+                numNodes++;
+            } else {
+                levels[node] = FREE_LEVEL;
+                nexts[node] = freeHead;
+                freeHead = node;
+            }
+        }
+        rebuildBuckets();
+        resetCache();
+        numGarbageCollections++;
+    }
+
+    /**
+     * Checks that the given {@link Bdd} was created by this manager.
+     *
+     * @param bdd The {@link Bdd} to check.
+     *
+     * @return The node of the {@link Bdd}.
+     *
+     * @throws IllegalArgumentException If the {@link Bdd} was created by a different manager.
+     */
+    private int nodeOf(@NonNull Bdd bdd) throws IllegalArgumentException {
+        if (bdd.getManager() != this) {
+            throw new IllegalArgumentException("Can't combine BDDs of different managers");
+        }
+        return bdd.getNode();
+    }
+
+    /**
+     * Creates the conjunction of two {@link Bdd}s.
+     *
+     * @param left The left operand.
+     * @param right The right operand.
+     *
+     * @return The conjunction.
+     */
+    @NonNull Bdd and(@NonNull Bdd left, @NonNull Bdd right) {
+        beginOperation();
+        return wrap(apply(OP_AND, nodeOf(left), nodeOf(right)));
+    }
+
+    /**
+     * Creates the disjunction of two {@link Bdd}s.
+     *
+     * @param left The left operand.
+     * @param right The right operand.
+     *
+     * @return The disjunction.
+     */
+    @NonNull Bdd or(@NonNull Bdd left, @NonNull Bdd right) {
+        beginOperation();
+        return wrap(apply(OP_OR, nodeOf(left), nodeOf(right)));
+    }
+
+    /**
+     * Creates the exclusive disjunction of two {@link Bdd}s.
+     *
+     * @param left The left operand.
+     * @param right The right operand.
+     *
+     * @return The exclusive disjunction.
+     */
+    @NonNull Bdd xor(@NonNull Bdd left, @NonNull Bdd right) {
+        beginOperation();
+        return wrap(apply(OP_XOR, nodeOf(left), nodeOf(right)));
+    }
+
+    /**
+     * Creates the negation of a {@link Bdd}.
+     *
+     * @param bdd The operand.
+     *
+     * @return The negation.
+     */
+    @NonNull Bdd not(@NonNull Bdd bdd) {
+        beginOperation();
+        return wrap(not(nodeOf(bdd)));
+    }
+
+    /**
+     * Checks whether one {@link Bdd} implies another. This does not create any new nodes.
+     *
+     * @param left The premise.
+     * @param right The conclusion.
+     *
+     * @return Whether every assignment that satisfies the premise also satisfies the conclusion.
+     */
+    boolean implies(@NonNull Bdd left, @NonNull Bdd right) {
+        return implies(nodeOf(left), nodeOf(right));
+    }
+
+    /**
+     * Counts the inner (non-terminal) nodes reachable from the given node.
+     *
+     * @param root The node to start at.
+     *
+     * @return The number of inner nodes.
+     */
+    int countNodes(int root) {
+        Set<Integer> visited = new HashSet<>();
+        List<Integer> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            int node = stack.remove(stack.size() - 1);
+            if (node > TRUE && visited.add(node)) {
+                stack.add(lows[node]);
+                stack.add(highs[node]);
+            }
+        }
+        return visited.size();
+    }
+
+    /**
+     * Converts the given node into a {@link Formula}. The result is a canonical formula (see {@link FormulaFactory})
+     * that expands each node into a case distinction on its variable; constant children are simplified away.
+     *
+     * @param root The node to convert.
+     *
+     * @return A formula equivalent to the node.
+     */
+    @NonNull Formula toFormula(int root) {
+        return toFormula(root, new HashMap<>());
+    }
+
+    /**
+     * Converts the given node into a {@link Formula}.
+     *
+     * @param node The node to convert.
+     * @param converted The already converted nodes.
+     *
+     * @return A formula equivalent to the node.
+     */
+    private @NonNull Formula toFormula(int node, @NonNull Map<Integer, @NonNull Formula> converted) {
+        Formula result;
+        if (node == FALSE) {
+            result = False.INSTANCE;
+        } else if (node == TRUE) {
+            result = True.INSTANCE;
+        } else {
+            result = converted.get(node);
+            if (result == null) {
+                Variable var = FormulaFactory.variable(variableNames.get(levels[node]));
+                int low = lows[node];
+                int high = highs[node];
+
+                if (low == FALSE && high == TRUE) {
+                    result = var;
+                } else if (low == TRUE && high == FALSE) {
+                    result = FormulaFactory.not(var);
+                } else if (low == FALSE) {
+                    result = FormulaFactory.and(var, toFormula(high, converted));
+                } else if (high == FALSE) {
+                    result = FormulaFactory.and(FormulaFactory.not(var), toFormula(low, converted));
+                } else if (high == TRUE) {
+                    result = FormulaFactory.or(var, toFormula(low, converted));
+                } else if (low == TRUE) {
+                    result = FormulaFactory.or(FormulaFactory.not(var), toFormula(high, converted));
+                } else {
+                    result = FormulaFactory.or(FormulaFactory.and(var, toFormula(high, converted)),
+                            FormulaFactory.and(FormulaFactory.not(var), toFormula(low, converted)));
+                }
+                converted.put(node, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the level of the given variable. Unknown variables are appended at the bottom of the order.
+     *
+     * @param name The name of the variable.
+     *
+     * @return The level of the variable; 0 is the top-most level.
+     */
+    private int getLevel(@NonNull String name) {
+        Integer level = variableLevels.get(name);
+        if (level == null) {
+            level = variableNames.size();
+            variableNames.add(name);
+            variableLevels.put(name, level);
+        }
+        return level;
+    }
+
+    /**
+     * Wraps the given node into a {@link Bdd}, which keeps the node alive.
+     *
+     * @param node The node to wrap.
+     *
+     * @return The {@link Bdd} for the node.
+     */
+    private @NonNull Bdd wrap(int node) {
+        Bdd result;
+        if (node == FALSE) {
+            result = falseBdd;
+        } else if (node == TRUE) {
+            result = trueBdd;
+        } else {
+            result = new Bdd(this, node);
+            references.add(new BddReference(result, referenceQueue));
+        }
+        return result;
+    }
+
+    /**
+     * Prepares a top-level operation: runs the garbage collection if the node table is nearly full. This must not be
+     * called during an operation, since intermediate results are not referenced by any {@link Bdd}.
+     */
+    private void beginOperation() {
+        drainReferenceQueue();
+        if (capacity - numNodes < capacity / 8) {
+            collectGarbage();
+            if (numNodes > capacity / 2) {
+                grow();
+            }
+        }
+    }
+
+    /**
+     * Removes the references to {@link Bdd}s that were garbage collected by the JVM.
+     */
+    private void drainReferenceQueue() {
+        Reference<? extends Bdd> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            references.remove(reference);
+        }
+    }
+
+    /**
+     * Applies a binary operation.
+     *
+     * @param op The operation; one of {@link #OP_AND}, {@link #OP_OR} and {@link #OP_XOR}.
+     * @param left The left operand.
+     * @param right The right operand.
+     *
+     * @return The resulting node.
+     */
+    private int apply(int op, int left, int right) {
+        int result = applyTerminal(op, left, right);
+        if (result == NONE) {
+            // all binary operations are commutative
+            if (left > right) {
+                int tmp = left;
+                left = right;
+                right = tmp;
+            }
+
+            result = cacheLookup(op, left, right);
+            if (result == NONE) {
+                int leftLevel = levels[left];
+                int rightLevel = levels[right];
+                int level = Math.min(leftLevel, rightLevel);
+
+                // don't keep references to the arrays, since they may grow during the recursion
+                int low = apply(op, leftLevel == level ? lows[left] : left, rightLevel == level ? lows[right] : right);
+                int high = apply(op, leftLevel == level ? highs[left] : left,
+                        rightLevel == level ? highs[right] : right);
+                result = makeNode(level, low, high);
+
+                cacheStore(op, left, right, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Handles the terminal cases of a binary operation.
+     *
+     * @param op The operation; one of {@link #OP_AND}, {@link #OP_OR} and {@link #OP_XOR}.
+     * @param left The left operand.
+     * @param right The right operand.
+     *
+     * @return The resulting node, or {@link #NONE} if this is not a terminal case.
+     */
+    private int applyTerminal(int op, int left, int right) {
+        int result = NONE;
+        switch (op) {
+        case OP_AND:
+            if (left == FALSE || right == FALSE) {
+                result = FALSE;
+            } else if (left == TRUE || left == right) {
+                result = right;
+            } else if (right == TRUE) {
+                result = left;
+            }
+            break;
+
+        case OP_OR:
+            if (left == TRUE || right == TRUE) {
+                result = TRUE;
+            } else if (left == FALSE || left == right) {
+                result = right;
+            } else if (right == FALSE) {
+                result = left;
+            }
+            break;
+
+        case OP_XOR:
+            if (left == right) {
+                result = FALSE;
+            } else if (left == FALSE) {
+                result = right;
+            } else if (right == FALSE) {
+                result = left;
+            } else if (left == TRUE) {
+                result = not(right);
+            } else if (right == TRUE) {
+                result = not(left);
+            }
+            break;
+
+        default:
+            throw new IllegalArgumentException("Invalid operation: " + op);
+        }
+        return result;
+    }
+
+    /**
+     * Negates the given node.
+     *
+     * @param node The node to negate.
+     *
+     * @return The negated node.
+     */
+    private int not(int node) {
+        int result;
+        if (node == FALSE) {
+            result = TRUE;
+        } else if (node == TRUE) {
+            result = FALSE;
+        } else {
+            result = cacheLookup(OP_NOT, node, 0);
+            if (result == NONE) {
+                int low = not(lows[node]);
+                int high = not(highs[node]);
+                result = makeNode(levels[node], low, high);
+                cacheStore(OP_NOT, node, 0, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the left node implies the right node.
+     *
+     * @param left The premise.
+     * @param right The conclusion.
+     *
+     * @return Whether the premise implies the conclusion.
+     */
+    private boolean implies(int left, int right) {
+        boolean result;
+        if (left == FALSE || right == TRUE || left == right) {
+            result = true;
+        } else if (left == TRUE || right == FALSE) {
+            // the other node is not constant
+            result = false;
+        } else {
+            int cached = cacheLookup(OP_IMPLIES, left, right);
+            if (cached != NONE) {
+                result = cached == TRUE;
+            } else {
+                int leftLevel = levels[left];
+                int rightLevel = levels[right];
+                int level = Math.min(leftLevel, rightLevel);
+
+                result = implies(leftLevel == level ? lows[left] : left, rightLevel == level ? lows[right] : right)
+                        && implies(leftLevel == level ? highs[left] : left,
+                                rightLevel == level ? highs[right] : right);
+
+                cacheStore(OP_IMPLIES, left, right, result ? TRUE : FALSE);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the node with the given level and children. Creates a new node if it doesn't exist yet.
+     *
+     * @param level The level of the variable of the node.
+     * @param low The child for the variable being false.
+     * @param high The child for the variable being true.
+     *
+     * @return The (reduced) node.
+     */
+    private int makeNode(int level, int low, int high) {
+        int result = NONE;
+        if (low == high) {
+            result = low;
+        } else {
+            int bucket = hash(level, low, high) & (buckets.length - 1);
+            for (int node = buckets[bucket]; node != NONE && result == NONE; node = nexts[node]) {
+                if (levels[node] == level && lows[node] == low && highs[node] == high) {
+                    result = node;
+                }
+            }
+
+            if (result == NONE) {
+                if (freeHead == NONE) {
+                    grow();
+                    bucket = hash(level, low, high) & (buckets.length - 1);
+                }
+                result = freeHead;
+                freeHead = nexts[result];
+
+                levels[result] = level;
+                lows[result] = low;
+                highs[result] = high;
+                nexts[result] = buckets[bucket];
+                buckets[bucket] = result;
+                numNodes++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Doubles the capacity of the node table.
+     */
+    private void grow() {
+        int oldCapacity = capacity;
+        if (oldCapacity >= 1 << 30) {
+            throw new IllegalStateException("BDD node table is full");
+        }
+        capacity = oldCapacity * 2;
+        levels = Arrays.copyOf(levels, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+        highs = Arrays.copyOf(highs, capacity);
+        nexts = Arrays.copyOf(nexts, capacity);
+        addFreeNodes(oldCapacity, capacity);
+        rebuildBuckets();
+        resetCache();
+    }
+
+    /**
+     * Adds the given range of nodes to the free list.
+     *
+     * @param from The first node to add (inclusive).
+     * @param to The last node to add (exclusive).
+     */
+    private void addFreeNodes(int from, int to) {
+        for (int node = to - 1; node >= from; node--) {
+            levels[node] = FREE_LEVEL;
+            nexts[node] = freeHead;
+            freeHead = node;
+        }
+    }
+
+    /**
+     * Re-creates the unique table from all allocated nodes.
+     */
+    private void rebuildBuckets() {
+        buckets = new int[capacity];
+        Arrays.fill(buckets, NONE);
+        for (int node = TRUE + 1; node < capacity; node++) {
+            int level = levels[node];
+            if (level != FREE_LEVEL) {
+                int bucket = hash(level, lows[node], highs[node]) & (capacity - 1);
+                nexts[node] = buckets[bucket];
+                buckets[bucket] = node;
+            }
+        }
+    }
+
+    /**
+     * Clears the operation cache and adapts its size to the capacity of the node table.
+     */
+    private void resetCache() {
+        int size = capacity / 2;
+        if (cacheOps.length != size) {
+            cacheOps = new int[size];
+            cacheLefts = new int[size];
+            cacheRights = new int[size];
+            cacheResults = new int[size];
+        } else {
+            Arrays.fill(cacheOps, 0);
+        }
+    }
+
+    /**
+     * Looks up the result of an operation in the operation cache.
+     *
+     * @param op The operation.
+     * @param left The left operand.
+     * @param right The right operand.
+     *
+     * @return The cached result, or {@link #NONE} if it is not cached.
+     */
+    private int cacheLookup(int op, int left, int right) {
+        int slot = hash(op, left, right) & (cacheOps.length - 1);
+        int result = NONE;
+        if (cacheOps[slot] == op && cacheLefts[slot] == left && cacheRights[slot] == right) {
+            result = cacheResults[slot];
+        }
+        return result;
+    }
+
+    /**
+     * Stores the result of an operation in the operation cache. Overwrites any previous entry in the same slot.
+     *
+     * @param op The operation.
+     * @param left The left operand.
+     * @param right The right operand.
+     * @param result The result of the operation.
+     */
+    private void cacheStore(int op, int left, int right, int result) {
+        int slot = hash(op, left, right) & (cacheOps.length - 1);
+        cacheOps[slot] = op;
+        cacheLefts[slot] = left;
+        cacheRights[slot] = right;
+        cacheResults[slot] = result;
+    }
+
+    /**
+     * Hashes three integers.
+     *
+     * @param a The first integer.
+     * @param b The second integer.
+     * @param c The third integer.
+     *
+     * @return The hash.
+     */
+    private static int hash(int a, int b, int c) {
+        int hash = a * 0x9E3779B1 + b;
+        hash = hash * 0x85EBCA77 + c;
+        return hash ^ (hash >>> 15);
+    }
+
+    /**
+     * Converts a {@link Formula} into a node. Shared sub-formulas are only converted once.
+     */
+    private final class FormulaConverter implements IFormulaVisitor<@NonNull Integer> {
+
+        private final @NonNull Map<@NonNull Formula, @NonNull Integer> converted = new HashMap<>();
+
+        /**
+         * Converts the given formula, or returns the result of a previous conversion.
+         *
+         * @param formula The formula to convert.
+         *
+         * @return The node for the formula.
+         */
+        private int convert(@NonNull Formula formula) {
+            Integer result = converted.get(formula);
+            if (result == null) {
+                result = formula.accept(this);
+                converted.put(formula, result);
+            }
+            return result;
+        }
+
+        @Override
+        public @NonNull Integer visitFalse(@NonNull False falseConstant) {
+            return FALSE;
+        }
+
+        @Override
+        public @NonNull Integer visitTrue(@NonNull True trueConstant) {
+            return TRUE;
+        }
+
+        @Override
+        public @NonNull Integer visitVariable(@NonNull Variable variable) {
+            return makeNode(getLevel(variable.getName()), FALSE, TRUE);
+        }
+
+        @Override
+        public @NonNull Integer visitNegation(@NonNull Negation formula) {
+            return not(convert(formula.getFormula()));
+        }
+
+        @Override
+        public @NonNull Integer visitDisjunction(@NonNull Disjunction formula) {
+            int left = convert(formula.getLeft());
+            return apply(OP_OR, left, convert(formula.getRight()));
+        }
+
+        @Override
+        public @NonNull Integer visitConjunction(@NonNull Conjunction formula) {
+            int left = convert(formula.getLeft());
+            return apply(OP_AND, left, convert(formula.getRight()));
+        }
+
+    }
+
+}
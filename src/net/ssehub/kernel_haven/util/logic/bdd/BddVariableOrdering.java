@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.HierarchicalVariable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * Heuristics for the variable order of a {@link BddManager}. BDDs stay small if variables that depend on each other
+ * are close together in the order.
+ *
+ * @author Adam
+ */
+public final class BddVariableOrdering {
+
+    /**
+     * Sorts variables by their DIMACS number (i.e. the order of the variability model). Variables without a DIMACS
+     * number come last, sorted by name.
+     */
+    private static final @NonNull Comparator<@NonNull VariabilityVariable> MODEL_ORDER = (v1, v2) -> {
+        int n1 = v1.getDimacsNumber() > 0 ? v1.getDimacsNumber() : Integer.MAX_VALUE;
+        int n2 = v2.getDimacsNumber() > 0 ? v2.getDimacsNumber() : Integer.MAX_VALUE;
+        int result = Integer.compare(n1, n2);
+        if (result == 0) {
+            result = v1.getName().compareTo(v2.getName());
+        }
+        return result;
+    };
+
+    /**
+     * Don't allow any instances.
+     */
+    private BddVariableOrdering() {
+    }
+
+    /**
+     * <p>
+     * Derives a variable order from the given variability model. The variables are traversed depth-first, starting
+     * with the top-level variables in the order of the variability model (their DIMACS numbers). From each variable,
+     * the traversal continues with its children (for {@link HierarchicalVariable}s) and then with the variables it
+     * shares constraints with (see {@link VariabilityVariable#getVariablesUsedInConstraints()}), so that dependent
+     * variables end up next to each other.
+     * </p>
+     * <p>
+     * Each variability variable contributes all names of its DIMACS mapping (see
+     * {@link VariabilityVariable#getDimacsMapping(Map)}), e.g. <code>X</code> and <code>X_MODULE</code> for a
+     * tristate variable. Without any hierarchy or constraint information, this is just the order of the DIMACS
+     * numbers.
+     * </p>
+     *
+     * @param varModel The variability model to derive the order from.
+     *
+     * @return The variable names in the derived order, starting with the top-most variable.
+     */
+    public static @NonNull List<@NonNull String> fromVariabilityModel(@NonNull VariabilityModel varModel) {
+        List<@NonNull VariabilityVariable> sorted = new ArrayList<>(varModel.getVariables());
+        sorted.sort(MODEL_ORDER);
+
+        Set<@NonNull String> result = new LinkedHashSet<>();
+        Set<@NonNull VariabilityVariable> visited = new HashSet<>();
+
+        // first start at the top-level variables, then pick up variables that are only reachable via cycles
+        for (VariabilityVariable start : sorted) {
+            if (!(start instanceof HierarchicalVariable) || ((HierarchicalVariable) start).getParent() == null) {
+                visit(start, visited, result);
+            }
+        }
+        for (VariabilityVariable start : sorted) {
+            visit(start, visited, result);
+        }
+
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Traverses the variables reachable from the given variable depth-first and adds their names to the order.
+     *
+     * @param start The variable to start at.
+     * @param visited The variables that were already visited. Will be modified.
+     * @param order The variable names in order. Will be modified.
+     */
+    private static void visit(@NonNull VariabilityVariable start, @NonNull Set<@NonNull VariabilityVariable> visited,
+            @NonNull Set<@NonNull String> order) {
+
+        Deque<@NonNull VariabilityVariable> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            VariabilityVariable variable = stack.pop();
+            if (visited.add(variable)) {
+                addNames(variable, order);
+
+                List<@NonNull VariabilityVariable> next = new ArrayList<>();
+                if (variable instanceof HierarchicalVariable) {
+                    addSorted(((HierarchicalVariable) variable).getChildren(), visited, next);
+                }
+                addSorted(variable.getVariablesUsedInConstraints(), visited, next);
+                addSorted(variable.getUsedInConstraintsOfOtherVariables(), visited, next);
+
+                // push in reverse order, so that the first one is visited first
+                for (int i = next.size() - 1; i >= 0; i--) {
+                    stack.push(next.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the not yet visited variables of the given set to the list, sorted by {@link #MODEL_ORDER}.
+     *
+     * @param variables The variables to add. May be <code>null</code>.
+     * @param visited The variables that were already visited.
+     * @param list The list to add to.
+     */
+    private static void addSorted(@Nullable Set<? extends @NonNull VariabilityVariable> variables,
+            @NonNull Set<@NonNull VariabilityVariable> visited, @NonNull List<@NonNull VariabilityVariable> list) {
+
+        if (variables != null) {
+            List<@NonNull VariabilityVariable> sorted = new ArrayList<>();
+            for (VariabilityVariable variable : variables) {
+                if (!visited.contains(variable)) {
+                    sorted.add(variable);
+                }
+            }
+            sorted.sort(MODEL_ORDER);
+            list.addAll(sorted);
+        }
+    }
+
+    /**
+     * Adds the names of the given variable to the order.
+     *
+     * @param variable The variable to add.
+     * @param order The variable names in order. Will be modified.
+     */
+    private static void addNames(@NonNull VariabilityVariable variable, @NonNull Set<@NonNull String> order) {
+        Map<Integer, String> mapping = new TreeMap<>();
+        variable.getDimacsMapping(mapping);
+
+        order.add(variable.getName());
+        for (String name : mapping.values()) {
+            if (name != null) {
+                order.add(name);
+            }
+        }
+    }
+
+}
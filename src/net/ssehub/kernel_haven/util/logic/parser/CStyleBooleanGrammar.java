@@ -15,11 +15,9 @@
  */
 package net.ssehub.kernel_haven.util.logic.parser;
 
-import net.ssehub.kernel_haven.util.logic.Conjunction;
-import net.ssehub.kernel_haven.util.logic.Disjunction;
 import net.ssehub.kernel_haven.util.logic.False;
 import net.ssehub.kernel_haven.util.logic.Formula;
-import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
 import net.ssehub.kernel_haven.util.logic.True;
 import net.ssehub.kernel_haven.util.logic.Variable;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
@@ -51,7 +49,8 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
     /**
      * Creates this grammar with the given variable cache. The cache is used to
      * create every single {@link Variable}, to ensure that no two different
-     * {@link Variable} objects with the same variable name exist.
+     * {@link Variable} objects with the same variable name exist. All created
+     * formulas are canonical (see {@link FormulaFactory}).
      * 
      * @param cache
      *            The cache to use, or <code>null</code>.
@@ -110,7 +109,7 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
     @Override
     public Formula makeUnaryFormula(Operator operator, Formula child) throws ExpressionFormatException {
         if (operator.equals(NOT)) {
-            return new Negation(child);
+            return FormulaFactory.not(child);
         } else {
             throw new ExpressionFormatException("Unknown operator: " + operator);
         }
@@ -121,9 +120,9 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
         Formula result = null;
 
         if (operator.equals(AND)) {
-            result = new Conjunction(left, right);
+            result = FormulaFactory.and(left, right);
         } else if (operator.equals(OR)) {
-            result = new Disjunction(left, right);
+            result = FormulaFactory.or(left, right);
         } else {
             throw new ExpressionFormatException("Unknown operator: " + operator);
         }
@@ -143,7 +142,7 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
             if (this.cache != null) {
                 result = this.cache.getVariable(identifier);
             } else {
-                result = new Variable(identifier);
+                result = FormulaFactory.variable(identifier);
             }
         }
 
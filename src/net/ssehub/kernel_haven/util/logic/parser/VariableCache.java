@@ -18,13 +18,15 @@ package net.ssehub.kernel_haven.util.logic.parser;
 import java.util.HashMap;
 import java.util.Map;
 
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
 import net.ssehub.kernel_haven.util.logic.Variable;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
  * A cache to help ensure that a {@link net.ssehub.kernel_haven.util.logic.Formula} does not contain duplicate
  * {@link Variable} objects with the same name. Each instance of {@link Variable}
- * should always be obtained through {@link #getVariable(String)}.
+ * should always be obtained through {@link #getVariable(String)}. The variables are the canonical instances of the
+ * {@link FormulaFactory}; this cache only avoids the synchronization of the factory for repeated names.
  * 
  * @author Adam (from KernelMiner project)
  */
@@ -49,7 +51,7 @@ public class VariableCache {
     public @NonNull Variable getVariable(@NonNull String name) {
         Variable var = variables.get(name);
         if (var == null) {
-            var = new Variable(name);
+            var = FormulaFactory.variable(name);
             variables.put(name, var);
         }
         return var;
@@ -0,0 +1,880 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * <p>
+ * An incremental SAT solver based on conflict driven clause learning (CDCL). The solver uses two watched literals
+ * for unit propagation, first-UIP conflict analysis, a VSIDS-like variable order with phase saving and Luby
+ * restarts.
+ * </p>
+ * <p>
+ * Variables and literals are specified like in DIMACS files: variables are numbered starting from 1, and a negative
+ * literal is the negated variable. Clauses can be added between calls to {@link #solve(int...)}; clauses learned in
+ * one call are kept for the next calls. Each call may specify assumptions, i.e. literals that are only fixed for this
+ * call.
+ * </p>
+ * <p>
+ * This class is not thread-safe; see {@link VariabilityModelSolver} for a thread-safe facade.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class CdclSolver implements IClauseSink {
+
+    private static final byte UNDEF = 0;
+
+    private static final byte TRUE = 1;
+
+    private static final byte FALSE = -1;
+
+    private static final int NO_REASON = -1;
+
+    private static final int RESTART_BASE = 100;
+
+    private static final double VAR_DECAY = 0.95;
+
+    /**
+     * A growable list of <code>int</code>s.
+     */
+    private static final class IntList {
+
+        private int @NonNull [] data = new int[4];
+
+        private int size;
+
+        /**
+         * Appends a value.
+         *
+         * @param value The value to append.
+         */
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        /**
+         * Replaces each value by its entry in the given mapping. Values that are mapped to {@link #NO_REASON} are
+         * removed; the order of the other values is kept.
+         *
+         * @param mapping The new value for each old value.
+         */
+        void remap(int @NonNull [] mapping) {
+            int newSize = 0;
+            for (int i = 0; i < size; i++) {
+                int value = mapping[data[i]];
+                if (value != NO_REASON) {
+                    data[newSize++] = value;
+                }
+            }
+            size = newSize;
+        }
+
+    }
+
+    private int numVariables;
+
+    /*
+     * Internally, literals are encoded as 2 * variable for the positive and 2 * variable + 1 for the negated literal.
+     */
+
+    private byte @NonNull [] assignment;
+
+    private int @NonNull [] level;
+
+    private int @NonNull [] reason;
+
+    private boolean @NonNull [] polarity;
+
+    private double @NonNull [] activity;
+
+    private boolean @NonNull [] seen;
+
+    private @NonNull IntList @NonNull [] watches;
+
+    private final @NonNull List<int @NonNull []> clauses;
+
+    private final @NonNull IntList learnts;
+
+    private int numLearnts;
+
+    private double maxLearnts;
+
+    private int @NonNull [] trail;
+
+    private int trailSize;
+
+    private int propagationHead;
+
+    private final @NonNull IntList trailLimits;
+
+    private int @NonNull [] heap;
+
+    private int heapSize;
+
+    private int @NonNull [] heapIndex;
+
+    private double activityIncrement;
+
+    private boolean ok;
+
+    private byte @Nullable [] model;
+
+    private long numConflicts;
+
+    /**
+     * Creates a new solver without any clauses.
+     *
+     * @param numVariables The initial number of variables. More variables can be added later.
+     */
+    public CdclSolver(int numVariables) {
+        this.assignment = new byte[0];
+        this.level = new int[0];
+        this.reason = new int[0];
+        this.polarity = new boolean[0];
+        this.activity = new double[0];
+        this.seen = new boolean[0];
+        this.watches = new @NonNull IntList[0];
+        this.trail = new int[0];
+        this.heap = new int[0];
+        this.heapIndex = new int[0];
+
+        this.clauses = new ArrayList<>();
+        this.learnts = new IntList();
+        this.trailLimits = new IntList();
+        this.maxLearnts = 1000;
+        this.activityIncrement = 1;
+        this.ok = true;
+
+        ensureVariables(numVariables);
+    }
+
+    /**
+     * Returns the number of variables.
+     *
+     * @return The number of variables.
+     */
+    public int getNumVariables() {
+        return numVariables;
+    }
+
+    /**
+     * Returns the number of conflicts that occurred in all calls to {@link #solve(int...)} so far.
+     *
+     * @return The number of conflicts.
+     */
+    public long getNumConflicts() {
+        return numConflicts;
+    }
+
+    @Override
+    public int newVariable() {
+        ensureVariables(numVariables + 1);
+        return numVariables;
+    }
+
+    /**
+     * Makes sure that the solver has at least the given number of variables.
+     *
+     * @param numVariables The number of variables.
+     */
+    public void ensureVariables(int numVariables) {
+        if (numVariables <= this.numVariables) {
+            return;
+        }
+
+        int capacity = assignment.length;
+        if (numVariables + 1 > capacity) {
+            capacity = Math.max(numVariables + 1, capacity * 2);
+            assignment = Arrays.copyOf(assignment, capacity);
+            level = Arrays.copyOf(level, capacity);
+            reason = Arrays.copyOf(reason, capacity);
+            polarity = Arrays.copyOf(polarity, capacity);
+            activity = Arrays.copyOf(activity, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            heapIndex = Arrays.copyOf(heapIndex, capacity);
+
+            int oldWatches = watches.length;
+            watches = Arrays.copyOf(watches, capacity * 2);
+            for (int i = oldWatches; i < watches.length; i++) {
+                watches[i] = new IntList();
+            }
+        }
+
+        for (int var = this.numVariables + 1; var <= numVariables; var++) {
+            reason[var] = NO_REASON;
+            heapIndex[var] = -1;
+            heapInsert(var);
+        }
+        this.numVariables = numVariables;
+    }
+
+    @Override
+    public void addClause(int @NonNull ... literals) throws IllegalArgumentException {
+        for (int literal : literals) {
+            if (literal == 0) {
+                throw new IllegalArgumentException("Literal 0 is not allowed");
+            }
+            ensureVariables(Math.abs(literal));
+        }
+        if (ok) {
+            cancelUntil(0);
+
+            // remove duplicate and false literals, and skip satisfied clauses and tautologies
+            int[] clause = new int[literals.length];
+            int size = 0;
+            boolean satisfied = false;
+            for (int i = 0; i < literals.length && !satisfied; i++) {
+                int lit = toInternal(literals[i]);
+                byte value = value(lit);
+                if (value == TRUE || seen[lit >> 1] && contains(clause, size, lit ^ 1)) {
+                    satisfied = true;
+                } else if (value == UNDEF && !(seen[lit >> 1] && contains(clause, size, lit))) {
+                    seen[lit >> 1] = true;
+                    clause[size++] = lit;
+                }
+            }
+            clearSeen(clause, size);
+
+            if (!satisfied) {
+                if (size == 0) {
+                    ok = false;
+                } else if (size == 1) {
+                    enqueue(clause[0], NO_REASON);
+                    ok = propagate() == NO_REASON;
+                } else {
+                    attach(Arrays.copyOf(clause, size));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the clauses are satisfiable under the given assumptions. If they are, then the satisfying
+     * assignment can be retrieved via {@link #getModelValue(int)}.
+     *
+     * @param assumptions Literals that must be true in this call. Variables that do not exist yet are added
+     *      automatically.
+     *
+     * @return Whether the clauses are satisfiable.
+     *
+     * @throws IllegalArgumentException If an assumption is 0.
+     */
+    public boolean solve(int @NonNull ... assumptions) throws IllegalArgumentException {
+        int[] internalAssumptions = new int[assumptions.length];
+        for (int i = 0; i < assumptions.length; i++) {
+            if (assumptions[i] == 0) {
+                throw new IllegalArgumentException("Literal 0 is not allowed");
+            }
+            ensureVariables(Math.abs(assumptions[i]));
+            internalAssumptions[i] = toInternal(assumptions[i]);
+        }
+
+        model = null;
+        boolean result = false;
+        if (ok) {
+            maxLearnts = Math.max(maxLearnts, (clauses.size() - numLearnts) / 3.0);
+
+            Boolean searchResult = null;
+            int restarts = 0;
+            while (searchResult == null) {
+                searchResult = search(internalAssumptions, luby(restarts++) * RESTART_BASE);
+            }
+            result = searchResult;
+
+            cancelUntil(0);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the given variable in the satisfying assignment found by the last call to
+     * {@link #solve(int...)}.
+     *
+     * @param variable The variable.
+     *
+     * @return The value of the variable.
+     *
+     * @throws IllegalStateException If the last call to {@link #solve(int...)} did not find a satisfying assignment.
+     * @throws IllegalArgumentException If the variable does not exist.
+     */
+    public boolean getModelValue(int variable) throws IllegalStateException, IllegalArgumentException {
+        byte[] model = this.model;
+        if (model == null) {
+            throw new IllegalStateException("No satisfying assignment available");
+        }
+        if (variable <= 0 || variable > numVariables) {
+            throw new IllegalArgumentException("Invalid variable " + variable);
+        }
+        // variables added after the last call are not part of the model; any value satisfies the clauses
+        return variable < model.length && model[variable] == TRUE;
+    }
+
+    /**
+     * Searches for a satisfying assignment until the given number of conflicts occurred.
+     *
+     * @param assumptions The internal literals that are assumed to be true.
+     * @param maxConflicts The number of conflicts after which the search is restarted.
+     *
+     * @return Whether the clauses are satisfiable, or <code>null</code> if the search should be restarted.
+     */
+    private @Nullable Boolean search(int @NonNull [] assumptions, long maxConflicts) {
+        long conflicts = 0;
+
+        Boolean result = null;
+        boolean done = false;
+        while (!done) {
+            int conflict = propagate();
+            if (conflict != NO_REASON) {
+                numConflicts++;
+                conflicts++;
+                if (decisionLevel() == 0) {
+                    ok = false;
+                    result = false;
+                    done = true;
+
+                } else {
+                    int[] learnt = analyze(conflict);
+                    cancelUntil(backtrackLevel(learnt));
+                    if (learnt.length == 1) {
+                        enqueue(learnt[0], NO_REASON);
+                    } else {
+                        int index = attach(learnt);
+                        learnts.add(index);
+                        numLearnts++;
+                        enqueue(learnt[0], index);
+                    }
+                    activityIncrement /= VAR_DECAY;
+                }
+
+            } else if (conflicts >= maxConflicts) {
+                cancelUntil(0);
+                if (numLearnts >= maxLearnts) {
+                    reduceLearnts();
+                }
+                done = true; // result stays null, i.e. restart
+
+            } else {
+                int next = -1;
+                boolean assumptionFalse = false;
+                while (decisionLevel() < assumptions.length && next == -1 && !assumptionFalse) {
+                    int assumption = assumptions[decisionLevel()];
+                    byte value = value(assumption);
+                    if (value == TRUE) {
+                        // dummy decision level, so that the levels stay aligned with the assumptions
+                        trailLimits.add(trailSize);
+                    } else if (value == FALSE) {
+                        assumptionFalse = true;
+                    } else {
+                        next = assumption;
+                    }
+                }
+
+                if (next == -1 && !assumptionFalse) {
+                    next = pickBranchLiteral();
+                }
+
+                if (assumptionFalse) {
+                    result = false;
+                    done = true;
+                } else if (next == -1) {
+                    model = Arrays.copyOf(assignment, numVariables + 1);
+                    result = true;
+                    done = true;
+                } else {
+                    trailLimits.add(trailSize);
+                    enqueue(next, NO_REASON);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Propagates all enqueued assignments.
+     *
+     * @return The index of a conflicting clause, or {@link #NO_REASON} if there is no conflict.
+     */
+    private int propagate() {
+        int conflict = NO_REASON;
+
+        while (propagationHead < trailSize && conflict == NO_REASON) {
+            int falseLit = trail[propagationHead++] ^ 1;
+            IntList watchList = watches[falseLit];
+            int[] watching = watchList.data;
+            int size = watchList.size;
+
+            int i = 0;
+            int j = 0;
+            while (i < size) {
+                int index = watching[i++];
+                int[] clause = clauses.get(index);
+
+                // make sure the false literal is at position 1
+                if (clause[0] == falseLit) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLit;
+                }
+
+                if (value(clause[0]) == TRUE) {
+                    watching[j++] = index;
+                    continue;
+                }
+
+                boolean foundWatch = false;
+                for (int k = 2; k < clause.length; k++) {
+                    if (value(clause[k]) != FALSE) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLit;
+                        watches[clause[1]].add(index);
+                        foundWatch = true;
+                        break;
+                    }
+                }
+                if (foundWatch) {
+                    continue;
+                }
+
+                watching[j++] = index;
+                if (value(clause[0]) == FALSE) {
+                    conflict = index;
+                    propagationHead = trailSize;
+                    while (i < size) {
+                        watching[j++] = watching[i++];
+                    }
+                } else {
+                    enqueue(clause[0], index);
+                }
+            }
+            watchList.size = j;
+        }
+
+        return conflict;
+    }
+
+    /**
+     * Analyzes a conflict and creates a learnt clause (first UIP). The first literal of the learnt clause is the one
+     * that becomes unit after backtracking; the second literal has the highest decision level of the others.
+     *
+     * @param conflict The index of the conflicting clause.
+     *
+     * @return The learnt clause.
+     */
+    private int @NonNull [] analyze(int conflict) {
+        IntList learnt = new IntList();
+        learnt.add(-1); // placeholder for the asserting literal
+
+        int pathCount = 0;
+        int lit = -1;
+        int trailIndex = trailSize - 1;
+        int clauseIndex = conflict;
+
+        do {
+            int[] clause = clauses.get(clauseIndex);
+            for (int i = (lit == -1 ? 0 : 1); i < clause.length; i++) {
+                int q = clause[i];
+                int var = q >> 1;
+                if (!seen[var] && level[var] > 0) {
+                    bumpActivity(var);
+                    seen[var] = true;
+                    if (level[var] >= decisionLevel()) {
+                        pathCount++;
+                    } else {
+                        learnt.add(q);
+                    }
+                }
+            }
+
+            while (!seen[trail[trailIndex] >> 1]) {
+                trailIndex--;
+            }
+            lit = trail[trailIndex--];
+            clauseIndex = reason[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+
+        learnt.data[0] = lit ^ 1;
+
+        int[] result = Arrays.copyOf(learnt.data, learnt.size);
+        for (int i = 1; i < result.length; i++) {
+            seen[result[i] >> 1] = false;
+        }
+
+        // move the literal with the highest level to position 1, so that it is watched
+        int max = 1;
+        for (int i = 2; i < result.length; i++) {
+            if (level[result[i] >> 1] > level[result[max] >> 1]) {
+                max = i;
+            }
+        }
+        if (result.length > 1) {
+            int tmp = result[1];
+            result[1] = result[max];
+            result[max] = tmp;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the decision level to backtrack to for the given learnt clause.
+     *
+     * @param learnt The learnt clause, as created by {@link #analyze(int)}.
+     *
+     * @return The decision level.
+     */
+    private int backtrackLevel(int @NonNull [] learnt) {
+        return learnt.length == 1 ? 0 : level[learnt[1] >> 1];
+    }
+
+    /**
+     * Removes the less useful half of the learnt clauses. Binary clauses and clauses that are the reason for a
+     * current assignment are kept. Afterwards, the remaining clauses are compacted (see
+     * {@link #compactClauses(boolean[])}). Must only be called on decision level 0.
+     */
+    private void reduceLearnts() {
+        int[] candidates = new int[learnts.size];
+        int numCandidates = 0;
+        IntList kept = new IntList();
+
+        for (int i = 0; i < learnts.size; i++) {
+            int index = learnts.data[i];
+            int[] clause = clauses.get(index);
+            boolean locked = reason[clause[0] >> 1] == index && value(clause[0]) == TRUE;
+            if (clause.length <= 2 || locked) {
+                kept.add(index);
+            } else {
+                candidates[numCandidates++] = index;
+            }
+        }
+
+        // remove the longest clauses; the order of equally long clauses keeps the older ones
+        Integer[] sorted = new Integer[numCandidates];
+        for (int i = 0; i < numCandidates; i++) {
+            sorted[i] = candidates[i];
+        }
+        Arrays.sort(sorted, (a, b) -> Integer.compare(clauses.get(a).length, clauses.get(b).length));
+
+        boolean[] removed = new boolean[clauses.size()];
+        int keep = numCandidates / 2;
+        for (int i = 0; i < numCandidates; i++) {
+            if (i < keep) {
+                kept.add(sorted[i]);
+            } else {
+                removed[sorted[i]] = true;
+            }
+        }
+
+        learnts.data = kept.data;
+        learnts.size = kept.size;
+        numLearnts = kept.size;
+        maxLearnts *= 1.1;
+
+        compactClauses(removed);
+    }
+
+    /**
+     * Removes the given clauses and moves the remaining ones to the front of {@link #clauses}, so that the list does
+     * not grow with every reduction. The clause indices in the watch lists, the reasons and the learnt clauses are
+     * updated accordingly. Must only be called on decision level 0, and removed clauses must not be a reason.
+     *
+     * @param removed Whether each clause (by index) should be removed.
+     */
+    private void compactClauses(boolean @NonNull [] removed) {
+        int[] newIndex = new int[clauses.size()];
+        int next = 0;
+        for (int i = 0; i < newIndex.length; i++) {
+            if (removed[i]) {
+                newIndex[i] = NO_REASON;
+            } else {
+                newIndex[i] = next;
+                clauses.set(next++, clauses.get(i));
+            }
+        }
+        clauses.subList(next, newIndex.length).clear();
+
+        for (IntList watchList : watches) {
+            watchList.remap(newIndex);
+        }
+        learnts.remap(newIndex);
+        for (int var = 1; var <= numVariables; var++) {
+            if (reason[var] != NO_REASON) {
+                reason[var] = newIndex[reason[var]];
+            }
+        }
+    }
+
+    /**
+     * Stores a clause and starts watching its first two literals.
+     *
+     * @param clause The clause with at least two literals.
+     *
+     * @return The index of the clause.
+     */
+    private int attach(int @NonNull [] clause) {
+        int index = clauses.size();
+        clauses.add(clause);
+        watches[clause[0]].add(index);
+        watches[clause[1]].add(index);
+        return index;
+    }
+
+    /**
+     * Assigns the given literal to true.
+     *
+     * @param lit The internal literal.
+     * @param reasonClause The index of the clause that implied this assignment, or {@link #NO_REASON} for decisions.
+     */
+    private void enqueue(int lit, int reasonClause) {
+        int var = lit >> 1;
+        assignment[var] = (lit & 1) == 0 ? TRUE : FALSE;
+        level[var] = decisionLevel();
+        reason[var] = reasonClause;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Reverts all assignments above the given decision level.
+     *
+     * @param targetLevel The decision level to keep.
+     */
+    private void cancelUntil(int targetLevel) {
+        if (decisionLevel() > targetLevel) {
+            int limit = trailLimits.data[targetLevel];
+            for (int i = trailSize - 1; i >= limit; i--) {
+                int var = trail[i] >> 1;
+                polarity[var] = assignment[var] == TRUE;
+                assignment[var] = UNDEF;
+                reason[var] = NO_REASON;
+                if (heapIndex[var] == -1) {
+                    heapInsert(var);
+                }
+            }
+            trailSize = limit;
+            propagationHead = limit;
+            trailLimits.size = targetLevel;
+        }
+    }
+
+    /**
+     * Selects the next decision: the unassigned variable with the highest activity, with its last value.
+     *
+     * @return The internal literal to assign, or -1 if all variables are assigned.
+     */
+    private int pickBranchLiteral() {
+        int result = -1;
+        while (heapSize > 0) {
+            int var = heapRemoveMax();
+            if (assignment[var] == UNDEF) {
+                result = polarity[var] ? var << 1 : (var << 1) | 1;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Increases the activity of the given variable.
+     *
+     * @param var The variable.
+     */
+    private void bumpActivity(int var) {
+        activity[var] += activityIncrement;
+        if (activity[var] > 1e100) {
+            for (int i = 1; i <= numVariables; i++) {
+                activity[i] *= 1e-100;
+            }
+            activityIncrement *= 1e-100;
+        }
+        if (heapIndex[var] != -1) {
+            heapUp(heapIndex[var]);
+        }
+    }
+
+    /**
+     * Returns the current decision level.
+     *
+     * @return The decision level.
+     */
+    private int decisionLevel() {
+        return trailLimits.size;
+    }
+
+    /**
+     * Returns the current value of the given literal.
+     *
+     * @param lit The internal literal.
+     *
+     * @return {@link #TRUE}, {@link #FALSE} or {@link #UNDEF}.
+     */
+    private byte value(int lit) {
+        byte value = assignment[lit >> 1];
+        return (lit & 1) == 0 ? value : (byte) -value;
+    }
+
+    /**
+     * Converts a DIMACS literal to the internal representation.
+     *
+     * @param literal The DIMACS literal.
+     *
+     * @return The internal literal.
+     */
+    private static int toInternal(int literal) {
+        return literal > 0 ? literal << 1 : (-literal << 1) | 1;
+    }
+
+    /**
+     * Checks whether the first elements of the given array contain the given value.
+     *
+     * @param array The array.
+     * @param size The number of elements to check.
+     * @param value The value to search.
+     *
+     * @return Whether the value was found.
+     */
+    private static boolean contains(int @NonNull [] array, int size, int value) {
+        boolean found = false;
+        for (int i = 0; i < size && !found; i++) {
+            found = array[i] == value;
+        }
+        return found;
+    }
+
+    /**
+     * Clears the {@link #seen} flags of the variables in the given literals.
+     *
+     * @param lits The internal literals.
+     * @param size The number of literals.
+     */
+    private void clearSeen(int @NonNull [] lits, int size) {
+        for (int i = 0; i < size; i++) {
+            seen[lits[i] >> 1] = false;
+        }
+    }
+
+    /**
+     * Returns the i-th element of the Luby sequence (1, 1, 2, 1, 1, 2, 4, ...).
+     *
+     * @param i The index, starting at 0.
+     *
+     * @return The element.
+     */
+    static long luby(int i) {
+        int size = 1;
+        int seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        int x = i;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return 1L << seq;
+    }
+
+    /*
+     * Binary max-heap of variables, ordered by activity.
+     */
+
+    /**
+     * Inserts a variable into the heap.
+     *
+     * @param var The variable.
+     */
+    private void heapInsert(int var) {
+        heap[heapSize] = var;
+        heapIndex[var] = heapSize;
+        heapUp(heapSize++);
+    }
+
+    /**
+     * Removes the variable with the highest activity from the heap.
+     *
+     * @return The variable.
+     */
+    private int heapRemoveMax() {
+        int result = heap[0];
+        heapIndex[result] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return result;
+    }
+
+    /**
+     * Moves the element at the given position up until the heap property holds.
+     *
+     * @param position The position in the heap.
+     */
+    private void heapUp(int position) {
+        int var = heap[position];
+        int i = position;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[var]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = var;
+        heapIndex[var] = i;
+    }
+
+    /**
+     * Moves the element at the given position down until the heap property holds.
+     *
+     * @param position The position in the heap.
+     */
+    private void heapDown(int position) {
+        int var = heap[position];
+        int i = position;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[var]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = var;
+        heapIndex[var] = i;
+    }
+
+}
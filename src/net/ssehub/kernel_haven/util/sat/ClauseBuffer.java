@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import java.util.Arrays;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Stores clauses compactly in primitive arrays. The literals of all clauses are stored consecutively in a single array;
+ * a second array stores where each clause starts.
+ *
+ * @author Adam
+ */
+public final class ClauseBuffer implements IClauseSink {
+
+    private int numVariables;
+
+    private int @NonNull [] literals;
+
+    private int numLiterals;
+
+    /**
+     * The index in {@link #literals} where each clause starts, followed by {@link #numLiterals}.
+     */
+    private int @NonNull [] clauseStarts;
+
+    private int numClauses;
+
+    /**
+     * Creates an empty buffer without variables.
+     */
+    public ClauseBuffer() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param numVariables The initial number of variables. {@link #newVariable()} returns variables after these.
+     */
+    public ClauseBuffer(int numVariables) {
+        this.numVariables = numVariables;
+        this.literals = new int[64];
+        this.clauseStarts = new int[16];
+    }
+
+    @Override
+    public int newVariable() {
+        return ++numVariables;
+    }
+
+    @Override
+    public void addClause(int @NonNull ... literals) throws IllegalArgumentException {
+        for (int literal : literals) {
+            if (literal == 0) {
+                throw new IllegalArgumentException("Literal 0 is not allowed");
+            }
+            numVariables = Math.max(numVariables, Math.abs(literal));
+        }
+
+        if (numLiterals + literals.length > this.literals.length) {
+            this.literals = Arrays.copyOf(this.literals, Math.max(numLiterals + literals.length, numLiterals * 2));
+        }
+        System.arraycopy(literals, 0, this.literals, numLiterals, literals.length);
+        numLiterals += literals.length;
+
+        if (numClauses + 2 > clauseStarts.length) {
+            clauseStarts = Arrays.copyOf(clauseStarts, clauseStarts.length * 2);
+        }
+        numClauses++;
+        clauseStarts[numClauses] = numLiterals;
+    }
+
+    /**
+     * Returns the number of variables.
+     *
+     * @return The highest variable number used so far.
+     */
+    public int getNumVariables() {
+        return numVariables;
+    }
+
+    /**
+     * Returns the number of clauses.
+     *
+     * @return The number of clauses.
+     */
+    public int getNumClauses() {
+        return numClauses;
+    }
+
+    /**
+     * Returns the total number of literals in all clauses.
+     *
+     * @return The number of literals.
+     */
+    public int getNumLiterals() {
+        return numLiterals;
+    }
+
+    /**
+     * Returns a copy of the literals of the given clause.
+     *
+     * @param clause The index of the clause.
+     *
+     * @return The literals of the clause.
+     *
+     * @throws IndexOutOfBoundsException If the clause index is invalid.
+     */
+    public int @NonNull [] getClause(int clause) throws IndexOutOfBoundsException {
+        if (clause < 0 || clause >= numClauses) {
+            throw new IndexOutOfBoundsException("Clause " + clause + " of " + numClauses);
+        }
+        return Arrays.copyOfRange(literals, clauseStarts[clause], clauseStarts[clause + 1]);
+    }
+
+    /**
+     * Adds all clauses of this buffer to the given sink.
+     *
+     * @param sink The sink to add the clauses to.
+     */
+    public void addTo(@NonNull IClauseSink sink) {
+        for (int i = 0; i < numClauses; i++) {
+            sink.addClause(getClause(i));
+        }
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return "ClauseBuffer[" + numVariables + " variables, " + numClauses + " clauses]";
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Receives clauses, e.g. from a {@link TseitinConverter}. Variables and literals are specified like in DIMACS files:
+ * variables are numbered starting from 1, and a negative literal is the negated variable.
+ *
+ * @author Adam
+ */
+public interface IClauseSink {
+
+    /**
+     * Adds a new variable.
+     *
+     * @return The number of the new variable.
+     */
+    public int newVariable();
+
+    /**
+     * Adds a clause. Variables that do not exist yet are added automatically.
+     *
+     * @param literals The literals of the clause. A literal must not be 0.
+     *
+     * @throws IllegalArgumentException If a literal is 0.
+     */
+    public void addClause(int @NonNull ... literals) throws IllegalArgumentException;
+
+}
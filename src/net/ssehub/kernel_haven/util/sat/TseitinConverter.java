@@ -0,0 +1,361 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.IFormulaVisitor;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * <p>
+ * Converts {@link Formula}s into CNF clauses, using the Tseitin transformation. In contrast to distributing
+ * disjunctions over conjunctions, the number of clauses is linear in the size of the formula. Each sub-formula is
+ * represented by a helper variable; nested conjunctions and disjunctions are flattened first, so that each
+ * <code>n</code>-ary operation needs only a single helper variable. Sub-formulas that are converted more than once
+ * (by equality) share their helper variable.
+ * </p>
+ * <p>
+ * If polarity-based conversion (Plaisted-Greenbaum) is enabled, only the direction of the helper variable definitions
+ * that is needed for the polarity of a sub-formula is emitted. This roughly halves the number of clauses, but the
+ * helper variables are only implied by (instead of equivalent to) their sub-formulas. This does not change the
+ * satisfiability of the result.
+ * </p>
+ *
+ * @author Adam
+ */
+public class TseitinConverter implements IFormulaVisitor<@NonNull Integer> {
+
+    private static final int POSITIVE = 1;
+
+    private static final int NEGATIVE = 2;
+
+    private static final int BOTH = POSITIVE | NEGATIVE;
+
+    private final @NonNull IClauseSink sink;
+
+    private final boolean polarityBased;
+
+    private final @NonNull Map<@NonNull String, @NonNull Integer> variables;
+
+    /**
+     * The converted sub-formulas. The values are the literal of the sub-formula and the polarities for which clauses
+     * were emitted.
+     */
+    private final @NonNull Map<@NonNull Formula, int @NonNull []> converted;
+
+    /**
+     * The polarity of the sub-formula that is currently visited.
+     */
+    private int polarity;
+
+    /**
+     * The existing literal of the sub-formula that is currently visited, or 0 if it was not converted before.
+     */
+    private int existingLiteral;
+
+    private int trueVariable;
+
+    private int numHelperVariables;
+
+    /**
+     * Creates a new converter that maps each {@link Variable} name to a new variable of the sink.
+     *
+     * @param sink The sink to add the clauses to.
+     * @param polarityBased Whether to use polarity-based conversion (Plaisted-Greenbaum).
+     */
+    public TseitinConverter(@NonNull IClauseSink sink, boolean polarityBased) {
+        this(sink, Collections.emptyMap(), polarityBased);
+    }
+
+    /**
+     * Creates a new converter.
+     *
+     * @param sink The sink to add the clauses to.
+     * @param fixedVariables The sink variables for the names of {@link Variable}s. Names that are not in this map are
+     *      mapped to new variables of the sink.
+     * @param polarityBased Whether to use polarity-based conversion (Plaisted-Greenbaum).
+     */
+    public TseitinConverter(@NonNull IClauseSink sink, @NonNull Map<@NonNull String, @NonNull Integer> fixedVariables,
+            boolean polarityBased) {
+        this.sink = sink;
+        this.polarityBased = polarityBased;
+        this.variables = new HashMap<>(fixedVariables);
+        this.converted = new HashMap<>();
+    }
+
+    /**
+     * Converts the given formula. The result is a literal that can be used as an assumption to check whether the
+     * formula is satisfiable together with the other clauses of the sink.
+     *
+     * @param formula The formula to convert.
+     *
+     * @return A literal that implies the formula. If polarity-based conversion is disabled, the literal is equivalent
+     *      to the formula.
+     */
+    public int convert(@NonNull Formula formula) {
+        return convert(formula, POSITIVE);
+    }
+
+    /**
+     * Adds the given formula as a constraint, i.e. adds clauses to the sink that are only satisfiable if the formula
+     * is true. Top-level conjunctions and disjunctions are added directly as clauses, without helper variables.
+     *
+     * @param formula The formula that must be true.
+     */
+    public void addConstraint(@NonNull Formula formula) {
+        for (Formula conjunct : flatten(formula, true, false)) {
+            List<@NonNull Formula> disjuncts = flatten(conjunct, false, false);
+            int[] clause = new int[disjuncts.size()];
+            for (int i = 0; i < clause.length; i++) {
+                clause[i] = convert(disjuncts.get(i), POSITIVE);
+            }
+            sink.addClause(clause);
+        }
+    }
+
+    /**
+     * Returns the variables of the sink for all {@link Variable} names that were converted so far, including the
+     * fixed variables specified in the constructor.
+     *
+     * @return The mapping of variable names to sink variables.
+     */
+    public @NonNull Map<@NonNull String, @NonNull Integer> getVariableMapping() {
+        return Collections.unmodifiableMap(variables);
+    }
+
+    /**
+     * Returns the number of variables that this converter added to the sink, both for helper variables and for
+     * variable names that are not fixed.
+     *
+     * @return The number of added variables.
+     */
+    public int getNumHelperVariables() {
+        return numHelperVariables;
+    }
+
+    /**
+     * Converts the given formula for the given polarity.
+     *
+     * @param formula The formula to convert.
+     * @param requiredPolarity The polarity that is required by the parent formula.
+     *
+     * @return The literal of the formula.
+     */
+    private int convert(@NonNull Formula formula, int requiredPolarity) {
+        int pol = polarityBased ? requiredPolarity : BOTH;
+        int result;
+
+        if (formula instanceof Conjunction || formula instanceof Disjunction) {
+            int[] entry = converted.get(formula);
+            int missing = entry == null ? pol : pol & ~entry[1];
+            if (missing != 0) {
+                int oldPolarity = polarity;
+                int oldExisting = existingLiteral;
+                polarity = missing;
+                existingLiteral = entry == null ? 0 : entry[0];
+
+                int literal = formula.accept(this);
+
+                polarity = oldPolarity;
+                existingLiteral = oldExisting;
+
+                if (entry == null) {
+                    entry = new int[] {literal, missing};
+                    converted.put(formula, entry);
+                } else {
+                    entry[1] |= missing;
+                }
+            }
+            result = entry[0];
+
+        } else {
+            // variables, constants and negations don't need helper variables
+            int oldPolarity = polarity;
+            polarity = pol;
+            result = formula.accept(this);
+            polarity = oldPolarity;
+        }
+
+        return result;
+    }
+
+    /**
+     * Collects the operands of nested conjunctions or disjunctions.
+     *
+     * @param formula The formula to flatten.
+     * @param conjunction <code>true</code> to flatten conjunctions, <code>false</code> to flatten disjunctions.
+     * @param keepConverted Whether sub-formulas that were already converted should be kept as operands (to share their
+     *      helper variable) instead of being flattened.
+     *
+     * @return The operands, in the order in which they appear in the formula.
+     */
+    private @NonNull List<@NonNull Formula> flatten(@NonNull Formula formula, boolean conjunction,
+            boolean keepConverted) {
+        List<@NonNull Formula> result = new ArrayList<>();
+        Deque<@NonNull Formula> stack = new ArrayDeque<>();
+        stack.push(formula);
+
+        while (!stack.isEmpty()) {
+            Formula current = stack.pop();
+            boolean flattenCurrent = conjunction ? current instanceof Conjunction : current instanceof Disjunction;
+            if (flattenCurrent && keepConverted && current != formula && converted.containsKey(current)) {
+                flattenCurrent = false;
+            }
+
+            if (flattenCurrent && conjunction) {
+                stack.push(((Conjunction) current).getRight());
+                stack.push(((Conjunction) current).getLeft());
+            } else if (flattenCurrent) {
+                stack.push(((Disjunction) current).getRight());
+                stack.push(((Disjunction) current).getLeft());
+            } else {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts the operands of the given formula.
+     *
+     * @param formula The formula whose (flattened) operands should be converted.
+     * @param conjunction Whether the formula is a conjunction or a disjunction.
+     * @param pol The polarity of the formula.
+     *
+     * @return The literals of the operands.
+     */
+    private int @NonNull [] convertOperands(@NonNull Formula formula, boolean conjunction, int pol) {
+        List<@NonNull Formula> operands = flatten(formula, conjunction, true);
+        int[] result = new int[operands.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = convert(operands.get(i), pol);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new helper variable.
+     *
+     * @return The new variable.
+     */
+    private int newVariable() {
+        numHelperVariables++;
+        return sink.newVariable();
+    }
+
+    /**
+     * Creates a clause of the given literal and the given (possibly negated) operands.
+     *
+     * @param literal The first literal of the clause.
+     * @param operands The other literals of the clause.
+     * @param negateOperands Whether the operands should be negated.
+     *
+     * @return The clause.
+     */
+    private static int @NonNull [] clause(int literal, int @NonNull [] operands, boolean negateOperands) {
+        int[] result = new int[operands.length + 1];
+        result[0] = literal;
+        for (int i = 0; i < operands.length; i++) {
+            result[i + 1] = negateOperands ? -operands[i] : operands[i];
+        }
+        return result;
+    }
+
+    @Override
+    public @NonNull Integer visitFalse(@NonNull False falseConstant) {
+        return -visitTrue(True.INSTANCE);
+    }
+
+    @Override
+    public @NonNull Integer visitTrue(@NonNull True trueConstant) {
+        if (trueVariable == 0) {
+            trueVariable = newVariable();
+            sink.addClause(trueVariable);
+        }
+        return trueVariable;
+    }
+
+    @Override
+    public @NonNull Integer visitVariable(@NonNull Variable variable) {
+        Integer result = variables.get(variable.getName());
+        if (result == null) {
+            result = newVariable();
+            variables.put(variable.getName(), result);
+        }
+        return result;
+    }
+
+    @Override
+    public @NonNull Integer visitNegation(@NonNull Negation formula) {
+        int flipped = polarity == BOTH ? BOTH : polarity ^ BOTH;
+        return -convert(formula.getFormula(), flipped);
+    }
+
+    @Override
+    public @NonNull Integer visitDisjunction(@NonNull Disjunction formula) {
+        int pol = polarity;
+        int existing = existingLiteral;
+        int[] operands = convertOperands(formula, false, pol);
+        int result = existing != 0 ? existing : newVariable();
+
+        if ((pol & POSITIVE) != 0) {
+            // result -> (a || b || ...)
+            sink.addClause(clause(-result, operands, false));
+        }
+        if ((pol & NEGATIVE) != 0) {
+            // (a || b || ...) -> result
+            for (int operand : operands) {
+                sink.addClause(result, -operand);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public @NonNull Integer visitConjunction(@NonNull Conjunction formula) {
+        int pol = polarity;
+        int existing = existingLiteral;
+        int[] operands = convertOperands(formula, true, pol);
+        int result = existing != 0 ? existing : newVariable();
+
+        if ((pol & POSITIVE) != 0) {
+            // result -> (a && b && ...)
+            for (int operand : operands) {
+                sink.addClause(-result, operand);
+            }
+        }
+        if ((pol & NEGATIVE) != 0) {
+            // (a && b && ...) -> result
+            sink.addClause(clause(result, operands, true));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.DimacsClauses;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * <p>
+ * Checks {@link Formula}s (e.g. presence conditions) for satisfiability against the constraints of a
+ * {@link VariabilityModel}. The constraint model must be a DIMACS file; the {@link Formula} variables are mapped to the
+ * DIMACS variables via {@link VariabilityVariable#getDimacsMapping(Map)}. Variables that are not part of the
+ * variability model are unconstrained.
+ * </p>
+ * <p>
+ * This class is thread-safe. Each query borrows an incremental {@link CdclSolver} from a pool, so that concurrent
+ * queries don't block each other, and consecutive queries re-use the clauses learned before. The results are cached,
+ * so repeated queries for the same formula are answered without solving.
+ * </p>
+ *
+ * @author Adam
+ */
+public class VariabilityModelSolver {
+
+    /**
+     * The number of helper variables after which a pooled solver is discarded instead of re-used, to limit the
+     * memory used for encoded formulas.
+     */
+    private static final int MAX_HELPER_VARIABLES = 1000000;
+
+    /**
+     * A solver in the pool, together with the converter that adds the formulas to it.
+     */
+    private static final class PooledSolver {
+
+        private final @NonNull CdclSolver solver;
+
+        private final @NonNull TseitinConverter converter;
+
+        /**
+         * Creates a new pooled solver.
+         *
+         * @param solver The solver, already containing the clauses of the variability model.
+         * @param variableNumbers The solver variables for the names of the variables of the variability model.
+         */
+        PooledSolver(@NonNull CdclSolver solver, @NonNull Map<@NonNull String, @NonNull Integer> variableNumbers) {
+            this.solver = solver;
+            this.converter = new TseitinConverter(solver, variableNumbers, true);
+        }
+
+    }
+
+    private final @NonNull DimacsClauses clauses;
+
+    private final @NonNull Map<@NonNull String, @NonNull Integer> variableNumbers;
+
+    private final @NonNull ConcurrentLinkedDeque<@NonNull PooledSolver> pool;
+
+    private final @NonNull Map<@NonNull Formula, @NonNull Boolean> resultCache;
+
+    private final int maxCacheSize;
+
+    /**
+     * Creates a solver for the given variability model, which caches up to 100000 results.
+     *
+     * @param varModel The variability model to check formulas against.
+     *
+     * @throws IOException If reading the constraint model fails.
+     * @throws FormatException If the constraint model is not a valid DIMACS file.
+     */
+    public VariabilityModelSolver(@NonNull VariabilityModel varModel) throws IOException, FormatException {
+        this(varModel, 100000);
+    }
+
+    /**
+     * Creates a solver for the given variability model.
+     *
+     * @param varModel The variability model to check formulas against. If the clauses are not loaded (see
+     *      {@link VariabilityModel#getClauses()}), then they are read from the constraint model file.
+     * @param maxCacheSize The maximum number of results to cache. 0 disables the cache.
+     *
+     * @throws IOException If reading the constraint model fails.
+     * @throws FormatException If the constraint model is not a valid DIMACS file.
+     */
+    public VariabilityModelSolver(@NonNull VariabilityModel varModel, int maxCacheSize)
+            throws IOException, FormatException {
+
+        DimacsClauses clauses = varModel.getClauses();
+        if (clauses == null) {
+            clauses = DimacsClauses.load(varModel.getConstraintModel());
+        }
+        this.clauses = clauses;
+
+        Map<Integer, String> mapping = new HashMap<>();
+        for (VariabilityVariable variable : varModel.getVariables()) {
+            variable.getDimacsMapping(mapping);
+        }
+        Map<@NonNull String, @NonNull Integer> variableNumbers = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : mapping.entrySet()) {
+            // 0 means that the variable has no DIMACS representation
+            if (entry.getKey() != null && entry.getKey() > 0 && entry.getValue() != null) {
+                variableNumbers.put(entry.getValue(), entry.getKey());
+            }
+        }
+        this.variableNumbers = Collections.unmodifiableMap(variableNumbers);
+
+        this.pool = new ConcurrentLinkedDeque<>();
+        this.resultCache = new ConcurrentHashMap<>();
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Checks whether the constraints of the variability model are satisfiable at all.
+     *
+     * @return Whether the variability model has at least one valid configuration.
+     */
+    public boolean isSatisfiable() {
+        return isSatisfiable(True.INSTANCE);
+    }
+
+    /**
+     * Checks whether the given formula is satisfiable under the constraints of the variability model.
+     *
+     * @param formula The formula to check.
+     *
+     * @return Whether at least one valid configuration satisfies the formula.
+     */
+    public boolean isSatisfiable(@NonNull Formula formula) {
+        Boolean result = resultCache.get(formula);
+        if (result == null) {
+            result = solve(formula);
+
+            if (maxCacheSize > 0) {
+                if (resultCache.size() >= maxCacheSize) {
+                    resultCache.clear();
+                }
+                resultCache.put(formula, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the given formula is true in all valid configurations of the variability model.
+     *
+     * @param formula The formula to check.
+     *
+     * @return Whether the formula is implied by the constraints of the variability model.
+     */
+    public boolean isTautology(@NonNull Formula formula) {
+        return !isSatisfiable(FormulaFactory.not(formula));
+    }
+
+    /**
+     * Checks the given formula with a solver from the pool.
+     *
+     * @param formula The formula to check.
+     *
+     * @return Whether the formula is satisfiable.
+     */
+    private boolean solve(@NonNull Formula formula) {
+        PooledSolver pooled = pool.pollFirst();
+        if (pooled == null) {
+            pooled = createSolver();
+        }
+
+        boolean result = pooled.solver.solve(pooled.converter.convert(formula));
+
+        if (pooled.converter.getNumHelperVariables() < MAX_HELPER_VARIABLES) {
+            pool.offerFirst(pooled);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new solver with the clauses of the variability model.
+     *
+     * @return The new solver.
+     */
+    private @NonNull PooledSolver createSolver() {
+        int numVariables = clauses.getNumVariables();
+        for (Integer number : variableNumbers.values()) {
+            numVariables = Math.max(numVariables, number);
+        }
+
+        CdclSolver solver = new CdclSolver(numVariables);
+        for (int i = 0; i < clauses.getNumClauses(); i++) {
+            solver.addClause(clauses.getClause(i));
+        }
+        return new PooledSolver(solver, variableNumbers);
+    }
+
+}
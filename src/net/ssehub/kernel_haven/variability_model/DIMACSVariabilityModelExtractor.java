@@ -19,26 +19,28 @@ import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.util.ExtractorException;
+import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.Logger;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
-import net.ssehub.kernel_haven.util.null_checks.NullHelpers;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.Attribute;
 import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.ConstraintFileType;
 import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.VariableType;
 
 /**
  * {@link VariabilityModel} extractor, which operators only on a single
- * <a href="http://www.satcompetition.org/2009/format-benchmarks2009.html">DIMACS</a> file.
+ * <a href="http://www.satcompetition.org/2009/format-benchmarks2009.html">DIMACS</a> file. Variables are created from
+ * the comment lines (see {@link #parseLine(String[])}). Optionally, the clauses are loaded, too (see
+ * {@link DefaultSettings#VARIABILITY_DIMACS_LOAD_CLAUSES}). Large files are parsed in parallel (see
+ * {@link DefaultSettings#VARIABILITY_DIMACS_THREADS}).
  * 
  * @author El-Sharkawy
  */
@@ -48,6 +50,10 @@ public class DIMACSVariabilityModelExtractor extends AbstractVariabilityModelExt
     
     private File dimacsfile;
     
+    private boolean loadClauses;
+    
+    private int numThreads;
+    
     @Override
     protected void init(@NonNull Configuration config) throws SetUpException {
         dimacsfile = config.getValue(DefaultSettings.VARIABILITY_INPUT_FILE);
@@ -55,35 +61,44 @@ public class DIMACSVariabilityModelExtractor extends AbstractVariabilityModelExt
             throw new SetUpException(DefaultSettings.VARIABILITY_INPUT_FILE.getKey() + " was not specified, it must "
                 + "point to input DIMACS file.");
         }
+        loadClauses = config.getValue(DefaultSettings.VARIABILITY_DIMACS_LOAD_CLAUSES);
+        numThreads = config.getValue(DefaultSettings.VARIABILITY_DIMACS_THREADS);
+        if (numThreads <= 0) {
+            throw new SetUpException(DefaultSettings.VARIABILITY_DIMACS_THREADS.getKey() + " must be greater than 0");
+        }
     }
 
     @SuppressWarnings("null") // Unfortunately, the code in this method cannot be annotated, otherwise Jacoco will crash
     @Override
     protected @Nullable VariabilityModel runOnFile(File target) throws ExtractorException {
-        Map<String, VariabilityVariable> variables = new HashMap<>();
+        DimacsParser parser = new DimacsParser(dimacsfile, this::parseLine, loadClauses, numThreads);
         try {
-            Files.lines(dimacsfile.toPath())
-                .filter(l -> l != null && l.startsWith("c "))           // Only comment lines
-                .map(l -> l.split("\\s"))                               // Create array, split whitespace characters
-                .map(a -> parseLine(a))                                 // Parse lines
-                .filter(Objects::nonNull)                               // Only parsed variables
-                .map(NullHelpers::notNull)                              // turn @Nullable into @NonNull
-                .forEachOrdered(v -> variables.put(v.getName(), v));    // Store results
-        } catch (IOException e) {
-            throw new ExtractorException("Could not parse " + dimacsfile.getAbsolutePath());
+            parser.parse();
+        } catch (IOException | FormatException e) {
+            throw new ExtractorException("Could not parse " + dimacsfile.getAbsolutePath(), e);
+        }
+        
+        Map<String, VariabilityVariable> variables = new HashMap<>();
+        for (VariabilityVariable variable : parser.getVariables()) {
+            variables.put(variable.getName(), variable);
         }
         
         VariabilityModel result = new VariabilityModel(notNull(dimacsfile), variables);
         VariabilityModelDescriptor descriptor = result.getDescriptor();
         descriptor.setVariableType(VariableType.BOOLEAN);
         descriptor.setConstraintFileType(ConstraintFileType.DIMACS);
+        if (loadClauses) {
+            result.setClauses(parser.getClauses());
+            descriptor.addAttribute(Attribute.CLAUSES);
+        }
         
         return result;
     }
     
     /**
      * Converts a single comment line of the DIMACS file into a newly created {@link VariabilityVariable}.
-     * The extractor ensures, that only non <tt>null</tt> comments will be passed to this method.
+     * The extractor ensures, that only non <tt>null</tt> comments will be passed to this method. Large files are
+     * parsed in parallel, so this method must be thread-safe.
      * @param dimacsCommentLine The elements of the comment line, already white space separated, first element is
      *     the comment character <tt>c</tt>.
      * @return The parsed variable.
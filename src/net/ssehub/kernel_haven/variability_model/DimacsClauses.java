@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.variability_model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * The clauses of a DIMACS constraint model, stored compactly in primitive arrays. The literals of all clauses are
+ * stored consecutively in a single array; a second array stores where each clause starts. A literal is the DIMACS
+ * number of a variable, negative if the variable is negated (see {@link VariabilityVariable#getDimacsNumber()}).
+ * Instances are immutable.
+ *
+ * @author Adam
+ */
+public final class DimacsClauses {
+
+    private final int numVariables;
+    
+    private final int @NonNull [] literals;
+    
+    /**
+     * The index in {@link #literals} where each clause starts. Has one more element than there are clauses; the last
+     * element is the number of literals.
+     */
+    private final int @NonNull [] clauseStarts;
+    
+    /**
+     * Creates a new clause store.
+     *
+     * @param numVariables The number of variables.
+     * @param literals The literals of all clauses.
+     * @param clauseStarts The index in the literals where each clause starts, followed by the number of literals.
+     */
+    DimacsClauses(int numVariables, int @NonNull [] literals, int @NonNull [] clauseStarts) {
+        this.numVariables = numVariables;
+        this.literals = literals;
+        this.clauseStarts = clauseStarts;
+    }
+    
+    /**
+     * Reads the clauses from the given DIMACS file. This can be used if a {@link VariabilityModel} was created without
+     * loading its clauses (see {@link VariabilityModel#getClauses()}).
+     *
+     * @param dimacsFile The DIMACS file to read.
+     *
+     * @return The clauses of the file.
+     *
+     * @throws IOException If reading the file fails.
+     * @throws FormatException If the file is not a valid DIMACS file.
+     */
+    public static @NonNull DimacsClauses load(@NonNull File dimacsFile) throws IOException, FormatException {
+        DimacsParser parser = new DimacsParser(dimacsFile, null, true, 1);
+        parser.parse();
+        DimacsClauses result = parser.getClauses();
+        if (result == null) {
+            // can't happen, since clauses are loaded
+            throw new FormatException("No clauses read from " + dimacsFile);
+        }
+        return result;
+    }
+    
+    /**
+     * Writes these clauses to the given file in a compact binary format, which can be read much faster than a DIMACS
+     * file (see {@link #readBinary(File)}).
+     *
+     * @param file The file to write to. Overwritten if it exists.
+     *
+     * @throws IOException If writing the file fails.
+     */
+    void writeBinary(@NonNull File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(numVariables);
+            out.writeInt(literals.length);
+            out.writeInt(clauseStarts.length);
+            for (int literal : literals) {
+                out.writeInt(literal);
+            }
+            for (int start : clauseStarts) {
+                out.writeInt(start);
+            }
+        }
+    }
+    
+    /**
+     * Reads clauses that were written by {@link #writeBinary(File)}.
+     *
+     * @param file The file to read.
+     *
+     * @return The read clauses.
+     *
+     * @throws IOException If reading the file fails.
+     * @throws FormatException If the file does not contain clauses in the binary format.
+     */
+    static @NonNull DimacsClauses readBinary(@NonNull File file) throws IOException, FormatException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int numVariables = in.readInt();
+            int numLiterals = in.readInt();
+            int numStarts = in.readInt();
+            if (numVariables < 0 || numLiterals < 0 || numStarts < 1
+                    || file.length() != 4L * (3L + numLiterals + numStarts)) {
+                throw new FormatException("Invalid binary clause file: " + file.getPath());
+            }
+            
+            int[] literals = new int[numLiterals];
+            for (int i = 0; i < numLiterals; i++) {
+                literals[i] = in.readInt();
+            }
+            int[] clauseStarts = new int[numStarts];
+            for (int i = 0; i < numStarts; i++) {
+                clauseStarts[i] = in.readInt();
+            }
+            return new DimacsClauses(numVariables, literals, clauseStarts);
+        }
+    }
+    
+    /**
+     * Returns the number of variables. This is the number from the problem line of the DIMACS file, or the highest
+     * variable number used in a clause if that is higher.
+     *
+     * @return The number of variables.
+     */
+    public int getNumVariables() {
+        return numVariables;
+    }
+    
+    /**
+     * Returns the number of clauses.
+     *
+     * @return The number of clauses.
+     */
+    public int getNumClauses() {
+        return clauseStarts.length - 1;
+    }
+    
+    /**
+     * Returns the total number of literals in all clauses.
+     *
+     * @return The number of literals.
+     */
+    public int getNumLiterals() {
+        return literals.length;
+    }
+    
+    /**
+     * Returns the number of literals in the given clause.
+     *
+     * @param clause The index of the clause.
+     *
+     * @return The number of literals in the clause.
+     *
+     * @throws IndexOutOfBoundsException If the clause index is invalid.
+     */
+    public int getClauseLength(int clause) throws IndexOutOfBoundsException {
+        checkClause(clause);
+        return clauseStarts[clause + 1] - clauseStarts[clause];
+    }
+    
+    /**
+     * Returns a single literal of the given clause.
+     *
+     * @param clause The index of the clause.
+     * @param index The index of the literal in the clause.
+     *
+     * @return The literal.
+     *
+     * @throws IndexOutOfBoundsException If the clause or literal index is invalid.
+     */
+    public int getLiteral(int clause, int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= getClauseLength(clause)) {
+            throw new IndexOutOfBoundsException("Literal " + index + " of clause " + clause);
+        }
+        return literals[clauseStarts[clause] + index];
+    }
+    
+    /**
+     * Returns a copy of the literals of the given clause.
+     *
+     * @param clause The index of the clause.
+     *
+     * @return The literals of the clause.
+     *
+     * @throws IndexOutOfBoundsException If the clause index is invalid.
+     */
+    public int @NonNull [] getClause(int clause) throws IndexOutOfBoundsException {
+        checkClause(clause);
+        return Arrays.copyOfRange(literals, clauseStarts[clause], clauseStarts[clause + 1]);
+    }
+    
+    /**
+     * Checks that the given clause index is valid.
+     *
+     * @param clause The index of the clause.
+     *
+     * @throws IndexOutOfBoundsException If the clause index is invalid.
+     */
+    private void checkClause(int clause) throws IndexOutOfBoundsException {
+        if (clause < 0 || clause >= getNumClauses()) {
+            throw new IndexOutOfBoundsException("Clause " + clause + " of " + getNumClauses());
+        }
+    }
+    
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(literals) + 31 * Arrays.hashCode(clauseStarts) + numVariables;
+    }
+    
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        boolean result = false;
+        if (obj instanceof DimacsClauses) {
+            DimacsClauses other = (DimacsClauses) obj;
+            result = numVariables == other.numVariables && Arrays.equals(literals, other.literals)
+                    && Arrays.equals(clauseStarts, other.clauseStarts);
+        }
+        return result;
+    }
+    
+    @Override
+    public @NonNull String toString() {
+        return "DimacsClauses[" + numVariables + " variables, " + getNumClauses() + " clauses]";
+    }
+
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.variability_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.OrderPreservingParallelizer;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A fast parser for DIMACS files. The file is memory-mapped and tokenized directly on the bytes, without creating a
+ * string for each line. Large files are split into chunks at line boundaries, which are parsed in parallel.
+ * <p>
+ * Comment lines (starting with <code>c </code>) are split at whitespace and passed to a comment parser, which may
+ * create a {@link VariabilityVariable} from them. Unlike <code>String.split("\\s")</code>, runs of whitespace are
+ * treated as a single separator, i.e. the parts are never empty. Optionally, the clauses are loaded into a
+ * {@link DimacsClauses} store. A clause may span multiple lines; it is terminated by a <code>0</code>. All lines that
+ * are neither comment nor problem lines are clause lines; if the clauses are loaded, anything else than numbers in
+ * them (e.g. the <code>%</code> end marker of some benchmark files) is a {@link FormatException}.
+ *
+ * @author Adam
+ */
+final class DimacsParser {
+
+    /**
+     * The minimum size of a chunk that is parsed in its own thread, in bytes.
+     */
+    static final long DEFAULT_MIN_CHUNK_SIZE = 4L * 1024 * 1024;
+    
+    /**
+     * The maximum size of a chunk, since a single mapped buffer can't be larger.
+     */
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+    
+    /**
+     * A growable list of primitive ints.
+     */
+    private static final class IntList {
+        
+        private int @NonNull [] data = new int[1024];
+        
+        private int size;
+        
+        /**
+         * Adds a value at the end of this list.
+         *
+         * @param value The value to add.
+         */
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = value;
+        }
+        
+    }
+    
+    /**
+     * The result of parsing a single chunk.
+     */
+    private static final class ChunkResult {
+        
+        private @NonNull List<@NonNull VariabilityVariable> variables = new ArrayList<>();
+        
+        /**
+         * The literals of the clauses, including the terminating <code>0</code>s.
+         */
+        private @NonNull IntList literals = new IntList();
+        
+        /**
+         * The number of variables from the problem line; -1 if the chunk has no problem line.
+         */
+        private int headerVariables = -1;
+        
+        /**
+         * An {@link IOException} or {@link FormatException}, if parsing the chunk failed.
+         */
+        private @Nullable Exception error;
+        
+    }
+    
+    private @NonNull File file;
+    
+    private @Nullable Function<@NonNull String @NonNull [], @Nullable VariabilityVariable> commentParser;
+    
+    private boolean loadClauses;
+    
+    private int numThreads;
+    
+    private long minChunkSize;
+    
+    private @NonNull List<@NonNull VariabilityVariable> variables;
+    
+    private @Nullable DimacsClauses clauses;
+    
+    /**
+     * Creates a new parser.
+     *
+     * @param file The DIMACS file to parse.
+     * @param commentParser Creates variables from the whitespace-separated parts of comment lines. May return
+     *      <code>null</code> if a comment line does not describe a variable. Must be thread-safe if more than one
+     *      thread is used. <code>null</code> if comment lines should be ignored.
+     * @param loadClauses Whether to load the clauses.
+     * @param numThreads The maximum number of threads to use. Must be greater than 0.
+     */
+    DimacsParser(@NonNull File file,
+            @Nullable Function<@NonNull String @NonNull [], @Nullable VariabilityVariable> commentParser,
+            boolean loadClauses, int numThreads) {
+        this(file, commentParser, loadClauses, numThreads, DEFAULT_MIN_CHUNK_SIZE);
+    }
+    
+    /**
+     * Creates a new parser with a custom chunk size. Only intended for test cases.
+     *
+     * @param file The DIMACS file to parse.
+     * @param commentParser Creates variables from the whitespace-separated parts of comment lines.
+     * @param loadClauses Whether to load the clauses.
+     * @param numThreads The maximum number of threads to use. Must be greater than 0.
+     * @param minChunkSize The minimum size of a chunk that is parsed in its own thread, in bytes.
+     */
+    DimacsParser(@NonNull File file,
+            @Nullable Function<@NonNull String @NonNull [], @Nullable VariabilityVariable> commentParser,
+            boolean loadClauses, int numThreads, long minChunkSize) {
+        this.file = file;
+        this.commentParser = commentParser;
+        this.loadClauses = loadClauses;
+        this.numThreads = numThreads;
+        this.minChunkSize = minChunkSize;
+        this.variables = new ArrayList<>();
+    }
+    
+    /**
+     * Parses the file. Afterwards, the results can be retrieved via {@link #getVariables()} and
+     * {@link #getClauses()}.
+     *
+     * @throws IOException If reading the file fails.
+     * @throws FormatException If a clause contains something that is not a number, or the problem line is invalid.
+     */
+    void parse() throws IOException, FormatException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<long @NonNull []> chunks = splitIntoChunks(channel);
+            
+            List<@NonNull ChunkResult> results = new ArrayList<>(chunks.size());
+            if (chunks.size() == 1) {
+                results.add(parseChunk(channel, chunks.get(0)));
+                
+            } else {
+                OrderPreservingParallelizer<long @NonNull [], @NonNull ChunkResult> parallelizer
+                        = new OrderPreservingParallelizer<>((chunk) -> parseChunk(channel, chunk), results::add,
+                                Math.min(numThreads, chunks.size()));
+                for (long[] chunk : chunks) {
+                    parallelizer.add(chunk);
+                }
+                parallelizer.end();
+                parallelizer.join();
+                
+                if (results.size() != chunks.size()) {
+                    throw new IOException("Parsing a chunk of " + file.getPath() + " failed");
+                }
+            }
+            
+            merge(results);
+        }
+    }
+    
+    /**
+     * Returns the variables that were created from the comment lines, in the order of the file.
+     *
+     * @return The parsed variables.
+     */
+    @NonNull List<@NonNull VariabilityVariable> getVariables() {
+        return variables;
+    }
+    
+    /**
+     * Returns the loaded clauses.
+     *
+     * @return The clauses; <code>null</code> if loading the clauses was not requested.
+     */
+    @Nullable DimacsClauses getClauses() {
+        return clauses;
+    }
+    
+    /**
+     * Splits the file into chunks that start at the beginning of a line.
+     *
+     * @param channel The channel to read the file from.
+     *
+     * @return The chunks as start and end offsets. Contains at least one (potentially empty) chunk.
+     *
+     * @throws IOException If reading the file fails.
+     */
+    private @NonNull List<long @NonNull []> splitIntoChunks(@NonNull FileChannel channel) throws IOException {
+        long size = channel.size();
+        long numChunks = Math.max(1, Math.min(numThreads, size / Math.max(1, minChunkSize)));
+        numChunks = Math.max(numChunks, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        
+        List<long @NonNull []> result = new ArrayList<>();
+        long start = 0;
+        for (long i = 1; i <= numChunks; i++) {
+            long end = i == numChunks ? size : findLineStart(channel, size / numChunks * i, size);
+            if (end > start) {
+                result.add(new long[] {start, end});
+                start = end;
+            }
+        }
+        if (result.isEmpty()) {
+            result.add(new long[] {0, 0});
+        }
+        return result;
+    }
+    
+    /**
+     * Finds the start of the line that follows the given position. If the position already is the start of a line,
+     * it is returned as is.
+     *
+     * @param channel The channel to read the file from.
+     * @param position The position to start searching at.
+     * @param size The size of the file.
+     *
+     * @return The start of the next line; the size of the file if there is none.
+     *
+     * @throws IOException If reading the file fails.
+     */
+    private static long findLineStart(@NonNull FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long result = size;
+        long current = Math.max(0, position - 1);
+        boolean done = false;
+        while (current < size && !done) {
+            buffer.clear();
+            int read = channel.read(buffer, current);
+            if (read <= 0) {
+                done = true;
+            }
+            for (int i = 0; i < read && !done; i++) {
+                if (buffer.get(i) == '\n') {
+                    result = current + i + 1;
+                    done = true;
+                }
+            }
+            current += read;
+        }
+        return result;
+    }
+    
+    /**
+     * Parses a single chunk of the file. Exceptions are stored in the result, since this is called by the
+     * {@link OrderPreservingParallelizer}.
+     *
+     * @param channel The channel to read the file from.
+     * @param chunk The start and end offset of the chunk.
+     *
+     * @return The result of the chunk.
+     */
+    private @NonNull ChunkResult parseChunk(@NonNull FileChannel channel, long @NonNull [] chunk) {
+        ChunkResult result = new ChunkResult();
+        try {
+            int length = (int) (chunk[1] - chunk[0]);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], length);
+            
+            int pos = 0;
+            while (pos < length) {
+                byte first = buffer.get(pos);
+                if (first == 'c' || first == 'p') {
+                    int lineEnd = findLineEnd(buffer, pos, length);
+                    Function<@NonNull String @NonNull [], @Nullable VariabilityVariable> commentParser
+                            = this.commentParser;
+                    
+                    if (first == 'c' && commentParser != null && pos + 1 < lineEnd && buffer.get(pos + 1) == ' ') {
+                        VariabilityVariable variable = commentParser.apply(tokenize(buffer, pos, lineEnd));
+                        if (variable != null) {
+                            result.variables.add(variable);
+                        }
+                    } else if (first == 'p' && loadClauses) {
+                        result.headerVariables = parseProblemLine(tokenize(buffer, pos, lineEnd), chunk[0] + pos);
+                    }
+                    pos = lineEnd + 1;
+                    
+                } else if (loadClauses) {
+                    pos = parseClauseLine(buffer, pos, length, result.literals, chunk[0]);
+                    
+                } else {
+                    pos = findLineEnd(buffer, pos, length) + 1;
+                }
+            }
+            
+        } catch (IOException | FormatException e) {
+            result.error = e;
+        }
+        return result;
+    }
+    
+    /**
+     * Finds the end of the line that contains the given position.
+     *
+     * @param buffer The buffer to search in.
+     * @param pos The position to start at.
+     * @param length The length of the buffer.
+     *
+     * @return The position of the line break; the length of the buffer if the last line has no line break.
+     */
+    private static int findLineEnd(@NonNull ByteBuffer buffer, int pos, int length) {
+        int result = pos;
+        while (result < length && buffer.get(result) != '\n') {
+            result++;
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether the given byte is whitespace (excluding line breaks).
+     *
+     * @param b The byte to check.
+     *
+     * @return Whether the byte is whitespace.
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+    
+    /**
+     * Splits the given line at whitespace.
+     *
+     * @param buffer The buffer that contains the line.
+     * @param start The start of the line.
+     * @param end The end of the line (exclusive).
+     *
+     * @return The non-empty parts of the line.
+     */
+    private static @NonNull String @NonNull [] tokenize(@NonNull ByteBuffer buffer, int start, int end) {
+        List<@NonNull String> result = new ArrayList<>();
+        int pos = start;
+        while (pos < end) {
+            while (pos < end && isWhitespace(buffer.get(pos))) {
+                pos++;
+            }
+            int tokenStart = pos;
+            while (pos < end && !isWhitespace(buffer.get(pos))) {
+                pos++;
+            }
+            if (pos > tokenStart) {
+                byte[] bytes = new byte[pos - tokenStart];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = buffer.get(tokenStart + i);
+                }
+                result.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return notNull(result.toArray(new @NonNull String[0]));
+    }
+    
+    /**
+     * Parses the problem line (<code>p cnf &lt;variables&gt; &lt;clauses&gt;</code>).
+     *
+     * @param tokens The parts of the problem line.
+     * @param offset The offset of the line in the file, for error messages.
+     *
+     * @return The number of variables.
+     *
+     * @throws FormatException If the problem line is invalid.
+     */
+    private static int parseProblemLine(@NonNull String @NonNull [] tokens, long offset) throws FormatException {
+        if (tokens.length != 4 || !tokens[0].equals("p") || !tokens[1].equals("cnf")) {
+            throw new FormatException("Invalid problem line at byte " + offset + ": " + String.join(" ", tokens));
+        }
+        try {
+            return Integer.parseInt(tokens[2]);
+        } catch (NumberFormatException e) {
+            throw new FormatException("Invalid number of variables at byte " + offset + ": " + tokens[2]);
+        }
+    }
+    
+    /**
+     * Parses the literals of a line with clauses.
+     *
+     * @param buffer The buffer that contains the line.
+     * @param start The start of the line.
+     * @param length The length of the buffer.
+     * @param literals The list to add the literals (including the terminating <code>0</code>s) to.
+     * @param offset The offset of the buffer in the file, for error messages.
+     *
+     * @return The start of the next line.
+     *
+     * @throws FormatException If the line contains something that is not a number.
+     */
+    private static int parseClauseLine(@NonNull ByteBuffer buffer, int start, int length, @NonNull IntList literals,
+            long offset) throws FormatException {
+        
+        int pos = start;
+        boolean lineEnd = false;
+        while (pos < length && !lineEnd) {
+            byte b = buffer.get(pos);
+            if (b == '\n') {
+                lineEnd = true;
+                pos++;
+                
+            } else if (isWhitespace(b)) {
+                pos++;
+                
+            } else {
+                int literalStart = pos;
+                boolean negative = b == '-';
+                if (negative) {
+                    pos++;
+                }
+                int digitsStart = pos;
+                long value = 0;
+                while (pos < length && (b = buffer.get(pos)) >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    if (value > Integer.MAX_VALUE) {
+                        throw new FormatException("Literal out of range at byte " + (offset + literalStart));
+                    }
+                    pos++;
+                }
+                if (pos == digitsStart
+                        || (pos < length && buffer.get(pos) != '\n' && !isWhitespace(buffer.get(pos)))) {
+                    throw new FormatException("Invalid literal at byte " + (offset + literalStart));
+                }
+                
+                literals.add(negative ? (int) -value : (int) value);
+            }
+        }
+        return pos;
+    }
+    
+    /**
+     * Merges the results of the chunks, in the order of the file.
+     *
+     * @param results The results of all chunks.
+     *
+     * @throws IOException If reading one of the chunks failed.
+     * @throws FormatException If one of the chunks has an invalid format.
+     */
+    private void merge(@NonNull List<@NonNull ChunkResult> results) throws IOException, FormatException {
+        int numVariables = -1;
+        int numValues = 0;
+        int numTerminators = 0;
+        for (ChunkResult result : results) {
+            Exception error = result.error;
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error instanceof FormatException) {
+                throw (FormatException) error;
+            }
+            
+            variables.addAll(result.variables);
+            if (numVariables < 0) {
+                numVariables = result.headerVariables;
+            }
+            for (int i = 0; i < result.literals.size; i++) {
+                if (result.literals.data[i] == 0) {
+                    numTerminators++;
+                }
+            }
+            numValues += result.literals.size;
+        }
+        
+        if (loadClauses) {
+            int numLiterals = numValues - numTerminators;
+            // a clause at the end of the file may miss its terminating 0
+            boolean unterminated = numValues > 0 && lastValue(results) != 0;
+            int numClauses = numTerminators + (unterminated ? 1 : 0);
+            
+            int[] literals = new int[numLiterals];
+            int[] clauseStarts = new int[numClauses + 1];
+            int literalIndex = 0;
+            int clauseIndex = 0;
+            for (ChunkResult result : results) {
+                for (int i = 0; i < result.literals.size; i++) {
+                    int literal = result.literals.data[i];
+                    if (literal == 0) {
+                        clauseStarts[++clauseIndex] = literalIndex;
+                    } else {
+                        literals[literalIndex++] = literal;
+                        numVariables = Math.max(numVariables, Math.abs(literal));
+                    }
+                }
+            }
+            clauseStarts[numClauses] = numLiterals;
+            
+            this.clauses = new DimacsClauses(Math.max(numVariables, 0), literals, clauseStarts);
+        }
+    }
+    
+    /**
+     * Returns the last value (literal or terminator) of all chunks.
+     *
+     * @param results The results of all chunks.
+     *
+     * @return The last value; 0 if there is none.
+     */
+    private static int lastValue(@NonNull List<@NonNull ChunkResult> results) {
+        int result = 0;
+        boolean found = false;
+        for (int i = results.size() - 1; i >= 0 && !found; i--) {
+            IntList literals = results.get(i).literals;
+            if (literals.size > 0) {
+                result = literals.data[literals.size - 1];
+                found = true;
+            }
+        }
+        return result;
+    }
+
+}
@@ -20,12 +20,14 @@ import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -40,8 +42,8 @@ import net.ssehub.kernel_haven.util.io.json.JsonList;
 import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
 import net.ssehub.kernel_haven.util.io.json.JsonParser;
-import net.ssehub.kernel_haven.util.io.json.JsonPrettyPrinter;
 import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.io.json.JsonWriter;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.Attribute;
@@ -50,23 +52,55 @@ import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.Vari
 
 /**
  * A cache for permanently saving (and reading) a {@link VariabilityModel} to a file. Uses JSON for data representation.
+ * The constraint model is not embedded in the JSON, but stored as a copy next to it (<code>vmCache.constraints</code>).
+ * A read {@link VariabilityModel} directly references this copy as its constraint model, so reading the cache does not
+ * copy the (potentially large) constraint model. Caches in the old format with the embedded constraint model can
+ * still be read. If the model has {@link DimacsClauses}, they are stored in a compact binary file
+ * (<code>vmCache.clauses</code>), so that the DIMACS file does not have to be parsed again.
  * 
  * @author Adam
  */
 public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
 
-    private static final int VERSION = 5;
+    private static final int VERSION = 6;
+    
+    /**
+     * The last version that embedded the constraint model as a string in the JSON.
+     */
+    private static final int VERSION_EMBEDDED_CONSTRAINTS = 5;
     
     private @NonNull File cacheFile;
     
+    private @NonNull File constraintFile;
+    
+    private @NonNull File clausesFile;
+    
+    private int numThreads;
+    
     /**
-     * Creates a new cache in the given cache directory.
+     * Creates a new cache in the given cache directory. If clauses have to be parsed from the DIMACS constraint model,
+     * a single thread is used.
      * 
      * @param cacheDir The directory where to store the cache files. This must be a directory, and we must be able to
      *      read and write to it.
      */
     public JsonVariabilityModelCache(@NonNull File cacheDir) {
+        this(cacheDir, 1);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir The directory where to store the cache files. This must be a directory, and we must be able to
+     *      read and write to it.
+     * @param numThreads The number of threads to parse the clauses from the DIMACS constraint model with, if the
+     *      cache has no (matching) binary clause file. Must be greater than 0.
+     */
+    public JsonVariabilityModelCache(@NonNull File cacheDir, int numThreads) {
         this.cacheFile = new File(cacheDir, "vmCache.json");
+        this.constraintFile = new File(cacheDir, "vmCache.constraints");
+        this.clausesFile = new File(cacheDir, "vmCache.clauses");
+        this.numThreads = numThreads;
     }
     
     @Override
@@ -88,30 +122,74 @@ public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
         }
         
         if (data != null) {
-            if (data.getInt("version") != VERSION) {
-                throw new FormatException("Got invalid version " + data.getInt("version") + ", we only support "
-                        + VERSION);
+            int version = data.getInt("version");
+            if (version != VERSION && version != VERSION_EMBEDDED_CONSTRAINTS) {
+                throw new FormatException("Got invalid version " + version + ", we only support "
+                        + VERSION_EMBEDDED_CONSTRAINTS + " and " + VERSION);
             }
             
             VariabilityModelDescriptor descriptor = readDescriptor(data.getObject("descriptor"));
             // TODO: removed null annotations because jacoco report fails with it
             Map</*@NonNull*/ String, VariabilityVariable> vars = readVariables(data.getList("variables"));
             
-            File constraintCopy = File.createTempFile("constraintModel", "");
-            constraintCopy.deleteOnExit();
-            try (FileOutputStream out = new FileOutputStream(constraintCopy)) {
-                Util.copyStream(new ByteArrayInputStream(data.getString("constraintModel").getBytes()), out);
+            File constraintModel;
+            if (version == VERSION_EMBEDDED_CONSTRAINTS) {
+                constraintModel = File.createTempFile("constraintModel", "");
+                constraintModel.deleteOnExit();
+                try (FileOutputStream out = new FileOutputStream(constraintModel)) {
+                    Util.copyStream(new ByteArrayInputStream(data.getString("constraintModel").getBytes()), out);
+                }
+                
+            } else {
+                constraintModel = constraintFile;
+                // detects a constraint model that was overwritten without the JSON (e.g. if writing was aborted)
+                if (!constraintModel.isFile() || constraintModel.length() != data.getLong("constraintModelSize")) {
+                    throw new FormatException("Constraint model " + constraintModel.getPath()
+                            + " is missing or does not match the cache");
+                }
             }
             
             @SuppressWarnings("null") // TODO: null annotation missing, see above
-            VariabilityModel tmp = new VariabilityModel(constraintCopy, vars);
+            VariabilityModel tmp = new VariabilityModel(constraintModel, vars);
             tmp.setDescriptor(descriptor);
+            if (descriptor.hasAttribute(Attribute.CLAUSES)
+                    && descriptor.getConstraintFileType() == ConstraintFileType.DIMACS) {
+                tmp.setClauses(readClauses(data, constraintModel));
+            }
             result = tmp;
         }
         
         return result;
     }
 
+    /**
+     * Reads the clauses of the cached model. They are read from the binary clause file, if it matches the cache.
+     * Otherwise (e.g. for caches written by older versions), they are parsed from the DIMACS constraint model.
+     * 
+     * @param data The JSON of the cache.
+     * @param constraintModel The DIMACS constraint model of the cached model.
+     * 
+     * @return The clauses of the cached model.
+     * 
+     * @throws IOException If reading the clauses fails.
+     * @throws FormatException If the clause file or the constraint model is invalid.
+     */
+    private @NonNull DimacsClauses readClauses(@NonNull JsonObject data, @NonNull File constraintModel)
+            throws IOException, FormatException {
+        
+        DimacsClauses result;
+        if (data.getElement("clausesSize") != null && clausesFile.isFile()
+                && clausesFile.length() == data.getLong("clausesSize")) {
+            result = DimacsClauses.readBinary(clausesFile);
+            
+        } else {
+            DimacsParser parser = new DimacsParser(constraintModel, null, true, numThreads);
+            parser.parse();
+            result = notNull(parser.getClauses());
+        }
+        return result;
+    }
+
     /**
      * Reads the {@link VariabilityModelDescriptor} from the given DIMACS.
      * 
@@ -210,14 +288,77 @@ public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
     public void write(@NonNull VariabilityModel result) throws IOException {
         JsonObject mainJson = new JsonObject();
         
+        long constraintModelSize = writeConstraintModel(result.getConstraintModel());
+        
         mainJson.putElement("version", new JsonNumber(VERSION));
         mainJson.putElement("descriptor", descriptorToJson(result.getDescriptor()));
         mainJson.putElement("variables", variablesToJson(result.getVariables()));
-        mainJson.putElement("constraintModel",
-                new JsonString(Util.readStream(new FileInputStream(result.getConstraintModel()))));
+        mainJson.putElement("constraintModelSize", new JsonNumber(constraintModelSize));
+        DimacsClauses clauses = result.getClauses();
+        if (clauses != null) {
+            mainJson.putElement("clausesSize", new JsonNumber(writeClauses(clauses)));
+        }
         
-        try (BufferedWriter out = new BufferedWriter(new FileWriter(cacheFile))) {
-            out.write(mainJson.accept(new JsonPrettyPrinter()));
+        try (JsonWriter out = new JsonWriter(new BufferedWriter(new FileWriter(cacheFile)), true)) {
+            out.write(mainJson);
+        }
+    }
+    
+    /**
+     * Copies the given constraint model next to the cache file. The copy is first written to a temporary file and then
+     * moved, so that the previous copy is replaced atomically (if supported by the file system). A
+     * {@link VariabilityModel} that was read earlier from the previous copy is thus not affected.
+     * 
+     * @param constraintModel The constraint model to copy.
+     * 
+     * @return The size of the copied constraint model, in bytes.
+     * 
+     * @throws IOException If copying the constraint model fails.
+     */
+    private long writeConstraintModel(@NonNull File constraintModel) throws IOException {
+        File tmpFile = new File(constraintFile.getPath() + ".tmp");
+        Files.copy(constraintModel.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        long size = tmpFile.length();
+        
+        replace(tmpFile, constraintFile);
+        
+        return size;
+    }
+    
+    /**
+     * Writes the given clauses to the binary clause file next to the cache file. Like
+     * {@link #writeConstraintModel(File)}, the previous file is replaced atomically, if supported.
+     * 
+     * @param clauses The clauses to write.
+     * 
+     * @return The size of the written clause file, in bytes.
+     * 
+     * @throws IOException If writing the clauses fails.
+     */
+    private long writeClauses(@NonNull DimacsClauses clauses) throws IOException {
+        File tmpFile = new File(clausesFile.getPath() + ".tmp");
+        clauses.writeBinary(tmpFile);
+        long size = tmpFile.length();
+        
+        replace(tmpFile, clausesFile);
+        
+        return size;
+    }
+    
+    /**
+     * Moves the given temporary file to the given target, atomically if supported by the file system.
+     * 
+     * @param tmpFile The file to move.
+     * @param target The file to replace.
+     * 
+     * @throws IOException If moving the file fails.
+     */
+    private static void replace(@NonNull File tmpFile, @NonNull File target) throws IOException {
+        try {
+            Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
     }
     
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Set;
 
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * Representation of variability models.
@@ -46,6 +47,11 @@ public class VariabilityModel {
      * The key is the name of the variable for easier access.
      */
     private @NonNull Map<@NonNull String, VariabilityVariable> variables;
+    
+    /**
+     * The clauses of the DIMACS constraint model, if they were loaded.
+     */
+    private @Nullable DimacsClauses clauses;
 
     /**
      * Creates a new variability model.
@@ -85,7 +91,9 @@ public class VariabilityModel {
 
     /**
      * Returns the representation of the constraints inside the variability
-     * model. For boolean models, this is most likely DIMACS.
+     * model. For boolean models, this is most likely DIMACS. If the model was
+     * read from the cache, then this is the file in the cache directory; it
+     * should be treated as read-only.
      * 
      * @return The representation of the constraints inside the variability
      *         model. Never null.
@@ -113,6 +121,27 @@ public class VariabilityModel {
         return variables; 
     }
     
+    /**
+     * Returns the clauses of the constraint model. These are only available if the descriptor has the
+     * {@link VariabilityModelDescriptor.Attribute#CLAUSES} attribute; this allows reasoning on the constraints without
+     * reading the constraint model file again.
+     * 
+     * @return The clauses of the constraint model; <code>null</code> if they were not loaded.
+     */
+    public @Nullable DimacsClauses getClauses() {
+        return clauses;
+    }
+    
+    /**
+     * Sets the clauses of the constraint model. This should only be called by the creator of the model, which should
+     * also add the {@link VariabilityModelDescriptor.Attribute#CLAUSES} attribute to the descriptor.
+     * 
+     * @param clauses The clauses of the constraint model.
+     */
+    public void setClauses(@Nullable DimacsClauses clauses) {
+        this.clauses = clauses;
+    }
+    
     /**
      * Returns the descriptor for this model.
      * 
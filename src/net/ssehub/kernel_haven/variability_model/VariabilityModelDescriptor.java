@@ -88,6 +88,13 @@ public class VariabilityModelDescriptor {
          */
         HIERARCHICAL,
         
+        /**
+         * The clauses of the DIMACS constraint model are loaded into memory.
+         * 
+         * @see VariabilityModel#getClauses()
+         */
+        CLAUSES,
+        
     }
     
     private @NonNull VariableType variableType;
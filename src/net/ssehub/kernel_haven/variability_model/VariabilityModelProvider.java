@@ -46,7 +46,8 @@ public class VariabilityModelProvider extends AbstractProvider<VariabilityModel>
 
     @Override
     protected @NonNull AbstractCache<VariabilityModel> createCache() {
-        return new JsonVariabilityModelCache(config.getValue(DefaultSettings.CACHE_DIR));
+        return new JsonVariabilityModelCache(config.getValue(DefaultSettings.CACHE_DIR),
+                Math.max(1, config.getValue(DefaultSettings.VARIABILITY_DIMACS_THREADS)));
     }
 
     @Override
@@ -25,6 +25,7 @@ import net.ssehub.kernel_haven.analysis.AllAnalysisTests;
 import net.ssehub.kernel_haven.build_model.AllBuildModelTests;
 import net.ssehub.kernel_haven.code_model.AllCodeModelTests;
 import net.ssehub.kernel_haven.config.AllConfigurationTests;
+import net.ssehub.kernel_haven.provider.AllProviderTests;
 import net.ssehub.kernel_haven.util.AllUtilTests;
 import net.ssehub.kernel_haven.variability_model.AllVariabilityModelTests;
 
@@ -37,6 +38,7 @@ import net.ssehub.kernel_haven.variability_model.AllVariabilityModelTests;
     AllBuildModelTests.class,
     AllCodeModelTests.class,
     AllConfigurationTests.class,
+    AllProviderTests.class,
     AllUtilTests.class,
     AllVariabilityModelTests.class,
     
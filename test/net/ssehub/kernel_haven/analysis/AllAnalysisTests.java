@@ -28,6 +28,8 @@ import org.junit.runners.Suite.SuiteClasses;
     ConfiguredPipelineAnalysisTest.class,
     PipelineAnalysisTest.class,
     ObservableAnalysisTest.class,
+    PipelineExecutorTest.class,
+    ParallelMapComponentTest.class,
     })
 public class AllAnalysisTests {
 
@@ -19,6 +19,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,6 +35,45 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  */
 public class ObservableAnalysisTest implements IAnalysisObserver {
 
+    /**
+     * A streaming observer that records all results and the thread it was called in.
+     */
+    private static class StreamingObserver implements IStreamingAnalysisObserver {
+        
+        private List<@NonNull Object> streamedResults = new ArrayList<>();
+        
+        private boolean finished;
+        
+        private boolean calledInNotifierThread = true;
+        
+        @Override
+        public synchronized void notifyResult(@NonNull Object result) {
+            if (finished) {
+                throw new IllegalStateException("Result after finish");
+            }
+            calledInNotifierThread &= Thread.currentThread().getName().equals("ObservableAnalysis-Notifier");
+            streamedResults.add(result);
+        }
+
+        @Override
+        public synchronized void notifyFinished() {
+            finished = true;
+            notifyAll();
+        }
+        
+        /**
+         * Waits until {@link #notifyFinished()} was called.
+         * 
+         * @throws InterruptedException unwanted.
+         */
+        public synchronized void waitForFinish() throws InterruptedException {
+            while (!finished) {
+                wait();
+            }
+        }
+        
+    }
+
     private List<@NonNull ?> results;
     
     private boolean notifyCalled;
@@ -80,6 +120,124 @@ public class ObservableAnalysisTest implements IAnalysisObserver {
         assertThat(results, nullValue());
     }
 
+    /**
+     * Tests whether a streaming observer is notified about each result, in order.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testStreamingObserver() throws InterruptedException {
+        StreamingObserver observer = new StreamingObserver();
+        ObservableAnalysis.setObservers(observer);
+        
+        String[] input = new String[5000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = "r" + i;
+        }
+        
+        AnalysisComponentExecuter.executeComponent(ObservableAnalysis.class, null, input);
+        observer.waitForFinish();
+        
+        assertThat(observer.streamedResults, is(Arrays.asList(input)));
+        assertThat(observer.calledInNotifierThread, is(true));
+    }
+    
+    /**
+     * Tests whether a streaming observer is notified if no results have been produced.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testStreamingObserverWithoutResults() throws InterruptedException {
+        StreamingObserver observer = new StreamingObserver();
+        ObservableAnalysis.setObservers(observer);
+        
+        AnalysisComponentExecuter.executeComponent(ObservableAnalysis.class, null, new Object[0]);
+        observer.waitForFinish();
+        
+        assertThat(observer.streamedResults, is(Arrays.asList()));
+    }
+    
+    /**
+     * Tests that an observer that throws exceptions still gets all results.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testStreamingObserverThrowsException() throws InterruptedException {
+        StreamingObserver crashing = new StreamingObserver() {
+            
+            @Override
+            public synchronized void notifyResult(@NonNull Object result) {
+                super.notifyResult(result);
+                throw new IllegalStateException("Testcrash");
+            }
+            
+        };
+        ObservableAnalysis.setObservers(crashing);
+        
+        // more results than the buffer can hold
+        Integer[] input = new Integer[1100];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i;
+        }
+        
+        AnalysisComponentExecuter.executeComponent(ObservableAnalysis.class, null, input);
+        crashing.waitForFinish();
+        
+        assertThat(crashing.streamedResults.size(), is(1100));
+    }
+    
+    /**
+     * Tests that an observer that throws an {@link Error} doesn't block the analysis.
+     */
+    @Test(timeout = 5000)
+    public void testStreamingObserverThrowsError() {
+        StreamingObserver crashing = new StreamingObserver() {
+            
+            @Override
+            public synchronized void notifyResult(@NonNull Object result) {
+                super.notifyResult(result);
+                throw new AssertionError("Testcrash");
+            }
+            
+        };
+        ObservableAnalysis.setObservers(crashing);
+        
+        // more results than the buffer can hold
+        Integer[] input = new Integer[1100];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i;
+        }
+        
+        List<Object> result = AnalysisComponentExecuter.executeComponent(ObservableAnalysis.class, null, input);
+        
+        assertThat(result.size(), is(1100));
+        assertThat(crashing.streamedResults.size(), is(1));
+    }
+    
+    /**
+     * Tests that streaming and list-based observers can be used together.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testMixedObservers() throws InterruptedException {
+        StreamingObserver observer = new StreamingObserver();
+        ObservableAnalysis.setObservers(observer, this);
+        
+        AnalysisComponentExecuter.executeComponent(ObservableAnalysis.class, null, new String[] {"a", "b", "c"});
+        observer.waitForFinish();
+        synchronized (this) {
+            if (!notifyCalled) {
+                wait(); // wait until notify was called
+            }
+        }
+        
+        assertThat(observer.streamedResults, is(Arrays.asList("a", "b", "c")));
+        assertThat(results, is(Arrays.asList("a", "b", "c")));
+    }
+
     @Override
     public void notifyFinished(@NonNull List<@NonNull ?> analysisResults) {
         this.results = analysisResults;
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.test_utils.TestAnalysisComponentProvider;
+import net.ssehub.kernel_haven.test_utils.TestConfiguration;
+
+/**
+ * Tests the {@link ParallelMapComponent} and {@link ParallelFlatMapComponent} classes.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class ParallelMapComponentTest {
+
+    /**
+     * Doubles its inputs and filters out multiples of 3. Smaller inputs take longer, so that they finish out of order.
+     * Records the names of the threads that it runs in.
+     */
+    public static class DoublingComponent extends ParallelMapComponent<Integer, Integer> {
+
+        private final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Creates this component.
+         *
+         * @param config The pipeline configuration.
+         * @param inputComponent The component to get the inputs from.
+         */
+        public DoublingComponent(Configuration config, AnalysisComponent<Integer> inputComponent) {
+            super(config, inputComponent);
+        }
+
+        @Override
+        protected Integer map(Integer input) {
+            threadNames.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep((200 - input) % 3);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            return input % 3 == 0 ? null : input * 2;
+        }
+
+        @Override
+        public String getResultName() {
+            return "Doubled";
+        }
+
+    }
+
+    /**
+     * Provides the numbers 0 to 9. Used as the input in pipeline strings.
+     */
+    public static class NumberProvider extends AnalysisComponent<Integer> {
+
+        /**
+         * Creates this component.
+         *
+         * @param config The pipeline configuration.
+         */
+        public NumberProvider(Configuration config) {
+            super(config);
+        }
+
+        @Override
+        protected void execute() {
+            for (int i = 0; i < 10; i++) {
+                addResult(i);
+            }
+        }
+
+        @Override
+        public String getResultName() {
+            return "Numbers";
+        }
+
+    }
+
+    /**
+     * Creates a configuration with the given settings.
+     *
+     * @param numThreads The number of worker threads.
+     * @param preserveOrder Whether to preserve the order.
+     * @param maxInFlight The maximum number of inputs in flight.
+     *
+     * @return The configuration.
+     *
+     * @throws SetUpException unwanted.
+     */
+    private static TestConfiguration createConfig(int numThreads, boolean preserveOrder, int maxInFlight)
+            throws SetUpException {
+
+        TestConfiguration config = new TestConfiguration(new Properties());
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE_PARALLEL_THREADS, numThreads);
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE_PARALLEL_PRESERVE_ORDER, preserveOrder);
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE_PARALLEL_MAX_IN_FLIGHT, maxInFlight);
+        return config;
+    }
+
+    /**
+     * Creates an input component for the numbers 0 to <code>count - 1</code>.
+     *
+     * @param count The number of inputs.
+     *
+     * @return The input component.
+     *
+     * @throws SetUpException unwanted.
+     */
+    private static TestAnalysisComponentProvider<Integer> createInput(int count) throws SetUpException {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            inputs.add(i);
+        }
+        return new TestAnalysisComponentProvider<>(inputs);
+    }
+
+    /**
+     * Reads all results of the given component.
+     *
+     * @param component The component to read the results of.
+     *
+     * @return All results.
+     */
+    private static <T> List<T> getAllResults(AnalysisComponent<T> component) {
+        List<T> result = new ArrayList<>();
+        T element;
+        while ((element = component.getNextResult()) != null) {
+            result.add(element);
+        }
+        return result;
+    }
+
+    /**
+     * The expected results of the {@link DoublingComponent} for the inputs 0 to <code>count - 1</code>.
+     *
+     * @param count The number of inputs.
+     *
+     * @return The expected results in order.
+     */
+    private static List<Integer> expectedDoubled(int count) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 3 != 0) {
+                result.add(i * 2);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests that the results keep the order of the inputs, that multiple threads of the pipeline executor are used,
+     * and that the inputs are counted in the metrics.
+     *
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testPreserveOrder() throws SetUpException {
+        DoublingComponent component = new DoublingComponent(createConfig(4, true, 0), createInput(200));
+
+        assertThat(getAllResults(component), is(expectedDoubled(200)));
+        assertTrue(component.threadNames.size() > 1);
+        for (String name : component.threadNames) {
+            assertThat(name, startsWith("DoublingComponent-OrderPreservingParallelizer-Worker-"));
+        }
+        assertThat(component.getMetrics().getItemsIn(), is(200L));
+    }
+
+    /**
+     * Tests that all results are passed on if the order is not preserved.
+     *
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testUnordered() throws SetUpException {
+        DoublingComponent component = new DoublingComponent(createConfig(4, false, 0), createInput(200));
+
+        List<Integer> result = getAllResults(component);
+        Collections.sort(result);
+        assertThat(result, is(expectedDoubled(200)));
+        assertTrue(component.threadNames.size() > 1);
+        // the inputs are read by a helper task
+        assertThat(component.getMetrics().getItemsIn(), is(200L));
+    }
+
+    /**
+     * Tests a {@link ParallelFlatMapComponent} that creates multiple results per input.
+     *
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testFlatMap() throws SetUpException {
+        ParallelFlatMapComponent<Integer, String> component
+                = new ParallelFlatMapComponent<Integer, String>(createConfig(3, true, 2), createInput(5)) {
+
+                    @Override
+                    protected Collection<String> flatMap(Integer input) {
+                        return Collections.nCopies(input, "x" + input);
+                    }
+
+                    @Override
+                    public String getResultName() {
+                        return "Repeated";
+                    }
+                };
+
+        assertThat(getAllResults(component),
+                is(Arrays.asList("x1", "x2", "x2", "x3", "x3", "x3", "x4", "x4", "x4", "x4")));
+    }
+
+    /**
+     * Tests that no more than the maximum number of inputs are in flight, in both modes.
+     *
+     * @throws Exception unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testMaxInFlight() throws Exception {
+        for (boolean preserveOrder : new boolean[] {true, false}) {
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger numStarted = new AtomicInteger();
+
+            ParallelMapComponent<Integer, Integer> component
+                    = new ParallelMapComponent<Integer, Integer>(createConfig(8, preserveOrder, 5), createInput(100)) {
+
+                        @Override
+                        protected Integer map(Integer input) {
+                            numStarted.incrementAndGet();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                // ignore
+                            }
+                            return input;
+                        }
+
+                        @Override
+                        public String getResultName() {
+                            return "Blocked";
+                        }
+                    };
+
+            // start the component without reading its results
+            component.start();
+            Thread.sleep(300);
+            assertThat(numStarted.get(), is(5));
+
+            release.countDown();
+            assertThat(getAllResults(component).size(), is(100));
+        }
+    }
+
+    /**
+     * Tests that an exception for one input only drops that input.
+     *
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testException() throws SetUpException {
+        ParallelMapComponent<Integer, Integer> component
+                = new ParallelMapComponent<Integer, Integer>(createConfig(2, true, 0), createInput(5)) {
+
+                    @Override
+                    protected Integer map(Integer input) {
+                        if (input == 2) {
+                            throw new RuntimeException("Testcrash");
+                        }
+                        return input;
+                    }
+
+                    @Override
+                    public String getResultName() {
+                        return "Crashing";
+                    }
+                };
+
+        assertThat(getAllResults(component), is(Arrays.asList(0, 1, 3, 4)));
+    }
+
+    /**
+     * Tests that parallel components can be used in the pipeline string of a {@link ConfiguredPipelineAnalysis}.
+     *
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testConfiguredPipeline() throws SetUpException {
+        TestConfiguration config = createConfig(2, true, 0);
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE,
+                "net.ssehub.kernel_haven.analysis.ParallelMapComponentTest$DoublingComponent("
+                + "net.ssehub.kernel_haven.analysis.ParallelMapComponentTest$NumberProvider())");
+
+        AnalysisComponent<?> component = new ConfiguredPipelineAnalysis(config).createPipeline();
+        assertThat(component, instanceOf(DoublingComponent.class));
+        assertThat(getAllResults(component), is(Arrays.asList(2, 4, 8, 10, 14, 16)));
+    }
+
+}
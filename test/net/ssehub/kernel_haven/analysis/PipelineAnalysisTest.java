@@ -21,12 +21,14 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +53,7 @@ import net.ssehub.kernel_haven.test_utils.FileContentsAssertion;
 import net.ssehub.kernel_haven.test_utils.PseudoVariabilityExtractor;
 import net.ssehub.kernel_haven.test_utils.TestConfiguration;
 import net.ssehub.kernel_haven.util.ExtractorException;
+import net.ssehub.kernel_haven.util.SpillableList;
 import net.ssehub.kernel_haven.util.Util;
 import net.ssehub.kernel_haven.util.io.AbstractTableWriter;
 import net.ssehub.kernel_haven.util.io.ITableCollection;
@@ -300,6 +303,57 @@ public class PipelineAnalysisTest {
         
     }
     
+    /**
+     * An analysis component that reads lists and outputs whether each list is read-only, its size and the number of
+     * spill files of {@link SpillableList}s that currently exist.
+     */
+    private static class ListCheckComponent extends AnalysisComponent<String> {
+
+        private AnalysisComponent<List<String>> input;
+        
+        /**
+         * Creates this {@link ListCheckComponent}.
+         * 
+         * @param config The configuration.
+         * @param input The input to get the lists from.
+         */
+        public ListCheckComponent(Configuration config, AnalysisComponent<List<String>> input) {
+            super(config);
+            this.input = input;
+        }
+
+        @Override
+        protected void execute() {
+            List<String> data;
+            while ((data = input.getNextResult()) != null) {
+                boolean readOnly = false;
+                try {
+                    data.add("new");
+                } catch (UnsupportedOperationException e) {
+                    readOnly = true;
+                }
+                addResult(readOnly + " " + data.size() + " " + countSpillFiles());
+            }
+        }
+        
+        @Override
+        public String getResultName() {
+            return "ListCheck";
+        }
+        
+    }
+    
+    /**
+     * Counts the temporary files of {@link SpillableList}s that currently exist.
+     * 
+     * @return The number of spill files.
+     */
+    private static int countSpillFiles() {
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles(
+            (dir, name) -> name.startsWith("spilled_list") && name.endsWith(".bin"));
+        return files != null ? files.length : 0;
+    }
+    
     /**
      * A dummy {@link AbstractBuildModelExtractor} that sets a flag when it was executed.
      * 
@@ -736,6 +790,87 @@ public class PipelineAnalysisTest {
         assertThat(analysis.getOutputFiles(), is(files));
     }
     
+    /**
+     * Tests that the {@link ComponentMetrics} are collected and written as a table.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test
+    public void testComponentMetrics() throws SetUpException {
+        Properties props = new Properties();
+        props.put("output_dir", tempOutputDir.getPath());
+        props.put("source_tree", tempOutputDir.getPath());
+        TestConfiguration config = new TestConfiguration(props);
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE_METRICS_OUTPUT, true);
+        
+        PipelineAnalysis analysis = createAnalysis(config, (pipeline) -> 
+            new ListCollectorComponent<>(config, 
+                new SimpleAnalysisComponent(config, "Result1", "Result2", "Result3")
+            )
+        );
+        
+        analysis.run();
+        
+        Map<String, ComponentMetrics> metrics = new HashMap<>();
+        for (ComponentMetrics m : analysis.getComponentMetrics()) {
+            metrics.put(m.getComponentName(), m);
+        }
+        
+        ComponentMetrics simple = metrics.get("SimpleAnalysisComponent");
+        assertThat(simple.getResultName(), is("SimpleResult"));
+        assertThat(simple.getItemsIn(), is(0L));
+        assertThat(simple.getItemsOut(), is(3L));
+        assertThat(simple.getQueueSize(), is(0));
+        assertThat(simple.isDone(), is(true));
+        
+        ComponentMetrics collector = metrics.get("ListCollectorComponent");
+        assertThat(collector.getItemsIn(), is(3L));
+        assertThat(collector.getItemsOut(), is(1L));
+        assertThat(collector.isDone(), is(true));
+        assertThat(collector.getBusyTime() <= collector.getElapsedTime(), is(true));
+        
+        Set<String> fileNames = new TreeSet<>();
+        for (File file : tempOutputDir.listFiles()) {
+            assertThat(file.getName(), startsWith("Analysis_"));
+            fileNames.add(file.getName());
+        }
+        assertThat(fileNames.size(), is(2));
+        Iterator<String> names = fileNames.iterator();
+        assertThat(names.next(), endsWith("_Pipeline Metrics.csv"));
+        assertThat(names.next(), endsWith("_SimpleResult List.csv"));
+        assertThat(analysis.getOutputFiles().size(), is(2));
+    }
+    
+    /**
+     * Tests that the metrics are finished and the output is closed if the pipeline throws an exception.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test
+    public void testComponentMetricsPipelineFails() throws SetUpException {
+        Properties props = new Properties();
+        props.put("output_dir", tempOutputDir.getPath());
+        props.put("source_tree", tempOutputDir.getPath());
+        TestConfiguration config = new TestConfiguration(props);
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE_METRICS_OUTPUT, true);
+        
+        PipelineAnalysis analysis = createAnalysis(config, (pipeline) -> {
+            throw new IllegalStateException("pipeline fails");
+        });
+        
+        try {
+            analysis.run();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("pipeline fails"));
+        }
+        
+        File[] outputFiles = tempOutputDir.listFiles();
+        assertThat(outputFiles.length, is(1));
+        assertThat(outputFiles[0].getName(), endsWith("_Pipeline Metrics.csv"));
+        assertThat(analysis.getOutputFiles().size(), is(1));
+    }
+    
     /**
      * Tests the {@link ListCollectorComponent}.
      * 
@@ -772,6 +907,66 @@ public class PipelineAnalysisTest {
         assertThat(analysis.getOutputFiles(), is(files));
     }
     
+    /**
+     * Runs a pipeline that collects the given results with a {@link ListCollectorComponent} with a threshold of 3
+     * elements in memory. Checks that the collected list is read-only and how many spill files existed while it was
+     * used, and that no spill file is left after the pipeline ended.
+     * 
+     * @param expectedSpillFiles The expected number of spill files while the list is used.
+     * @param results The results to collect.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    private void assertCollectedList(int expectedSpillFiles, String... results) throws SetUpException {
+        int spillFilesBefore = countSpillFiles();
+        
+        Properties props = new Properties();
+        props.put("output_dir", tempOutputDir.getPath());
+        props.put("source_tree", tempOutputDir.getPath());
+        props.put(DefaultSettings.ANALYSIS_LIST_COLLECTOR_MAX_IN_MEMORY.getKey(), "3");
+        TestConfiguration config = new TestConfiguration(props);
+        
+        PipelineAnalysis analysis = createAnalysis(config, (pipeline) -> 
+            new ListCheckComponent(config, new ListCollectorComponent<>(config, 
+                new SimpleAnalysisComponent(config, results)
+            ))
+        );
+        
+        analysis.run();
+        
+        File[] outputFiles = tempOutputDir.listFiles();
+        assertThat(outputFiles.length, is(1));
+        FileContentsAssertion.assertContents(outputFiles[0],
+                "true " + results.length + " " + (spillFilesBefore + expectedSpillFiles) + "\n");
+        assertThat(countSpillFiles(), is(spillFilesBefore));
+    }
+    
+    /**
+     * Tests that the {@link ListCollectorComponent} does not spill to disk if the threshold is not exceeded.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test
+    public void testListCollectorComponentBelowThreshold() throws SetUpException {
+        assertCollectedList(0, "Result1", "Result2", "Result3");
+    }
+    
+    /**
+     * Tests that the {@link ListCollectorComponent} collects into a {@link SpillableList} if the threshold is
+     * exceeded, and that its spill file is deleted when the pipeline ends.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test
+    public void testListCollectorComponentAboveThreshold() throws SetUpException {
+        // only full chunks are spilled, so we need more than one chunk
+        String[] results = new String[SpillableList.DEFAULT_CHUNK_SIZE + 1];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = "Result" + i;
+        }
+        assertCollectedList(1, results);
+    }
+    
     /**
      * Creates and runs a simple pipeline with a single analysis component. Tests whether the output file starts with
      * the specified analysis output name prefix.
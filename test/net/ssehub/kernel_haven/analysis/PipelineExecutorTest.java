@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.analysis.PipelineExecutor.Mode;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.test_utils.TestConfiguration;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Tests the {@link PipelineExecutor}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class PipelineExecutorTest {
+
+    /**
+     * Creates a {@link PipelineExecutor} with the given settings.
+     *
+     * @param mode The thread mode.
+     * @param poolSize The size of the thread pool.
+     *
+     * @return The {@link PipelineExecutor}.
+     *
+     * @throws SetUpException unwanted.
+     */
+    private static @NonNull PipelineExecutor createExecutor(@NonNull Mode mode, int poolSize) throws SetUpException {
+        TestConfiguration config = new TestConfiguration(new Properties());
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE_THREAD_MODE, mode);
+        config.setValue(DefaultSettings.ANALYSIS_PIPELINE_THREAD_POOL_SIZE, poolSize);
+        return new PipelineExecutor(config);
+    }
+    
+    /**
+     * Runs a few tasks on the given executor and checks that they are all executed with the correct thread name.
+     *
+     * @param executor The executor to test.
+     *
+     * @throws Exception unwanted.
+     */
+    private static void assertExecutesTasks(@NonNull PipelineExecutor executor) throws Exception {
+        List<String> names = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        
+        for (int i = 0; i < 5; i++) {
+            futures.add(executor.execute(() -> {
+                names.add(Thread.currentThread().getName());
+            }, "Task"));
+        }
+        
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        
+        assertThat(names, is(Collections.nCopies(5, "Task")));
+    }
+    
+    /**
+     * Tests that a bounded thread pool doesn't deadlock if more tasks block on each other than the pool has threads.
+     *
+     * @throws Exception unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testThreadPoolSmallerThanPipeline() throws Exception {
+        PipelineExecutor executor = createExecutor(Mode.THREAD_POOL, 1);
+        CountDownLatch produced = new CountDownLatch(1);
+        
+        // the consumer occupies the only pool thread while waiting for the producer
+        Future<?> consumer = executor.execute(() -> {
+            try {
+                produced.await();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }, "Consumer");
+        Future<?> producer = executor.execute(() -> produced.countDown(), "Producer");
+        
+        producer.get();
+        consumer.get();
+    }
+    
+    /**
+     * Tests running tasks in dedicated threads.
+     *
+     * @throws Exception unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testDedicatedThreads() throws Exception {
+        assertExecutesTasks(createExecutor(Mode.DEDICATED_THREADS, 0));
+    }
+    
+    /**
+     * Tests running tasks in virtual threads. On Java versions without virtual threads, this tests the fallback.
+     *
+     * @throws Exception unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testVirtualThreads() throws Exception {
+        assertExecutesTasks(createExecutor(Mode.VIRTUAL_THREADS, 0));
+    }
+    
+    /**
+     * Tests running tasks in a bounded and an unbounded thread pool.
+     *
+     * @throws Exception unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testThreadPool() throws Exception {
+        assertExecutesTasks(createExecutor(Mode.THREAD_POOL, 1));
+        assertExecutesTasks(createExecutor(Mode.THREAD_POOL, 0));
+    }
+    
+    /**
+     * Tests that a shut down thread pool doesn't accept new tasks, not even as dedicated overflow threads.
+     *
+     * @throws Exception unwanted.
+     */
+    @Test(expected = RejectedExecutionException.class, timeout = 10000)
+    public void testShutdown() throws Exception {
+        PipelineExecutor executor = createExecutor(Mode.THREAD_POOL, 4);
+        assertExecutesTasks(executor);
+        executor.shutdown();
+        
+        executor.execute(() -> { }, "Task");
+    }
+
+}
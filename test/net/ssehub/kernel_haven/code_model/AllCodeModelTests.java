@@ -31,6 +31,9 @@ import net.ssehub.kernel_haven.code_model.simple_ast.SyntaxElementTest;
     
     CodeBlockTest.class,
     JsonCodeModelCacheTest.class,
+    BinaryCodeModelCacheTest.class,
+    MappedCodeModelCacheTest.class,
+    PackedCodeModelCacheTest.class,
     CodeModelProviderTest.class,
     SyntaxElementTest.class,
     })
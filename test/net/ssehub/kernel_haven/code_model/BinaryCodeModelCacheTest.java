@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.code_model.ast.AllAstTests;
+import net.ssehub.kernel_haven.code_model.ast.ISyntaxElement;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link BinaryCodeModelCache}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class BinaryCodeModelCacheTest {
+
+    private File cacheDir;
+
+    /**
+     * Creates the cache directory for each test.
+     */
+    @Before
+    public void setUp() {
+        cacheDir = new File("testdata/tmp_cache");
+        cacheDir.mkdir();
+        assertThat(cacheDir.isDirectory(), is(true));
+    }
+
+    /**
+     * Deletes the cache directory after each test.
+     *
+     * @throws IOException
+     *             unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(cacheDir);
+    }
+
+    /**
+     * Creates a source file with a few nested {@link CodeBlock}s.
+     *
+     * @return The source file.
+     */
+    private static SourceFile<CodeBlock> createBlockSourceFile() {
+        SourceFile<CodeBlock> sourceFile = new SourceFile<>(new File("test.c"));
+        Variable a = new Variable("A");
+        Variable b = new Variable("B");
+        CodeBlock block1 = new CodeBlock(1, 2, new File("file"), a, a);
+        CodeBlock block2 = new CodeBlock(3, 15, new File("file"), new Negation(a), new Negation(a));
+        CodeBlock block21 = new CodeBlock(4, 5, new File("file"), b, new Conjunction(b, new Negation(a)));
+        block2.addNestedElement(block21);
+
+        sourceFile.addElement(block1);
+        sourceFile.addElement(block2);
+        return sourceFile;
+    }
+
+    /**
+     * Writes the given source file to the given cache, reads it again, and asserts that the contents are equal.
+     *
+     * @param cache The cache to test.
+     * @param originalSourceFile The source file to write and read.
+     *
+     * @return The source file that was read from the cache.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    private static SourceFile<CodeBlock> assertRoundTrip(BinaryCodeModelCache cache,
+            SourceFile<CodeBlock> originalSourceFile) throws IOException, FormatException {
+
+        // write
+        cache.write(originalSourceFile);
+
+        // read
+        SourceFile<CodeBlock> readSourceFile = cache.read(originalSourceFile.getPath()).castTo(CodeBlock.class);
+
+        // check if equal
+        assertThat(readSourceFile.getPath(), is(originalSourceFile.getPath()));
+        assertThat(readSourceFile.getTopElementCount(), is(originalSourceFile.getTopElementCount()));
+
+        Iterator<CodeBlock> originalIt = originalSourceFile.iterator();
+        Iterator<CodeBlock> readIt = readSourceFile.iterator();
+
+        assertThat(readIt.next(), is(originalIt.next()));
+        assertThat(readIt.next(), is(originalIt.next()));
+        assertThat(readIt.hasNext(), is(false));
+
+        return readSourceFile;
+    }
+
+    /**
+     * Writes and reads a code model consisting of {@link CodeBlock}s to the cache, and asserts that contents are equal.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testBlockCaching() throws IOException, FormatException {
+        assertRoundTrip(new BinaryCodeModelCache(cacheDir), createBlockSourceFile());
+        assertThat(new File(cacheDir, "test.c.bin").isFile(), is(true));
+    }
+
+    /**
+     * Tests that equal formulas are only parsed once while reading a cache file.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testFormulasShared() throws IOException, FormatException {
+        SourceFile<CodeBlock> read = assertRoundTrip(new BinaryCodeModelCache(cacheDir), createBlockSourceFile());
+
+        CodeBlock block1 = read.getElement(0);
+        assertThat(block1.getCondition(), sameInstance(block1.getPresenceCondition()));
+    }
+
+    /**
+     * Writes and reads a compressed code model.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testCachingCompressed() throws IOException, FormatException {
+        assertRoundTrip(new BinaryCodeModelCache(cacheDir, true), createBlockSourceFile());
+        assertThat(new File(cacheDir, "test.c.bin.gz").isFile(), is(true));
+
+        // reading a compressed cache is also supported if compression is turned off
+        SourceFile<?> read = new BinaryCodeModelCache(cacheDir, false).read(new File("test.c"));
+        assertThat(read.getTopElementCount(), is(2));
+    }
+
+    /**
+     * Tests that reading a non-existing cache file returns <code>null</code>.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testEmptyCache() throws FormatException, IOException {
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+        SourceFile<?> result = cache.read(new File("test.c"));
+
+        assertThat(result, nullValue());
+    }
+
+    /**
+     * Tests that a file that is not a binary cache file correctly throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidHeader() throws FormatException, IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(cacheDir, "test.c.bin"))) {
+            out.write("{\"not\": \"binary\"}".getBytes());
+        }
+
+        new BinaryCodeModelCache(cacheDir).read(new File("test.c"));
+    }
+
+    /**
+     * Tests that a truncated cache file correctly throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testTruncated() throws FormatException, IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(cacheDir, "test.c.bin"))) {
+            out.write(new byte[] {0x4B, 0x48, 0x43, 0x4D, 0, 0, 0, 2, 1, 5});
+        }
+
+        new BinaryCodeModelCache(cacheDir).read(new File("test.c"));
+    }
+
+    /**
+     * Writes and reads a code model consisting of {@link ISyntaxElement}s to the cache, and asserts that contents
+     * are equal.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testAstCaching() throws IOException, FormatException {
+        ISyntaxElement element = AllAstTests.createFullAst();
+
+        File location = new File("test.c");
+        SourceFile<ISyntaxElement> originalSourceFile = new SourceFile<>(location);
+        originalSourceFile.addElement(element);
+
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+
+        // write
+        cache.write(originalSourceFile);
+
+        // read
+        SourceFile<ISyntaxElement> readSourceFile = cache.read(location).castTo(ISyntaxElement.class);
+
+        // check if equal
+        assertThat(readSourceFile.getPath(), is(originalSourceFile.getPath()));
+        assertThat(readSourceFile.getTopElementCount(), is(originalSourceFile.getTopElementCount()));
+
+        Iterator<ISyntaxElement> originalIt = originalSourceFile.iterator();
+        Iterator<ISyntaxElement> readIt = readSourceFile.iterator();
+
+        assertThat(readIt.next(), is(originalIt.next()));
+        assertThat(readIt.hasNext(), is(false));
+    }
+
+}
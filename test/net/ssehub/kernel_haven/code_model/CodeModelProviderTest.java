@@ -23,6 +23,7 @@ import static org.junit.Assert.assertThat;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
@@ -326,6 +327,92 @@ public class CodeModelProviderTest {
         Util.deleteFolder(cacheDir);
     }
     
+    /**
+     * Runs the provider with cache validation on the given source tree, and returns the files that the extractor ran
+     * on.
+     * 
+     * @param sourceTree The source tree.
+     * @param cacheDir The cache directory.
+     * @param validation The cache validation to use.
+     * 
+     * @return The files that the extractor ran on, i.e. that were not read from the cache.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    private Set<File> runWithCacheValidation(File sourceTree, File cacheDir, String validation)
+            throws SetUpException {
+        
+        Properties config = new Properties();
+        config.setProperty("code.extractor.files", "");
+        config.setProperty("source_tree", sourceTree.getAbsolutePath());
+        config.setProperty("cache_dir", cacheDir.getAbsolutePath());
+        config.setProperty("code.provider.cache.read", "true");
+        config.setProperty("code.provider.cache.write", "true");
+        config.setProperty("code.provider.cache.validation", validation);
+        CodeModelProvider provider = new CodeModelProvider();
+        PseudoExtractor extractor = new PseudoExtractor(false);
+        provider.setExtractor(extractor);
+        
+        provider.setConfig(new TestConfiguration(config));
+        provider.start();
+        
+        // wait until the extractor is finished (this includes writing the cache)
+        int numResults = 0;
+        while (provider.getNextResult() != null) {
+            numResults++;
+        }
+        assertThat(numResults, is(2));
+        
+        return extractor.filesToParse;
+    }
+    
+    /**
+     * Tests that outdated results in the cache are detected, and only the changed source files are extracted again.
+     * 
+     * @throws SetUpException unwanted.
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testCacheValidation() throws SetUpException, IOException {
+        File sourceTree = new File("testdata/cmCaching/tmp_source");
+        File cacheDir = new File("testdata/cmCaching/tmp_cache");
+        sourceTree.mkdir();
+        cacheDir.mkdir();
+        
+        try {
+            File fileA = new File(sourceTree, "a.c");
+            File fileB = new File(sourceTree, "b.c");
+            Files.write(fileA.toPath(), "int a;".getBytes());
+            Files.write(fileB.toPath(), "int b;".getBytes());
+            
+            Set<File> expected = new HashSet<>();
+            expected.add(new File("a.c"));
+            expected.add(new File("b.c"));
+            
+            // cold run
+            assertThat(runWithCacheValidation(sourceTree, cacheDir, "METADATA"), is(expected));
+            assertThat(new File(cacheDir, "PseudoCodeExtractor_fingerprints.csv").isFile(), is(true));
+            
+            // warm run
+            assertThat(runWithCacheValidation(sourceTree, cacheDir, "METADATA"), is(new HashSet<>()));
+            
+            // only the changed file is extracted again
+            Files.write(fileA.toPath(), "int aa;".getBytes());
+            expected.remove(new File("b.c"));
+            assertThat(runWithCacheValidation(sourceTree, cacheDir, "METADATA"), is(expected));
+            assertThat(runWithCacheValidation(sourceTree, cacheDir, "METADATA"), is(new HashSet<>()));
+            
+            // switching to content fingerprints invalidates everything once
+            assertThat(runWithCacheValidation(sourceTree, cacheDir, "CONTENT").size(), is(2));
+            fileA.setLastModified(fileA.lastModified() - 100000);
+            assertThat(runWithCacheValidation(sourceTree, cacheDir, "CONTENT"), is(new HashSet<>()));
+            
+        } finally {
+            Util.deleteFolder(sourceTree);
+            Util.deleteFolder(cacheDir);
+        }
+    }
+    
     /**
      * Tests the method that finds the files to parse from a properties file.
      * 
@@ -499,4 +586,22 @@ public class CodeModelProviderTest {
         assertThat(provider.getNextResult(), notNullValue());
     }
     
+    /**
+     * Tests that the cost of a source file is estimated by its size.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test
+    public void testEstimateCost() throws SetUpException {
+        Properties config = new Properties();
+        config.setProperty("code.extractor.files", "testfile.txt");
+        config.setProperty("source_tree", new File("testdata").getAbsolutePath());
+        CodeModelProvider provider = new CodeModelProvider();
+        provider.setExtractor(new PseudoExtractor(false));
+        provider.setConfig(new TestConfiguration(config));
+        
+        assertThat(provider.estimateCost(new File("testfile.txt")), is(34L));
+        assertThat(provider.estimateCost(new File("doesNotExist.c")), is(0L));
+    }
+    
 }
@@ -17,6 +17,7 @@ package net.ssehub.kernel_haven.code_model;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import java.io.File;
@@ -28,13 +29,17 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import net.ssehub.kernel_haven.code_model.JsonCodeModelCache.CheckedFunction;
 import net.ssehub.kernel_haven.code_model.ast.AllAstTests;
 import net.ssehub.kernel_haven.code_model.ast.ISyntaxElement;
 import net.ssehub.kernel_haven.code_model.simple_ast.SyntaxElement;
 import net.ssehub.kernel_haven.code_model.simple_ast.SyntaxElementTypes;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
 import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Formula;
 import net.ssehub.kernel_haven.util.logic.Negation;
 import net.ssehub.kernel_haven.util.logic.True;
 import net.ssehub.kernel_haven.util.logic.Variable;
@@ -110,6 +115,97 @@ public class JsonCodeModelCacheTest {
         assertThat(readIt.hasNext(), is(false));
     }
     
+    /**
+     * Tests that equal formulas are stored only once in the cache file and are shared between the read elements.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testFormulaTable() throws IOException, FormatException {
+        File location = new File("test.c");
+        SourceFile<CodeBlock> originalSourceFile = new SourceFile<>(location);
+        Variable a = new Variable("A");
+        originalSourceFile.addElement(new CodeBlock(1, 2, new File("file"), a, a));
+        originalSourceFile.addElement(new CodeBlock(3, 4, new File("file"), new Variable("A"), new Negation(a)));
+        
+        JsonObject json = (JsonObject) JsonCodeModelCache.serialize(originalSourceFile);
+        assertThat(json.getList("formulas").getSize(), is(2));
+        
+        SourceFile<CodeBlock> readSourceFile = JsonCodeModelCache.deserialize(json).castTo(CodeBlock.class);
+        CodeBlock block1 = readSourceFile.getElement(0);
+        CodeBlock block2 = readSourceFile.getElement(1);
+        
+        assertThat(block1, is(originalSourceFile.getElement(0)));
+        assertThat(block2, is(originalSourceFile.getElement(1)));
+        assertThat(block1.getPresenceCondition(), sameInstance(block1.getCondition()));
+        assertThat(block2.getCondition(), sameInstance(block1.getCondition()));
+    }
+    
+    /**
+     * A {@link CodeBlock} that is de-serialized with an explicitly registered factory.
+     */
+    private static final class FactoryBlock extends CodeBlock {
+        
+        private static int numCreated;
+        
+        static {
+            JsonCodeModelCache.registerFactory(FactoryBlock.class, (json, deserializeFunction) -> {
+                numCreated++;
+                return new FactoryBlock(json, deserializeFunction);
+            });
+        }
+        
+        /**
+         * Creates a new block.
+         * 
+         * @param presenceCondition The presence condition.
+         */
+        FactoryBlock(Formula presenceCondition) {
+            super(presenceCondition);
+        }
+        
+        /**
+         * De-serialization constructor.
+         * 
+         * @param json The JSON.
+         * @param deserializeFunction The function for de-serializing secondary nested elements.
+         * 
+         * @throws FormatException If the JSON does not have the expected format.
+         */
+        private FactoryBlock(JsonObject json,
+                CheckedFunction<JsonElement, CodeElement<?>, FormatException> deserializeFunction)
+                throws FormatException {
+            super(json, deserializeFunction);
+        }
+        
+    }
+    
+    /**
+     * Tests that a factory registered with {@link JsonCodeModelCache#registerFactory(Class,
+     * JsonCodeModelCache.CodeElementFactory)} is used for de-serialization.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testRegisteredFactory() throws IOException, FormatException {
+        File location = new File("test.c");
+        SourceFile<CodeBlock> originalSourceFile = new SourceFile<>(location);
+        FactoryBlock block = new FactoryBlock(new Variable("A"));
+        block.addNestedElement(new FactoryBlock(new Variable("B")));
+        originalSourceFile.addElement(block);
+        
+        JsonCodeModelCache cache = new JsonCodeModelCache(cacheDir);
+        cache.write(originalSourceFile);
+        
+        int numCreatedBefore = FactoryBlock.numCreated;
+        SourceFile<CodeBlock> readSourceFile = cache.read(location).castTo(CodeBlock.class);
+        
+        assertThat(FactoryBlock.numCreated - numCreatedBefore, is(2));
+        assertThat(readSourceFile.getElement(0), is(block));
+    }
+    
     /**
      * Tests if an invalid cache file correctly throws an
      * {@link FormatException} with an invalid CSV.
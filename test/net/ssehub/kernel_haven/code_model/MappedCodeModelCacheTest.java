@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.code_model.JsonCodeModelCache.CheckedFunction;
+import net.ssehub.kernel_haven.code_model.ast.AllAstTests;
+import net.ssehub.kernel_haven.code_model.ast.CppBlock;
+import net.ssehub.kernel_haven.code_model.ast.ISyntaxElement;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link MappedCodeModelCache}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class MappedCodeModelCacheTest {
+
+    private File cacheDir;
+
+    /**
+     * Creates the cache directory for each test.
+     */
+    @Before
+    public void setUp() {
+        cacheDir = new File("testdata/tmp_cache");
+        cacheDir.mkdir();
+        assertThat(cacheDir.isDirectory(), is(true));
+    }
+
+    /**
+     * Deletes the cache directory after each test.
+     *
+     * @throws IOException
+     *             unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(cacheDir);
+    }
+
+    /**
+     * A {@link CodeBlock} that counts how often it is de-serialized.
+     */
+    private static final class CountingBlock extends CodeBlock {
+
+        private static int numCreated;
+
+        static {
+            JsonCodeModelCache.registerFactory(CountingBlock.class, (json, deserializeFunction) -> {
+                numCreated++;
+                return new CountingBlock(json, deserializeFunction);
+            });
+        }
+
+        /**
+         * Creates a new block.
+         *
+         * @param presenceCondition The presence condition.
+         */
+        CountingBlock(Formula presenceCondition) {
+            super(presenceCondition);
+        }
+
+        /**
+         * De-serialization constructor.
+         *
+         * @param json The JSON.
+         * @param deserializeFunction The function for de-serializing secondary nested elements.
+         *
+         * @throws FormatException If the JSON does not have the expected format.
+         */
+        private CountingBlock(JsonObject json,
+                CheckedFunction<JsonElement, CodeElement<?>, FormatException> deserializeFunction)
+                throws FormatException {
+            super(json, deserializeFunction);
+        }
+
+    }
+
+    /**
+     * Writes and reads a code model consisting of {@link CodeBlock}s to the cache, and asserts that contents are equal.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testBlockCaching() throws IOException, FormatException {
+        SourceFile<CodeBlock> sourceFile = new SourceFile<>(new File("test.c"));
+        Variable a = new Variable("A");
+        Variable b = new Variable("B");
+        CodeBlock block1 = new CodeBlock(1, 2, new File("file"), a, a);
+        CodeBlock block2 = new CodeBlock(3, 15, new File("file"), new Negation(a), new Negation(a));
+        CodeBlock block21 = new CodeBlock(4, 5, new File("file"), b, new Conjunction(b, new Negation(a)));
+        block2.addNestedElement(block21);
+        sourceFile.addElement(block1);
+        sourceFile.addElement(block2);
+
+        MappedCodeModelCache cache = new MappedCodeModelCache(cacheDir);
+        cache.write(sourceFile);
+        assertThat(new File(cacheDir, "test.c.mbin").isFile(), is(true));
+
+        SourceFile<CodeBlock> read = cache.read(new File("test.c")).castTo(CodeBlock.class);
+
+        assertThat(read.getPath(), is(new File("test.c")));
+        assertThat(read.getTopElementCount(), is(2));
+        Iterator<CodeBlock> it = read.iterator();
+        assertThat(it.next(), is(block1));
+        assertThat(it.next(), is(block2));
+        assertThat(it.hasNext(), is(false));
+
+        // formulas are shared between lazily loaded elements
+        assertThat(read.getElement(0).getCondition(), sameInstance(read.getElement(0).getPresenceCondition()));
+    }
+
+    /**
+     * Tests that top-level elements are only de-serialized on their first access.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testLazyLoading() throws IOException, FormatException {
+        SourceFile<CodeBlock> sourceFile = new SourceFile<>(new File("test.c"));
+        for (int i = 0; i < 3; i++) {
+            CountingBlock block = new CountingBlock(new Variable("A" + i));
+            block.addNestedElement(new CountingBlock(new Variable("B" + i)));
+            sourceFile.addElement(block);
+        }
+
+        MappedCodeModelCache cache = new MappedCodeModelCache(cacheDir);
+        cache.write(sourceFile);
+
+        int numCreatedBefore = CountingBlock.numCreated;
+        SourceFile<CodeBlock> read = cache.read(new File("test.c")).castTo(CodeBlock.class);
+        assertThat(read.getTopElementCount(), is(3));
+        assertThat(CountingBlock.numCreated - numCreatedBefore, is(0));
+
+        // the second top-level element and its nested element
+        assertThat(read.getElement(1), is(sourceFile.getElement(1)));
+        assertThat(CountingBlock.numCreated - numCreatedBefore, is(2));
+
+        // accessing it again does not de-serialize it again
+        read.getElement(1);
+        assertThat(CountingBlock.numCreated - numCreatedBefore, is(2));
+
+        for (CodeBlock block : read) {
+            assertThat(block instanceof CountingBlock, is(true));
+        }
+        assertThat(CountingBlock.numCreated - numCreatedBefore, is(6));
+    }
+
+    /**
+     * Tests that {@link SourceFile#castTo(Class)} fails for a lazily loaded source file with the wrong type.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test(expected = ClassCastException.class)
+    public void testInvalidCast() throws IOException, FormatException {
+        SourceFile<CodeBlock> sourceFile = new SourceFile<>(new File("test.c"));
+        sourceFile.addElement(new CodeBlock(new Variable("A")));
+
+        MappedCodeModelCache cache = new MappedCodeModelCache(cacheDir);
+        cache.write(sourceFile);
+
+        cache.read(new File("test.c")).castTo(ISyntaxElement.class);
+    }
+
+    /**
+     * Tests that top-level elements that reference each other are read correctly.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testReferencesBetweenTopLevelElements() throws IOException, FormatException {
+        Variable a = new Variable("A");
+        CppBlock ifdef = new CppBlock(a, a, a, CppBlock.Type.IFDEF);
+        CppBlock elsedef = new CppBlock(new Negation(a), new Negation(a), null, CppBlock.Type.ELSE);
+        ifdef.addSibling(ifdef);
+        ifdef.addSibling(elsedef);
+        elsedef.addSibling(ifdef);
+        elsedef.addSibling(elsedef);
+
+        SourceFile<ISyntaxElement> sourceFile = new SourceFile<>(new File("test.c"));
+        sourceFile.addElement(ifdef);
+        sourceFile.addElement(elsedef);
+
+        MappedCodeModelCache cache = new MappedCodeModelCache(cacheDir);
+        cache.write(sourceFile);
+
+        SourceFile<ISyntaxElement> read = cache.read(new File("test.c")).castTo(ISyntaxElement.class);
+        CppBlock readElse = (CppBlock) read.getElement(1);
+        CppBlock readIf = (CppBlock) read.getElement(0);
+
+        assertThat(readIf, is(ifdef));
+        assertThat(readElse, is(elsedef));
+        assertThat(readElse.getSibling(0), sameInstance(readIf));
+        assertThat(readIf.getSibling(1), sameInstance(readElse));
+    }
+
+    /**
+     * Writes and reads a code model consisting of {@link ISyntaxElement}s to the cache, and asserts that contents
+     * are equal.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testAstCaching() throws IOException, FormatException {
+        ISyntaxElement element = AllAstTests.createFullAst();
+
+        SourceFile<ISyntaxElement> sourceFile = new SourceFile<>(new File("test.c"));
+        sourceFile.addElement(element);
+
+        MappedCodeModelCache cache = new MappedCodeModelCache(cacheDir);
+        cache.write(sourceFile);
+
+        SourceFile<ISyntaxElement> read = cache.read(new File("test.c")).castTo(ISyntaxElement.class);
+        assertThat(read.getTopElementCount(), is(1));
+        assertThat(read.getElement(0), is(element));
+    }
+
+    /**
+     * Tests that elements can be added to a lazily loaded source file.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testAddElement() throws IOException, FormatException {
+        SourceFile<CodeBlock> sourceFile = new SourceFile<>(new File("test.c"));
+        sourceFile.addElement(new CodeBlock(new Variable("A")));
+
+        MappedCodeModelCache cache = new MappedCodeModelCache(cacheDir);
+        cache.write(sourceFile);
+
+        SourceFile<CodeBlock> read = cache.read(new File("test.c")).castTo(CodeBlock.class);
+        CodeBlock added = new CodeBlock(new Variable("B"));
+        read.addElement(added);
+
+        assertThat(read.getTopElementCount(), is(2));
+        assertThat(read.getElement(0), is(sourceFile.getElement(0)));
+        assertThat(read.getElement(1), sameInstance(added));
+    }
+
+    /**
+     * Tests that reading a non-existing cache file returns <code>null</code>.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testEmptyCache() throws FormatException, IOException {
+        assertThat(new MappedCodeModelCache(cacheDir).read(new File("test.c")), nullValue());
+    }
+
+    /**
+     * Tests that a file that is not a mapped cache file correctly throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidHeader() throws FormatException, IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(cacheDir, "test.c.mbin"))) {
+            out.write("{\"not\": \"mapped\"}".getBytes());
+        }
+
+        new MappedCodeModelCache(cacheDir).read(new File("test.c"));
+    }
+
+    /**
+     * Tests that a header length beyond the end of the file correctly throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testTruncated() throws FormatException, IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(cacheDir, "test.c.mbin"))) {
+            out.write(new byte[] {0x4B, 0x48, 0x43, 0x4C, 0, 0, 0, 1, 0, 0, 0, 100, 1, 5});
+        }
+
+        new MappedCodeModelCache(cacheDir).read(new File("test.c"));
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.code_model.ast.AllAstTests;
+import net.ssehub.kernel_haven.code_model.ast.ISyntaxElement;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.PackedFileStore;
+import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link PackedCodeModelCache}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class PackedCodeModelCacheTest {
+
+    private File cacheDir;
+
+    /**
+     * Creates the cache directory for each test.
+     */
+    @Before
+    public void setUp() {
+        cacheDir = new File("testdata/tmp_cache");
+        cacheDir.mkdir();
+        assertThat(cacheDir.isDirectory(), is(true));
+    }
+
+    /**
+     * Deletes the cache directory after each test.
+     *
+     * @throws IOException
+     *             unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(cacheDir);
+    }
+
+    /**
+     * Creates a source file with two {@link CodeBlock}s.
+     *
+     * @param path The path of the source file.
+     *
+     * @return The source file.
+     */
+    private static SourceFile<CodeBlock> createSourceFile(String path) {
+        SourceFile<CodeBlock> sourceFile = new SourceFile<>(new File(path));
+        Variable a = new Variable("A");
+        CodeBlock block1 = new CodeBlock(1, 2, new File(path), a, a);
+        CodeBlock block2 = new CodeBlock(3, 15, new File(path), new Negation(a), new Negation(a));
+        block2.addNestedElement(new CodeBlock(4, 5, new File(path), new Variable("B"), new Variable("B")));
+        sourceFile.addElement(block1);
+        sourceFile.addElement(block2);
+        return sourceFile;
+    }
+
+    /**
+     * Tests writing and reading multiple source files, all stored in a single packed file.
+     *
+     * @param compress Whether to compress the records.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    private void testCaching(boolean compress) throws IOException, FormatException {
+        SourceFile<CodeBlock> file1 = createSourceFile("test.c");
+        SourceFile<CodeBlock> file2 = createSourceFile("dir/test.c");
+
+        try (PackedCodeModelCache cache = new PackedCodeModelCache(cacheDir, compress)) {
+            cache.write(file1);
+            cache.write(file2);
+        }
+
+        assertThat(cacheDir.list().length, is(2)); // the data file and the index
+
+        // reading compressed records is also supported if compression is turned off
+        try (PackedCodeModelCache cache = new PackedCodeModelCache(cacheDir, false)) {
+            assertThat(cache.read(new File("test.c")), is(file1));
+            assertThat(cache.read(new File("dir/test.c")), is(file2));
+            assertThat(cache.read(new File("other.c")), nullValue());
+        }
+    }
+
+    /**
+     * Tests writing and reading uncompressed records.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testCaching() throws IOException, FormatException {
+        testCaching(false);
+    }
+
+    /**
+     * Tests writing and reading compressed records.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testCachingCompressed() throws IOException, FormatException {
+        testCaching(true);
+    }
+
+    /**
+     * Tests writing and reading an AST.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testAstCaching() throws IOException, FormatException {
+        SourceFile<ISyntaxElement> sourceFile = new SourceFile<>(new File("test.c"));
+        sourceFile.addElement(AllAstTests.createFullAst());
+
+        try (PackedCodeModelCache cache = new PackedCodeModelCache(cacheDir, true)) {
+            cache.write(sourceFile);
+            assertThat(cache.read(new File("test.c")), is(sourceFile));
+        }
+    }
+
+    /**
+     * Tests that an invalid record correctly throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidRecord() throws IOException, FormatException {
+        try (PackedFileStore store = PackedFileStore.get(new File(cacheDir, "cmCache.pack"))) {
+            store.write("test.c", new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        }
+
+        try (PackedCodeModelCache cache = new PackedCodeModelCache(cacheDir)) {
+            cache.read(new File("test.c"));
+        }
+    }
+
+}
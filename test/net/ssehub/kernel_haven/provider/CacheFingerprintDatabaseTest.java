@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.provider;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the {@link CacheFingerprintDatabase}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class CacheFingerprintDatabaseTest {
+
+    private static final File TMP_FILE = new File("testdata/cache_fingerprints_tmp.csv");
+
+    private static final File TMP_INPUT = new File("testdata/cache_fingerprints_input_tmp.c");
+
+    /**
+     * Deletes the temporary files.
+     */
+    @After
+    public void tearDown() {
+        TMP_FILE.delete();
+        TMP_INPUT.delete();
+    }
+
+    /**
+     * Writes the given content to the {@link #TMP_INPUT} file.
+     *
+     * @param content The content to write.
+     *
+     * @throws IOException unwanted.
+     */
+    private static void writeInput(String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(TMP_INPUT)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Tests checking and recording fingerprints.
+     */
+    @Test
+    public void testIsUpToDate() {
+        CacheFingerprintDatabase database = new CacheFingerprintDatabase(null);
+
+        // without a fingerprint, cached results are always used
+        assertThat(database.isUpToDate(new File("a.c"), null), is(true));
+        // with a fingerprint, results without a record are outdated
+        assertThat(database.isUpToDate(new File("a.c"), "1"), is(false));
+
+        database.record(new File("a.c"), "1");
+        assertThat(database.isUpToDate(new File("a.c"), "1"), is(true));
+        assertThat(database.isUpToDate(new File("a.c"), "2"), is(false));
+        assertThat(database.isUpToDate(new File("b.c"), "1"), is(false));
+
+        database.record(new File("a.c"), "2");
+        assertThat(database.isUpToDate(new File("a.c"), "1"), is(false));
+        assertThat(database.isUpToDate(new File("a.c"), "2"), is(true));
+
+        database.record(new File("a.c"), null);
+        assertThat(database.isUpToDate(new File("a.c"), "2"), is(false));
+    }
+
+    /**
+     * Tests that the fingerprints are persisted in the file, and that the file is only written if something changed.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        CacheFingerprintDatabase database = new CacheFingerprintDatabase(TMP_FILE);
+        database.record(new File("a.c"), null);
+        database.save();
+        assertThat(TMP_FILE.exists(), is(false));
+
+        database.record(new File("dir/a.c"), "abc");
+        database.record(new File("b.c"), "12@34");
+        database.save();
+        assertThat(TMP_FILE.isFile(), is(true));
+
+        CacheFingerprintDatabase loaded = new CacheFingerprintDatabase(TMP_FILE);
+        assertThat(loaded.isUpToDate(new File("dir/a.c"), "abc"), is(true));
+        assertThat(loaded.isUpToDate(new File("b.c"), "12@34"), is(true));
+        assertThat(loaded.isUpToDate(new File("c.c"), "abc"), is(false));
+    }
+
+    /**
+     * Tests that the metadata fingerprint changes with the size and modification time of the files.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testFingerprintMetadata() throws IOException {
+        List<File> inputs = Arrays.asList(TMP_INPUT, new File("testdata/does_not_exist.c"));
+        String missing = CacheFingerprintDatabase.fingerprintMetadata(inputs);
+
+        writeInput("int a;");
+        TMP_INPUT.setLastModified(1000000);
+        String first = CacheFingerprintDatabase.fingerprintMetadata(inputs);
+        assertThat(first, not(missing));
+        assertThat(CacheFingerprintDatabase.fingerprintMetadata(inputs), is(first));
+
+        TMP_INPUT.setLastModified(2000000);
+        assertThat(CacheFingerprintDatabase.fingerprintMetadata(inputs), not(first));
+
+        writeInput("int ab;");
+        TMP_INPUT.setLastModified(1000000);
+        assertThat(CacheFingerprintDatabase.fingerprintMetadata(inputs), not(first));
+    }
+
+    /**
+     * Tests that the content fingerprint only changes with the content of the files.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testFingerprintContent() throws IOException {
+        List<File> inputs = Arrays.asList(TMP_INPUT, new File("testdata/does_not_exist.c"));
+        String missing = CacheFingerprintDatabase.fingerprintContent(inputs);
+
+        writeInput("int a;");
+        TMP_INPUT.setLastModified(1000000);
+        String first = CacheFingerprintDatabase.fingerprintContent(inputs);
+        assertThat(first, not(missing));
+        assertThat(first.length(), is(64));
+
+        TMP_INPUT.setLastModified(2000000);
+        assertThat(CacheFingerprintDatabase.fingerprintContent(inputs), is(first));
+
+        writeInput("int b;");
+        assertThat(CacheFingerprintDatabase.fingerprintContent(inputs), not(first));
+    }
+
+}
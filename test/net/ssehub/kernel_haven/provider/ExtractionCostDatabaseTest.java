@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.provider;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.provider.ExtractionCostDatabase.Entry;
+
+/**
+ * Tests the {@link ExtractionCostDatabase}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class ExtractionCostDatabaseTest {
+    
+    private static final File TMP_FILE = new File("testdata/extraction_costs_tmp.csv");
+    
+    /**
+     * Deletes the {@link #TMP_FILE}.
+     */
+    @After
+    public void tearDown() {
+        TMP_FILE.delete();
+    }
+    
+    /**
+     * Tests recording and retrieving entries.
+     */
+    @Test
+    public void testRecord() {
+        ExtractionCostDatabase database = new ExtractionCostDatabase(null);
+        assertThat(database.get(new File("a.c")), nullValue());
+        
+        database.record(new File("a.c"), 100, 5, false);
+        database.record(new File("a.c"), 20, 5, true);
+        
+        Entry entry = database.get(new File("a.c"));
+        assertThat(entry, notNullValue());
+        assertThat(entry.getTarget(), is(new File("a.c")));
+        assertThat(entry.getDuration(), is(100L)); // a cache hit keeps the extraction duration
+        assertThat(entry.getResultSize(), is(5));
+        assertThat(entry.isCacheHit(), is(true));
+        
+        database.record(new File("a.c"), 80, 6, false);
+        entry = database.get(new File("a.c"));
+        assertThat(entry.getDuration(), is(80L));
+        assertThat(entry.getResultSize(), is(6));
+        assertThat(entry.isCacheHit(), is(false));
+        
+        // without a previous record, the cache read time is the only known duration
+        database.record(new File("b.c"), 3, 1, true);
+        assertThat(database.get(new File("b.c")).getDuration(), is(3L));
+    }
+    
+    /**
+     * Tests that the entries are persisted in the file.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        ExtractionCostDatabase database = new ExtractionCostDatabase(TMP_FILE);
+        database.record(new File("dir/a.c"), 100, 5, false);
+        database.record(new File("b.c"), 20, 0, true);
+        database.save();
+        
+        assertThat(TMP_FILE.isFile(), is(true));
+        
+        ExtractionCostDatabase loaded = new ExtractionCostDatabase(TMP_FILE);
+        Entry entry = loaded.get(new File("dir/a.c"));
+        assertThat(entry.getDuration(), is(100L));
+        assertThat(entry.getResultSize(), is(5));
+        assertThat(entry.isCacheHit(), is(false));
+        
+        entry = loaded.get(new File("b.c"));
+        assertThat(entry.getDuration(), is(20L));
+        assertThat(entry.getResultSize(), is(0));
+        assertThat(entry.isCacheHit(), is(true));
+    }
+    
+    /**
+     * Tests that targets without records are estimated with the average duration.
+     */
+    @Test
+    public void testEstimateDurations() {
+        ExtractionCostDatabase database = new ExtractionCostDatabase(null);
+        List<File> targets = Arrays.asList(new File("a.c"), new File("b.c"), new File("c.c"));
+        
+        assertThat(database.estimateDurations(targets).isEmpty(), is(true));
+        
+        database.record(new File("a.c"), 100, 1, false);
+        database.record(new File("b.c"), 20, 1, false);
+        
+        Map<File, Long> expected = new HashMap<>();
+        expected.put(new File("a.c"), 100L);
+        expected.put(new File("b.c"), 20L);
+        expected.put(new File("c.c"), 60L);
+        assertThat(database.estimateDurations(targets), is(expected));
+    }
+    
+    /**
+     * Tests retrieving the slowest targets.
+     */
+    @Test
+    public void testGetSlowest() {
+        ExtractionCostDatabase database = new ExtractionCostDatabase(null);
+        database.record(new File("a.c"), 10, 1, false);
+        database.record(new File("b.c"), 30, 1, false);
+        database.record(new File("c.c"), 20, 1, false);
+        database.record(new File("other.c"), 1000, 1, false);
+        
+        List<Entry> slowest = database.getSlowest(
+                Arrays.asList(new File("a.c"), new File("b.c"), new File("c.c"), new File("unknown.c")), 2);
+        
+        assertThat(slowest.size(), is(2));
+        assertThat(slowest.get(0).getTarget(), is(new File("b.c")));
+        assertThat(slowest.get(1).getTarget(), is(new File("c.c")));
+    }
+    
+}
@@ -21,6 +21,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import net.ssehub.kernel_haven.util.io.AllIoTests;
 import net.ssehub.kernel_haven.util.logic.AllLogicTests;
+import net.ssehub.kernel_haven.util.sat.AllSatTests;
 
 /**
  * Tests for util package.
@@ -29,13 +30,17 @@ import net.ssehub.kernel_haven.util.logic.AllLogicTests;
 @SuiteClasses({
     AllIoTests.class,
     AllLogicTests.class,
+    AllSatTests.class,
     
     BlockingQueueTest.class,
     FormulaCacheTest.class,
+    LockFreeBlockingQueueTest.class,
     LoggerTest.class,
     OrderPreservingParallelizerTest.class,
+    PackedFileStoreTest.class,
     PerformanceProbeTest.class,
     PipelineArchiverTest.class,
+    SpillableListTest.class,
     StaticClassLoaderTest.class,
     UtilTest.class,
     ZipArchiveTest.class,
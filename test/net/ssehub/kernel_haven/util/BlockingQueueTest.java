@@ -20,6 +20,9 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.Test;
@@ -122,4 +125,90 @@ public class BlockingQueueTest {
         queue.get(200);
     }
 
+    /**
+     * Tests that a queue with a maximum capacity blocks the writing thread until the reading thread removed elements.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testCapacityBlocksWriter() throws InterruptedException {
+        BlockingQueue<String> queue = new BlockingQueue<>(2);
+        assertThat(queue.getCapacity(), is(2));
+        
+        Thread writer = new Thread(() -> {
+            queue.add("1");
+            queue.add("2");
+            queue.add("3");
+            queue.end();
+        });
+        writer.start();
+        
+        Thread.sleep(200);
+        assertThat(writer.isAlive(), is(true));
+        assertThat(queue.getCurrentSize(), is(2));
+        
+        assertThat(queue.get(), is("1"));
+        assertThat(queue.get(), is("2"));
+        assertThat(queue.get(), is("3"));
+        assertThat(queue.get(), nullValue());
+        
+        writer.join();
+    }
+    
+    /**
+     * Tests that a negative capacity is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new BlockingQueue<>(-1);
+    }
+
+    /**
+     * Tests adding and retrieving elements in batches.
+     */
+    @Test(timeout = 5000)
+    public void testBatches() {
+        BlockingQueue<String> queue = new BlockingQueue<>();
+        
+        queue.addAll(Arrays.asList("1", "2", "3"));
+        queue.add("4");
+        
+        List<String> batch = new ArrayList<>();
+        assertThat(queue.drainTo(batch, 2), is(2));
+        assertThat(batch, is(Arrays.asList("1", "2")));
+        
+        batch.clear();
+        assertThat(queue.drainTo(batch, 10), is(2));
+        assertThat(batch, is(Arrays.asList("3", "4")));
+        
+        queue.end();
+        batch.clear();
+        assertThat(queue.drainTo(batch, 10), is(0));
+        assertThat(batch.isEmpty(), is(true));
+    }
+    
+    /**
+     * Tests that adding a batch larger than the capacity of a bounded queue waits for the reading thread.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testBatchLargerThanCapacity() throws InterruptedException {
+        BlockingQueue<String> queue = new BlockingQueue<>(2);
+        
+        Thread writer = new Thread(() -> {
+            queue.addAll(Arrays.asList("1", "2", "3", "4", "5"));
+            queue.end();
+        });
+        writer.start();
+        
+        List<String> result = new ArrayList<>();
+        while (queue.drainTo(result, 3) > 0) {
+            assertThat(result.size() <= 5, is(true));
+        }
+        assertThat(result, is(Arrays.asList("1", "2", "3", "4", "5")));
+        
+        writer.join();
+    }
+
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link LockFreeBlockingQueue}.
+ * 
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class LockFreeBlockingQueueTest {
+
+    /**
+     * Tests the basic queue operations.
+     */
+    @Test(timeout = 5000)
+    public void testBasic() {
+        IBlockingQueue<String> queue = new LockFreeBlockingQueue<>();
+        
+        queue.add("1");
+        assertThat(queue.get(), is("1"));
+        
+        queue.add("2");
+        queue.add("3");
+        assertThat(queue.getCurrentSize(), is(2));
+        assertThat(queue.peek(), is("2"));
+        assertThat(queue.get(), is("2"));
+        assertThat(queue.get(), is("3"));
+        
+        queue.end();
+        assertThat(queue.isEnd(), is(true));
+        assertThat(queue.peek(), nullValue());
+        assertThat(queue.get(), nullValue());
+        assertThat(queue.get(), nullValue());
+    }
+    
+    /**
+     * Tests that adding after end() throws an exception.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterEnd() {
+        IBlockingQueue<String> queue = new LockFreeBlockingQueue<>();
+        queue.end();
+        queue.add("1");
+    }
+    
+    /**
+     * Tests whether the queue correctly throws timeout exceptions.
+     * 
+     * @throws TimeoutException wanted.
+     */
+    @Test(expected = TimeoutException.class, timeout = 1000)
+    public void testTimeoutException() throws TimeoutException {
+        IBlockingQueue<String> queue = new LockFreeBlockingQueue<>();
+        queue.get(200);
+    }
+    
+    /**
+     * Tests that a bounded queue blocks the writing thread until the reading thread removed elements.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testCapacityBlocksWriter() throws InterruptedException {
+        IBlockingQueue<String> queue = new LockFreeBlockingQueue<>(2);
+        
+        Thread writer = new Thread(() -> {
+            queue.add("1");
+            queue.add("2");
+            queue.add("3");
+            queue.end();
+        });
+        writer.start();
+        
+        Thread.sleep(200);
+        assertThat(writer.isAlive(), is(true));
+        assertThat(queue.getCurrentSize(), is(2));
+        
+        assertThat(queue.get(), is("1"));
+        assertThat(queue.get(), is("2"));
+        assertThat(queue.get(), is("3"));
+        assertThat(queue.get(), nullValue());
+        
+        writer.join();
+    }
+    
+    /**
+     * Tests that no elements get lost or duplicated with 1, 4, 16 and 64 concurrent writers and multiple readers.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 30000)
+    public void testManyProducers() throws InterruptedException {
+        for (int numProducers : new int[] {1, 4, 16, 64}) {
+            for (int capacity : new int[] {0, 8}) {
+                runProducersAndConsumers(numProducers, 4, capacity, 2000);
+            }
+        }
+    }
+    
+    /**
+     * Runs the given number of writer and reader threads on a single queue and checks that every element is read
+     * exactly once.
+     * 
+     * @param numProducers The number of writing threads.
+     * @param numConsumers The number of reading threads.
+     * @param capacity The capacity of the queue.
+     * @param elementsPerProducer The number of elements each writer adds.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    private void runProducersAndConsumers(int numProducers, int numConsumers, int capacity, int elementsPerProducer)
+            throws InterruptedException {
+        
+        IBlockingQueue<Integer> queue = new LockFreeBlockingQueue<>(capacity);
+        int total = numProducers * elementsPerProducer;
+        int[] seen = new int[total];
+        
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < numProducers; p++) {
+            int offset = p * elementsPerProducer;
+            Thread th = new Thread(() -> {
+                for (int i = 0; i < elementsPerProducer; i++) {
+                    queue.add(offset + i);
+                }
+            });
+            producers.add(th);
+            th.start();
+        }
+        
+        List<Thread> consumers = new ArrayList<>();
+        for (int c = 0; c < numConsumers; c++) {
+            Thread th = new Thread(() -> {
+                Integer value;
+                while ((value = queue.get()) != null) {
+                    synchronized (seen) {
+                        seen[value]++;
+                    }
+                }
+            });
+            consumers.add(th);
+            th.start();
+        }
+        
+        for (Thread th : producers) {
+            th.join();
+        }
+        queue.end();
+        for (Thread th : consumers) {
+            th.join();
+        }
+        
+        for (int i = 0; i < total; i++) {
+            assertThat("Element " + i + " with " + numProducers + " producers", seen[i], is(1));
+        }
+        assertThat(queue.getCurrentSize(), is(0));
+    }
+
+    /**
+     * Tests adding and retrieving elements in batches.
+     */
+    @Test(timeout = 5000)
+    public void testBatches() {
+        IBlockingQueue<String> queue = new LockFreeBlockingQueue<>();
+        
+        queue.addAll(Arrays.asList("1", "2", "3"));
+        queue.add("4");
+        
+        List<String> batch = new ArrayList<>();
+        assertThat(queue.drainTo(batch, 2), is(2));
+        assertThat(batch, is(Arrays.asList("1", "2")));
+        
+        batch.clear();
+        assertThat(queue.drainTo(batch, 10), is(2));
+        assertThat(batch, is(Arrays.asList("3", "4")));
+        
+        queue.end();
+        batch.clear();
+        assertThat(queue.drainTo(batch, 10), is(0));
+        assertThat(batch.isEmpty(), is(true));
+    }
+    
+    /**
+     * Tests that adding a batch larger than the capacity of a bounded queue waits for the reading thread.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testBatchLargerThanCapacity() throws InterruptedException {
+        IBlockingQueue<String> queue = new LockFreeBlockingQueue<>(2);
+        
+        Thread writer = new Thread(() -> {
+            queue.addAll(Arrays.asList("1", "2", "3", "4", "5"));
+            queue.end();
+        });
+        writer.start();
+        
+        List<String> result = new ArrayList<>();
+        while (queue.drainTo(result, 3) > 0) {
+            assertThat(result.size() <= 5, is(true));
+        }
+        assertThat(result, is(Arrays.asList("1", "2", "3", "4", "5")));
+        
+        writer.join();
+    }
+
+}
@@ -18,9 +18,12 @@ package net.ssehub.kernel_haven.util;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -337,4 +340,92 @@ public class OrderPreservingParallelizerTest {
         assertThat(result, is(Arrays.asList('d', 'b', 'd'))); // only 3 values, since 7 ('g') threw an exception
     }
     
+    /**
+     * Tests that workers don't run further ahead than the maximum lookahead while the first element is still being
+     * processed.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testMaxLookahead() throws InterruptedException {
+        List<Integer> result = new ArrayList<>();
+        CountDownLatch firstDone = new CountDownLatch(1);
+        AtomicInteger numStarted = new AtomicInteger();
+        
+        OrderPreservingParallelizer<Integer, Integer> parallelizer = new OrderPreservingParallelizer<>(
+            (input) -> {
+                numStarted.incrementAndGet();
+                if (input == 0) {
+                    // block the first element until the test releases it
+                    try {
+                        firstDone.await();
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+                return input;
+            },
+            (output) -> result.add(output),
+            4, 3
+        );
+        
+        for (int i = 0; i < 100; i++) {
+            parallelizer.add(i);
+        }
+        parallelizer.end();
+        
+        Thread.sleep(300);
+        // the first element, 2 more in the window and one in each of the 3 blocked workers
+        assertThat(numStarted.get(), is(6));
+        
+        firstDone.countDown();
+        parallelizer.join();
+        
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        assertThat(result, is(expected));
+    }
+    
+    /**
+     * Tests that many elements that finish out of order are emitted in order with a window of size 1.
+     */
+    @Test(timeout = 5000)
+    public void testOutOfOrderWithSmallWindow() {
+        List<Integer> result = new ArrayList<>();
+        
+        OrderPreservingParallelizer<Integer, Integer> parallelizer = new OrderPreservingParallelizer<>(
+            (input) -> {
+                try {
+                    // later elements are faster
+                    Thread.sleep((1000 - input) % 3);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                return input;
+            },
+            (output) -> result.add(output),
+            8, 1
+        );
+        
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            parallelizer.add(i);
+            expected.add(i);
+        }
+        parallelizer.end();
+        parallelizer.join();
+        
+        assertThat(result, is(expected));
+    }
+    
+    /**
+     * Tests that a maximum lookahead of 0 is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class, timeout = 5000)
+    public void testInvalidMaxLookahead() {
+        new OrderPreservingParallelizer<Integer, Integer>((input) -> input, (output) -> { }, 2, 0);
+    }
+    
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link PackedFileStore}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class PackedFileStoreTest {
+
+    private File dir;
+
+    private File dataFile;
+
+    /**
+     * Creates the temporary directory for each test.
+     */
+    @Before
+    public void setUp() {
+        dir = new File("testdata/tmp_packed");
+        dir.mkdir();
+        assertThat(dir.isDirectory(), is(true));
+        dataFile = new File(dir, "store.pack");
+    }
+
+    /**
+     * Deletes the temporary directory after each test.
+     *
+     * @throws IOException unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(dir);
+    }
+
+    /**
+     * Converts the given string to bytes.
+     *
+     * @param str The string.
+     *
+     * @return The UTF-8 bytes of the string.
+     */
+    private static byte[] bytes(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests writing and reading records, also with a new store for the same files.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            store.write("a/b.c", bytes("first"));
+            store.write("ä.c", bytes("second"));
+            store.write("empty", new byte[0]);
+
+            assertThat(store.read("a/b.c"), is(bytes("first")));
+            assertThat(store.read("ä.c"), is(bytes("second")));
+            assertThat(store.read("empty"), is(new byte[0]));
+            assertThat(store.read("missing"), nullValue());
+        }
+
+        assertThat(dataFile.isFile(), is(true));
+        assertThat(new File(dir, "store.pack.idx").isFile(), is(true));
+
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            assertThat(store.contains("a/b.c"), is(true));
+            assertThat(store.contains("missing"), is(false));
+            assertThat(store.read("ä.c"), is(bytes("second")));
+        }
+    }
+
+    /**
+     * Tests that there is only one open store per data file, and that a closed store can't be used anymore.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testGetAndClose() throws IOException {
+        PackedFileStore store = PackedFileStore.get(dataFile);
+        assertThat(PackedFileStore.get(new File(dir, "../tmp_packed/store.pack")), sameInstance(store));
+        store.write("key", bytes("value"));
+        store.close();
+
+        try {
+            store.read("key");
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Store is closed"));
+        }
+
+        try (PackedFileStore newStore = PackedFileStore.get(dataFile)) {
+            assertThat(newStore, not(sameInstance(store)));
+            assertThat(newStore.read("key"), is(bytes("value")));
+        }
+    }
+
+    /**
+     * Tests that writing a record for an existing key replaces it.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testOverwrite() throws IOException {
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            store.write("key", bytes("old"));
+            store.write("key", bytes("new"));
+            assertThat(store.read("key"), is(bytes("new")));
+        }
+
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            assertThat(store.read("key"), is(bytes("new")));
+        }
+    }
+
+    /**
+     * Tests that an incomplete index entry at the end of the index file is ignored, and that new entries are
+     * appended correctly afterwards.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testIncompleteIndex() throws IOException {
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            store.write("key", bytes("value"));
+        }
+
+        // simulate a crash while writing the next index entry
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "store.pack.idx"), true)) {
+            out.write(new byte[] {0, 5, 'o', 't'});
+        }
+
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            assertThat(store.read("key"), is(bytes("value")));
+            store.write("other", bytes("value2"));
+        }
+
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            assertThat(store.read("key"), is(bytes("value")));
+            assertThat(store.read("other"), is(bytes("value2")));
+        }
+    }
+
+    /**
+     * Tests writing and reading from multiple threads in parallel.
+     *
+     * @throws IOException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testConcurrentWriters() throws IOException, InterruptedException {
+        List<IOException> exceptions = new ArrayList<>();
+
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int threadNumber = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 100; i++) {
+                            String key = threadNumber + "/" + i;
+                            store.write(key, bytes("content of " + key));
+                            if (!new String(store.read(key), StandardCharsets.UTF_8).equals("content of " + key)) {
+                                throw new IOException("Wrong content for " + key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        synchronized (exceptions) {
+                            exceptions.add(e);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assertThat(exceptions.isEmpty(), is(true));
+
+        try (PackedFileStore store = PackedFileStore.get(dataFile)) {
+            for (int t = 0; t < 4; t++) {
+                for (int i = 0; i < 100; i++) {
+                    assertThat(store.read(t + "/" + i), is(bytes("content of " + t + "/" + i)));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link SpillableList}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class SpillableListTest {
+
+    /**
+     * A serializer for strings that counts how often elements were read.
+     */
+    private static class StringSerializer implements IElementSerializer<String> {
+
+        private int numRead;
+
+        @Override
+        public void write(List<String> elements, OutputStream out) throws IOException {
+            DataOutputStream dataOut = new DataOutputStream(out);
+            for (String element : elements) {
+                dataOut.writeUTF(element);
+            }
+            dataOut.flush();
+        }
+
+        @Override
+        public List<String> read(int count, InputStream in) throws IOException {
+            DataInputStream dataIn = new DataInputStream(in);
+            List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                numRead++;
+                result.add(dataIn.readUTF());
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Creates the strings "e0" to "e{count - 1}".
+     *
+     * @param count The number of strings.
+     *
+     * @return The strings.
+     */
+    private static List<String> createElements(int count) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add("e" + i);
+        }
+        return result;
+    }
+
+    /**
+     * Tests a list that keeps all elements in memory, across multiple chunks.
+     */
+    @Test
+    public void testInMemory() {
+        List<String> expected = createElements(100);
+        SpillableList<String> list = new SpillableList<>(0, null, 8);
+        list.addAll(expected);
+
+        assertThat(list.size(), is(100));
+        assertThat(list, is(expected));
+        assertThat(list.get(57), is("e57"));
+        assertThat(list.getNumInMemory(), is(100));
+        assertThat(list.getNumSpilled(), is(0));
+        assertThat(list.toString(), is(expected.toString()));
+    }
+
+    /**
+     * Tests that full chunks are spilled once the maximum is exceeded, and that they are read back correctly.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSpilling() throws IOException {
+        List<String> expected = createElements(1000);
+        StringSerializer serializer = new StringSerializer();
+        try (SpillableList<String> list = new SpillableList<>(30, serializer, 10)) {
+            for (String element : expected) {
+                list.add(element);
+                assertTrue(list.getNumInMemory() <= 30);
+            }
+
+            assertThat(list.size(), is(1000));
+            assertThat(list.getNumSpilled() + list.getNumInMemory(), is(1000));
+            assertTrue(list.getNumSpilled() >= 970);
+
+            // iterating reads each spilled chunk only once
+            assertThat(list, is(expected));
+            assertThat(serializer.numRead, is(list.getNumSpilled()));
+
+            // random access
+            assertThat(list.get(5), is("e5"));
+            assertThat(list.get(999), is("e999"));
+            assertThat(list.get(513), is("e513"));
+            assertThat(list.indexOf("e777"), is(777));
+        }
+    }
+
+    /**
+     * Tests spilling with the {@link JavaElementSerializer}.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testJavaSerializer() throws IOException {
+        List<List<Integer>> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add(new ArrayList<>(Arrays.asList(i, i * 2)));
+        }
+
+        try (SpillableList<List<Integer>> list = new SpillableList<>(5, new JavaElementSerializer<>(), 4)) {
+            list.addAll(expected);
+            assertTrue(list.getNumSpilled() > 0);
+            assertThat(list, is(expected));
+        }
+    }
+
+    /**
+     * Tests that the {@link JavaElementSerializer} writes the class descriptors only once per segment.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testJavaSerializerSegment() throws IOException {
+        JavaElementSerializer<List<Integer>> serializer = new JavaElementSerializer<>();
+
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        serializer.write(Arrays.asList(new ArrayList<>(Arrays.asList(1, 2))), single);
+
+        List<List<Integer>> elements = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            elements.add(new ArrayList<>(Arrays.asList(i, i * 2)));
+        }
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        serializer.write(elements, segment);
+
+        assertTrue(segment.size() < 10 * single.size() / 2);
+        assertThat(serializer.read(10, new ByteArrayInputStream(segment.toByteArray())), is(elements));
+    }
+
+    /**
+     * Tests that elements are kept in memory if they can't be serialized.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSpillingFails() throws IOException {
+        try (SpillableList<Object> list = new SpillableList<>(2, new JavaElementSerializer<>(), 2)) {
+            for (int i = 0; i < 10; i++) {
+                list.add(new Object());
+            }
+            assertThat(list.size(), is(10));
+            assertThat(list.getNumInMemory(), is(10));
+            assertThat(list.getNumSpilled(), is(0));
+        }
+    }
+
+    /**
+     * Tests that spilled elements can't be accessed after the list is closed.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test(expected = UncheckedIOException.class)
+    public void testClosed() throws IOException {
+        SpillableList<String> list = new SpillableList<>(2, new StringSerializer(), 2);
+        list.addAll(createElements(10));
+        list.close();
+
+        assertThat(list.get(9), is("e9"));
+        list.get(0);
+    }
+
+    /**
+     * Tests that only appending is supported.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testInsert() {
+        SpillableList<String> list = new SpillableList<>();
+        list.add("a");
+        list.add(0, "b");
+    }
+
+    /**
+     * Tests that the list can't be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSet() {
+        SpillableList<String> list = new SpillableList<>();
+        list.add("a");
+        list.set(0, "b");
+    }
+
+    /**
+     * Tests that a serializer is required if spilling is enabled.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingSerializer() {
+        new SpillableList<String>(10, null);
+    }
+
+    /**
+     * Tests that an out of bounds index throws an exception.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        SpillableList<String> list = new SpillableList<>();
+        list.add("a");
+        list.get(1);
+    }
+
+}
@@ -29,7 +29,9 @@ import org.junit.runners.Suite.SuiteClasses;
     ParameterizedJsonParserTest.class,
     ParameterizedJsonParserNegativeTest.class,
     JsonTestSuite.class,
+    JsonReaderTest.class,
     JsonToStringTest.class,
+    JsonWriterTest.class,
     })
 public class AllJsonTests {
 
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonReader.Token;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Tests the {@link JsonReader}.
+ *
+ * @author Adam
+ */
+public class JsonReaderTest {
+
+    /**
+     * Creates a reader for the given JSON string.
+     *
+     * @param json The JSON to read.
+     *
+     * @return The reader.
+     */
+    private static @NonNull JsonReader reader(@NonNull String json) {
+        return new JsonReader(new StringReader(json));
+    }
+
+    /**
+     * Tests reading all tokens of a document with {@link JsonReader#nextToken()}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testTokens() throws IOException, FormatException {
+        try (JsonReader in = reader("{\"a\": [1, -2.5, \"str\", true, null], \"b\": {}}")) {
+            assertThat(in.nextToken(), is(Token.BEGIN_OBJECT));
+
+            assertThat(in.nextToken(), is(Token.NAME));
+            assertThat(in.getString(), is("a"));
+
+            assertThat(in.nextToken(), is(Token.BEGIN_LIST));
+            assertThat(in.nextToken(), is(Token.NUMBER));
+            assertThat(in.getNumber(), is((Number) 1));
+            assertThat(in.nextToken(), is(Token.NUMBER));
+            assertThat(in.getNumber(), is((Number) (-2.5)));
+            assertThat(in.nextToken(), is(Token.STRING));
+            assertThat(in.getString(), is("str"));
+            assertThat(in.nextToken(), is(Token.BOOLEAN));
+            assertThat(in.getBoolean(), is(true));
+            assertThat(in.nextToken(), is(Token.NULL));
+            assertThat(in.nextToken(), is(Token.END_LIST));
+
+            assertThat(in.nextToken(), is(Token.NAME));
+            assertThat(in.getString(), is("b"));
+            assertThat(in.nextToken(), is(Token.BEGIN_OBJECT));
+            assertThat(in.nextToken(), is(Token.END_OBJECT));
+
+            assertThat(in.nextToken(), is(Token.END_OBJECT));
+            assertThat(in.nextToken(), is(Token.END_DOCUMENT));
+        }
+    }
+
+    /**
+     * Tests the typed read methods.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testTypedReads() throws IOException, FormatException {
+        try (JsonReader in = reader("{\"int\": 42, \"long\": 8589934592, \"double\": 1E2, \"str\": \"a\\n\\u00e4\","
+                + " \"bool\": false, \"null\": null}")) {
+
+            in.beginObject();
+            assertThat(in.readName(), is("int"));
+            assertThat(in.readInt(), is(42));
+            assertThat(in.readName(), is("long"));
+            assertThat(in.readLong(), is(8589934592L));
+            assertThat(in.readName(), is("double"));
+            assertThat(in.readDouble(), is(100.0));
+            assertThat(in.readName(), is("str"));
+            assertThat(in.readString(), is("a\n\u00e4"));
+            assertThat(in.readName(), is("bool"));
+            assertThat(in.readBoolean(), is(false));
+            assertThat(in.readName(), is("null"));
+            in.readNull();
+            assertThat(in.hasNext(), is(false));
+            in.endObject();
+
+            assertThat(in.peek(), is(Token.END_DOCUMENT));
+        }
+    }
+
+    /**
+     * Tests iterating over a list with {@link JsonReader#hasNext()}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testHasNext() throws IOException, FormatException {
+        try (JsonReader in = reader("[1, 2, 3]")) {
+            int sum = 0;
+            in.beginList();
+            while (in.hasNext()) {
+                sum += in.readInt();
+            }
+            in.endList();
+
+            assertThat(sum, is(6));
+        }
+    }
+
+    /**
+     * Tests that {@link JsonReader#skipValue()} skips complete sub-trees, and names together with their values.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testSkipValue() throws IOException, FormatException {
+        try (JsonReader in = reader("{\"skip\": {\"a\": [1, {\"b\": \"]\"}], \"c\": null}, \"other\": 1,"
+                + " \"keep\": 2}")) {
+
+            in.beginObject();
+            assertThat(in.readName(), is("skip"));
+            in.skipValue();
+            in.skipValue(); // name and value of "other"
+            assertThat(in.readName(), is("keep"));
+            assertThat(in.readInt(), is(2));
+            in.endObject();
+        }
+    }
+
+    /**
+     * Tests reading a sub-tree as {@link JsonElement}s.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testReadElement() throws IOException, FormatException {
+        try (JsonReader in = reader("[\"a\", {\"b\": [true]}]")) {
+            in.beginList();
+            assertThat(in.readString(), is("a"));
+
+            JsonObject expected = new JsonObject();
+            JsonList inner = new JsonList();
+            inner.addElement(JsonBoolean.TRUE);
+            expected.putElement("b", inner);
+            assertThat(in.readElement(), is(expected));
+
+            in.endList();
+        }
+    }
+
+    /**
+     * Tests that long strings that span multiple internal buffers are read correctly.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testLongString() throws IOException, FormatException {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            expected.append("abc\"");
+        }
+
+        try (JsonReader in = reader("[\"" + JsonString.jsonEscape(expected.toString()) + "\"]")) {
+            in.beginList();
+            assertThat(in.readString(), is(expected.toString()));
+            in.endList();
+        }
+    }
+
+    /**
+     * Tests that a typed read of the wrong type throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testWrongType() throws IOException, FormatException {
+        try (JsonReader in = reader("[\"1\"]")) {
+            in.beginList();
+            in.readInt();
+        }
+    }
+
+    /**
+     * Tests that reading an int that is too large for an int throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testIntOverflow() throws IOException, FormatException {
+        try (JsonReader in = reader("8589934592")) {
+            in.readInt();
+        }
+    }
+
+    /**
+     * Tests that a missing comma between list elements throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testMissingComma() throws IOException, FormatException {
+        try (JsonReader in = reader("[1 2]")) {
+            in.beginList();
+            in.readInt();
+            in.readInt();
+        }
+    }
+
+    /**
+     * Tests that a missing colon in an object throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testMissingColon() throws IOException, FormatException {
+        try (JsonReader in = reader("{\"a\" 1}")) {
+            in.beginObject();
+            in.readName();
+            in.readInt();
+        }
+    }
+
+    /**
+     * Tests that content after the top-level value throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testTrailingContent() throws IOException, FormatException {
+        try (JsonReader in = reader("[] []")) {
+            in.beginList();
+            in.endList();
+            in.peek();
+        }
+    }
+
+    /**
+     * Tests that the line number is counted correctly.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testLineNumber() throws IOException, FormatException {
+        try (JsonReader in = reader("[\n1,\n\n2]")) {
+            assertThat(in.getLineNumber(), is(1));
+            in.beginList();
+            in.readInt();
+            in.readInt();
+            assertThat(in.getLineNumber(), is(4));
+        }
+    }
+
+}
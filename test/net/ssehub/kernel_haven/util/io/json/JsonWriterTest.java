@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Tests the {@link JsonWriter}.
+ *
+ * @author Adam
+ */
+public class JsonWriterTest {
+
+    /**
+     * Creates a JSON structure with nested objects and lists.
+     *
+     * @return The JSON structure.
+     */
+    private static @NonNull JsonObject createMixed() {
+        JsonObject o1 = new JsonObject();
+        o1.putElement("a", new JsonString("d \" e"));
+        o1.putElement("b", new JsonObject());
+
+        JsonList l = new JsonList();
+        l.addElement(new JsonNumber(-1));
+        l.addElement(o1);
+        l.addElement(new JsonList());
+        l.addElement(JsonNull.INSTANCE);
+
+        JsonObject top = new JsonObject();
+        top.putElement("list", l);
+        top.putElement("version", new JsonNumber(1));
+        top.putElement("flag", JsonBoolean.TRUE);
+        return top;
+    }
+
+    /**
+     * Writes the given element with a {@link JsonWriter}.
+     *
+     * @param element The element to write.
+     * @param indent Whether to indent.
+     *
+     * @return The written string.
+     *
+     * @throws IOException unwanted.
+     */
+    private static @NonNull String write(@NonNull JsonElement element, boolean indent) throws IOException {
+        StringWriter result = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(result, indent)) {
+            writer.write(element);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Tests that the indented output is the same as the one of the {@link JsonPrettyPrinter}.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testIndented() throws IOException {
+        JsonObject json = createMixed();
+
+        assertThat(write(json, true), is("{\n"
+                + "\t\"list\": [\n"
+                + "\t\t-1,\n"
+                + "\t\t{\n"
+                + "\t\t\t\"a\": \"d \\\" e\",\n"
+                + "\t\t\t\"b\": {}\n"
+                + "\t\t},\n"
+                + "\t\t[],\n"
+                + "\t\tnull\n"
+                + "\t],\n"
+                + "\t\"version\": 1,\n"
+                + "\t\"flag\": true\n"
+                + "}"));
+        assertThat(write(json, true), is(json.accept(new JsonPrettyPrinter())));
+    }
+
+    /**
+     * Tests the output without indentation.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testCompact() throws IOException {
+        assertThat(write(createMixed(), false),
+                is("{\"list\":[-1,{\"a\":\"d \\\" e\",\"b\":{}},[],null],\"version\":1,\"flag\":true}"));
+
+        assertThat(write(new JsonString("A \n B"), false), is("\"A \\n B\""));
+        assertThat(write(new JsonNumber(42.5), false), is("42.5"));
+    }
+
+    /**
+     * Tests that the output can be parsed again.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testParseable() throws IOException, FormatException {
+        JsonObject json = createMixed();
+
+        for (boolean indent : new boolean[] {true, false}) {
+            try (JsonParser parser = new JsonParser(new StringReader(write(json, indent)))) {
+                assertThat(parser.parse(), is(json));
+            }
+        }
+    }
+
+    /**
+     * Tests writing to an {@link OutputStream}, which uses UTF-8.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testOutputStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(out, false)) {
+            writer.write(new JsonString("\u00e4\u00f6\u00fc"));
+        }
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), is("\"\u00e4\u00f6\u00fc\""));
+    }
+
+    /**
+     * Tests that exceptions of the underlying writer are passed on.
+     *
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testWriterException() throws IOException {
+        Writer failing = new Writer() {
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("test");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        try (JsonWriter writer = new JsonWriter(failing, true)) {
+            writer.write(createMixed());
+        }
+    }
+
+}
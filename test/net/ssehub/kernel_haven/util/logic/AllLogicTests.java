@@ -19,11 +19,15 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import net.ssehub.kernel_haven.util.logic.bdd.AllBddTests;
+
 /**
  * Tests for util.logic package.
  */
 @RunWith(Suite.class)
 @SuiteClasses({
+    AllBddTests.class,
+    
     FormulaTest.class,
     ParserTest.class,
     SubFormulaCheckerTest.class,
@@ -35,6 +39,7 @@ import org.junit.runners.Suite.SuiteClasses;
     DepthCalculatorTest.class,
     FormulaLiteralCounterTest.class,
     VariableValueReplacerTest.class,
+    FormulaFactoryTest.class,
     })
 public class AllLogicTests {
 
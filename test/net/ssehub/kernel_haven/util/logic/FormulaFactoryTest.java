@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
+import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
+import net.ssehub.kernel_haven.util.logic.parser.Parser;
+import net.ssehub.kernel_haven.util.logic.parser.VariableCache;
+
+/**
+ * Tests the {@link FormulaFactory}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class FormulaFactoryTest {
+
+    /**
+     * Tests that equal structures result in the same instance.
+     */
+    @Test
+    public void testSameInstance() {
+        Formula f1 = FormulaFactory.or(FormulaFactory.and(FormulaFactory.variable("A"), FormulaFactory.variable("B")),
+                FormulaFactory.not(FormulaFactory.variable("C")));
+        Formula f2 = FormulaFactory.or(FormulaFactory.and(FormulaFactory.variable("A"), FormulaFactory.variable("B")),
+                FormulaFactory.not(FormulaFactory.variable("C")));
+
+        assertThat(f1, sameInstance(f2));
+        assertThat(f1.isCanonical(), is(true));
+        assertThat(((Disjunction) f1).getLeft().isCanonical(), is(true));
+
+        Formula other = FormulaFactory.or(FormulaFactory.and(FormulaFactory.variable("A"),
+                FormulaFactory.variable("B")), FormulaFactory.variable("C"));
+        assertThat(f1, not(sameInstance(other)));
+        assertThat(f1.equals(other), is(false));
+
+        assertThat(True.INSTANCE.isCanonical(), is(true));
+        assertThat(False.INSTANCE.isCanonical(), is(true));
+    }
+
+    /**
+     * Tests that formulas that were not created by the factory are equal to canonical ones, and can be made
+     * canonical.
+     */
+    @Test
+    public void testNonCanonical() {
+        Formula manual = new Conjunction(new Variable("A"), new Negation(new Variable("NON_CANONICAL_B")));
+        assertThat(manual.isCanonical(), is(false));
+
+        Formula canonical = FormulaFactory.and(FormulaFactory.variable("A"),
+                FormulaFactory.not(FormulaFactory.variable("NON_CANONICAL_B")));
+        assertThat(manual.equals(canonical), is(true));
+        assertThat(canonical.equals(manual), is(true));
+        assertThat(manual.hashCode(), is(canonical.hashCode()));
+
+        assertThat(FormulaFactory.canonical(manual), sameInstance(canonical));
+        assertThat(FormulaFactory.canonical(canonical), sameInstance(canonical));
+        // operands that are not canonical are replaced
+        assertThat(FormulaFactory.and(new Variable("A"), manual).getLeft(), sameInstance(FormulaFactory.variable("A")));
+    }
+
+    /**
+     * Tests that a formula whose structure has no canonical instance yet becomes the canonical instance.
+     */
+    @Test
+    public void testCanonicalOfNewStructure() {
+        Variable var = FormulaFactory.variable("NEW_STRUCTURE_A");
+        Negation manual = new Negation(var);
+
+        Negation canonical = FormulaFactory.canonical(manual);
+        assertThat(canonical, sameInstance(manual));
+        assertThat(manual.isCanonical(), is(true));
+        assertThat(FormulaFactory.not(var), sameInstance(manual));
+    }
+
+    /**
+     * Tests that the {@link FormulaBuilder} and the parser create canonical instances.
+     *
+     * @throws ExpressionFormatException unwanted.
+     */
+    @Test
+    public void testBuilderAndParser() throws ExpressionFormatException {
+        Parser<Formula> parser = new Parser<>(new CStyleBooleanGrammar(new VariableCache()));
+        Formula parsed = parser.parse("A && (!B || C)");
+        Formula built = FormulaBuilder.and("A", FormulaBuilder.or(FormulaBuilder.not("B"), "C"));
+
+        assertThat(parsed.isCanonical(), is(true));
+        assertThat(parsed, sameInstance(built));
+        assertThat(new Parser<>(new CStyleBooleanGrammar(null)).parse("A && (!B || C)"), sameInstance(built));
+    }
+
+    /**
+     * Tests that canonical instances that are no longer used are garbage collected. System.gc() is only a hint, so
+     * this test is skipped if a weakly reachable object that is older than the formulas is not collected after a
+     * bounded number of requests.
+     *
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testGarbageCollection() throws InterruptedException {
+        WeakReference<Object> gcIndicator = new WeakReference<>(new Object());
+
+        int before = FormulaFactory.getNumCanonicalInstances();
+        WeakReference<Formula> last = new WeakReference<>(null);
+        for (int i = 0; i < 10000; i++) {
+            last = new WeakReference<>(
+                    FormulaFactory.and(FormulaFactory.variable("GC_" + i), FormulaFactory.variable("GC")));
+        }
+
+        for (int i = 0; i < 50 && (gcIndicator.get() != null || last.get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assume.assumeTrue("Garbage collector did not run", gcIndicator.get() == null);
+
+        // the factory must not keep the formula reachable
+        assertThat(last.get(), nullValue());
+        assertThat(FormulaFactory.getNumCanonicalInstances() <= before + 5000, is(true));
+    }
+
+    /**
+     * Tests that concurrent threads get the same canonical instances.
+     *
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        Formula[] results = new Formula[8];
+        AtomicInteger errors = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < results.length; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                Formula formula = False.INSTANCE;
+                for (int i = 0; i < 500; i++) {
+                    Formula next = FormulaFactory.or(formula, FormulaFactory.variable("CONCURRENT_" + i));
+                    if (next.getClass() != Disjunction.class || ((Disjunction) next).getLeft() != formula) {
+                        errors.incrementAndGet();
+                    }
+                    formula = next;
+                }
+                results[index] = formula;
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(errors.get(), is(0));
+        for (Formula result : results) {
+            assertThat(result, sameInstance(results[0]));
+        }
+    }
+
+    /**
+     * Tests that de-serialized formulas have correct (re-computed) hash codes and are no longer canonical.
+     *
+     * @throws IOException unwanted.
+     * @throws ClassNotFoundException unwanted.
+     */
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        Formula original = FormulaFactory.or(FormulaFactory.and(FormulaFactory.variable("A"),
+                FormulaFactory.not(FormulaFactory.variable("B"))), FormulaFactory.variable("C"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(original);
+        }
+        Formula read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (Formula) in.readObject();
+        }
+
+        assertThat(read.isCanonical(), is(false));
+        assertThat(read.hashCode(), is(original.hashCode()));
+        assertThat(read, is(original));
+        assertThat(original, is(read));
+
+        Set<Formula> set = new HashSet<>();
+        set.add(original);
+        assertThat(set.contains(read), is(true));
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaEvaluator;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link Bdd} and {@link BddManager} classes.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class BddTest {
+
+    private static final int NUM_VARIABLES = 5;
+
+    /**
+     * Creates a random formula.
+     *
+     * @param random The random number generator.
+     * @param depth The maximum depth of the formula.
+     *
+     * @return A random formula.
+     */
+    private static Formula randomFormula(Random random, int depth) {
+        Formula result;
+        int type = depth == 0 ? 0 : random.nextInt(10);
+        if (type < 3) {
+            result = new Variable("V" + random.nextInt(NUM_VARIABLES));
+        } else if (type < 5) {
+            result = not(randomFormula(random, depth - 1));
+        } else if (type < 7) {
+            result = and(randomFormula(random, depth - 1), randomFormula(random, depth - 1));
+        } else if (type < 9) {
+            result = or(randomFormula(random, depth - 1), randomFormula(random, depth - 1));
+        } else {
+            result = random.nextBoolean() ? True.INSTANCE : False.INSTANCE;
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates the given formula for all assignments of the variables.
+     *
+     * @param formula The formula to evaluate.
+     *
+     * @return A bit mask with a bit for each assignment that satisfies the formula.
+     */
+    private static long truthTable(Formula formula) {
+        long result = 0;
+        for (int assignment = 0; assignment < (1 << NUM_VARIABLES); assignment++) {
+            Map<String, Boolean> values = new HashMap<>();
+            for (int i = 0; i < NUM_VARIABLES; i++) {
+                values.put("V" + i, (assignment & (1 << i)) != 0);
+            }
+            if (formula.accept(new FormulaEvaluator(values))) {
+                result |= 1L << assignment;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests the constants and simple operations.
+     */
+    @Test
+    public void testSimpleOperations() {
+        BddManager manager = new BddManager();
+        Bdd a = manager.variable("A");
+        Bdd b = manager.variable("B");
+
+        assertThat(a.and(a.not()).isFalse(), is(true));
+        assertThat(a.or(a.not()).isTrue(), is(true));
+        assertThat(a.xor(a).isFalse(), is(true));
+        assertThat(a.not().not(), is(a));
+        assertThat(a.and(b), is(b.and(a)));
+        assertThat(a.and(b).getNodeCount(), is(2));
+        assertThat(manager.getTrue().and(a), is(a));
+        assertThat(manager.getFalse().or(b), is(b));
+        assertThat(manager.getTrue().xor(a), is(a.not()));
+        assertThat(manager.variable("A"), is(a));
+
+        // De Morgan
+        assertThat(a.and(b).not(), is(a.not().or(b.not())));
+
+        assertThat(a.and(b).implies(a), is(true));
+        assertThat(a.implies(a.and(b)), is(false));
+        assertThat(manager.getFalse().implies(a), is(true));
+        assertThat(a.implies(manager.getTrue()), is(true));
+        assertThat(a.isEquivalent(a.or(a.and(b))), is(true));
+
+        assertThat(manager.getVariableOrder(), is(Arrays.asList("A", "B")));
+    }
+
+    /**
+     * Tests that combining {@link Bdd}s of different managers throws an exception.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentManagers() {
+        new BddManager().variable("A").and(new BddManager().variable("A"));
+    }
+
+    /**
+     * Compares random formulas converted to BDDs with their truth tables.
+     */
+    @Test
+    public void testRandomFormulas() {
+        Random random = new Random(42);
+        BddManager manager = new BddManager(new ArrayList<>(), 16);
+
+        List<Formula> formulas = new ArrayList<>();
+        List<Bdd> bdds = new ArrayList<>();
+        List<Long> truthTables = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Formula formula = randomFormula(random, 6);
+            Bdd bdd = manager.fromFormula(formula);
+            long truthTable = truthTable(formula);
+
+            // the BDD converted back must have the same truth table
+            assertThat(formula.toString(), truthTable(bdd.toFormula()), is(truthTable));
+            assertThat(manager.fromFormula(bdd.toFormula()), is(bdd));
+
+            formulas.add(formula);
+            bdds.add(bdd);
+            truthTables.add(truthTable);
+        }
+
+        for (int i = 0; i < formulas.size(); i++) {
+            for (int j = 0; j < formulas.size(); j += 7) {
+                long t1 = truthTables.get(i);
+                long t2 = truthTables.get(j);
+                Bdd b1 = bdds.get(i);
+                Bdd b2 = bdds.get(j);
+
+                assertThat(b1.equals(b2), is(t1 == t2));
+                assertThat(b1.implies(b2), is((t1 & ~t2) == 0));
+                assertThat(truthTable(b1.and(b2).toFormula()), is(t1 & t2));
+                assertThat(truthTable(b1.xor(b2).toFormula()), is(t1 ^ t2));
+            }
+        }
+
+        // the small initial capacity must have grown
+        assertTrue(manager.getCapacity() > 16);
+    }
+
+    /**
+     * Tests that the garbage collection frees unused nodes, but keeps the nodes of used {@link Bdd}s.
+     */
+    @Test
+    public void testGarbageCollection() {
+        BddManager manager = new BddManager(new ArrayList<>(), 64);
+
+        Formula kept = or(and("V0", "V1"), and("V2", not("V3")));
+        Bdd keptBdd = manager.fromFormula(kept);
+
+        List<Bdd> temporary = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            temporary.add(manager.variable("X" + i).and(manager.variable("Y" + i)));
+        }
+        assertTrue(manager.getNumNodes() > 2000);
+        temporary.clear();
+
+        // give the JVM some chances to clear the weak references
+        for (int i = 0; i < 50 && manager.getNumNodes() > 100; i++) {
+            System.gc();
+            manager.collectGarbage();
+        }
+        assertTrue(manager.getNumNodes() <= 100);
+        assertTrue(manager.getNumGarbageCollections() > 0);
+
+        // the kept BDD must still be valid
+        assertThat(keptBdd.toFormula(), is(manager.fromFormula(kept).toFormula()));
+        assertThat(manager.fromFormula(kept), is(keptBdd));
+        assertThat(truthTable(keptBdd.toFormula()), is(truthTable(kept)));
+    }
+
+    /**
+     * Tests that the variable order is respected, and that a good order keeps the BDDs small.
+     */
+    @Test
+    public void testVariableOrder() {
+        // (A1 && B1) || (A2 && B2) || ... is linear with an interleaved order, but exponential if all A come first
+        Formula formula = False.INSTANCE;
+        List<String> interleaved = new ArrayList<>();
+        List<String> separated = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            formula = or(formula, and("A" + i, "B" + i));
+            interleaved.add("A" + i);
+            interleaved.add("B" + i);
+            separated.add("A" + i);
+        }
+        for (int i = 0; i < 8; i++) {
+            separated.add("B" + i);
+        }
+
+        Bdd good = new BddManager(interleaved).fromFormula(formula);
+        Bdd bad = new BddManager(separated).fromFormula(formula);
+        assertThat(good.getNodeCount(), is(16));
+        assertTrue(bad.getNodeCount() > 256);
+
+        assertThat(good.getManager().getVariableOrder(), is(interleaved));
+    }
+
+}
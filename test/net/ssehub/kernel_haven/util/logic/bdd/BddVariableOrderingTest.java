@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.variability_model.HierarchicalVariable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * Tests the {@link BddVariableOrdering}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class BddVariableOrderingTest {
+
+    /**
+     * A tristate variable, which is represented by two DIMACS variables.
+     */
+    private static class TristateVariable extends VariabilityVariable {
+
+        /**
+         * Creates a tristate variable.
+         *
+         * @param name The name of the variable.
+         * @param dimacsNumber The DIMACS number of the variable; the module variable has the next number.
+         */
+        TristateVariable(@NonNull String name, int dimacsNumber) {
+            super(name, "tristate", dimacsNumber);
+        }
+
+        @Override
+        public void getDimacsMapping(@NonNull Map<Integer, String> mapping) {
+            mapping.put(getDimacsNumber(), getName());
+            mapping.put(getDimacsNumber() + 1, getName() + "_MODULE");
+        }
+
+    }
+
+    /**
+     * Tests that without any additional information, the DIMACS order is used.
+     */
+    @Test
+    public void testDimacsOrder() {
+        Set<VariabilityVariable> variables = new HashSet<>();
+        variables.add(new VariabilityVariable("C", "bool", 1));
+        variables.add(new TristateVariable("A", 2));
+        variables.add(new VariabilityVariable("B", "bool", 4));
+        variables.add(new VariabilityVariable("UNMAPPED", "bool"));
+
+        VariabilityModel varModel = new VariabilityModel(new File("doesnt_exist"), variables);
+        assertThat(BddVariableOrdering.fromVariabilityModel(varModel),
+                is(Arrays.asList("C", "A", "A_MODULE", "B", "UNMAPPED")));
+    }
+
+    /**
+     * Tests that children follow their parents.
+     */
+    @Test
+    public void testHierarchy() {
+        HierarchicalVariable a = new HierarchicalVariable("A", "bool", 1);
+        HierarchicalVariable b = new HierarchicalVariable("B", "bool", 2);
+        HierarchicalVariable a1 = new HierarchicalVariable("A1", "bool", 3);
+        HierarchicalVariable a2 = new HierarchicalVariable("A2", "bool", 4);
+        HierarchicalVariable a11 = new HierarchicalVariable("A11", "bool", 5);
+        a1.setParent(a);
+        a2.setParent(a);
+        a11.setParent(a1);
+
+        Set<VariabilityVariable> variables = new HashSet<>(Arrays.asList(a, b, a1, a2, a11));
+        VariabilityModel varModel = new VariabilityModel(new File("doesnt_exist"), variables);
+        assertThat(BddVariableOrdering.fromVariabilityModel(varModel),
+                is(Arrays.asList("A", "A1", "A11", "A2", "B")));
+    }
+
+    /**
+     * Tests that variables that share constraints are placed next to each other.
+     */
+    @Test
+    public void testConstraints() {
+        VariabilityVariable a = new VariabilityVariable("A", "bool", 1);
+        VariabilityVariable b = new VariabilityVariable("B", "bool", 2);
+        VariabilityVariable c = new VariabilityVariable("C", "bool", 3);
+        VariabilityVariable d = new VariabilityVariable("D", "bool", 4);
+        // A depends on D, C depends on A
+        a.setVariablesUsedInConstraints(new HashSet<>(Arrays.asList(d)));
+        d.setUsedInConstraintsOfOtherVariables(new HashSet<>(Arrays.asList(a)));
+        c.setVariablesUsedInConstraints(new HashSet<>(Arrays.asList(a)));
+        a.setUsedInConstraintsOfOtherVariables(new HashSet<>(Arrays.asList(c)));
+
+        Set<VariabilityVariable> variables = new HashSet<>(Arrays.asList(a, b, c, d));
+        VariabilityModel varModel = new VariabilityModel(new File("doesnt_exist"), variables);
+        assertThat(BddVariableOrdering.fromVariabilityModel(varModel), is(Arrays.asList("A", "D", "C", "B")));
+
+        BddManager manager = new BddManager(varModel);
+        assertThat(manager.getVariableOrder(), is(Arrays.asList("A", "D", "C", "B")));
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link CdclSolver}.
+ *
+ * @author Adam
+ */
+public class CdclSolverTest {
+
+    /**
+     * Tests simple satisfiable and unsatisfiable clause sets.
+     */
+    @Test
+    public void testSimple() {
+        CdclSolver solver = new CdclSolver(2);
+        assertThat(solver.solve(), is(true));
+
+        solver.addClause(1, 2);
+        solver.addClause(-1, 2);
+        assertThat(solver.solve(), is(true));
+        assertThat(solver.getModelValue(2), is(true));
+
+        solver.addClause(1, -2);
+        assertThat(solver.solve(), is(true));
+        assertThat(solver.getModelValue(1), is(true));
+        assertThat(solver.getModelValue(2), is(true));
+
+        solver.addClause(-1, -2);
+        assertThat(solver.solve(), is(false));
+        // stays unsatisfiable
+        assertThat(solver.solve(), is(false));
+    }
+
+    /**
+     * Tests solving under assumptions, which must not change the clauses for later calls.
+     */
+    @Test
+    public void testAssumptions() {
+        CdclSolver solver = new CdclSolver(3);
+        solver.addClause(-1, 2); // 1 -> 2
+        solver.addClause(-2, 3); // 2 -> 3
+
+        assertThat(solver.solve(1), is(true));
+        assertThat(solver.getModelValue(3), is(true));
+        assertThat(solver.solve(1, -3), is(false));
+        assertThat(solver.solve(-3), is(true));
+        assertThat(solver.getModelValue(1), is(false));
+        assertThat(solver.solve(3, 1, 3), is(true));
+        // variables are added automatically
+        assertThat(solver.solve(4), is(true));
+        assertThat(solver.getNumVariables(), is(4));
+    }
+
+    /**
+     * Tests clauses with duplicate literals, tautologies and empty clauses.
+     */
+    @Test
+    public void testSpecialClauses() {
+        CdclSolver solver = new CdclSolver(0);
+        solver.addClause(1, 1, -2, -2);
+        solver.addClause(3, -3);
+        assertThat(solver.solve(2), is(true));
+        assertThat(solver.getModelValue(1), is(true));
+
+        solver.addClause();
+        assertThat(solver.solve(), is(false));
+    }
+
+    /**
+     * Tests that the pigeonhole problem (n + 1 pigeons in n holes) is correctly detected as unsatisfiable. This needs
+     * many conflicts, which tests learning, restarts and reducing the learnt clauses.
+     */
+    @Test
+    public void testPigeonhole() {
+        int holes = 7;
+        int pigeons = holes + 1;
+        CdclSolver solver = new CdclSolver(pigeons * holes);
+
+        for (int p = 0; p < pigeons; p++) {
+            int[] clause = new int[holes];
+            for (int h = 0; h < holes; h++) {
+                clause[h] = p * holes + h + 1;
+            }
+            solver.addClause(clause);
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p1 = 0; p1 < pigeons; p1++) {
+                for (int p2 = p1 + 1; p2 < pigeons; p2++) {
+                    solver.addClause(-(p1 * holes + h + 1), -(p2 * holes + h + 1));
+                }
+            }
+        }
+
+        assertThat(solver.solve(), is(false));
+    }
+
+    /**
+     * Compares the results for random 3-SAT problems with a brute-force check of all assignments.
+     */
+    @Test
+    public void testRandomAgainstBruteForce() {
+        Random random = new Random(42);
+        int numVariables = 10;
+
+        for (int round = 0; round < 200; round++) {
+            int numClauses = 30 + random.nextInt(25);
+            int[][] clauses = new int[numClauses][];
+            CdclSolver solver = new CdclSolver(numVariables);
+            for (int i = 0; i < numClauses; i++) {
+                clauses[i] = new int[3];
+                for (int j = 0; j < 3; j++) {
+                    int var = random.nextInt(numVariables) + 1;
+                    clauses[i][j] = random.nextBoolean() ? var : -var;
+                }
+                solver.addClause(clauses[i]);
+            }
+            int assumption = random.nextInt(numVariables) + 1;
+
+            boolean expected = bruteForce(clauses, numVariables, 0);
+            assertThat(solver.solve(), is(expected));
+            if (expected) {
+                assertThat(isModel(solver, clauses), is(true));
+            }
+
+            // solve incrementally with an assumption
+            boolean expectedWithAssumption = bruteForce(clauses, numVariables, -assumption);
+            assertThat(solver.solve(-assumption), is(expectedWithAssumption));
+            if (expectedWithAssumption) {
+                assertThat(isModel(solver, clauses), is(true));
+                assertThat(solver.getModelValue(assumption), is(false));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the current model of the solver satisfies the given clauses.
+     *
+     * @param solver The solver.
+     * @param clauses The clauses.
+     *
+     * @return Whether all clauses are satisfied.
+     */
+    private static boolean isModel(CdclSolver solver, int[][] clauses) {
+        boolean result = true;
+        for (int[] clause : clauses) {
+            boolean satisfied = false;
+            for (int literal : clause) {
+                satisfied |= solver.getModelValue(Math.abs(literal)) == (literal > 0);
+            }
+            result &= satisfied;
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the clauses are satisfiable by trying all assignments.
+     *
+     * @param clauses The clauses.
+     * @param numVariables The number of variables.
+     * @param assumption A literal that must be true, or 0.
+     *
+     * @return Whether a satisfying assignment exists.
+     */
+    private static boolean bruteForce(int[][] clauses, int numVariables, int assumption) {
+        for (int assignment = 0; assignment < (1 << numVariables); assignment++) {
+            boolean all = true;
+            for (int[] clause : clauses) {
+                boolean satisfied = false;
+                for (int literal : clause) {
+                    boolean value = (assignment & (1 << (Math.abs(literal) - 1))) != 0;
+                    satisfied |= value == (literal > 0);
+                }
+                all &= satisfied;
+            }
+            if (assumption != 0) {
+                all &= ((assignment & (1 << (Math.abs(assumption) - 1))) != 0) == (assumption > 0);
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests the Luby sequence used for restarts.
+     */
+    @Test
+    public void testLuby() {
+        long[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8};
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(CdclSolver.luby(i), is(expected[i]));
+        }
+    }
+
+}
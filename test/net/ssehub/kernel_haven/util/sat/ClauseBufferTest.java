@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ClauseBuffer}.
+ *
+ * @author Adam
+ */
+public class ClauseBufferTest {
+
+    /**
+     * Tests adding and retrieving clauses, including growing the arrays.
+     */
+    @Test
+    public void testAddClauses() {
+        ClauseBuffer buffer = new ClauseBuffer(2);
+        assertThat(buffer.newVariable(), is(3));
+
+        for (int i = 1; i <= 100; i++) {
+            buffer.addClause(i, -(i + 1));
+        }
+        buffer.addClause();
+
+        assertThat(buffer.getNumClauses(), is(101));
+        assertThat(buffer.getNumLiterals(), is(200));
+        assertThat(buffer.getNumVariables(), is(101));
+        assertThat(buffer.getClause(0), is(new int[] {1, -2}));
+        assertThat(buffer.getClause(99), is(new int[] {100, -101}));
+        assertThat(buffer.getClause(100), is(new int[0]));
+        assertThat(buffer.newVariable(), is(102));
+    }
+
+    /**
+     * Tests that invalid clause indices throw an exception.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidClause() {
+        ClauseBuffer buffer = new ClauseBuffer();
+        buffer.addClause(1);
+        buffer.getClause(1);
+    }
+
+    /**
+     * Tests that literal 0 is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLiteral() {
+        new ClauseBuffer().addClause(1, 0);
+    }
+
+    /**
+     * Tests copying the clauses to another sink.
+     */
+    @Test
+    public void testAddTo() {
+        ClauseBuffer buffer = new ClauseBuffer();
+        buffer.addClause(1, 2);
+        buffer.addClause(-1);
+
+        CdclSolver solver = new CdclSolver(0);
+        buffer.addTo(solver);
+        assertThat(solver.solve(), is(true));
+        assertThat(solver.getModelValue(2), is(true));
+    }
+
+}
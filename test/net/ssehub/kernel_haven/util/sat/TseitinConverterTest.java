@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaEvaluator;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link TseitinConverter}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class TseitinConverterTest {
+
+    private static final int NUM_VARIABLES = 5;
+
+    /**
+     * Creates a random formula.
+     *
+     * @param random The random number generator.
+     * @param depth The maximum depth of the formula.
+     *
+     * @return A random formula.
+     */
+    private static Formula randomFormula(Random random, int depth) {
+        Formula result;
+        int type = depth == 0 ? 0 : random.nextInt(10);
+        if (type < 3) {
+            result = new Variable("V" + random.nextInt(NUM_VARIABLES));
+        } else if (type < 5) {
+            result = not(randomFormula(random, depth - 1));
+        } else if (type < 7) {
+            result = and(randomFormula(random, depth - 1), randomFormula(random, depth - 1));
+        } else if (type < 9) {
+            result = or(randomFormula(random, depth - 1), randomFormula(random, depth - 1));
+        } else {
+            result = random.nextBoolean() ? True.INSTANCE : False.INSTANCE;
+        }
+        return result;
+    }
+
+    /**
+     * Checks random formulas against the {@link FormulaEvaluator}: for each assignment of the original variables, the
+     * literal of the formula must be satisfiable exactly if the formula is true.
+     *
+     * @param polarityBased Whether to use polarity-based conversion.
+     */
+    private static void testRandomFormulas(boolean polarityBased) {
+        Random random = new Random(123);
+
+        for (int round = 0; round < 200; round++) {
+            CdclSolver solver = new CdclSolver(NUM_VARIABLES);
+            Map<String, Integer> fixed = new HashMap<>();
+            for (int i = 0; i < NUM_VARIABLES; i++) {
+                fixed.put("V" + i, i + 1);
+            }
+            TseitinConverter converter = new TseitinConverter(solver, fixed, polarityBased);
+
+            Formula formula = randomFormula(random, 5);
+            int literal = converter.convert(formula);
+            // convert a second time, to test sharing with a negative polarity
+            int negated = converter.convert(not(formula));
+
+            for (int assignment = 0; assignment < (1 << NUM_VARIABLES); assignment++) {
+                Map<String, Boolean> values = new HashMap<>();
+                int[] assumptions = new int[NUM_VARIABLES + 1];
+                for (int i = 0; i < NUM_VARIABLES; i++) {
+                    boolean value = (assignment & (1 << i)) != 0;
+                    values.put("V" + i, value);
+                    assumptions[i] = value ? i + 1 : -(i + 1);
+                }
+                boolean expected = formula.accept(new FormulaEvaluator(values));
+
+                assumptions[NUM_VARIABLES] = literal;
+                assertThat(formula.toString(), solver.solve(assumptions), is(expected));
+                assumptions[NUM_VARIABLES] = negated;
+                assertThat(formula.toString(), solver.solve(assumptions), is(!expected));
+                if (!polarityBased) {
+                    // the literal is equivalent to the formula
+                    assumptions[NUM_VARIABLES] = -literal;
+                    assertThat(formula.toString(), solver.solve(assumptions), is(!expected));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the full Tseitin conversion with random formulas.
+     */
+    @Test
+    public void testRandomFormulas() {
+        testRandomFormulas(false);
+    }
+
+    /**
+     * Tests the polarity-based conversion with random formulas.
+     */
+    @Test
+    public void testRandomFormulasPolarityBased() {
+        testRandomFormulas(true);
+    }
+
+    /**
+     * Tests that equal sub-formulas share their helper variables, and that nested operations are flattened.
+     */
+    @Test
+    public void testSharingAndFlattening() {
+        ClauseBuffer buffer = new ClauseBuffer();
+        TseitinConverter converter = new TseitinConverter(buffer, false);
+
+        Formula shared = or(and("A", "B"), "C");
+        int first = converter.convert(and(shared, "D"));
+        assertThat(buffer.getNumVariables(), is(7)); // A, B, C, D and one helper for each operation
+
+        int clauses = buffer.getNumClauses();
+        converter.convert(and(shared, "E"));
+        // only E, the new conjunction and its clauses are added
+        assertThat(buffer.getNumVariables(), is(9));
+        assertThat(buffer.getNumClauses(), is(clauses + 3));
+
+        assertThat(converter.convert(and(shared, "D")), is(first));
+        assertThat(converter.convert(not(and(shared, "D"))), is(-first));
+        assertThat(buffer.getNumClauses(), is(clauses + 3));
+
+        // (A && C) && (B && D) is a single conjunction with four operands
+        int literal = converter.convert(and(and("A", "C"), and("B", "D")));
+        assertThat(buffer.getClause(buffer.getNumClauses() - 1), is(new int[] {literal, -1, -4, -2, -6}));
+
+        // A && B was converted before, so it is shared instead of flattened
+        literal = converter.convert(and(and("A", "B"), "C"));
+        assertThat(buffer.getClause(buffer.getNumClauses() - 1).length, is(3));
+
+        assertThat(converter.getVariableMapping().get("D"), is(6));
+        assertThat(converter.getNumHelperVariables(), is(buffer.getNumVariables()));
+    }
+
+    /**
+     * Tests adding formulas as constraints.
+     */
+    @Test
+    public void testAddConstraint() {
+        ClauseBuffer buffer = new ClauseBuffer();
+        TseitinConverter converter = new TseitinConverter(buffer, true);
+
+        converter.addConstraint(and(or("A", not("B")), and("C", or("D", and("A", "C")))));
+        assertThat(buffer.getNumClauses(), is(5)); // 3 top-level clauses, 2 for the nested conjunction
+        assertThat(buffer.getClause(0), is(new int[] {1, -2}));
+        assertThat(buffer.getClause(1), is(new int[] {3}));
+
+        CdclSolver solver = new CdclSolver(0);
+        buffer.addTo(solver);
+        assertThat(solver.solve(-4), is(true));
+        assertThat(solver.getModelValue(1), is(true));
+        assertThat(solver.solve(-4, -1), is(false));
+
+        converter = new TseitinConverter(solver, converter.getVariableMapping(), true);
+        converter.addConstraint(False.INSTANCE);
+        assertThat(solver.solve(), is(false));
+    }
+
+    /**
+     * Converts large presence conditions shaped like those of the Linux kernel: disjunctions of nested
+     * <code>#ifdef</code> blocks over tristate variables. Distributing these into CNF would create more than
+     * <code>2^100</code> clauses; the Tseitin conversion must stay linear.
+     */
+    @Test(timeout = 10000)
+    public void testLargeKernelConditions() {
+        Random random = new Random(7);
+        int numBlocks = 200;
+
+        Formula condition = False.INSTANCE;
+        int size = 0;
+        for (int i = 0; i < numBlocks; i++) {
+            Formula block = True.INSTANCE;
+            for (int depth = 0; depth < 1 + random.nextInt(4); depth++) {
+                String name = "CONFIG_" + random.nextInt(500);
+                Formula tristate = or(name, name + "_MODULE");
+                block = and(block, random.nextInt(5) == 0 ? not(tristate) : tristate);
+                size++;
+            }
+            condition = or(condition, block);
+        }
+
+        for (boolean polarityBased : new boolean[] {false, true}) {
+            ClauseBuffer buffer = new ClauseBuffer();
+            TseitinConverter converter = new TseitinConverter(buffer, polarityBased);
+            int literal = converter.convert(condition);
+
+            assertTrue(buffer.getNumClauses() < 10 * size);
+
+            CdclSolver solver = new CdclSolver(0);
+            buffer.addTo(solver);
+            assertThat(solver.solve(literal), is(true));
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.sat;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.variability_model.DimacsClauses;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * Tests the {@link VariabilityModelSolver}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class VariabilityModelSolverTest {
+
+    private static final File DIMACS_FILE = new File("testdata/vmCaching/testmodel.dimacs");
+
+    private static final Variable ALPHA = new Variable("ALPHA");
+
+    private static final Variable ALPHA_MODULE = new Variable("ALPHA_MODULE");
+
+    private static final Variable GAMMA = new Variable("GAMMA");
+
+    private static final Variable BETA = new Variable("BETA");
+
+    private static final Variable BETA_MODULE = new Variable("BETA_MODULE");
+
+    /**
+     * Creates the variability model for the test DIMACS file.
+     *
+     * @return The variability model, without loaded clauses.
+     */
+    private static VariabilityModel createVarModel() {
+        Set<VariabilityVariable> variables = new HashSet<>();
+        variables.add(new VariabilityVariable("ALPHA", "bool", 1));
+        variables.add(new VariabilityVariable("ALPHA_MODULE", "bool", 2));
+        variables.add(new VariabilityVariable("GAMMA", "bool", 3));
+        variables.add(new VariabilityVariable("BETA_MODULE", "bool", 4));
+        variables.add(new VariabilityVariable("BETA", "bool", 5));
+        return new VariabilityModel(DIMACS_FILE, variables);
+    }
+
+    /**
+     * Checks the results of various queries.
+     *
+     * @param solver The solver to check.
+     */
+    private static void checkQueries(VariabilityModelSolver solver) {
+        assertThat(solver.isSatisfiable(), is(true));
+        assertThat(solver.isSatisfiable(True.INSTANCE), is(true));
+        assertThat(solver.isSatisfiable(False.INSTANCE), is(false));
+
+        // GAMMA requires ALPHA and not ALPHA
+        assertThat(solver.isSatisfiable(GAMMA), is(false));
+        assertThat(solver.isTautology(not(GAMMA)), is(true));
+
+        assertThat(solver.isSatisfiable(and(ALPHA, BETA)), is(true));
+        assertThat(solver.isSatisfiable(and(ALPHA, BETA_MODULE)), is(false));
+        assertThat(solver.isSatisfiable(or(GAMMA, BETA_MODULE)), is(true));
+
+        // ALPHA implies ALPHA_MODULE
+        assertThat(solver.isTautology(or(not(ALPHA), ALPHA_MODULE)), is(true));
+        assertThat(solver.isTautology(ALPHA_MODULE), is(false));
+    }
+
+    /**
+     * Tests queries with the clauses read from the constraint model file.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testQueries() throws IOException, FormatException {
+        VariabilityModelSolver solver = new VariabilityModelSolver(createVarModel());
+        checkQueries(solver);
+        // the second time, the results come from the cache
+        checkQueries(solver);
+    }
+
+    /**
+     * Tests queries with the clauses already loaded in the variability model, and without a result cache.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testQueriesWithLoadedClausesWithoutCache() throws IOException, FormatException {
+        VariabilityModel varModel = createVarModel();
+        varModel.setClauses(DimacsClauses.load(DIMACS_FILE));
+
+        VariabilityModelSolver solver = new VariabilityModelSolver(varModel, 0);
+        checkQueries(solver);
+        checkQueries(solver);
+    }
+
+    /**
+     * Tests that variables that are not part of the variability model are unconstrained.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testUnknownVariables() throws IOException, FormatException {
+        VariabilityModelSolver solver = new VariabilityModelSolver(createVarModel());
+        Variable unknown = new Variable("UNKNOWN");
+
+        assertThat(solver.isSatisfiable(unknown), is(true));
+        assertThat(solver.isSatisfiable(not(unknown)), is(true));
+        assertThat(solver.isSatisfiable(and(unknown, not(unknown))), is(false));
+        assertThat(solver.isSatisfiable(and(unknown, GAMMA)), is(false));
+        assertThat(solver.isTautology(or(unknown, not(unknown))), is(true));
+    }
+
+    /**
+     * Tests concurrent queries from multiple threads.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testConcurrentQueries() throws IOException, FormatException, InterruptedException {
+        VariabilityModelSolver solver = new VariabilityModelSolver(createVarModel(), 10);
+        AtomicInteger failures = new AtomicInteger();
+
+        Formula sat = and(ALPHA, BETA);
+        Formula unsat = and(ALPHA, BETA_MODULE);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    // new variables each time, so that the cache is filled and cleared
+                    Variable other = new Variable("OTHER_" + j);
+                    if (!solver.isSatisfiable(and(sat, other)) || solver.isSatisfiable(and(unsat, other))) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures.get(), is(0));
+    }
+
+}
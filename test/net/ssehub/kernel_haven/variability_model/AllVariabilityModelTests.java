@@ -26,7 +26,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
     VariabilityModelCacheTest.class,
     VariabilityModelProviderTest.class,
-    DIMACSVariabilityModelExtractorTest.class
+    DIMACSVariabilityModelExtractorTest.class,
+    DimacsParserTest.class
     })
 public class AllVariabilityModelTests {
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.variability_model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.FormatException;
+
+/**
+ * Tests the {@link DimacsParser}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class DimacsParserTest {
+
+    private static final File TMP_FILE = new File("testdata/dimacs_parser_tmp.dimacs");
+
+    /**
+     * Deletes the temporary file.
+     */
+    @After
+    public void tearDown() {
+        TMP_FILE.delete();
+    }
+
+    /**
+     * Writes the given content to the {@link #TMP_FILE}.
+     *
+     * @param content The content to write.
+     *
+     * @throws IOException unwanted.
+     */
+    private static void writeFile(String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(TMP_FILE)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Creates a variable from the parts of a comment line, like the {@link DIMACSVariabilityModelExtractor} does.
+     *
+     * @param tokens The parts of the comment line.
+     *
+     * @return The variable, or <code>null</code> if the comment does not describe a variable.
+     */
+    private static VariabilityVariable parseComment(String[] tokens) {
+        VariabilityVariable result = null;
+        if (tokens.length >= 3 && tokens[1].matches("[0-9]+")) {
+            result = new VariabilityVariable(tokens[2], "bool", Integer.parseInt(tokens[1]));
+        }
+        return result;
+    }
+
+    /**
+     * Tests parsing variables and clauses, including a clause that spans multiple lines and a last clause without a
+     * terminating 0.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testVariablesAndClauses() throws IOException, FormatException {
+        writeFile("c 1 VAR1\n"
+                + "c some random comment\n"
+                + "c 2 VAR2\n"
+                + "p cnf 3 4\n"
+                + "1 -2 0\n"
+                + "  -1   3 0\r\n"
+                + "2\n"
+                + "-3 0\n"
+                + "1 2 3");
+
+        DimacsParser parser = new DimacsParser(TMP_FILE, DimacsParserTest::parseComment, true, 1);
+        parser.parse();
+
+        List<VariabilityVariable> variables = parser.getVariables();
+        assertThat(variables.size(), is(2));
+        assertThat(variables.get(0), is(new VariabilityVariable("VAR1", "bool", 1)));
+        assertThat(variables.get(1), is(new VariabilityVariable("VAR2", "bool", 2)));
+
+        DimacsClauses clauses = parser.getClauses();
+        assertThat(clauses.getNumVariables(), is(3));
+        assertThat(clauses.getNumClauses(), is(4));
+        assertThat(clauses.getNumLiterals(), is(9));
+        assertThat(clauses.getClause(0), is(new int[] {1, -2}));
+        assertThat(clauses.getClause(1), is(new int[] {-1, 3}));
+        assertThat(clauses.getClause(2), is(new int[] {2, -3}));
+        assertThat(clauses.getClause(3), is(new int[] {1, 2, 3}));
+        assertThat(clauses.getClauseLength(3), is(3));
+        assertThat(clauses.getLiteral(1, 1), is(3));
+    }
+
+    /**
+     * Tests that the clauses are not loaded if not requested.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testWithoutClauses() throws IOException, FormatException {
+        writeFile("c 1 VAR1\np cnf 1 1\n1 0\n");
+
+        DimacsParser parser = new DimacsParser(TMP_FILE, DimacsParserTest::parseComment, false, 1);
+        parser.parse();
+
+        assertThat(parser.getVariables().size(), is(1));
+        assertThat(parser.getClauses(), nullValue());
+    }
+
+    /**
+     * Tests that parsing the file in many small chunks in parallel gives the same result as parsing it at once.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testParallelChunks() throws IOException, FormatException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 50; i++) {
+            content.append("c ").append(i).append(" VAR").append(i).append('\n');
+        }
+        content.append("p cnf 50 49\n");
+        for (int i = 1; i < 50; i++) {
+            // every second clause spans two lines
+            content.append(-i).append(i % 2 == 0 ? "\n" : " ").append(i + 1).append(" 0\n");
+        }
+        writeFile(content.toString());
+
+        DimacsParser single = new DimacsParser(TMP_FILE, DimacsParserTest::parseComment, true, 1);
+        single.parse();
+        DimacsParser parallel = new DimacsParser(TMP_FILE, DimacsParserTest::parseComment, true, 4, 16);
+        parallel.parse();
+
+        assertThat(parallel.getVariables(), is(single.getVariables()));
+        assertThat(parallel.getClauses(), is(single.getClauses()));
+        assertThat(parallel.getVariables().size(), is(50));
+        assertThat(parallel.getClauses().getNumClauses(), is(49));
+        assertThat(parallel.getClauses().getClause(47), is(new int[] {-48, 49}));
+    }
+
+    /**
+     * Tests that an invalid literal in a clause correctly throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidLiteral() throws IOException, FormatException {
+        writeFile("p cnf 2 1\n1 x2 0\n");
+
+        new DimacsParser(TMP_FILE, null, true, 1).parse();
+    }
+
+    /**
+     * Tests that an invalid problem line correctly throws a {@link FormatException}.
+     *
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidProblemLine() throws IOException, FormatException {
+        writeFile("p cnf two 1\n1 2 0\n");
+
+        new DimacsParser(TMP_FILE, null, true, 1).parse();
+    }
+
+}
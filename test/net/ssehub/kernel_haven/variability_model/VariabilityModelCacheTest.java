@@ -25,6 +25,7 @@ import static org.junit.Assert.assertThat;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
@@ -220,6 +221,113 @@ public class VariabilityModelCacheTest {
         assertThat(readVm.getVariables(), is(originalVm.getVariables()));
     }
 
+    /**
+     * Tests that the read variability model directly references the constraint model in the cache directory, instead
+     * of a copy.
+     * 
+     * @throws IOException
+     *             unwanted.
+     * @throws FormatException
+     *             unwanted.
+     */
+    @Test
+    public void testConstraintModelNotCopied() throws IOException, FormatException {
+        File dimacsFile = new File("testdata/vmCaching/testmodel.dimacs");
+        JsonVariabilityModelCache cache = new JsonVariabilityModelCache(cacheDir);
+        cache.write(new VariabilityModel(dimacsFile, new HashSet<>()));
+        
+        File constraintFile = new File(cacheDir, "vmCache.constraints");
+        assertThat(constraintFile.isFile(), is(true));
+        assertThat(constraintFile.length(), is(dimacsFile.length()));
+        
+        assertThat(cache.read(new File("")).getConstraintModel(), is(constraintFile));
+        assertThat(cache.read(new File("")).getConstraintModel(), is(constraintFile));
+        
+        // writing again replaces the constraint model
+        cache.write(new VariabilityModel(dimacsFile, new HashSet<>()));
+        assertThat(cache.read(new File("")).getConstraintModel(), is(constraintFile));
+        assertThat(cacheDir.listFiles().length, is(2));
+    }
+    
+    /**
+     * Tests that a constraint model that does not match the cache correctly throws a {@link FormatException}.
+     * 
+     * @throws IOException
+     *             unwanted.
+     * @throws FormatException
+     *             wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testConstraintModelMismatch() throws IOException, FormatException {
+        JsonVariabilityModelCache cache = new JsonVariabilityModelCache(cacheDir);
+        cache.write(new VariabilityModel(new File("testdata/vmCaching/testmodel.dimacs"), new HashSet<>()));
+        
+        try (FileWriter out = new FileWriter(new File(cacheDir, "vmCache.constraints"))) {
+            out.write("p cnf 0 0\n");
+        }
+        
+        cache.read(new File(""));
+    }
+
+    /**
+     * Tests that the clauses of a DIMACS constraint model are re-loaded when reading the cache.
+     *
+     * @throws IOException
+     *             unwanted.
+     * @throws FormatException
+     *             unwanted.
+     */
+    @Test
+    public void testClausesRestored() throws IOException, FormatException {
+        File dimacsFile = new File("testdata/vmCaching/testmodel.dimacs");
+        DimacsParser parser = new DimacsParser(dimacsFile, null, true, 1);
+        parser.parse();
+
+        VariabilityModel originalVm = new VariabilityModel(dimacsFile, new HashSet<>());
+        originalVm.setClauses(parser.getClauses());
+        originalVm.getDescriptor().setConstraintFileType(ConstraintFileType.DIMACS);
+        originalVm.getDescriptor().addAttribute(Attribute.CLAUSES);
+
+        JsonVariabilityModelCache cache = new JsonVariabilityModelCache(cacheDir);
+        cache.write(originalVm);
+
+        VariabilityModel readVm = cache.read(new File(""));
+        assertThat(readVm.getClauses(), is(parser.getClauses()));
+        assertThat(readVm.getClauses().getNumClauses(), is(7));
+    }
+
+    /**
+     * Tests that the clauses are stored in a binary file next to the cache, and that they are parsed from the
+     * constraint model if this file is missing.
+     *
+     * @throws IOException
+     *             unwanted.
+     * @throws FormatException
+     *             unwanted.
+     */
+    @Test
+    public void testClausesBinaryFile() throws IOException, FormatException {
+        File dimacsFile = new File("testdata/vmCaching/testmodel.dimacs");
+        DimacsParser parser = new DimacsParser(dimacsFile, null, true, 1);
+        parser.parse();
+
+        VariabilityModel originalVm = new VariabilityModel(dimacsFile, new HashSet<>());
+        originalVm.setClauses(parser.getClauses());
+        originalVm.getDescriptor().setConstraintFileType(ConstraintFileType.DIMACS);
+        originalVm.getDescriptor().addAttribute(Attribute.CLAUSES);
+
+        JsonVariabilityModelCache cache = new JsonVariabilityModelCache(cacheDir, 2);
+        cache.write(originalVm);
+
+        File clausesFile = new File(cacheDir, "vmCache.clauses");
+        assertThat(clausesFile.isFile(), is(true));
+        assertThat(DimacsClauses.readBinary(clausesFile), is(parser.getClauses()));
+
+        clausesFile.delete();
+        VariabilityModel readVm = cache.read(new File(""));
+        assertThat(readVm.getClauses(), is(parser.getClauses()));
+    }
+
     /**
      * Tests three cases first: if the code location path and the line number
      * matches the given path in the cache with a normal variable. second: if
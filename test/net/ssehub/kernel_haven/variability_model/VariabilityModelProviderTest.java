@@ -243,8 +243,8 @@ public class VariabilityModelProviderTest {
         } catch (InterruptedException e) {
         }
         
-        // test if cache is now not empty
-        assertThat(cacheDir.listFiles().length, is(1));
+        // test if cache is now not empty (JSON and constraint model)
+        assertThat(cacheDir.listFiles().length, is(2));
         
         // cleanup
         Util.deleteFolder(cacheDir);